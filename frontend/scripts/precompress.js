@@ -0,0 +1,46 @@
+// Runs after `npm run build` (as the postbuild script): writes a brotli (.br)
+// and a gzip (.gz) copy next to each text file in build/ that is big enough
+// to be worth compressing.  Spring Boot serves the copy matching the
+// browser's Accept-Encoding (spring.web.resources.chain.compressed), so the
+// files are compressed once, at the highest levels, instead of per request.
+
+const fs = require("fs");
+const path = require("path");
+const zlib = require("zlib");
+
+const buildDir = path.join(__dirname, "..", "build");
+const extensions = [".html", ".js", ".css", ".json", ".svg", ".txt", ".map"];
+const minSize = 1024; // same as server.compression.min-response-size
+
+const files = (dir) =>
+  fs.readdirSync(dir, { withFileTypes: true }).flatMap((entry) => {
+    const file = path.join(dir, entry.name);
+    return entry.isDirectory() ? files(file) : [file];
+  });
+
+let original = 0;
+let brotli = 0;
+let gzip = 0;
+
+files(buildDir)
+  .filter((file) => extensions.includes(path.extname(file)))
+  .forEach((file) => {
+    const contents = fs.readFileSync(file);
+    if (contents.length < minSize) {
+      return;
+    }
+    const br = zlib.brotliCompressSync(contents, {
+      params: {
+        [zlib.constants.BROTLI_PARAM_QUALITY]: zlib.constants.BROTLI_MAX_QUALITY,
+        [zlib.constants.BROTLI_PARAM_SIZE_HINT]: contents.length,
+      },
+    });
+    const gz = zlib.gzipSync(contents, { level: zlib.constants.Z_BEST_COMPRESSION });
+    fs.writeFileSync(file + ".br", br);
+    fs.writeFileSync(file + ".gz", gz);
+    original += contents.length;
+    brotli += br.length;
+    gzip += gz.length;
+  });
+
+console.log(`precompress: ${original} bytes -> ${brotli} brotli, ${gzip} gzip`);
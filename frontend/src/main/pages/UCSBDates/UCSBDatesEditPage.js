@@ -22,16 +22,21 @@ export default function UCSBDatesEditPage() {
     );
 
 
-  const objectToAxiosPutParams = (ucsbDate) => ({
+  const objectToAxiosPutParams = (edited) => ({
     url: "/api/ucsbdates",
     method: "PUT",
     params: {
-      id: ucsbDate.id,
+      id: edited.id,
+    },
+    // the ETag of the row the edit started from, i.e. its version in quotes;
+    // the update fails (412) if someone saved a newer one
+    headers: {
+      "If-Match": `"${ucsbDate.version}"`
     },
     data: {
-      quarterYYYYQ: ucsbDate.quarterYYYYQ,
-      name: ucsbDate.name,
-      localDateTime: ucsbDate.localDateTime
+      quarterYYYYQ: edited.quarterYYYYQ,
+      name: edited.name,
+      localDateTime: edited.localDateTime
     }
   });
 
@@ -78,7 +78,8 @@ describe("UCSBDatesEditPage tests", () => {
                 id: 17,
                 quarterYYYYQ: '20221',
                 name: "Pi Day",
-                localDateTime: "2022-03-14T15:00"
+                localDateTime: "2022-03-14T15:00",
+                version: 3
             });
             axiosMock.onPut('/api/ucsbdates').reply(200, {
                 id: "17",
@@ -156,12 +157,14 @@ describe("UCSBDatesEditPage tests", () => {
 
             fireEvent.click(submitButton);
 
-            await waitFor(() => expect(mockToast).toBeCalled);
+            await waitFor(() => expect(mockToast).toBeCalled());
             expect(mockToast).toBeCalledWith("UCSBDate Updated - id: 17 name: Christmas Morning");
             expect(mockNavigate).toBeCalledWith({ "to": "/ucsbdates/list" });
 
             expect(axiosMock.history.put.length).toBe(1); // times called
             expect(axiosMock.history.put[0].params).toEqual({ id: 17 });
+            // the version of the row as fetched, in quotes, as GET /api/ucsbdates?id= gives it in its ETag
+            expect(axiosMock.history.put[0].headers["If-Match"]).toBe('"3"');
             expect(axiosMock.history.put[0].data).toBe(JSON.stringify({
                 quarterYYYYQ: '20224',
                 name: "Christmas Morning",
@@ -0,0 +1,137 @@
+package edu.ucsb.cs156.example.benchmarks;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+import edu.ucsb.cs156.example.entities.Articles;
+import edu.ucsb.cs156.example.models.ArticleMatch;
+import edu.ucsb.cs156.example.repositories.ArticlesRepository;
+import edu.ucsb.cs156.example.services.ArticleSearchService;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ArticleSearchService.search() (what GET /api/articles/search does once the
+ * index is loaded) over 10k and 1M made-up articles, for a query of one
+ * common word, two rarer words, and a common word followed by a prefix.
+ *
+ * The words of the articles are drawn from a 20k word vocabulary of random
+ * letters with a Zipf-like distribution, as in real text.  The repository is a Mockito mock
+ * that makes the articles up as they are read, so no database is involved;
+ * the time includes building the ArticleMatch list but not a real
+ * findAllById().
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "-Xms4g", "-Xmx4g" })
+public class ArticleSearchBenchmark {
+
+  private static final int VOCABULARY = 20_000;
+
+  @Param({ "10000", "1000000" })
+  public int articles;
+
+  @Param({ "common", "rare", "prefix" })
+  public String query;
+
+  private ArticleSearchService service;
+  private String q;
+
+  private static final String[] WORDS = new String[VOCABULARY];
+
+  static {
+    Random random = new Random(156);
+    for (int i = 0; i < VOCABULARY; i++) {
+      StringBuilder word = new StringBuilder();
+      for (int length = 3 + random.nextInt(8); length > 0; length--) {
+        word.append((char) ('a' + random.nextInt(26)));
+      }
+      WORDS[i] = word.toString();
+    }
+  }
+
+  // word 0 is the most common, word n about n+1 times less so
+  private static String word(Random random) {
+    return WORDS[(int) Math.pow(VOCABULARY, random.nextDouble()) - 1];
+  }
+
+  private static Articles article(long id) {
+    Random random = new Random(id);
+    StringBuilder title = new StringBuilder();
+    for (int i = 0; i < 6; i++) {
+      title.append(word(random)).append(' ');
+    }
+    StringBuilder explanation = new StringBuilder();
+    for (int i = 0; i < 40; i++) {
+      explanation.append(word(random)).append(' ');
+    }
+    return Articles.builder()
+        .id(id)
+        .title(title.toString())
+        .url("https://example.org/" + id)
+        .explanation(explanation.toString())
+        .email("benchmark@ucsb.edu")
+        .build();
+  }
+
+  @Setup
+  @SuppressWarnings("unchecked")
+  public void setUp() {
+    // stubOnly, or the mock would keep every page it returned
+    ArticlesRepository repository = mock(ArticlesRepository.class, withSettings().stubOnly());
+    when(repository.findAllByIdGreaterThanOrderByIdAsc(anyLong(), any())).thenAnswer(invocation -> {
+      long after = invocation.getArgument(0);
+      Pageable page = invocation.getArgument(1);
+      List<Articles> batch = new ArrayList<>();
+      for (long id = after + 1; id <= Math.min(articles, after + page.getPageSize()); id++) {
+        batch.add(article(id));
+      }
+      return batch;
+    });
+    when(repository.findAllById(anyIterable())).thenAnswer(invocation -> {
+      List<Articles> found = new ArrayList<>();
+      for (Long id : (Iterable<Long>) invocation.getArgument(0)) {
+        found.add(article(id));
+      }
+      return found;
+    });
+    service = new ArticleSearchService();
+    ReflectionTestUtils.setField(service, "articlesRepository", repository);
+    service.search(WORDS[0], 1);
+
+    q = switch (query) {
+      case "common" -> WORDS[1];
+      case "rare" -> WORDS[300] + " " + WORDS[400];
+      default -> WORDS[0] + " " + WORDS[12].substring(0, 3);
+    };
+  }
+
+  @Benchmark
+  public List<ArticleMatch> search() {
+    return service.search(q, 10);
+  }
+}
@@ -0,0 +1,96 @@
+package edu.ucsb.cs156.example.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import edu.ucsb.cs156.example.entities.Articles;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * What gzip costs and saves on a GET /api/articles/all response, for lists
+ * from 1 to 1000 articles and for fast (1), default (6, what Tomcat uses) and
+ * best (9) compression.
+ *
+ * The time is the extra server CPU per response; the bytes (reported as the
+ * bodyBytes and sentBytes counters) are what goes over the wire.  Dividing
+ * the bytes saved by the link speed gives the transfer time saved, e.g.
+ * 1 ms per 1.25 KB on a 10 Mbit/s connection.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompressionBenchmark {
+
+  @Param({ "1", "10", "100", "1000" })
+  public int listSize;
+
+  @Param({ "1", "6", "9" })
+  public int level;
+
+  private byte[] body;
+
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  public static class Sizes {
+    public long bodyBytes;
+    public long sentBytes;
+  }
+
+  @Setup
+  public void setup() throws Exception {
+    ObjectWriter writer = Jackson2ObjectMapperBuilder.json().build().writer();
+    LocalDateTime when = LocalDateTime.parse("2022-01-03T00:00:00");
+    List<Articles> articles = new ArrayList<>(listSize);
+    for (int i = 1; i <= listSize; i++) {
+      articles.add(Articles.builder()
+          .id(i)
+          .title("Article " + i)
+          .url("https://example.org/articles/" + i)
+          .explanation(("Article " + i + " explains how the project's Spring Boot backend "
+              + "and React frontend fit together, with examples. ").repeat(6))
+          .email("author" + i + "@ucsb.edu")
+          .dateAdded(when.plusMinutes(i))
+          .build());
+    }
+    body = writer.writeValueAsBytes(articles);
+  }
+
+  @Benchmark
+  public byte[] gzip(Sizes sizes) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream(body.length / 4);
+    try (GZIPOutputStream gzip = new GZIPOutputStream(out) {
+      {
+        def.setLevel(level);
+      }
+    }) {
+      gzip.write(body);
+    }
+    byte[] sent = out.toByteArray();
+    sizes.bodyBytes = body.length;
+    sizes.sentBytes = sent.length;
+    return sent;
+  }
+}
@@ -0,0 +1,92 @@
+package edu.ucsb.cs156.example.benchmarks;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Requests per second through a HikariCP pool when 64 request threads share
+ * it, as under load, for pools of 10 connections (Hikari's default), the
+ * (2 * CPUs) + 1 that config/DataSourcePoolConfig picks (poolSize = 0) and
+ * 64 (one per thread), with and without leak detection.
+ *
+ * Each request borrows a connection and runs a query that takes queryMillis
+ * on an in-memory H2 database, standing in for a round trip to Postgres.
+ * Because the query only sleeps, bigger pools always win here; against a
+ * real database the gain stops, then reverses, once the connections outnumber
+ * what its CPUs and disks can work on at once.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(64)
+@Fork(1)
+public class ConnectionPoolBenchmark {
+
+  @Param({ "10", "0", "64" })
+  public int poolSize;
+
+  @Param({ "0", "30000" })
+  public long leakDetectionThreshold;
+
+  @Param({ "2" })
+  public int queryMillis;
+
+  private HikariDataSource dataSource;
+
+  /** Thread.sleep, callable from SQL. */
+  public static void sleep(int millis) throws InterruptedException {
+    Thread.sleep(millis);
+  }
+
+  @Setup(Level.Trial)
+  public void setup() throws SQLException {
+    HikariConfig config = new HikariConfig();
+    config.setJdbcUrl("jdbc:h2:mem:pool;DB_CLOSE_DELAY=-1");
+    config.setUsername("sa");
+    config.setPoolName("db");
+    config.setMaximumPoolSize(poolSize > 0 ? poolSize : 2 * Runtime.getRuntime().availableProcessors() + 1);
+    config.setConnectionTimeout(10_000);
+    config.setLeakDetectionThreshold(leakDetectionThreshold);
+    dataSource = new HikariDataSource(config);
+    try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+      statement.execute("CREATE ALIAS IF NOT EXISTS SLEEP FOR \"" + getClass().getName() + ".sleep\"");
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    dataSource.close();
+  }
+
+  @Benchmark
+  public boolean request() throws SQLException {
+    try (Connection connection = dataSource.getConnection();
+        PreparedStatement statement = connection.prepareStatement("CALL SLEEP(?)")) {
+      statement.setInt(1, queryMillis);
+      return statement.execute();
+    }
+  }
+}
@@ -0,0 +1,49 @@
+package edu.ucsb.cs156.example.benchmarks;
+
+import edu.ucsb.cs156.example.entities.HelpRequest;
+import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the 404 path: every GET/PUT/DELETE for a missing id builds an
+ * EntityNotFoundException (message formatting plus stack trace capture).
+ *
+ * baselineRuntimeException is a plain exception with a constant message,
+ * for comparison.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EntityNotFoundExceptionBenchmark {
+
+  private long id = 7L;
+
+  @Benchmark
+  public EntityNotFoundException construct() {
+    return new EntityNotFoundException(HelpRequest.class, id);
+  }
+
+  @Benchmark
+  public String constructAndGetMessage() {
+    return new EntityNotFoundException(HelpRequest.class, id).getMessage();
+  }
+
+  @Benchmark
+  public RuntimeException baselineRuntimeException() {
+    return new RuntimeException("not found");
+  }
+}
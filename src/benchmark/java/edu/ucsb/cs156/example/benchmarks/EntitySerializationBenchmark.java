@@ -0,0 +1,164 @@
+package edu.ucsb.cs156.example.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import edu.ucsb.cs156.example.entities.Articles;
+import edu.ucsb.cs156.example.entities.HelpRequest;
+import edu.ucsb.cs156.example.entities.MenuItemReview;
+import edu.ucsb.cs156.example.entities.RecommendationRequest;
+import edu.ucsb.cs156.example.entities.UCSBDate;
+import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+import edu.ucsb.cs156.example.entities.UCSBDiningCommonsMenuItem;
+import edu.ucsb.cs156.example.entities.UCSBOrganizations;
+import edu.ucsb.cs156.example.entities.User;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+
+/**
+ * Cost of turning each entity into the JSON the controllers return,
+ * both for a single entity (GET ?id=) and for a list of them (GET /all).
+ *
+ * The ObjectMapper is built the same way Spring Boot builds the one used
+ * by the message converters, so java.time values are written as ISO strings.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EntitySerializationBenchmark {
+
+  @Param({ "Articles", "HelpRequest", "MenuItemReview", "RecommendationRequest", "UCSBDate",
+      "UCSBDiningCommons", "UCSBDiningCommonsMenuItem", "UCSBOrganizations", "User" })
+  public String entity;
+
+  @Param({ "1000" })
+  public int listSize;
+
+  private ObjectWriter writer;
+  private Object one;
+  private List<Object> many;
+
+  @Setup
+  public void setup() {
+    ObjectMapper mapper = Jackson2ObjectMapperBuilder.json().build();
+    writer = mapper.writer();
+
+    IntFunction<Object> sample = sampleFor(entity);
+    one = sample.apply(1);
+    many = new ArrayList<>(listSize);
+    for (int i = 1; i <= listSize; i++) {
+      many.add(sample.apply(i));
+    }
+  }
+
+  @Benchmark
+  public byte[] serializeOne() throws Exception {
+    return writer.writeValueAsBytes(one);
+  }
+
+  @Benchmark
+  public byte[] serializeList() throws Exception {
+    return writer.writeValueAsBytes(many);
+  }
+
+  static IntFunction<Object> sampleFor(String entity) {
+    LocalDateTime when = LocalDateTime.parse("2022-01-03T00:00:00");
+    return switch (entity) {
+      case "Articles" -> i -> Articles.builder()
+          .id(i)
+          .title("Article " + i)
+          .url("https://example.org/articles/" + i)
+          .explanation("An article worth reading, number " + i)
+          .email("author" + i + "@ucsb.edu")
+          .dateAdded(when.plusMinutes(i))
+          .build();
+      case "HelpRequest" -> i -> HelpRequest.builder()
+          .id(i)
+          .requesterEmail("student" + i + "@ucsb.edu")
+          .teamId("s22-5pm-" + (i % 4))
+          .tableOrBreakoutRoom(Integer.toString(i % 12))
+          .requestTime(when.plusMinutes(i))
+          .explanation("Need help with merge conflicts")
+          .solved(i % 2 == 0)
+          .build();
+      case "MenuItemReview" -> i -> MenuItemReview.builder()
+          .id(i)
+          .itemId(i % 50)
+          .reviewerEmail("diner" + i + "@ucsb.edu")
+          .stars(i % 6)
+          .dateReviewed(when.plusMinutes(i))
+          .comments("Tasty, would eat again")
+          .build();
+      case "RecommendationRequest" -> i -> RecommendationRequest.builder()
+          .id(i)
+          .requesterEmail("student" + i + "@ucsb.edu")
+          .professorEmail("professor" + (i % 10) + "@ucsb.edu")
+          .explanation("Grad school application")
+          .dateRequested(when.plusMinutes(i))
+          .dateNeeded(when.plusDays(30))
+          .done(i % 2 == 0)
+          .build();
+      case "UCSBDate" -> i -> UCSBDate.builder()
+          .id(i)
+          .quarterYYYYQ("20221")
+          .name("Date " + i)
+          .localDateTime(when.plusMinutes(i))
+          .build();
+      case "UCSBDiningCommons" -> i -> UCSBDiningCommons.builder()
+          .code("commons-" + i)
+          .name("Dining Commons " + i)
+          .hasSackMeal(i % 2 == 0)
+          .hasTakeOutMeal(i % 3 == 0)
+          .hasDiningCam(true)
+          .latitude(34.409953)
+          .longitude(-119.85277)
+          .build();
+      case "UCSBDiningCommonsMenuItem" -> i -> UCSBDiningCommonsMenuItem.builder()
+          .id(i)
+          .diningCommonsCode("ortega")
+          .name("Menu item " + i)
+          .station("Entrees")
+          .build();
+      case "UCSBOrganizations" -> i -> UCSBOrganizations.builder()
+          .orgCode("ORG" + i)
+          .orgTranslationShort("Org " + i)
+          .orgTranslation("Organization number " + i)
+          .inactive(i % 5 == 0)
+          .build();
+      case "User" -> i -> User.builder()
+          .id(i)
+          .email("user" + i + "@ucsb.edu")
+          .googleSub("1000000000" + i)
+          .pictureUrl("https://lh3.googleusercontent.com/a/" + i)
+          .fullName("User Number" + i)
+          .givenName("User")
+          .familyName("Number" + i)
+          .emailVerified(true)
+          .locale("en")
+          .hostedDomain("ucsb.edu")
+          .admin(false)
+          .build();
+      default -> throw new IllegalArgumentException("no sample for " + entity);
+    };
+  }
+}
@@ -0,0 +1,127 @@
+package edu.ucsb.cs156.example.benchmarks;
+
+import edu.ucsb.cs156.example.entities.HelpRequest;
+import edu.ucsb.cs156.example.repositories.HelpRequestRepository;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HelpRequestRepository.findAll() (what GET /api/helprequests/all does)
+ * against an in-memory H2 database holding 10k, 100k and 1M rows, next to
+ * a single keyset page (what GET /api/helprequests/page does) for contrast.
+ *
+ * Only the JPA slice of the application is started: datasource, Liquibase,
+ * Hibernate and the repositories.  No web server, security or aspects.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xms4g", "-Xmx4g" })
+public class FindAllBenchmark {
+
+  private static final int INSERT_BATCH_SIZE = 10_000;
+
+  @Param({ "10000", "100000", "1000000" })
+  public int rows;
+
+  @Param({ "100" })
+  public int pageSize;
+
+  private ConfigurableApplicationContext context;
+  private HelpRequestRepository repository;
+  private long middleId;
+
+  @SpringBootConfiguration
+  @EnableAutoConfiguration
+  @EntityScan(basePackageClasses = HelpRequest.class)
+  @EnableJpaRepositories(basePackageClasses = HelpRequestRepository.class)
+  static class JpaOnly {
+  }
+
+  @Setup(Level.Trial)
+  public void setup() {
+    String url = "jdbc:h2:mem:findall-%d;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE".formatted(rows);
+    context = new SpringApplicationBuilder(JpaOnly.class)
+        .web(WebApplicationType.NONE)
+        .logStartupInfo(false)
+        .run(
+            "--spring.profiles.active=benchmark",
+            "--spring.datasource.url=" + url,
+            "--spring.datasource.username=sa",
+            "--spring.jpa.show-sql=false",
+            "--logging.level.root=WARN");
+    repository = context.getBean(HelpRequestRepository.class);
+    populate(context.getBean(JdbcTemplate.class), rows);
+    middleId = rows / 2;
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    context.close();
+  }
+
+  @Benchmark
+  public Iterable<HelpRequest> findAll() {
+    return repository.findAll();
+  }
+
+  @Benchmark
+  public List<HelpRequest> keysetPage() {
+    return repository.findAllByIdGreaterThanOrderByIdAsc(middleId, PageRequest.of(0, pageSize));
+  }
+
+  private static void populate(JdbcTemplate jdbc, int rows) {
+    String sql = """
+        INSERT INTO HELPREQUEST
+          (REQUESTER_EMAIL, TEAM_ID, TABLE_OR_BREAKOUT_ROOM, REQUEST_TIME, EXPLANATION, SOLVED)
+        VALUES (?, ?, ?, ?, ?, ?)
+        """;
+    Timestamp start = Timestamp.valueOf(LocalDateTime.parse("2022-01-03T00:00:00"));
+    List<Object[]> batch = new ArrayList<>(INSERT_BATCH_SIZE);
+    for (int i = 1; i <= rows; i++) {
+      batch.add(new Object[] {
+          "student" + i + "@ucsb.edu",
+          "s22-5pm-" + (i % 4),
+          Integer.toString(i % 12),
+          new Timestamp(start.getTime() + i * 60_000L),
+          "Need help with merge conflicts",
+          i % 2 == 0 });
+      if (batch.size() == INSERT_BATCH_SIZE) {
+        jdbc.batchUpdate(sql, batch);
+        batch.clear();
+      }
+    }
+    if (!batch.isEmpty()) {
+      jdbc.batchUpdate(sql, batch);
+    }
+  }
+}
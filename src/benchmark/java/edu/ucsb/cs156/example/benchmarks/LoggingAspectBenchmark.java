@@ -0,0 +1,103 @@
+package edu.ucsb.cs156.example.benchmarks;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.core.helpers.NOPAppender;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+
+import edu.ucsb.cs156.example.aop.LoggingAspect;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.LoggerFactory;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request overhead LoggingAspect adds to a controller handler.
+ *
+ * proxied calls a @GetMapping method through a Spring AOP proxy carrying the
+ * aspect, exactly as a controller is called by the DispatcherServlet;
+ * direct calls the same method without the proxy.  The difference is the
+ * cost of the advice.  Log events are formatted but discarded by a
+ * NOPAppender, so I/O is not part of the measurement.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LoggingAspectBenchmark {
+
+  @Param({ "INFO", "WARN" })
+  public String level;
+
+  @Param({ "1.0", "0.1" })
+  public double sampleRate;
+
+  private Handlers direct;
+  private Handlers proxied;
+
+  public static class Handlers {
+    @GetMapping("/api/helprequests/all")
+    public String allHelpRequests() {
+      return "ok";
+    }
+  }
+
+  @Setup
+  public void setup() {
+    Logger logger = (Logger) LoggerFactory.getLogger(LoggingAspect.class);
+    logger.setLevel(Level.toLevel(level));
+    logger.setAdditive(false);
+    NOPAppender<ILoggingEvent> appender = new NOPAppender<>();
+    appender.setContext(logger.getLoggerContext());
+    appender.start();
+    logger.detachAndStopAllAppenders();
+    logger.addAppender(appender);
+
+    LoggingAspect aspect = new LoggingAspect();
+    ReflectionTestUtils.setField(aspect, "sampleRate", sampleRate);
+
+    direct = new Handlers();
+    AspectJProxyFactory factory = new AspectJProxyFactory(direct);
+    factory.setProxyTargetClass(true);
+    factory.addAspect(aspect);
+    proxied = factory.getProxy();
+
+    MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/helprequests/all");
+    RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+  }
+
+  @TearDown
+  public void tearDown() {
+    RequestContextHolder.resetRequestAttributes();
+  }
+
+  @Benchmark
+  public String direct() {
+    return direct.allHelpRequests();
+  }
+
+  @Benchmark
+  public String proxied() {
+    return proxied.allHelpRequests();
+  }
+}
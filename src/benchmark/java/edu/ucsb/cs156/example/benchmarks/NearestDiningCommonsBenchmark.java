@@ -0,0 +1,105 @@
+package edu.ucsb.cs156.example.benchmarks;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+import edu.ucsb.cs156.example.models.NearbyDiningCommons;
+import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsRepository;
+import edu.ucsb.cs156.example.services.DiningCommonsLocationService;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * DiningCommonsLocationService.nearest() (what GET
+ * /api/ucsbdiningcommons/nearest does once the index is loaded) for 10, 1000
+ * and 100k commons spread around Santa Barbara, next to sorting every commons
+ * by distance, which is what a client had to do with the /all list.
+ *
+ * The repository is a Mockito mock, so no database is involved.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NearestDiningCommonsBenchmark {
+
+  @Param({ "10", "1000", "100000" })
+  public int commons;
+
+  @Param({ "1", "10" })
+  public int k;
+
+  private final Random random = new Random(156);
+
+  private DiningCommonsLocationService service;
+  private List<UCSBDiningCommons> all;
+
+  @Setup
+  public void setUp() {
+    all = new ArrayList<>(commons);
+    for (int i = 0; i < commons; i++) {
+      all.add(UCSBDiningCommons.builder()
+          .code("commons-" + i)
+          .name("Commons " + i)
+          .latitude(34.3 + 0.2 * random.nextDouble())
+          .longitude(-119.95 + 0.3 * random.nextDouble())
+          .build());
+    }
+    UCSBDiningCommonsRepository repository = mock(UCSBDiningCommonsRepository.class);
+    when(repository.findAll()).thenReturn(all);
+    service = new DiningCommonsLocationService();
+    ReflectionTestUtils.setField(service, "ucsbDiningCommonsRepository", repository);
+    service.nearest(34.4125, -119.8487, k);
+  }
+
+  private double latitude() {
+    return 34.3 + 0.2 * random.nextDouble();
+  }
+
+  private double longitude() {
+    return -119.95 + 0.3 * random.nextDouble();
+  }
+
+  @Benchmark
+  public List<NearbyDiningCommons> nearest() {
+    return service.nearest(latitude(), longitude(), k);
+  }
+
+  @Benchmark
+  public List<UCSBDiningCommons> baselineSortAll() {
+    double latitude = latitude();
+    double longitude = longitude();
+    return all.stream()
+        .sorted(Comparator.comparingDouble(c -> haversine(latitude, longitude, c.getLatitude(), c.getLongitude())))
+        .limit(k)
+        .toList();
+  }
+
+  private static double haversine(double lat1, double lon1, double lat2, double lon2) {
+    double dLat = Math.toRadians(lat2 - lat1);
+    double dLon = Math.toRadians(lon2 - lon1);
+    double a = Math.pow(Math.sin(dLat / 2), 2)
+        + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * Math.pow(Math.sin(dLon / 2), 2);
+    return Math.asin(Math.sqrt(a));
+  }
+}
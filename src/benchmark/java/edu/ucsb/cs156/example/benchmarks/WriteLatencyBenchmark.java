@@ -0,0 +1,150 @@
+package edu.ucsb.cs156.example.benchmarks;
+
+import edu.ucsb.cs156.example.entities.HelpRequest;
+import edu.ucsb.cs156.example.repositories.HelpRequestRepository;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The repository calls behind PUT and DELETE /api/helprequests?id=, as they
+ * were (findById, then save or delete of the entity) and as they are now
+ * (one updateRowById or deleteRowById statement), against an in-memory H2
+ * database of 10k rows.
+ *
+ * Each delete benchmark deletes a row inserted for it before the call, outside
+ * the measured time.  H2 runs in the same JVM, so a round trip costs next to
+ * nothing here; against Postgres over the network each statement saved is
+ * also a round trip saved.
+ *
+ * Only the JPA slice of the application is started, as in FindAllBenchmark.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WriteLatencyBenchmark {
+
+  private static final int ROWS = 10_000;
+
+  private ConfigurableApplicationContext context;
+  private HelpRequestRepository repository;
+  private long updatedId;
+  // version of the row at updatedId, for updateRowById
+  private long updatedVersion;
+
+  private int edits = 0;
+
+  @SpringBootConfiguration
+  @EnableAutoConfiguration
+  @EntityScan(basePackageClasses = HelpRequest.class)
+  @EnableJpaRepositories(basePackageClasses = HelpRequestRepository.class)
+  static class JpaOnly {
+  }
+
+  private static HelpRequest helpRequest(int i) {
+    return HelpRequest.builder()
+        .requesterEmail("student" + i + "@ucsb.edu")
+        .teamId("s22-5pm-" + (i % 4))
+        .tableOrBreakoutRoom(Integer.toString(i % 12))
+        .requestTime(LocalDateTime.parse("2022-01-03T00:00:00").plusMinutes(i))
+        .explanation("Need help with merge conflicts")
+        .solved(false)
+        .build();
+  }
+
+  @Setup(Level.Trial)
+  public void setup() {
+    context = new SpringApplicationBuilder(JpaOnly.class)
+        .web(WebApplicationType.NONE)
+        .logStartupInfo(false)
+        .run(
+            "--spring.profiles.active=benchmark",
+            "--spring.datasource.url=jdbc:h2:mem:writelatency;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+            "--spring.datasource.username=sa",
+            "--spring.jpa.show-sql=false",
+            "--logging.level.root=WARN");
+    repository = context.getBean(HelpRequestRepository.class);
+    for (int i = 0; i < ROWS; i++) {
+      HelpRequest saved = repository.save(helpRequest(i));
+      if (i == ROWS / 2) {
+        updatedId = saved.getId();
+        updatedVersion = saved.getVersion();
+      }
+    }
+  }
+
+  /** A row for a delete benchmark to delete, inserted before each call. */
+  @State(Scope.Thread)
+  public static class RowToDelete {
+    long id;
+
+    @Setup(Level.Invocation)
+    public void insert(WriteLatencyBenchmark benchmark) {
+      id = benchmark.repository.save(helpRequest(ROWS)).getId();
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    context.close();
+  }
+
+  private HelpRequest edited() {
+    HelpRequest incoming = helpRequest(edits++);
+    incoming.setSolved(edits % 2 == 0);
+    return incoming;
+  }
+
+  @Benchmark
+  public HelpRequest findByIdThenSave() {
+    HelpRequest incoming = edited();
+    HelpRequest helpRequest = repository.findById(updatedId).orElseThrow();
+    helpRequest.setRequesterEmail(incoming.getRequesterEmail());
+    helpRequest.setTeamId(incoming.getTeamId());
+    helpRequest.setTableOrBreakoutRoom(incoming.getTableOrBreakoutRoom());
+    helpRequest.setExplanation(incoming.getExplanation());
+    helpRequest.setRequestTime(incoming.getRequestTime());
+    helpRequest.setSolved(incoming.getSolved());
+    return repository.save(helpRequest);
+  }
+
+  @Benchmark
+  public int updateRowById() {
+    int updated = repository.updateRowById(updatedId, updatedVersion, edited());
+    updatedVersion += updated;
+    return updated;
+  }
+
+  @Benchmark
+  public void findByIdThenDelete(RowToDelete row) {
+    repository.delete(repository.findById(row.id).orElseThrow());
+  }
+
+  @Benchmark
+  public int deleteRowById(RowToDelete row) {
+    return repository.deleteRowById(row.id);
+  }
+}
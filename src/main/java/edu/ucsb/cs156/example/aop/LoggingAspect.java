@@ -4,15 +4,20 @@ import lombok.extern.slf4j.Slf4j;
 import org.aspectj.lang.JoinPoint;
 import org.aspectj.lang.annotation.Aspect;
 import org.aspectj.lang.annotation.Before;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
 import org.springframework.web.context.request.RequestContextHolder;
 import org.springframework.web.context.request.ServletRequestAttributes;
 
 import javax.servlet.http.HttpServletRequest;
 
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Optional;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
 
 @Slf4j
 @Aspect
@@ -28,25 +33,49 @@ public class LoggingAspect {
       @annotation(org.springframework.web.bind.annotation.PatchMapping)
       """;
 
-  private ArrayList<String> stoplist = new ArrayList<String>(Arrays.asList(
-      "edu.ucsb.cs156.example.controllers.FrontendProxyController"));
+  private static final Set<String> stoplist = Set.of(
+      "edu.ucsb.cs156.example.controllers.FrontendProxyController");
+
+  // Marks handler methods whose declaring class is on the stoplist
+  private static final String NOT_LOGGED = "";
+
+  // "method in class" for each handler method, worked out on its first call
+  private final Map<Method, String> handlers = new ConcurrentHashMap<>();
+
+  // Fraction of requests to log, from 0.0 (none) to 1.0 (all)
+  @Value("${app.logging.controllers.sample-rate:1.0}")
+  private double sampleRate = 1.0;
 
   @Before(pointcut)
   public void logControllers(JoinPoint joinPoint) {
-    getCurrentHttpRequest().ifPresent(
-        request -> {
-          String declaringTypeName = joinPoint.getSignature().getDeclaringTypeName();
-          if (!stoplist.contains(declaringTypeName)) {
-            log.info("===== %s %s handled by %s in %s".formatted(request.getMethod(), request.getRequestURI(),
-                joinPoint.getSignature().getName(), declaringTypeName));
-          }
-        });
+    if (!log.isInfoEnabled()) {
+      return;
+    }
+    if (sampleRate < 1.0 && ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+      return;
+    }
+
+    Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+    String handler = handlers.get(method);
+    if (handler == null) {
+      handler = handlers.computeIfAbsent(method, LoggingAspect::describe);
+    }
+    if (handler.isEmpty()) {
+      return;
+    }
+
+    RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+    if (attributes instanceof ServletRequestAttributes servletRequestAttributes) {
+      HttpServletRequest request = servletRequestAttributes.getRequest();
+      log.info("===== {} {} handled by {}", request.getMethod(), request.getRequestURI(), handler);
+    }
   }
 
-  private static Optional<HttpServletRequest> getCurrentHttpRequest() {
-    return Optional.ofNullable(RequestContextHolder.getRequestAttributes())
-        .filter(ServletRequestAttributes.class::isInstance)
-        .map(ServletRequestAttributes.class::cast)
-        .map(ServletRequestAttributes::getRequest);
+  private static String describe(Method method) {
+    String declaringTypeName = method.getDeclaringClass().getName();
+    if (stoplist.contains(declaringTypeName)) {
+      return NOT_LOGGED;
+    }
+    return "%s in %s".formatted(method.getName(), declaringTypeName);
   }
 }
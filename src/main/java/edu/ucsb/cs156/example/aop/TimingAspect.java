@@ -0,0 +1,111 @@
+package edu.ucsb.cs156.example.aop;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.repository.Repository;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records a Micrometer timer for every ApiController handler
+ * (app.controller.requests) and every Spring Data repository call
+ * (app.repository.calls), tagged with the class, the method and the outcome.
+ * The outcome is "success" or the simple name of the exception thrown.
+ * Histogram and percentile settings live in application.properties.
+ */
+@Aspect
+@Component
+public class TimingAspect {
+  // language=PointcutExpression
+  private static final String controllers = """
+      within(edu.ucsb.cs156.example.controllers.ApiController+) && (
+        @annotation(org.springframework.web.bind.annotation.RequestMapping) ||
+        @annotation(org.springframework.web.bind.annotation.GetMapping) ||
+        @annotation(org.springframework.web.bind.annotation.PostMapping) ||
+        @annotation(org.springframework.web.bind.annotation.PutMapping) ||
+        @annotation(org.springframework.web.bind.annotation.DeleteMapping) ||
+        @annotation(org.springframework.web.bind.annotation.PatchMapping))
+      """;
+
+  // language=PointcutExpression
+  private static final String repositories = """
+      execution(* org.springframework.data.repository.Repository+.*(..))
+      """;
+
+  private static final String SUCCESS = "success";
+
+  private record Call(Class<?> type, Method method) {
+  }
+
+  @Autowired
+  private MeterRegistry meterRegistry;
+
+  // The success timers are looked up on every call, so keep them at hand
+  private final Map<Call, Timer> controllerTimers = new ConcurrentHashMap<>();
+  private final Map<Call, Timer> repositoryTimers = new ConcurrentHashMap<>();
+
+  // Proxy class -> the application's repository interface it implements
+  private final Map<Class<?>, Class<?>> repositoryInterfaces = new ConcurrentHashMap<>();
+
+  @Around(controllers)
+  public Object timeController(ProceedingJoinPoint joinPoint) throws Throwable {
+    Call call = new Call(AopUtils.getTargetClass(joinPoint.getTarget()), method(joinPoint));
+    return time(joinPoint, call, controllerTimers, "app.controller.requests", "controller");
+  }
+
+  @Around(repositories)
+  public Object timeRepository(ProceedingJoinPoint joinPoint) throws Throwable {
+    Class<?> repository = repositoryInterfaces.computeIfAbsent(joinPoint.getThis().getClass(), TimingAspect::repositoryInterface);
+    Call call = new Call(repository, method(joinPoint));
+    return time(joinPoint, call, repositoryTimers, "app.repository.calls", "repository");
+  }
+
+  private Object time(ProceedingJoinPoint joinPoint, Call call, Map<Call, Timer> successTimers, String name, String typeTag)
+      throws Throwable {
+    long start = System.nanoTime();
+    Throwable failure = null;
+    try {
+      return joinPoint.proceed();
+    } catch (Throwable t) {
+      failure = t;
+      throw t;
+    } finally {
+      long elapsed = System.nanoTime() - start;
+      Timer timer = failure == null
+          ? successTimers.computeIfAbsent(call, c -> timer(name, typeTag, c, SUCCESS))
+          : timer(name, typeTag, call, failure.getClass().getSimpleName());
+      timer.record(elapsed, TimeUnit.NANOSECONDS);
+    }
+  }
+
+  private Timer timer(String name, String typeTag, Call call, String outcome) {
+    return Timer.builder(name)
+        .tag(typeTag, call.type().getSimpleName())
+        .tag("method", call.method().getName())
+        .tag("outcome", outcome)
+        .register(meterRegistry);
+  }
+
+  private static Method method(ProceedingJoinPoint joinPoint) {
+    return ((MethodSignature) joinPoint.getSignature()).getMethod();
+  }
+
+  private static Class<?> repositoryInterface(Class<?> proxyClass) {
+    for (Class<?> candidate : proxyClass.getInterfaces()) {
+      if (Repository.class.isAssignableFrom(candidate) && !candidate.getName().startsWith("org.springframework.")) {
+        return candidate;
+      }
+    }
+    return proxyClass;
+  }
+}
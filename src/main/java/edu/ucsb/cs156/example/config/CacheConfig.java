@@ -0,0 +1,18 @@
+package edu.ucsb.cs156.example.config;
+
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.Configuration;
+
+// The caches themselves are built by Spring Boot from the spring.cache.*
+// properties in application.properties; this class just turns caching on
+// and names them.
+
+@Configuration
+@EnableCaching
+public class CacheConfig {
+  /** Users keyed by email; filled by CurrentUserServiceImpl, evicted by UserRepository writes. */
+  public static final String USERS_CACHE = "users";
+
+  /** Whether an email belongs to an admin in the users table; read by SecurityConfig on every login. */
+  public static final String ADMINS_CACHE = "admins";
+}
@@ -0,0 +1,77 @@
+package edu.ucsb.cs156.example.config;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.web.WebProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.servlet.resource.EncodedResourceResolver;
+
+import java.time.Duration;
+
+// How the frontend build (copied to classpath:/public by the production
+// profile) is served, in place of Spring Boot's default /** handler.
+//
+//  - /static/** holds the js/css/media bundles, whose names contain a hash of
+//    their contents (added by react-scripts build), so a changed file always
+//    has a new URL: browsers may keep them for a year without revalidating.
+//  - /index.html (also what FrontendController forwards every page to) names
+//    the current bundles, so it may only be kept for app.frontend.index-max-age.
+//  - everything else (favicon.ico, manifest.json, ...) has a stable name and
+//    is kept for an hour.
+//
+// Each handler serves the .br or .gz copy written by the frontend build when
+// the browser accepts it, and keeps the files it serves in memory (see
+// InMemoryResourceResolver).  Runs before Spring Boot's configuration, which
+// then leaves /** alone.
+
+@Configuration
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class FrontendResourceConfig implements WebMvcConfigurer {
+
+  static final Duration HASHED_MAX_AGE = Duration.ofDays(365);
+  static final Duration UNHASHED_MAX_AGE = Duration.ofHours(1);
+
+  @Autowired
+  private WebProperties webProperties;
+
+  @Value("${app.frontend.index-max-age:1m}")
+  private Duration indexMaxAge;
+
+  @Value("${app.frontend.max-cached-file-size:5MB}")
+  private DataSize maxCachedFileSize;
+
+  @Override
+  public void addResourceHandlers(ResourceHandlerRegistry registry) {
+    CacheControl hashed = CacheControl.maxAge(HASHED_MAX_AGE).cachePublic();
+    HttpHeaders immutable = new HttpHeaders();
+    immutable.setCacheControl(hashed.getHeaderValue() + ", immutable");
+
+    registry.addResourceHandler("/static/**")
+        .addResourceLocations("classpath:/public/static/")
+        .setCacheControl(hashed)
+        .resourceChain(true)
+        .addResolver(new EncodedResourceResolver())
+        .addResolver(new InMemoryResourceResolver(maxCachedFileSize, immutable));
+
+    registry.addResourceHandler("/index.html")
+        .addResourceLocations(webProperties.getResources().getStaticLocations())
+        .setCacheControl(CacheControl.maxAge(indexMaxAge).cachePublic().mustRevalidate())
+        .resourceChain(true)
+        .addResolver(new EncodedResourceResolver())
+        .addResolver(new InMemoryResourceResolver(maxCachedFileSize, HttpHeaders.EMPTY));
+
+    registry.addResourceHandler("/**")
+        .addResourceLocations(webProperties.getResources().getStaticLocations())
+        .setCacheControl(CacheControl.maxAge(UNHASHED_MAX_AGE).cachePublic())
+        .resourceChain(true)
+        .addResolver(new EncodedResourceResolver())
+        .addResolver(new InMemoryResourceResolver(maxCachedFileSize, HttpHeaders.EMPTY));
+  }
+}
@@ -0,0 +1,134 @@
+package edu.ucsb.cs156.example.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.AbstractResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.util.StreamUtils;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.servlet.resource.AbstractResourceResolver;
+import org.springframework.web.servlet.resource.HttpResource;
+import org.springframework.web.servlet.resource.ResourceResolverChain;
+
+import javax.servlet.http.HttpServletRequest;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.List;
+
+/**
+ * Last resolver in a static resource chain: reads each file it resolves into
+ * memory, so that once the chain's cache (resourceChain(true)) holds the
+ * result, the file is served without going back to the jar.  Files larger
+ * than maxSize are passed through as they are.
+ *
+ * Every resource it returns also carries the extra response headers it was
+ * built with, which ResourceHttpRequestHandler writes after (and so in place
+ * of) its own, e.g. a Cache-Control with the immutable directive that
+ * CacheControl can't express.
+ */
+@Slf4j
+public class InMemoryResourceResolver extends AbstractResourceResolver {
+
+  private final long maxSize;
+  private final HttpHeaders headers;
+
+  public InMemoryResourceResolver(DataSize maxSize, HttpHeaders headers) {
+    this.maxSize = maxSize.toBytes();
+    this.headers = HttpHeaders.readOnlyHttpHeaders(headers);
+  }
+
+  @Override
+  protected Resource resolveResourceInternal(HttpServletRequest request, String requestPath,
+      List<? extends Resource> locations, ResourceResolverChain chain) {
+    return inMemory(chain.resolveResource(request, requestPath, locations));
+  }
+
+  @Override
+  protected String resolveUrlPathInternal(String resourceUrlPath,
+      List<? extends Resource> locations, ResourceResolverChain chain) {
+    return chain.resolveUrlPath(resourceUrlPath, locations);
+  }
+
+  Resource inMemory(Resource resource) {
+    try {
+      if (resource == null || !resource.exists() || resource.contentLength() > maxSize) {
+        return resource;
+      }
+      return new InMemoryResource(resource);
+    } catch (IOException e) {
+      log.warn("Serving {} without caching it: {}", resource, e.toString());
+      return resource;
+    }
+  }
+
+  class InMemoryResource extends AbstractResource implements HttpResource {
+
+    private final Resource original;
+    private final byte[] contents;
+    private final long lastModified;
+
+    InMemoryResource(Resource original) throws IOException {
+      this.original = original;
+      this.lastModified = original.lastModified();
+      try (InputStream in = original.getInputStream()) {
+        this.contents = StreamUtils.copyToByteArray(in);
+      }
+    }
+
+    @Override
+    public InputStream getInputStream() {
+      return new ByteArrayInputStream(contents);
+    }
+
+    @Override
+    public boolean exists() {
+      return true;
+    }
+
+    @Override
+    public long contentLength() {
+      return contents.length;
+    }
+
+    @Override
+    public long lastModified() {
+      return lastModified;
+    }
+
+    @Override
+    public String getFilename() {
+      return original.getFilename();
+    }
+
+    // EncodedResourceResolver looks for foo.js.br / foo.js.gz this way
+    @Override
+    public Resource createRelative(String relativePath) throws IOException {
+      return inMemory(original.createRelative(relativePath));
+    }
+
+    @Override
+    public String getDescription() {
+      return "in-memory copy of " + original.getDescription();
+    }
+
+    // A new copy each time: EncodedResource adds Content-Encoding to what it gets
+    @Override
+    public HttpHeaders getResponseHeaders() {
+      HttpHeaders copy = new HttpHeaders();
+      copy.putAll(headers);
+      return copy;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      return other instanceof InMemoryResource && original.equals(((InMemoryResource) other).original);
+    }
+
+    @Override
+    public int hashCode() {
+      return original.hashCode();
+    }
+  }
+}
@@ -0,0 +1,95 @@
+package edu.ucsb.cs156.example.config;
+
+import edu.ucsb.cs156.example.entities.UCSBDate;
+import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+import edu.ucsb.cs156.example.entities.UCSBOrganizations;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cache.spi.RegionFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import javax.cache.CacheManager;
+import javax.cache.configuration.Factory;
+import javax.cache.expiry.CreatedExpiryPolicy;
+import javax.cache.expiry.EternalExpiryPolicy;
+import javax.cache.expiry.ExpiryPolicy;
+
+// Hibernate second-level cache for the reference tables (dining commons,
+// organizations and dates): small, read on almost every page and hardly ever
+// written.  Their entities (marked @Cacheable) are kept in memory, so
+// findById doesn't touch the database, and so are the results of their
+// repositories' findAll (marked cacheable with a query hint).
+//
+// Writes made through Hibernate, i.e. through the controllers, update the
+// cached entity and invalidate the cached findAll results for that table
+// straight away.  Changes made any other way (psql, another instance of the
+// app) show up once the entries expire, after app.reference-data.cache.ttl.
+//
+// The caches are Caffeine ones, behind the JCache API Hibernate uses, in a
+// cache manager of their own for each application context.  Caching is only
+// turned on here, so repository tests that don't import this class run
+// without it.
+
+@Configuration
+public class ReferenceDataCacheConfig {
+
+  static final List<Class<?>> CACHED_ENTITIES = List.of(UCSBDiningCommons.class, UCSBOrganizations.class,
+      UCSBDate.class);
+
+  @Value("${app.reference-data.cache.ttl:1h}")
+  private Duration ttl;
+
+  @Value("${app.reference-data.cache.max-entries:10000}")
+  private long maxEntries;
+
+  @Bean(destroyMethod = "close")
+  public CacheManager referenceDataCacheManager() {
+    CacheManager cacheManager = new CaffeineCachingProvider().getCacheManager(
+        URI.create("reference-data-" + UUID.randomUUID()), getClass().getClassLoader());
+    for (Class<?> entity : CACHED_ENTITIES) {
+      cacheManager.createCache(entity.getName(), configuration(expireAfterTtl()));
+    }
+    cacheManager.createCache(RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME,
+        configuration(expireAfterTtl()));
+    // Must outlive the query results: a query result is only thrown away
+    // when its table's timestamp here is newer than the result.
+    cacheManager.createCache(RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME,
+        configuration(EternalExpiryPolicy.factoryOf()));
+    return cacheManager;
+  }
+
+  @Bean
+  public HibernatePropertiesCustomizer referenceDataCacheCustomizer(CacheManager referenceDataCacheManager) {
+    return properties -> {
+      properties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, true);
+      properties.put(AvailableSettings.USE_QUERY_CACHE, true);
+      properties.put(AvailableSettings.CACHE_REGION_FACTORY, "jcache");
+      properties.put(ConfigSettings.CACHE_MANAGER, referenceDataCacheManager);
+    };
+  }
+
+  private Factory<ExpiryPolicy> expireAfterTtl() {
+    return CreatedExpiryPolicy.factoryOf(new javax.cache.expiry.Duration(TimeUnit.MILLISECONDS, ttl.toMillis()));
+  }
+
+  private CaffeineConfiguration<Object, Object> configuration(Factory<? extends ExpiryPolicy> expiry) {
+    CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+    configuration.setExpiryPolicyFactory(expiry);
+    configuration.setMaximumSize(OptionalLong.of(maxEntries));
+    return configuration;
+  }
+}
@@ -1,22 +1,58 @@
 package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.errors.InvalidLocationException;
+import edu.ucsb.cs156.example.errors.PreconditionFailedException;
+import edu.ucsb.cs156.example.errors.PreconditionRequiredException;
+import edu.ucsb.cs156.example.errors.UnknownFieldException;
+import edu.ucsb.cs156.example.errors.VersionConflictException;
 import org.springframework.beans.factory.annotation.Autowired;
 
 import edu.ucsb.cs156.example.models.CurrentUser;
+import edu.ucsb.cs156.example.models.CursorPage;
 import edu.ucsb.cs156.example.services.CurrentUserService;
+import edu.ucsb.cs156.example.services.TableVersionService;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 @Slf4j
 public abstract class ApiController {
+  public static final String DEFAULT_PAGE_LIMIT = "100";
+  public static final int MAX_PAGE_LIMIT = 1000;
+
+  public static final String FIELDS_DESCRIPTION = "comma separated names of the fields to return, e.g. id,name; omit for all of them";
+
+  public static final String IDS_DESCRIPTION = "comma separated ids, e.g. 1,2,3; the rows are returned in this order, and each id without a row is listed in missing";
+
+  public static final String IF_MATCH_DESCRIPTION = "the ETag of the row this update is based on, as GET of the row returned it, e.g. \"3\"; required";
+
+  // an If-Match header naming one version, e.g. "3"
+  private static final Pattern IF_MATCH_VERSION = Pattern.compile("\\s*\"(\\d{1,18})\"\\s*");
+
   @Autowired
   private CurrentUserService currentUserService;
 
+  @Autowired
+  private TableVersionService tableVersionService;
+
   protected CurrentUser getCurrentUser() {
     return currentUserService.getCurrentUser();
   }
@@ -25,6 +61,104 @@ public abstract class ApiController {
     return Map.of("message", message);
   }
 
+  /**
+   * Records that rows of the table behind entityType have been saved or
+   * deleted, so that ETags handed out for it no longer match.  Call after
+   * the change has been written.
+   */
+  protected void tableChanged(Class<?> entityType) {
+    tableVersionService.changed(entityType);
+  }
+
+  /**
+   * Response for a GET whose body comes only from the table behind
+   * entityType.  Its ETag is the table's current version: if the request's
+   * If-None-Match already has it, the answer is 304 Not Modified and body is
+   * never called, so the repository isn't touched.  Clients are told to
+   * revalidate (no-cache) rather than to keep using a stored copy.
+   */
+  protected <T> ResponseEntity<T> conditionalGet(WebRequest request, Class<?> entityType, Supplier<T> body) {
+    String etag = tableVersionService.etag(entityType);
+    if (request.checkNotModified(etag)) {
+      return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(CacheControl.noCache().cachePrivate()).build();
+    }
+    return ResponseEntity.ok().eTag(etag).cacheControl(CacheControl.noCache().cachePrivate()).body(body.get());
+  }
+
+  /**
+   * Response for a GET of one row.  Its ETag is the row's version, in quotes
+   * (e.g. "3"), which is what a PUT of the row takes back in If-Match; if the
+   * request's If-None-Match already has it, the answer is 304 Not Modified
+   * without a body.
+   */
+  protected <T> ResponseEntity<T> conditionalGetRow(WebRequest request, T row, ToLongFunction<T> versionOf) {
+    String etag = "\"" + versionOf.applyAsLong(row) + "\"";
+    if (request.checkNotModified(etag)) {
+      return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(CacheControl.noCache().cachePrivate()).build();
+    }
+    return ResponseEntity.ok().eTag(etag).cacheControl(CacheControl.noCache().cachePrivate()).body(row);
+  }
+
+  /**
+   * The version of a row that a PUT is based on, from the request's If-Match
+   * header: the ETag that conditionalGetRow handed out for it, e.g. "3".
+   * Without the header the update isn't made (428); a header that isn't one
+   * version, such as the weak ETag of a whole table, can't match (412).
+   */
+  protected long ifMatchVersion(String ifMatch, Class<?> entityType, Object id) {
+    if (ifMatch == null) {
+      throw new PreconditionRequiredException(entityType);
+    }
+    Matcher version = IF_MATCH_VERSION.matcher(ifMatch);
+    if (!version.matches()) {
+      throw new PreconditionFailedException(entityType, id, ifMatch);
+    }
+    return Long.parseLong(version.group(1));
+  }
+
+  /**
+   * Why an update of the row with the given id, made only if it was still at
+   * the version in ifMatch, changed nothing: either there is no such row
+   * (404), or it is at another version (412).
+   */
+  protected RuntimeException notUpdated(Class<?> entityType, Object id, String ifMatch, boolean exists) {
+    if (!exists) {
+      return new EntityNotFoundException(entityType, id);
+    }
+    return new PreconditionFailedException(entityType, id, ifMatch);
+  }
+
+  /**
+   * Pageable for a keyset query: always the first page of the rows after the
+   * cursor, with the requested limit clamped to [1, MAX_PAGE_LIMIT].
+   */
+  protected Pageable keysetPage(int limit) {
+    return PageRequest.of(0, Math.max(1, Math.min(limit, MAX_PAGE_LIMIT)));
+  }
+
+  /**
+   * Wraps one page of a keyset query in a CursorPage.  When the page is full,
+   * the key of its last row becomes nextCursor and is also advertised in a
+   * Link header with rel="next".
+   */
+  protected <T> ResponseEntity<CursorPage<T>> cursorPage(List<T> content, Pageable page, Function<T, ?> cursorOf) {
+    Object nextCursor = content.size() < page.getPageSize() ? null : cursorOf.apply(content.get(content.size() - 1));
+    ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+    if (nextCursor != null) {
+      String next = ServletUriComponentsBuilder.fromCurrentRequestUri()
+          .queryParam("limit", page.getPageSize())
+          .queryParam("after", nextCursor)
+          .build()
+          .encode()
+          .toUriString();
+      response.header(HttpHeaders.LINK, "<%s>; rel=\"next\"".formatted(next));
+    }
+    return response.body(CursorPage.<T>builder()
+        .content(content)
+        .nextCursor(nextCursor)
+        .build());
+  }
+
   @ExceptionHandler({ EntityNotFoundException.class })
   @ResponseStatus(HttpStatus.NOT_FOUND)
   public Object handleGenericException(Throwable e) {
@@ -33,4 +167,41 @@ public abstract class ApiController {
       "message", e.getMessage()
     );
   }
+
+  @ExceptionHandler({ UnknownFieldException.class, InvalidLocationException.class })
+  @ResponseStatus(HttpStatus.BAD_REQUEST)
+  public Object handleBadRequestException(Throwable e) {
+    return Map.of(
+      "type", e.getClass().getSimpleName(),
+      "message", e.getMessage()
+    );
+  }
+
+  @ExceptionHandler({ PreconditionRequiredException.class })
+  @ResponseStatus(HttpStatus.PRECONDITION_REQUIRED)
+  public Object handlePreconditionRequiredException(Throwable e) {
+    return Map.of(
+      "type", e.getClass().getSimpleName(),
+      "message", e.getMessage()
+    );
+  }
+
+  @ExceptionHandler({ PreconditionFailedException.class })
+  @ResponseStatus(HttpStatus.PRECONDITION_FAILED)
+  public Object handlePreconditionFailedException(Throwable e) {
+    return Map.of(
+      "type", e.getClass().getSimpleName(),
+      "message", e.getMessage()
+    );
+  }
+
+  // ObjectOptimisticLockingFailureException: a save() of an entity read at a version that is no longer current
+  @ExceptionHandler({ VersionConflictException.class, ObjectOptimisticLockingFailureException.class })
+  @ResponseStatus(HttpStatus.CONFLICT)
+  public Object handleConflictException(Throwable e) {
+    return Map.of(
+      "type", e.getClass().getSimpleName(),
+      "message", e.getMessage()
+    );
+  }
 }
@@ -2,6 +2,13 @@ package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.entities.Articles;
 import edu.ucsb.cs156.example.repositories.ArticlesRepository;
+import edu.ucsb.cs156.example.services.BatchGetService;
+import edu.ucsb.cs156.example.models.BatchGetResult;
+import edu.ucsb.cs156.example.repositories.ArticlesRepository.ArticleSummary;
+import edu.ucsb.cs156.example.services.ArticleSearchService;
+import edu.ucsb.cs156.example.services.FieldSelectionService;
+import edu.ucsb.cs156.example.models.ArticleMatch;
+import edu.ucsb.cs156.example.models.CursorPage;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
 
 import io.swagger.v3.oas.annotations.Operation;
@@ -12,20 +19,25 @@ import lombok.extern.slf4j.Slf4j;
 import com.fasterxml.jackson.core.JsonProcessingException;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Pageable;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 import javax.validation.Valid;
 
 import java.time.LocalDateTime;
+import java.util.List;
 
 @Tag(name = "Articles")
 @RequestMapping("/api/articles")
@@ -36,12 +48,54 @@ public class ArticlesController extends ApiController{
     @Autowired
     ArticlesRepository articlesRepository;
 
+    @Autowired
+    BatchGetService batchGetService;
+
+    @Autowired
+    FieldSelectionService fieldSelectionService;
+
+    @Autowired
+    ArticleSearchService articleSearchService;
+
     @Operation(summary= "List all articles")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("/all")
-    public Iterable<Articles> allArticles() {
-        Iterable<Articles> articles = articlesRepository.findAll();
-        return articles;
+    public ResponseEntity<Iterable<?>> allArticles(
+            @Parameter(name="fields", description=FIELDS_DESCRIPTION) @RequestParam(required = false) String fields,
+            WebRequest request) {
+        if (fields != null) {
+            return conditionalGet(request, Articles.class, () -> fieldSelectionService.findAll(Articles.class, fields));
+        }
+        return conditionalGet(request, Articles.class, () -> articlesRepository.findAll());
+    }
+
+    @Operation(summary= "List all articles, without their explanations")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/summaries")
+    public ResponseEntity<List<ArticleSummary>> articleSummaries(WebRequest request) {
+        return conditionalGet(request, Articles.class, () -> articlesRepository.findAllSummaries());
+    }
+
+    @Operation(summary= "List articles one page at a time, in id order")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/page")
+    public ResponseEntity<CursorPage<Articles>> pageOfArticles(
+            @Parameter(name="limit", description="maximum number of rows to return (at most " + MAX_PAGE_LIMIT + ")") @RequestParam(defaultValue = DEFAULT_PAGE_LIMIT) int limit,
+            @Parameter(name="after", description="cursor from the previous page; only rows with an id greater than this are returned; omit for the first page") @RequestParam(defaultValue = "0") long after) {
+        Pageable page = keysetPage(limit);
+        List<Articles> articles = articlesRepository.findAllByIdGreaterThanOrderByIdAsc(after, page);
+        return cursorPage(articles, page, Articles::getId);
+    }
+
+    @Operation(summary= "Search the titles and explanations of the articles, best match first")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/search")
+    public ResponseEntity<List<ArticleMatch>> searchArticles(
+            @Parameter(name="q", description="words that must all appear in the title or explanation; the last one may be the start of a word, if it is at least 3 letters; case and punctuation are ignored") @RequestParam String q,
+            @Parameter(name="limit", description="maximum number of articles to return (at most " + MAX_PAGE_LIMIT + ")") @RequestParam(defaultValue = DEFAULT_PAGE_LIMIT) int limit,
+            WebRequest request) {
+        int count = Math.max(1, Math.min(limit, MAX_PAGE_LIMIT));
+        return conditionalGet(request, Articles.class, () -> articleSearchService.search(q, count));
     }
 
     @Operation(summary= "Create a new article")
@@ -68,6 +122,8 @@ public class ArticlesController extends ApiController{
         articles.setDateAdded(dateAdded);
         
         Articles savedArticles = articlesRepository.save(articles);
+        tableChanged(Articles.class);
+        articleSearchService.saved(savedArticles);
 
         return savedArticles;
     }
@@ -75,12 +131,25 @@ public class ArticlesController extends ApiController{
     @Operation(summary= "Get a single date")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("")
-    public Articles getById(
-            @Parameter(name="id") @RequestParam Long id) {
-        Articles article = articlesRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(Articles.class, id));
+    public ResponseEntity<Articles> getById(
+            @Parameter(name="id") @RequestParam Long id, WebRequest request) {
+        return conditionalGetRow(request, articlesRepository.findById(id)
+                .orElseThrow(() -> new EntityNotFoundException(Articles.class, id)), Articles::getVersion);
+    }
+
+    @Operation(summary= "Get several articles at once")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping(value = "", params = "ids")
+    public ResponseEntity<BatchGetResult<Articles>> getByIds(
+            @Parameter(name="ids", description=IDS_DESCRIPTION) @RequestParam List<Long> ids, WebRequest request) {
+        return conditionalGet(request, Articles.class, () -> batchGetService.findAllById(articlesRepository, Articles.class, ids));
+    }
 
-        return article;
+    @Operation(summary= "Get several articles at once, for more ids than fit in a URL; the body is a JSON array of them")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @PostMapping("/batch")
+    public BatchGetResult<Articles> getByIdsInBody(@RequestBody List<Long> ids) {
+        return batchGetService.findAllById(articlesRepository, Articles.class, ids);
     }
     
     @Operation(summary= "Delete an Article")
@@ -88,10 +157,11 @@ public class ArticlesController extends ApiController{
     @DeleteMapping("")
     public Object deleteArticles(
             @Parameter(name="id") @RequestParam Long id) {
-        Articles article = articlesRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(Articles.class, id));
-
-        articlesRepository.delete(article);
+        if (articlesRepository.deleteRowById(id) == 0) {
+            throw new EntityNotFoundException(Articles.class, id);
+        }
+        tableChanged(Articles.class);
+        articleSearchService.removed(id);
         return genericMessage("Article with id %s deleted".formatted(id));
     }
 
@@ -100,20 +170,18 @@ public class ArticlesController extends ApiController{
     @PutMapping("")
     public Articles updateArticles(
             @Parameter(name="id") @RequestParam Long id,
+            @Parameter(name="If-Match", description=IF_MATCH_DESCRIPTION) @RequestHeader(value = "If-Match", required = false) String ifMatch,
             @RequestBody @Valid Articles incoming) {
 
-        Articles article = articlesRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(Articles.class, id));
-
-        article.setTitle(incoming.getTitle());
-        article.setUrl(incoming.getUrl());
-        article.setExplanation(incoming.getExplanation());
-        article.setEmail(incoming.getEmail());
-        article.setDateAdded(incoming.getDateAdded());
-
-        articlesRepository.save(article);
-
-        return article;
+        long version = ifMatchVersion(ifMatch, Articles.class, id);
+        if (articlesRepository.updateRowById(id, version, incoming) == 0) {
+            throw notUpdated(Articles.class, id, ifMatch, articlesRepository.existsById(id));
+        }
+        incoming.setId(id);
+        incoming.setVersion(version + 1);
+        tableChanged(Articles.class);
+        articleSearchService.saved(incoming);
+        return incoming;
     }
 
 }
@@ -4,6 +4,15 @@ import edu.ucsb.cs156.example.entities.HelpRequest;
 import edu.ucsb.cs156.example.entities.UCSBDate;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
 import edu.ucsb.cs156.example.repositories.HelpRequestRepository;
+import edu.ucsb.cs156.example.services.BatchGetService;
+import edu.ucsb.cs156.example.models.BatchGetResult;
+import edu.ucsb.cs156.example.models.BulkChangeResult;
+import edu.ucsb.cs156.example.repositories.HelpRequestRepository.HelpRequestSummary;
+import edu.ucsb.cs156.example.repositories.HelpRequestRepository.RowUpdate;
+import edu.ucsb.cs156.example.services.FieldSelectionService;
+import edu.ucsb.cs156.example.repositories.HelpRequestSpecifications;
+import edu.ucsb.cs156.example.models.CursorPage;
+import edu.ucsb.cs156.example.services.HelpRequestEventBroadcaster;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -13,20 +22,30 @@ import lombok.extern.slf4j.Slf4j;
 import com.fasterxml.jackson.core.JsonProcessingException;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import javax.validation.Valid;
 
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
 
 @Tag(name = "HelpRequest")
 @RequestMapping("/api/helprequests")
@@ -37,12 +56,62 @@ public class HelpRequestController extends ApiController {
     @Autowired
     HelpRequestRepository helpRequestRepository;
 
-    @Operation(summary= "List all helprequests")
+    @Autowired
+    BatchGetService batchGetService;
+
+    @Autowired
+    FieldSelectionService fieldSelectionService;
+
+    @Autowired
+    HelpRequestEventBroadcaster helpRequestEventBroadcaster;
+
+    // Order of filtered results: oldest request first, as a queue is worked through
+    public static final Sort QUEUE_ORDER = Sort.by("requestTime", "id");
+
+    @Operation(summary= "List all helprequests, or only those matching the given filters (oldest request first)")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("/all")
-    public Iterable<HelpRequest> allHelpRequests() {
-        Iterable<HelpRequest> helpRequests = helpRequestRepository.findAll();
-        return helpRequests;
+    public ResponseEntity<Iterable<?>> allHelpRequests(
+            @Parameter(name="solved", description="only solved (true) or unsolved (false) requests") @RequestParam(required = false) Boolean solved,
+            @Parameter(name="teamId", description="only requests from this team") @RequestParam(required = false) String teamId,
+            @Parameter(name="from", description="only requests made at or after this time, in iso format, e.g. YYYY-mm-ddTHH:MM:SS") @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @Parameter(name="to", description="only requests made before this time, in iso format, e.g. YYYY-mm-ddTHH:MM:SS") @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @Parameter(name="fields", description=FIELDS_DESCRIPTION) @RequestParam(required = false) String fields,
+            WebRequest request) {
+        Specification<HelpRequest> filter = HelpRequestSpecifications.matching(solved, teamId, from, to);
+        if (fields != null) {
+            return conditionalGet(request, HelpRequest.class, () -> fieldSelectionService.findAll(HelpRequest.class, fields, filter, filter == null ? null : QUEUE_ORDER));
+        }
+        if (filter == null) {
+            return conditionalGet(request, HelpRequest.class, () -> helpRequestRepository.findAll());
+        }
+        return conditionalGet(request, HelpRequest.class, () -> helpRequestRepository.findAll(filter, QUEUE_ORDER));
+    }
+
+    @Operation(summary= "List all helprequests, without their explanations")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/summaries")
+    public ResponseEntity<List<HelpRequestSummary>> helpRequestSummaries(WebRequest request) {
+        return conditionalGet(request, HelpRequest.class, () -> helpRequestRepository.findAllSummaries());
+    }
+
+    @Operation(summary= "List helprequests one page at a time, in id order")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/page")
+    public ResponseEntity<CursorPage<HelpRequest>> pageOfHelpRequests(
+            @Parameter(name="limit", description="maximum number of rows to return (at most " + MAX_PAGE_LIMIT + ")") @RequestParam(defaultValue = DEFAULT_PAGE_LIMIT) int limit,
+            @Parameter(name="after", description="cursor from the previous page; only rows with an id greater than this are returned; omit for the first page") @RequestParam(defaultValue = "0") long after) {
+        Pageable page = keysetPage(limit);
+        List<HelpRequest> helpRequests = helpRequestRepository.findAllByIdGreaterThanOrderByIdAsc(after, page);
+        return cursorPage(helpRequests, page, HelpRequest::getId);
+    }
+
+    @Operation(summary= "Stream of changes to helprequests, as server-sent events named created, updated, solved, deleted and changed",
+            description= "created, updated and solved carry the helprequest; deleted carries its id; changed, sent when many were deleted or solved at once, carries only how many, so reload /all. Use instead of polling /all.")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamHelpRequests() {
+        return helpRequestEventBroadcaster.subscribe();
     }
 
     @Operation(summary= "Create a new helprequest")
@@ -68,6 +137,8 @@ public class HelpRequestController extends ApiController {
         helpRequest.setSolved(solved);
 
         HelpRequest savedHelpRequest = helpRequestRepository.save(helpRequest);
+        tableChanged(HelpRequest.class);
+        helpRequestEventBroadcaster.publish(HelpRequestEventBroadcaster.CREATED, savedHelpRequest);
 
         return savedHelpRequest;
     }
@@ -75,45 +146,96 @@ public class HelpRequestController extends ApiController {
     @Operation(summary= "Get a single helprequest")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("")
-    public HelpRequest getById(
-            @Parameter(name="id") @RequestParam Long id) {
-        HelpRequest helpRequest = helpRequestRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(HelpRequest.class, id));
+    public ResponseEntity<HelpRequest> getById(
+            @Parameter(name="id") @RequestParam Long id, WebRequest request) {
+        return conditionalGetRow(request, helpRequestRepository.findById(id)
+                .orElseThrow(() -> new EntityNotFoundException(HelpRequest.class, id)), HelpRequest::getVersion);
+    }
 
-        return helpRequest;
+    @Operation(summary= "Get several help requests at once")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping(value = "", params = "ids")
+    public ResponseEntity<BatchGetResult<HelpRequest>> getByIds(
+            @Parameter(name="ids", description=IDS_DESCRIPTION) @RequestParam List<Long> ids, WebRequest request) {
+        return conditionalGet(request, HelpRequest.class, () -> batchGetService.findAllById(helpRequestRepository, HelpRequest.class, ids));
+    }
+
+    @Operation(summary= "Get several help requests at once, for more ids than fit in a URL; the body is a JSON array of them")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @PostMapping("/batch")
+    public BatchGetResult<HelpRequest> getByIdsInBody(@RequestBody List<Long> ids) {
+        return batchGetService.findAllById(helpRequestRepository, HelpRequest.class, ids);
     }
 
     @Operation(summary= "Delete a HelpRequest")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @DeleteMapping("")
     public Object deleteHelpRequest(
-            @Parameter(name="id") @RequestParam Long id) {
-        HelpRequest helpRequest = helpRequestRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(HelpRequest.class, id));
-
-        helpRequestRepository.delete(helpRequest);
+            @Parameter(name="id") @RequestParam Long id) throws JsonProcessingException {
+        if (helpRequestRepository.deleteRowById(id) == 0) {
+            throw new EntityNotFoundException(HelpRequest.class, id);
+        }
+        tableChanged(HelpRequest.class);
+        helpRequestEventBroadcaster.publish(HelpRequestEventBroadcaster.DELETED, Map.of("id", id));
         return genericMessage("HelpRequest with id %s deleted".formatted(id));
     }
 
-    @Operation(summary= "Update a single helprequest")
+    @Operation(summary= "Delete several help requests at once, in one statement per as many ids as the database takes in one; the result is how many were deleted")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
-    @PutMapping("")
-    public HelpRequest updateHelpRequest(
-            @Parameter(name="id") @RequestParam Long id,
-            @RequestBody @Valid HelpRequest incoming) {
+    @DeleteMapping(value = "", params = "ids")
+    public BulkChangeResult deleteHelpRequests(
+            @Parameter(name="ids", description="comma separated ids, e.g. 1,2,3; ids without a row are ignored") @RequestParam List<Long> ids) throws JsonProcessingException {
+        return bulkChanged(batchGetService.updateAllById(ids, helpRequestRepository::deleteRowsByIdIn));
+    }
 
-        HelpRequest helpRequest = helpRequestRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(HelpRequest.class, id));
+    @Operation(summary= "Delete every help request made in a range of time, e.g. a lab session, in one statement; the result is how many were deleted")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @DeleteMapping(value = "", params = { "from", "to" })
+    public BulkChangeResult deleteHelpRequestsRequestedBetween(
+            @Parameter(name="from", description="requests made at or after this time, in iso format, e.g. YYYY-mm-ddTHH:MM:SS") @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @Parameter(name="to", description="requests made before this time, in iso format, e.g. YYYY-mm-ddTHH:MM:SS") @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) throws JsonProcessingException {
+        return bulkChanged(helpRequestRepository.deleteRowsByRequestTimeInRange(from, to));
+    }
 
-        helpRequest.setRequesterEmail(incoming.getRequesterEmail());
-        helpRequest.setTeamId(incoming.getTeamId());
-        helpRequest.setTableOrBreakoutRoom(incoming.getTableOrBreakoutRoom());
-        helpRequest.setExplanation(incoming.getExplanation());
-        helpRequest.setRequestTime(incoming.getRequestTime());
-        helpRequest.setSolved(incoming.getSolved());
+    @Operation(summary= "Mark every unsolved help request made before a time solved, in one statement; the result is how many were marked")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PutMapping("/solve")
+    public BulkChangeResult solveHelpRequestsRequestedBefore(
+            @Parameter(name="before", description="in iso format, e.g. YYYY-mm-ddTHH:MM:SS") @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime before) throws JsonProcessingException {
+        return bulkChanged(helpRequestRepository.updateToSolvedByRequestTimeBefore(before));
+    }
 
-        helpRequestRepository.save(helpRequest);
+    // The statement doesn't say which rows it changed, so subscribers are only told how many
+    private BulkChangeResult bulkChanged(int affected) throws JsonProcessingException {
+        BulkChangeResult result = new BulkChangeResult(affected);
+        tableChanged(HelpRequest.class);
+        if (affected > 0) {
+            helpRequestEventBroadcaster.publish(HelpRequestEventBroadcaster.CHANGED, result);
+        }
+        return result;
+    }
 
-        return helpRequest;
+    @Operation(summary= "Update a single helprequest")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PutMapping("")
+    public HelpRequest updateHelpRequest(
+            @Parameter(name="id") @RequestParam Long id,
+            @Parameter(name="If-Match", description=IF_MATCH_DESCRIPTION) @RequestHeader(value = "If-Match", required = false) String ifMatch,
+            @RequestBody @Valid HelpRequest incoming) throws JsonProcessingException {
+
+        long version = ifMatchVersion(ifMatch, HelpRequest.class, id);
+        // Whether this update is the one that solves it, found out by marking
+        // it solved first, in the same transaction, rather than by reading it.
+        RowUpdate update = helpRequestRepository.updateRowAndSolveById(id, version, incoming);
+        if (update.updated() == 0) {
+            throw notUpdated(HelpRequest.class, id, ifMatch, helpRequestRepository.existsById(id));
+        }
+        incoming.setId(id);
+        incoming.setVersion(version + 1);
+
+        tableChanged(HelpRequest.class);
+        helpRequestEventBroadcaster.publish(update.nowSolved() ? HelpRequestEventBroadcaster.SOLVED : HelpRequestEventBroadcaster.UPDATED, incoming);
+
+        return incoming;
     }
 }
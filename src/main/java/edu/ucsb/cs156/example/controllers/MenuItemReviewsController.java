@@ -2,46 +2,113 @@ package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.entities.MenuItemReview;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.errors.PreconditionFailedException;
+import edu.ucsb.cs156.example.errors.VersionConflictException;
 import edu.ucsb.cs156.example.repositories.MenuItemReviewRepository;
+import edu.ucsb.cs156.example.services.BatchGetService;
+import edu.ucsb.cs156.example.models.BatchGetResult;
+import edu.ucsb.cs156.example.services.FieldSelectionService;
+import edu.ucsb.cs156.example.models.BulkInsertResult;
+import edu.ucsb.cs156.example.models.CursorPage;
+import edu.ucsb.cs156.example.models.MenuItemRatingStats;
+import edu.ucsb.cs156.example.services.MenuItemReviewStatsService;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.extern.slf4j.Slf4j;
 
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Pageable;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.validation.Valid;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
 
 @Tag(name="MenuItemReviews")
 @RequestMapping("/api/menuitemreviews")
 @RestController
 @Slf4j
 public class MenuItemReviewsController extends ApiController {
+    public static final int BULK_CHUNK_SIZE = 1000;
+    // times DELETE reads a review that is being edited, before giving up with 409 Conflict
+    public static final int DELETE_TRIES = 3;
 
     @Autowired
     MenuItemReviewRepository menuItemReviewRepository;
 
+    @Autowired
+    BatchGetService batchGetService;
+
+    @Autowired
+    FieldSelectionService fieldSelectionService;
+
+    @Autowired
+    MenuItemReviewStatsService menuItemReviewStatsService;
+
+    @Autowired
+    ObjectMapper mapper;
+
     @Operation(summary= "List all menu item reviews")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("/all")
-    public Iterable<MenuItemReview> allMenuItemReviews() {
-        Iterable<MenuItemReview> reviews = menuItemReviewRepository.findAll();
-        return reviews;
+    public ResponseEntity<Iterable<?>> allMenuItemReviews(
+            @Parameter(name="fields", description=FIELDS_DESCRIPTION) @RequestParam(required = false) String fields,
+            WebRequest request) {
+        if (fields != null) {
+            return conditionalGet(request, MenuItemReview.class, () -> fieldSelectionService.findAll(MenuItemReview.class, fields));
+        }
+        return conditionalGet(request, MenuItemReview.class, () -> menuItemReviewRepository.findAll());
+    }
+
+    @Operation(summary= "List menu item reviews one page at a time, in id order")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/page")
+    public ResponseEntity<CursorPage<MenuItemReview>> pageOfMenuItemReviews(
+            @Parameter(name="limit", description="maximum number of rows to return (at most " + MAX_PAGE_LIMIT + ")") @RequestParam(defaultValue = DEFAULT_PAGE_LIMIT) int limit,
+            @Parameter(name="after", description="cursor from the previous page; only rows with an id greater than this are returned; omit for the first page") @RequestParam(defaultValue = "0") long after) {
+        Pageable page = keysetPage(limit);
+        List<MenuItemReview> reviews = menuItemReviewRepository.findAllByIdGreaterThanOrderByIdAsc(after, page);
+        return cursorPage(reviews, page, MenuItemReview::getId);
+    }
+
+    @Operation(summary= "Rating statistics (number of reviews, mean stars, histogram of 0-5 stars, time of the last review) for each reviewed menu item")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/stats")
+    public List<MenuItemRatingStats> menuItemReviewStats(
+            @Parameter(name="itemId", description="only return the statistics for this menu item; omit for all of them") @RequestParam(required = false) Long itemId) {
+        if (itemId == null) {
+            return menuItemReviewStatsService.getAll();
+        }
+        return menuItemReviewStatsService.get(itemId).map(List::of).orElse(List.of());
     }
 
     @Operation(summary= "Create a new review")
@@ -62,19 +129,50 @@ public class MenuItemReviewsController extends ApiController {
         menuItemReview.setComments(comments);
 
         MenuItemReview savedMenuItemReview = menuItemReviewRepository.save(menuItemReview);
+        tableChanged(MenuItemReview.class);
+        menuItemReviewStatsService.added(savedMenuItemReview);
 
         return savedMenuItemReview;
     }
 
+    @Operation(summary= "Create many reviews at once",
+            description= "The body is either a JSON array of reviews (Content-Type: application/json) or one review per line "
+                    + "(Content-Type: application/x-ndjson). Rows that are not valid reviews are skipped and reported; the rest are saved, "
+                    + BULK_CHUNK_SIZE + " rows per transaction.")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PostMapping(value = "/bulk", consumes = { MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE })
+    public BulkInsertResult bulkMenuItemReviews(HttpServletRequest request) throws IOException {
+        BulkInsert bulk = new BulkInsert();
+        if (MediaType.APPLICATION_NDJSON.isCompatibleWith(MediaType.parseMediaType(request.getContentType()))) {
+            readLines(request.getInputStream(), bulk);
+        } else {
+            readArray(request.getInputStream(), bulk);
+        }
+        return bulk.finish();
+    }
+
     @Operation(summary= "Get a single review")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("")
-    public MenuItemReview getById(
-            @Parameter(name="id") @RequestParam long id) {
-        MenuItemReview menuItemReview = menuItemReviewRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(MenuItemReview.class, id));
+    public ResponseEntity<MenuItemReview> getById(
+            @Parameter(name="id") @RequestParam long id, WebRequest request) {
+        return conditionalGetRow(request, menuItemReviewRepository.findById(id)
+                .orElseThrow(() -> new EntityNotFoundException(MenuItemReview.class, id)), MenuItemReview::getVersion);
+    }
 
-        return menuItemReview;
+    @Operation(summary= "Get several menu item reviews at once")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping(value = "", params = "ids")
+    public ResponseEntity<BatchGetResult<MenuItemReview>> getByIds(
+            @Parameter(name="ids", description=IDS_DESCRIPTION) @RequestParam List<Long> ids, WebRequest request) {
+        return conditionalGet(request, MenuItemReview.class, () -> batchGetService.findAllById(menuItemReviewRepository, MenuItemReview.class, ids));
+    }
+
+    @Operation(summary= "Get several menu item reviews at once, for more ids than fit in a URL; the body is a JSON array of them")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @PostMapping("/batch")
+    public BatchGetResult<MenuItemReview> getByIdsInBody(@RequestBody List<Long> ids) {
+        return batchGetService.findAllById(menuItemReviewRepository, MenuItemReview.class, ids);
     }
 
     @Operation(summary= "Delete a review")
@@ -82,11 +180,20 @@ public class MenuItemReviewsController extends ApiController {
     @DeleteMapping("")
     public Object deleteMenuItemReview(
             @Parameter(name="id") @RequestParam long id) {
-        MenuItemReview menuItemReview = menuItemReviewRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(MenuItemReview.class, id));
-
-        menuItemReviewRepository.delete(menuItemReview);
-        return genericMessage("MenuItemReview with id %s deleted".formatted(id));
+        // The ratings need the review being deleted, so it is read first, and
+        // only deleted if it is still as read; if not, it is read again.
+        for (int tries = 1;; tries++) {
+            MenuItemReview menuItemReview = menuItemReviewRepository.findById(id)
+                    .orElseThrow(() -> new EntityNotFoundException(MenuItemReview.class, id));
+            if (menuItemReviewRepository.deleteRowById(id, menuItemReview.getVersion()) == 1) {
+                tableChanged(MenuItemReview.class);
+                menuItemReviewStatsService.removed(menuItemReview);
+                return genericMessage("MenuItemReview with id %s deleted".formatted(id));
+            }
+            if (tries == DELETE_TRIES) {
+                throw new VersionConflictException(MenuItemReview.class, id);
+            }
+        }
     }
 
     @Operation(summary= "Update a single review")
@@ -94,19 +201,143 @@ public class MenuItemReviewsController extends ApiController {
     @PutMapping("")
     public MenuItemReview updateMenuItemReview(
             @Parameter(name="id") @RequestParam long id,
+            @Parameter(name="If-Match", description=IF_MATCH_DESCRIPTION) @RequestHeader(value = "If-Match", required = false) String ifMatch,
             @RequestBody @Valid MenuItemReview incoming) {
 
-        MenuItemReview menuItemReview = menuItemReviewRepository.findById(id)
+        long version = ifMatchVersion(ifMatch, MenuItemReview.class, id);
+        // As for delete, the ratings need the review as it was.
+        MenuItemReview previous = menuItemReviewRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException(MenuItemReview.class, id));
+        if (previous.getVersion() != version) {
+            throw new PreconditionFailedException(MenuItemReview.class, id, ifMatch);
+        }
+        if (menuItemReviewRepository.updateRowById(id, version, incoming) == 0) {
+            // changed or deleted between the read and the update
+            if (menuItemReviewRepository.existsById(id)) {
+                throw new VersionConflictException(MenuItemReview.class, id);
+            }
+            throw new EntityNotFoundException(MenuItemReview.class, id);
+        }
+        incoming.setId(id);
+        incoming.setVersion(version + 1);
+        tableChanged(MenuItemReview.class);
+        menuItemReviewStatsService.updated(previous, incoming);
+        return incoming;
+    }
+
+    // A JSON array of reviews (or, leniently, reviews one after the other with no array).
+    // Rows are read one at a time, so the whole body is never held in memory.
+    private void readArray(InputStream body, BulkInsert bulk) throws IOException {
+        int row = 0;
+        try (JsonParser parser = mapper.createParser(body)) {
+            JsonToken token = parser.nextToken();
+            if (token == JsonToken.START_ARRAY) {
+                token = parser.nextToken();
+            }
+            while (token != null && token != JsonToken.END_ARRAY) {
+                JsonNode node = parser.readValueAsTree();
+                bulk.add(++row, node);
+                token = parser.nextToken();
+            }
+        } catch (JsonProcessingException e) {
+            bulk.reject(row + 1, "malformed JSON, nothing after this row was read: " + e.getOriginalMessage());
+        }
+    }
+
+    // Newline-delimited JSON: one review per line; blank lines are ignored.
+    // A malformed line only loses that line.
+    private void readLines(InputStream body, BulkInsert bulk) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        int row = 0;
+        for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+            row++;
+            if (line.isBlank()) {
+                continue;
+            }
+            try {
+                bulk.add(row, mapper.readTree(line));
+            } catch (JsonProcessingException e) {
+                bulk.reject(row, "malformed JSON: " + e.getOriginalMessage());
+            }
+        }
+    }
+
+    private static String validate(MenuItemReview review) {
+        List<String> problems = new ArrayList<>();
+        if (review.getItemId() <= 0) {
+            problems.add("itemId must be a positive id");
+        }
+        if (review.getReviewerEmail() == null || review.getReviewerEmail().isBlank()) {
+            problems.add("reviewerEmail is required");
+        }
+        if (review.getStars() < 0 || review.getStars() > 5) {
+            problems.add("stars must be between 0 and 5");
+        }
+        if (review.getDateReviewed() == null) {
+            problems.add("dateReviewed is required");
+        }
+        return String.join("; ", problems);
+    }
+
+    /**
+     * The rows of one /bulk request.  Valid reviews are saved in chunks of
+     * BULK_CHUNK_SIZE; each saveAll is one transaction, whose INSERTs Hibernate
+     * sends in JDBC batches.  Invalid rows are recorded with the reason.
+     */
+    private class BulkInsert {
+        private List<MenuItemReview> pending = new ArrayList<>(BULK_CHUNK_SIZE);
+        private final List<BulkInsertResult.RowError> errors = new ArrayList<>();
+        private int inserted = 0;
+
+        void add(int row, JsonNode node) {
+            if (!node.isObject()) {
+                reject(row, "expected a JSON object");
+                return;
+            }
+            MenuItemReview review;
+            try {
+                review = mapper.treeToValue(node, MenuItemReview.class);
+            } catch (JsonProcessingException e) {
+                reject(row, e.getOriginalMessage());
+                return;
+            }
+            String problems = validate(review);
+            if (!problems.isEmpty()) {
+                reject(row, problems);
+                return;
+            }
+            // every row is new, whatever id or version the client sent
+            review.setId(0);
+            review.setVersion(0);
+            pending.add(review);
+            if (pending.size() == BULK_CHUNK_SIZE) {
+                flush();
+            }
+        }
 
-        menuItemReview.setItemId(incoming.getItemId());
-        menuItemReview.setReviewerEmail(incoming.getReviewerEmail());
-        menuItemReview.setStars(incoming.getStars());
-        menuItemReview.setDateReviewed(incoming.getDateReviewed());
-        menuItemReview.setComments(incoming.getComments());
+        void reject(int row, String message) {
+            errors.add(BulkInsertResult.RowError.builder()
+                    .row(row)
+                    .message(message)
+                    .build());
+        }
 
-        menuItemReviewRepository.save(menuItemReview);
+        void flush() {
+            if (!pending.isEmpty()) {
+                menuItemReviewRepository.saveAll(pending);
+                tableChanged(MenuItemReview.class);
+                menuItemReviewStatsService.addedAll(pending);
+                inserted += pending.size();
+                pending = new ArrayList<>(BULK_CHUNK_SIZE);
+            }
+        }
 
-        return menuItemReview;
+        BulkInsertResult finish() {
+            flush();
+            return BulkInsertResult.builder()
+                    .inserted(inserted)
+                    .errors(errors)
+                    .build();
+        }
     }
 }
@@ -4,19 +4,31 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import edu.ucsb.cs156.example.entities.RecommendationRequest;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
 import edu.ucsb.cs156.example.repositories.RecommendationRequestRepository;
+import edu.ucsb.cs156.example.services.BatchGetService;
+import edu.ucsb.cs156.example.models.BatchGetResult;
+import edu.ucsb.cs156.example.models.BulkChangeResult;
+import edu.ucsb.cs156.example.repositories.RecommendationRequestRepository.RecommendationRequestSummary;
+import edu.ucsb.cs156.example.services.FieldSelectionService;
+import edu.ucsb.cs156.example.models.CursorPage;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Pageable;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.context.request.WebRequest;
 
 import javax.validation.Valid;
 import java.time.LocalDateTime;
+import java.util.List;
 
 @Tag(name = "RecommendationRequest")
 @RequestMapping("/api/recommendationrequest")
@@ -27,12 +39,40 @@ public class RecommendationRequestController extends ApiController {
     @Autowired
     RecommendationRequestRepository recommendationRequestRepository;
 
+    @Autowired
+    BatchGetService batchGetService;
+
+    @Autowired
+    FieldSelectionService fieldSelectionService;
+
     @Operation(summary= "List all recommendation requests")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("/all")
-    public Iterable<RecommendationRequest> allRecommendationRequest() {
-        Iterable<RecommendationRequest> requests = recommendationRequestRepository.findAll();
-        return requests;
+    public ResponseEntity<Iterable<?>> allRecommendationRequest(
+            @Parameter(name="fields", description=FIELDS_DESCRIPTION) @RequestParam(required = false) String fields,
+            WebRequest request) {
+        if (fields != null) {
+            return conditionalGet(request, RecommendationRequest.class, () -> fieldSelectionService.findAll(RecommendationRequest.class, fields));
+        }
+        return conditionalGet(request, RecommendationRequest.class, () -> recommendationRequestRepository.findAll());
+    }
+
+    @Operation(summary= "List all recommendation requests, without their explanations")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/summaries")
+    public ResponseEntity<List<RecommendationRequestSummary>> recommendationRequestSummaries(WebRequest request) {
+        return conditionalGet(request, RecommendationRequest.class, () -> recommendationRequestRepository.findAllSummaries());
+    }
+
+    @Operation(summary= "List recommendation requests one page at a time, in id order")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/page")
+    public ResponseEntity<CursorPage<RecommendationRequest>> pageOfRecommendationRequests(
+            @Parameter(name="limit", description="maximum number of rows to return (at most " + MAX_PAGE_LIMIT + ")") @RequestParam(defaultValue = DEFAULT_PAGE_LIMIT) int limit,
+            @Parameter(name="after", description="cursor from the previous page; only rows with an id greater than this are returned; omit for the first page") @RequestParam(defaultValue = "0") long after) {
+        Pageable page = keysetPage(limit);
+        List<RecommendationRequest> requests = recommendationRequestRepository.findAllByIdGreaterThanOrderByIdAsc(after, page);
+        return cursorPage(requests, page, RecommendationRequest::getId);
     }
 
     @Operation(summary= "Create a new recommendation request")
@@ -61,6 +101,7 @@ public class RecommendationRequestController extends ApiController {
         recommendationRequest.setDone(done);
 
         RecommendationRequest savedRecommendationRequest = recommendationRequestRepository.save(recommendationRequest);
+        tableChanged(RecommendationRequest.class);
 
         return savedRecommendationRequest;
     }
@@ -68,12 +109,25 @@ public class RecommendationRequestController extends ApiController {
     @Operation(summary= "Get a recommendation request")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("")
-    public RecommendationRequest getById(
-            @Parameter(name="id") @RequestParam Long id) {
-        RecommendationRequest recommendationRequest = recommendationRequestRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(RecommendationRequest.class, id));
+    public ResponseEntity<RecommendationRequest> getById(
+            @Parameter(name="id") @RequestParam Long id, WebRequest request) {
+        return conditionalGetRow(request, recommendationRequestRepository.findById(id)
+                .orElseThrow(() -> new EntityNotFoundException(RecommendationRequest.class, id)), RecommendationRequest::getVersion);
+    }
 
-        return recommendationRequest;
+    @Operation(summary= "Get several recommendation requests at once")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping(value = "", params = "ids")
+    public ResponseEntity<BatchGetResult<RecommendationRequest>> getByIds(
+            @Parameter(name="ids", description=IDS_DESCRIPTION) @RequestParam List<Long> ids, WebRequest request) {
+        return conditionalGet(request, RecommendationRequest.class, () -> batchGetService.findAllById(recommendationRequestRepository, RecommendationRequest.class, ids));
+    }
+
+    @Operation(summary= "Get several recommendation requests at once, for more ids than fit in a URL; the body is a JSON array of them")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @PostMapping("/batch")
+    public BatchGetResult<RecommendationRequest> getByIdsInBody(@RequestBody List<Long> ids) {
+        return batchGetService.findAllById(recommendationRequestRepository, RecommendationRequest.class, ids);
     }
 
     @Operation(summary= "Delete a recommendation request")
@@ -81,32 +135,59 @@ public class RecommendationRequestController extends ApiController {
     @DeleteMapping("")
     public Object deleteRecommendationRequest(
             @Parameter(name="id") @RequestParam Long id) {
-        RecommendationRequest recommendationRequest = recommendationRequestRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(RecommendationRequest.class, id));
-
-        recommendationRequestRepository.delete(recommendationRequest);
+        if (recommendationRequestRepository.deleteRowById(id) == 0) {
+            throw new EntityNotFoundException(RecommendationRequest.class, id);
+        }
+        tableChanged(RecommendationRequest.class);
         return genericMessage("Recommendation request with id %s deleted".formatted(id));
     }
 
+    @Operation(summary= "Delete several recommendation requests at once, in one statement per as many ids as the database takes in one; the result is how many were deleted")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @DeleteMapping(value = "", params = "ids")
+    public BulkChangeResult deleteRecommendationRequests(
+            @Parameter(name="ids", description="comma separated ids, e.g. 1,2,3; ids without a row are ignored") @RequestParam List<Long> ids) {
+        int deleted = batchGetService.updateAllById(ids, recommendationRequestRepository::deleteRowsByIdIn);
+        tableChanged(RecommendationRequest.class);
+        return new BulkChangeResult(deleted);
+    }
+
+    @Operation(summary= "Delete every recommendation request made in a range of time, in one statement; the result is how many were deleted")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @DeleteMapping(value = "", params = { "from", "to" })
+    public BulkChangeResult deleteRecommendationRequestsRequestedBetween(
+            @Parameter(name="from", description="requests made at or after this time, in iso format, e.g. YYYY-mm-ddTHH:MM:SS") @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @Parameter(name="to", description="requests made before this time, in iso format, e.g. YYYY-mm-ddTHH:MM:SS") @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        int deleted = recommendationRequestRepository.deleteRowsByDateRequestedInRange(from, to);
+        tableChanged(RecommendationRequest.class);
+        return new BulkChangeResult(deleted);
+    }
+
+    @Operation(summary= "Mark several recommendation requests done at once, in one statement per as many ids as the database takes in one; the result is how many were not done before")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PutMapping("/done")
+    public BulkChangeResult markRecommendationRequestsDone(
+            @Parameter(name="ids", description="comma separated ids, e.g. 1,2,3; ids without a row are ignored") @RequestParam List<Long> ids) {
+        int marked = batchGetService.updateAllById(ids, recommendationRequestRepository::updateToDoneByIdIn);
+        tableChanged(RecommendationRequest.class);
+        return new BulkChangeResult(marked);
+    }
+
     @Operation(summary= "Update a single recommendation request")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @PutMapping("")
     public RecommendationRequest updateRecommendationRequest(
             @Parameter(name="id") @RequestParam Long id,
+            @Parameter(name="If-Match", description=IF_MATCH_DESCRIPTION) @RequestHeader(value = "If-Match", required = false) String ifMatch,
             @RequestBody @Valid RecommendationRequest incoming) {
 
-        RecommendationRequest recommendationRequest = recommendationRequestRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(RecommendationRequest.class, id));
-
-        recommendationRequest.setProfessorEmail(incoming.getProfessorEmail());
-        recommendationRequest.setRequesterEmail(incoming.getRequesterEmail());
-        recommendationRequest.setExplanation(incoming.getExplanation());
-        recommendationRequest.setDateRequested(incoming.getDateRequested());
-        recommendationRequest.setDateNeeded(incoming.getDateNeeded());
-        recommendationRequest.setDone(incoming.getDone());
-
-        recommendationRequestRepository.save(recommendationRequest);
-
-        return recommendationRequest;
+        long version = ifMatchVersion(ifMatch, RecommendationRequest.class, id);
+        if (recommendationRequestRepository.updateRowById(id, version, incoming) == 0) {
+            throw notUpdated(RecommendationRequest.class, id, ifMatch, recommendationRequestRepository.existsById(id));
+        }
+        incoming.setId(id);
+        incoming.setVersion(version + 1);
+        tableChanged(RecommendationRequest.class);
+        return incoming;
     }
 }
@@ -3,6 +3,10 @@ package edu.ucsb.cs156.example.controllers;
 import edu.ucsb.cs156.example.entities.UCSBDate;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
 import edu.ucsb.cs156.example.repositories.UCSBDateRepository;
+import edu.ucsb.cs156.example.services.BatchGetService;
+import edu.ucsb.cs156.example.models.BatchGetResult;
+import edu.ucsb.cs156.example.services.FieldSelectionService;
+import edu.ucsb.cs156.example.models.CursorPage;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -12,20 +16,25 @@ import lombok.extern.slf4j.Slf4j;
 import com.fasterxml.jackson.core.JsonProcessingException;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Pageable;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 import javax.validation.Valid;
 
 import java.time.LocalDateTime;
+import java.util.List;
 
 @Tag(name = "UCSBDates")
 @RequestMapping("/api/ucsbdates")
@@ -36,12 +45,33 @@ public class UCSBDatesController extends ApiController {
     @Autowired
     UCSBDateRepository ucsbDateRepository;
 
+    @Autowired
+    BatchGetService batchGetService;
+
+    @Autowired
+    FieldSelectionService fieldSelectionService;
+
     @Operation(summary= "List all ucsb dates")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("/all")
-    public Iterable<UCSBDate> allUCSBDates() {
-        Iterable<UCSBDate> dates = ucsbDateRepository.findAll();
-        return dates;
+    public ResponseEntity<Iterable<?>> allUCSBDates(
+            @Parameter(name="fields", description=FIELDS_DESCRIPTION) @RequestParam(required = false) String fields,
+            WebRequest request) {
+        if (fields != null) {
+            return conditionalGet(request, UCSBDate.class, () -> fieldSelectionService.findAll(UCSBDate.class, fields));
+        }
+        return conditionalGet(request, UCSBDate.class, () -> ucsbDateRepository.findAll());
+    }
+
+    @Operation(summary= "List ucsb dates one page at a time, in id order")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/page")
+    public ResponseEntity<CursorPage<UCSBDate>> pageOfUCSBDates(
+            @Parameter(name="limit", description="maximum number of rows to return (at most " + MAX_PAGE_LIMIT + ")") @RequestParam(defaultValue = DEFAULT_PAGE_LIMIT) int limit,
+            @Parameter(name="after", description="cursor from the previous page; only rows with an id greater than this are returned; omit for the first page") @RequestParam(defaultValue = "0") long after) {
+        Pageable page = keysetPage(limit);
+        List<UCSBDate> dates = ucsbDateRepository.findAllByIdGreaterThanOrderByIdAsc(after, page);
+        return cursorPage(dates, page, UCSBDate::getId);
     }
 
     @Operation(summary= "Create a new date")
@@ -64,6 +94,7 @@ public class UCSBDatesController extends ApiController {
         ucsbDate.setLocalDateTime(localDateTime);
 
         UCSBDate savedUcsbDate = ucsbDateRepository.save(ucsbDate);
+        tableChanged(UCSBDate.class);
 
         return savedUcsbDate;
     }
@@ -71,12 +102,25 @@ public class UCSBDatesController extends ApiController {
     @Operation(summary= "Get a single date")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("")
-    public UCSBDate getById(
-            @Parameter(name="id") @RequestParam Long id) {
-        UCSBDate ucsbDate = ucsbDateRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(UCSBDate.class, id));
+    public ResponseEntity<UCSBDate> getById(
+            @Parameter(name="id") @RequestParam Long id, WebRequest request) {
+        return conditionalGetRow(request, ucsbDateRepository.findById(id)
+                .orElseThrow(() -> new EntityNotFoundException(UCSBDate.class, id)), UCSBDate::getVersion);
+    }
 
-        return ucsbDate;
+    @Operation(summary= "Get several ucsb dates at once")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping(value = "", params = "ids")
+    public ResponseEntity<BatchGetResult<UCSBDate>> getByIds(
+            @Parameter(name="ids", description=IDS_DESCRIPTION) @RequestParam List<Long> ids, WebRequest request) {
+        return conditionalGet(request, UCSBDate.class, () -> batchGetService.findAllById(ucsbDateRepository, UCSBDate.class, ids));
+    }
+
+    @Operation(summary= "Get several ucsb dates at once, for more ids than fit in a URL; the body is a JSON array of them")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @PostMapping("/batch")
+    public BatchGetResult<UCSBDate> getByIdsInBody(@RequestBody List<Long> ids) {
+        return batchGetService.findAllById(ucsbDateRepository, UCSBDate.class, ids);
     }
 
     @Operation(summary= "Delete a UCSBDate")
@@ -84,10 +128,10 @@ public class UCSBDatesController extends ApiController {
     @DeleteMapping("")
     public Object deleteUCSBDate(
             @Parameter(name="id") @RequestParam Long id) {
-        UCSBDate ucsbDate = ucsbDateRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(UCSBDate.class, id));
-
-        ucsbDateRepository.delete(ucsbDate);
+        if (ucsbDateRepository.deleteRowById(id) == 0) {
+            throw new EntityNotFoundException(UCSBDate.class, id);
+        }
+        tableChanged(UCSBDate.class);
         return genericMessage("UCSBDate with id %s deleted".formatted(id));
     }
 
@@ -96,17 +140,16 @@ public class UCSBDatesController extends ApiController {
     @PutMapping("")
     public UCSBDate updateUCSBDate(
             @Parameter(name="id") @RequestParam Long id,
+            @Parameter(name="If-Match", description=IF_MATCH_DESCRIPTION) @RequestHeader(value = "If-Match", required = false) String ifMatch,
             @RequestBody @Valid UCSBDate incoming) {
 
-        UCSBDate ucsbDate = ucsbDateRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(UCSBDate.class, id));
-
-        ucsbDate.setQuarterYYYYQ(incoming.getQuarterYYYYQ());
-        ucsbDate.setName(incoming.getName());
-        ucsbDate.setLocalDateTime(incoming.getLocalDateTime());
-
-        ucsbDateRepository.save(ucsbDate);
-
-        return ucsbDate;
+        long version = ifMatchVersion(ifMatch, UCSBDate.class, id);
+        if (ucsbDateRepository.updateRowById(id, version, incoming) == 0) {
+            throw notUpdated(UCSBDate.class, id, ifMatch, ucsbDateRepository.existsById(id));
+        }
+        incoming.setId(id);
+        incoming.setVersion(version + 1);
+        tableChanged(UCSBDate.class);
+        return incoming;
     }
 }
@@ -3,6 +3,12 @@ package edu.ucsb.cs156.example.controllers;
 import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
 import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsRepository;
+import edu.ucsb.cs156.example.services.BatchGetService;
+import edu.ucsb.cs156.example.models.BatchGetResult;
+import edu.ucsb.cs156.example.services.DiningCommonsLocationService;
+import edu.ucsb.cs156.example.services.FieldSelectionService;
+import edu.ucsb.cs156.example.models.CursorPage;
+import edu.ucsb.cs156.example.models.NearbyDiningCommons;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -10,18 +16,24 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.extern.slf4j.Slf4j;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 import javax.validation.Valid;
 
+import java.util.List;
+
 @Tag(name = "UCSBDiningCommons")
 @RequestMapping("/api/ucsbdiningcommons")
 @RestController
@@ -31,12 +43,48 @@ public class UCSBDiningCommonsController extends ApiController {
     @Autowired
     UCSBDiningCommonsRepository ucsbDiningCommonsRepository;
 
+    @Autowired
+    BatchGetService batchGetService;
+
+    @Autowired
+    FieldSelectionService fieldSelectionService;
+
+    @Autowired
+    DiningCommonsLocationService diningCommonsLocationService;
+
     @Operation(summary= "List all ucsb dining commons")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("/all")
-    public Iterable<UCSBDiningCommons> allCommonss() {
-        Iterable<UCSBDiningCommons> commons = ucsbDiningCommonsRepository.findAll();
-        return commons;
+    public ResponseEntity<Iterable<?>> allCommonss(
+            @Parameter(name="fields", description=FIELDS_DESCRIPTION) @RequestParam(required = false) String fields,
+            WebRequest request) {
+        if (fields != null) {
+            return conditionalGet(request, UCSBDiningCommons.class, () -> fieldSelectionService.findAll(UCSBDiningCommons.class, fields));
+        }
+        return conditionalGet(request, UCSBDiningCommons.class, () -> ucsbDiningCommonsRepository.findAll());
+    }
+
+    @Operation(summary= "List ucsb dining commons one page at a time, in code order")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/page")
+    public ResponseEntity<CursorPage<UCSBDiningCommons>> pageOfCommons(
+            @Parameter(name="limit", description="maximum number of rows to return (at most " + MAX_PAGE_LIMIT + ")") @RequestParam(defaultValue = DEFAULT_PAGE_LIMIT) int limit,
+            @Parameter(name="after", description="cursor from the previous page; only rows with a code greater than this are returned; omit for the first page") @RequestParam(defaultValue = "") String after) {
+        Pageable page = keysetPage(limit);
+        List<UCSBDiningCommons> commons = ucsbDiningCommonsRepository.findAllByCodeGreaterThanOrderByCodeAsc(after, page);
+        return cursorPage(commons, page, UCSBDiningCommons::getCode);
+    }
+
+    @Operation(summary= "List the ucsb dining commons nearest to a location, nearest first, with their distances in meters")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/nearest")
+    public ResponseEntity<List<NearbyDiningCommons>> nearestCommons(
+            @Parameter(name="lat", description="latitude in degrees, from -90 to 90") @RequestParam double lat,
+            @Parameter(name="lon", description="longitude in degrees, from -180 to 180") @RequestParam double lon,
+            @Parameter(name="k", description="number of commons to return (at most " + MAX_PAGE_LIMIT + "); commons without a location are left out") @RequestParam(defaultValue = "1") int k,
+            WebRequest request) {
+        int count = Math.min(k, MAX_PAGE_LIMIT);
+        return conditionalGet(request, UCSBDiningCommons.class, () -> diningCommonsLocationService.nearest(lat, lon, count));
     }
 
     @Operation(summary= "Create a new commons")
@@ -63,6 +111,8 @@ public class UCSBDiningCommonsController extends ApiController {
         commons.setLongitude(longitude);
 
         UCSBDiningCommons savedCommons = ucsbDiningCommonsRepository.save(commons);
+        tableChanged(UCSBDiningCommons.class);
+        diningCommonsLocationService.saved(savedCommons);
 
         return savedCommons;
     }
@@ -70,12 +120,25 @@ public class UCSBDiningCommonsController extends ApiController {
     @Operation(summary= "Get a single commons")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("")
-    public UCSBDiningCommons getById(
-            @Parameter(name="code") @RequestParam String code) {
-        UCSBDiningCommons commons = ucsbDiningCommonsRepository.findById(code)
-                .orElseThrow(() -> new EntityNotFoundException(UCSBDiningCommons.class, code));
+    public ResponseEntity<UCSBDiningCommons> getById(
+            @Parameter(name="code") @RequestParam String code, WebRequest request) {
+        return conditionalGetRow(request, ucsbDiningCommonsRepository.findById(code)
+                .orElseThrow(() -> new EntityNotFoundException(UCSBDiningCommons.class, code)), UCSBDiningCommons::getVersion);
+    }
 
-        return commons;
+    @Operation(summary= "Get several ucsb dining commons at once")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping(value = "", params = "codes")
+    public ResponseEntity<BatchGetResult<UCSBDiningCommons>> getByIds(
+            @Parameter(name="codes", description="comma separated codes, e.g. ortega,portola; the rows are returned in this order, and each one without a row is listed in missing") @RequestParam List<String> codes, WebRequest request) {
+        return conditionalGet(request, UCSBDiningCommons.class, () -> batchGetService.findAllById(ucsbDiningCommonsRepository, UCSBDiningCommons.class, codes));
+    }
+
+    @Operation(summary= "Get several ucsb dining commons at once, for more codes than fit in a URL; the body is a JSON array of them")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @PostMapping("/batch")
+    public BatchGetResult<UCSBDiningCommons> getByIdsInBody(@RequestBody List<String> codes) {
+        return batchGetService.findAllById(ucsbDiningCommonsRepository, UCSBDiningCommons.class, codes);
     }
 
     @Operation(summary= "Delete a UCSBDiningCommons")
@@ -83,10 +146,11 @@ public class UCSBDiningCommonsController extends ApiController {
     @DeleteMapping("")
     public Object deleteCommons(
             @Parameter(name="code") @RequestParam String code) {
-        UCSBDiningCommons commons = ucsbDiningCommonsRepository.findById(code)
-                .orElseThrow(() -> new EntityNotFoundException(UCSBDiningCommons.class, code));
-
-        ucsbDiningCommonsRepository.delete(commons);
+        if (ucsbDiningCommonsRepository.deleteRowByCode(code) == 0) {
+            throw new EntityNotFoundException(UCSBDiningCommons.class, code);
+        }
+        tableChanged(UCSBDiningCommons.class);
+        diningCommonsLocationService.removed(code);
         return genericMessage("UCSBDiningCommons with id %s deleted".formatted(code));
     }
 
@@ -95,21 +159,19 @@ public class UCSBDiningCommonsController extends ApiController {
     @PutMapping("")
     public UCSBDiningCommons updateCommons(
             @Parameter(name="code") @RequestParam String code,
+            @Parameter(name="If-Match", description=IF_MATCH_DESCRIPTION) @RequestHeader(value = "If-Match", required = false) String ifMatch,
             @RequestBody @Valid UCSBDiningCommons incoming) {
 
-        UCSBDiningCommons commons = ucsbDiningCommonsRepository.findById(code)
-                .orElseThrow(() -> new EntityNotFoundException(UCSBDiningCommons.class, code));
-
-
-        commons.setName(incoming.getName());  
-        commons.setHasSackMeal(incoming.getHasSackMeal());
-        commons.setHasTakeOutMeal(incoming.getHasTakeOutMeal());
-        commons.setHasDiningCam(incoming.getHasDiningCam());
-        commons.setLatitude(incoming.getLatitude());
-        commons.setLongitude(incoming.getLongitude());
+        long version = ifMatchVersion(ifMatch, UCSBDiningCommons.class, code);
+        if (ucsbDiningCommonsRepository.updateRowByCode(code, version, incoming) == 0) {
+            throw notUpdated(UCSBDiningCommons.class, code, ifMatch, ucsbDiningCommonsRepository.existsById(code));
+        }
+        incoming.setCode(code);
+        incoming.setVersion(version + 1);
 
-        ucsbDiningCommonsRepository.save(commons);
+        tableChanged(UCSBDiningCommons.class);
+        diningCommonsLocationService.saved(incoming);
 
-        return commons;
+        return incoming;
     }
 }
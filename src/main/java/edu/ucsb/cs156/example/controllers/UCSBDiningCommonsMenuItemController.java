@@ -3,6 +3,10 @@ package edu.ucsb.cs156.example.controllers;
 import edu.ucsb.cs156.example.entities.UCSBDiningCommonsMenuItem;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
 import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsMenuItemRepository;
+import edu.ucsb.cs156.example.services.BatchGetService;
+import edu.ucsb.cs156.example.models.BatchGetResult;
+import edu.ucsb.cs156.example.services.FieldSelectionService;
+import edu.ucsb.cs156.example.models.CursorPage;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -12,20 +16,25 @@ import lombok.extern.slf4j.Slf4j;
 import com.fasterxml.jackson.core.JsonProcessingException;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Pageable;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 import javax.validation.Valid;
 
 import java.time.LocalDateTime;
+import java.util.List;
 
 @Tag(name = "UCSBDiningCommonsMenuItem")
 @RequestMapping("/api/ucsbdiningcommonsmenuitem")
@@ -36,12 +45,33 @@ public class UCSBDiningCommonsMenuItemController extends ApiController {
     @Autowired
     UCSBDiningCommonsMenuItemRepository ucsbDiningCommonsMenuItemRepository;
 
+    @Autowired
+    BatchGetService batchGetService;
+
+    @Autowired
+    FieldSelectionService fieldSelectionService;
+
     @Operation(summary= "List all ucsb menu item")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("/all")
-    public Iterable<UCSBDiningCommonsMenuItem> allUCSBDiningCommonsMenuItem() {
-        Iterable<UCSBDiningCommonsMenuItem> menuitems = ucsbDiningCommonsMenuItemRepository.findAll();
-        return menuitems;
+    public ResponseEntity<Iterable<?>> allUCSBDiningCommonsMenuItem(
+            @Parameter(name="fields", description=FIELDS_DESCRIPTION) @RequestParam(required = false) String fields,
+            WebRequest request) {
+        if (fields != null) {
+            return conditionalGet(request, UCSBDiningCommonsMenuItem.class, () -> fieldSelectionService.findAll(UCSBDiningCommonsMenuItem.class, fields));
+        }
+        return conditionalGet(request, UCSBDiningCommonsMenuItem.class, () -> ucsbDiningCommonsMenuItemRepository.findAll());
+    }
+
+    @Operation(summary= "List ucsb menu items one page at a time, in id order")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/page")
+    public ResponseEntity<CursorPage<UCSBDiningCommonsMenuItem>> pageOfUCSBDiningCommonsMenuItems(
+            @Parameter(name="limit", description="maximum number of rows to return (at most " + MAX_PAGE_LIMIT + ")") @RequestParam(defaultValue = DEFAULT_PAGE_LIMIT) int limit,
+            @Parameter(name="after", description="cursor from the previous page; only rows with an id greater than this are returned; omit for the first page") @RequestParam(defaultValue = "0") long after) {
+        Pageable page = keysetPage(limit);
+        List<UCSBDiningCommonsMenuItem> menuitems = ucsbDiningCommonsMenuItemRepository.findAllByIdGreaterThanOrderByIdAsc(after, page);
+        return cursorPage(menuitems, page, UCSBDiningCommonsMenuItem::getId);
     }
 
     @Operation(summary= "Create a new menu item")
@@ -61,6 +91,7 @@ public class UCSBDiningCommonsMenuItemController extends ApiController {
 
         log.info("writing to repo");
         UCSBDiningCommonsMenuItem savedMenuItem = ucsbDiningCommonsMenuItemRepository.save(menuItem);
+        tableChanged(UCSBDiningCommonsMenuItem.class);
 
         return savedMenuItem;
     }
@@ -68,12 +99,25 @@ public class UCSBDiningCommonsMenuItemController extends ApiController {
     @Operation(summary= "Get a single menu item")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("")
-    public UCSBDiningCommonsMenuItem getById(
-            @Parameter(name="id") @RequestParam Long id) {
-        UCSBDiningCommonsMenuItem menuitem = ucsbDiningCommonsMenuItemRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(UCSBDiningCommonsMenuItem.class, id));
+    public ResponseEntity<UCSBDiningCommonsMenuItem> getById(
+            @Parameter(name="id") @RequestParam Long id, WebRequest request) {
+        return conditionalGetRow(request, ucsbDiningCommonsMenuItemRepository.findById(id)
+                .orElseThrow(() -> new EntityNotFoundException(UCSBDiningCommonsMenuItem.class, id)), UCSBDiningCommonsMenuItem::getVersion);
+    }
 
-        return menuitem;
+    @Operation(summary= "Get several ucsb dining commons menu items at once")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping(value = "", params = "ids")
+    public ResponseEntity<BatchGetResult<UCSBDiningCommonsMenuItem>> getByIds(
+            @Parameter(name="ids", description=IDS_DESCRIPTION) @RequestParam List<Long> ids, WebRequest request) {
+        return conditionalGet(request, UCSBDiningCommonsMenuItem.class, () -> batchGetService.findAllById(ucsbDiningCommonsMenuItemRepository, UCSBDiningCommonsMenuItem.class, ids));
+    }
+
+    @Operation(summary= "Get several ucsb dining commons menu items at once, for more ids than fit in a URL; the body is a JSON array of them")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @PostMapping("/batch")
+    public BatchGetResult<UCSBDiningCommonsMenuItem> getByIdsInBody(@RequestBody List<Long> ids) {
+        return batchGetService.findAllById(ucsbDiningCommonsMenuItemRepository, UCSBDiningCommonsMenuItem.class, ids);
     }
 
     @Operation(summary= "Delete a menu item")
@@ -81,10 +125,10 @@ public class UCSBDiningCommonsMenuItemController extends ApiController {
     @DeleteMapping("")
     public Object deleteUCSBDiningCommonsMenuItem(
             @Parameter(name="id") @RequestParam Long id) {
-        UCSBDiningCommonsMenuItem menuitem = ucsbDiningCommonsMenuItemRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(UCSBDiningCommonsMenuItem.class, id));
-
-        ucsbDiningCommonsMenuItemRepository.delete(menuitem);
+        if (ucsbDiningCommonsMenuItemRepository.deleteRowById(id) == 0) {
+            throw new EntityNotFoundException(UCSBDiningCommonsMenuItem.class, id);
+        }
+        tableChanged(UCSBDiningCommonsMenuItem.class);
         return genericMessage("UCSBDiningCommonsMenuItem with id %s deleted".formatted(id));
     }
 
@@ -93,17 +137,16 @@ public class UCSBDiningCommonsMenuItemController extends ApiController {
     @PutMapping("")
     public UCSBDiningCommonsMenuItem updateUCSBDiningCommonsMenuItem(
             @Parameter(name="id") @RequestParam Long id,
+            @Parameter(name="If-Match", description=IF_MATCH_DESCRIPTION) @RequestHeader(value = "If-Match", required = false) String ifMatch,
             @RequestBody @Valid UCSBDiningCommonsMenuItem incoming) {
 
-        UCSBDiningCommonsMenuItem menuitem = ucsbDiningCommonsMenuItemRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(UCSBDiningCommonsMenuItem.class, id));
-
-        menuitem.setDiningCommonsCode(incoming.getDiningCommonsCode());
-        menuitem.setName(incoming.getName());
-        menuitem.setStation(incoming.getStation());
-
-        ucsbDiningCommonsMenuItemRepository.save(menuitem);
-
-        return menuitem;
+        long version = ifMatchVersion(ifMatch, UCSBDiningCommonsMenuItem.class, id);
+        if (ucsbDiningCommonsMenuItemRepository.updateRowById(id, version, incoming) == 0) {
+            throw notUpdated(UCSBDiningCommonsMenuItem.class, id, ifMatch, ucsbDiningCommonsMenuItemRepository.existsById(id));
+        }
+        incoming.setId(id);
+        incoming.setVersion(version + 1);
+        tableChanged(UCSBDiningCommonsMenuItem.class);
+        return incoming;
     }
 }
\ No newline at end of file
@@ -2,23 +2,33 @@ package edu.ucsb.cs156.example.controllers;
 import edu.ucsb.cs156.example.entities.UCSBOrganizations;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
 import edu.ucsb.cs156.example.repositories.UCSBOrganizationsRepository;
+import edu.ucsb.cs156.example.services.BatchGetService;
+import edu.ucsb.cs156.example.models.BatchGetResult;
+import edu.ucsb.cs156.example.services.FieldSelectionService;
+import edu.ucsb.cs156.example.models.CursorPage;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.extern.slf4j.Slf4j;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 import javax.validation.Valid;
 
+import java.util.List;
+
 @Tag(name = "UCSBOrganizations")
 @RequestMapping("/api/ucsborganizations")
 @RestController
@@ -28,12 +38,33 @@ public class UCSBOrganizationsController extends ApiController {
     @Autowired
     UCSBOrganizationsRepository ucsbOrganizationsRepository;
 
+    @Autowired
+    BatchGetService batchGetService;
+
+    @Autowired
+    FieldSelectionService fieldSelectionService;
+
     @Operation(summary= "List all ucsb organizations")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("/all")
-    public Iterable<UCSBOrganizations> allOrganizations() {
-        Iterable<UCSBOrganizations> organization = ucsbOrganizationsRepository.findAll();
-        return organization;
+    public ResponseEntity<Iterable<?>> allOrganizations(
+            @Parameter(name="fields", description=FIELDS_DESCRIPTION) @RequestParam(required = false) String fields,
+            WebRequest request) {
+        if (fields != null) {
+            return conditionalGet(request, UCSBOrganizations.class, () -> fieldSelectionService.findAll(UCSBOrganizations.class, fields));
+        }
+        return conditionalGet(request, UCSBOrganizations.class, () -> ucsbOrganizationsRepository.findAll());
+    }
+
+    @Operation(summary= "List ucsb organizations one page at a time, in orgCode order")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/page")
+    public ResponseEntity<CursorPage<UCSBOrganizations>> pageOfOrganizations(
+            @Parameter(name="limit", description="maximum number of rows to return (at most " + MAX_PAGE_LIMIT + ")") @RequestParam(defaultValue = DEFAULT_PAGE_LIMIT) int limit,
+            @Parameter(name="after", description="cursor from the previous page; only rows with an orgCode greater than this are returned; omit for the first page") @RequestParam(defaultValue = "") String after) {
+        Pageable page = keysetPage(limit);
+        List<UCSBOrganizations> organizations = ucsbOrganizationsRepository.findAllByOrgCodeGreaterThanOrderByOrgCodeAsc(after, page);
+        return cursorPage(organizations, page, UCSBOrganizations::getOrgCode);
     }
 
     @Operation(summary= "Create a new organizations")
@@ -52,6 +83,7 @@ public class UCSBOrganizationsController extends ApiController {
         commons.setInactive(inactive);
 
         UCSBOrganizations savedOrganizations = ucsbOrganizationsRepository.save(commons);
+        tableChanged(UCSBOrganizations.class);
 
         return savedOrganizations;
     }
@@ -59,12 +91,25 @@ public class UCSBOrganizationsController extends ApiController {
     @Operation(summary= "Get a single organization")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("")
-    public UCSBOrganizations getById(
-            @Parameter(name="orgCode") @RequestParam String orgCode) {
-        UCSBOrganizations organization = ucsbOrganizationsRepository.findById(orgCode)
-                .orElseThrow(() -> new EntityNotFoundException(UCSBOrganizations.class, orgCode));
+    public ResponseEntity<UCSBOrganizations> getById(
+            @Parameter(name="orgCode") @RequestParam String orgCode, WebRequest request) {
+        return conditionalGetRow(request, ucsbOrganizationsRepository.findById(orgCode)
+                .orElseThrow(() -> new EntityNotFoundException(UCSBOrganizations.class, orgCode)), UCSBOrganizations::getVersion);
+    }
 
-        return organization;
+    @Operation(summary= "Get several ucsb organizations at once")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping(value = "", params = "orgCodes")
+    public ResponseEntity<BatchGetResult<UCSBOrganizations>> getByIds(
+            @Parameter(name="orgCodes", description="comma separated organization codes, e.g. ZPR,SKY; the rows are returned in this order, and each one without a row is listed in missing") @RequestParam List<String> orgCodes, WebRequest request) {
+        return conditionalGet(request, UCSBOrganizations.class, () -> batchGetService.findAllById(ucsbOrganizationsRepository, UCSBOrganizations.class, orgCodes));
+    }
+
+    @Operation(summary= "Get several ucsb organizations at once, for more orgCodes than fit in a URL; the body is a JSON array of them")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @PostMapping("/batch")
+    public BatchGetResult<UCSBOrganizations> getByIdsInBody(@RequestBody List<String> orgCodes) {
+        return batchGetService.findAllById(ucsbOrganizationsRepository, UCSBOrganizations.class, orgCodes);
     }
 
     @Operation(summary= "Delete a UCSBOrganizations")
@@ -72,10 +117,10 @@ public class UCSBOrganizationsController extends ApiController {
     @DeleteMapping("")
     public Object deleteOrganizations(
             @Parameter(name="orgCode") @RequestParam String orgCode) {
-        UCSBOrganizations commons = ucsbOrganizationsRepository.findById(orgCode)
-                .orElseThrow(() -> new EntityNotFoundException(UCSBOrganizations.class, orgCode));
-
-        ucsbOrganizationsRepository.delete(commons);
+        if (ucsbOrganizationsRepository.deleteRowByOrgCode(orgCode) == 0) {
+            throw new EntityNotFoundException(UCSBOrganizations.class, orgCode);
+        }
+        tableChanged(UCSBOrganizations.class);
         return genericMessage("UCSBOrganizations with id %s deleted".formatted(orgCode));
     }
 
@@ -84,19 +129,17 @@ public class UCSBOrganizationsController extends ApiController {
     @PutMapping("")
     public UCSBOrganizations updateOrganizations(
             @Parameter(name="code") @RequestParam String code,
+            @Parameter(name="If-Match", description=IF_MATCH_DESCRIPTION) @RequestHeader(value = "If-Match", required = false) String ifMatch,
             @RequestBody @Valid UCSBOrganizations incoming) {
 
-        UCSBOrganizations organization = ucsbOrganizationsRepository.findById(code)
-                .orElseThrow(() -> new EntityNotFoundException(UCSBOrganizations.class, code));
-
-        organization.setOrgCode(incoming.getOrgCode());
-        organization.setOrgTranslationShort(incoming.getOrgTranslationShort());
-        organization.setOrgTranslation(incoming.getOrgTranslation());
-        organization.setInactive(incoming.getInactive());
-
-        ucsbOrganizationsRepository.save(organization);
-
-        return organization;
+        long version = ifMatchVersion(ifMatch, UCSBOrganizations.class, code);
+        if (ucsbOrganizationsRepository.updateRowByOrgCode(code, version, incoming) == 0) {
+            throw notUpdated(UCSBOrganizations.class, code, ifMatch, ucsbOrganizationsRepository.existsById(code));
+        }
+        incoming.setOrgCode(code);
+        incoming.setVersion(version + 1);
+        tableChanged(UCSBOrganizations.class);
+        return incoming;
     }
 
 }
@@ -1,18 +1,19 @@
 package edu.ucsb.cs156.example.controllers;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
-
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import edu.ucsb.cs156.example.entities.User;
-import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.UserExportService;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 
 
@@ -21,18 +22,18 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 @RestController
 public class UsersController extends ApiController {
     @Autowired
-    UserRepository userRepository;
-
-    @Autowired
-    ObjectMapper mapper;
+    UserExportService userExportService;
 
-    @Operation(summary= "Get a list of all users")
+    @Operation(summary= "Get a list of all users, or of those whose email contains the given text",
+            description= "Users are sent in id order as they are read from the database.  To get them a page at a time, pass limit, then pass the id of the last user returned as after to get the next page.")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
-    @GetMapping("")
-    public ResponseEntity<String> users()
-            throws JsonProcessingException {
-        Iterable<User> users = userRepository.findAll();
-        String body = mapper.writeValueAsString(users);
-        return ResponseEntity.ok().body(body);
+    @GetMapping(value = "", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> users(
+            @Parameter(name="email", description="only users whose email contains this, ignoring case") @RequestParam(defaultValue = "") String email,
+            @Parameter(name="after", description="only users with an id greater than this") @RequestParam(defaultValue = "0") long after,
+            @Parameter(name="limit", description="maximum number of users to return (at most " + MAX_PAGE_LIMIT + "); omit for all of them") @RequestParam(required = false) Integer limit) {
+        Pageable page = limit == null ? Pageable.unpaged() : keysetPage(limit);
+        StreamingResponseBody body = out -> userExportService.writeUsers(out, email, after, page);
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
     }
-}
\ No newline at end of file
+}
@@ -6,6 +6,7 @@ import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Version;
 
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -28,4 +29,7 @@ public class HelpRequest {
   private LocalDateTime requestTime;
   private String explanation;
   private Boolean solved;
-}
\ No newline at end of file
+
+  @Version
+  private long version;
+}
@@ -5,7 +5,9 @@ import java.time.LocalDateTime;
 import javax.persistence.Entity;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Version;
 import javax.persistence.GeneratedValue;
+import javax.persistence.SequenceGenerator;
 
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -15,11 +17,14 @@ import lombok.Builder;
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
-@Builder
+@Builder(toBuilder = true)
 @Entity(name = "menuitemreviews")
 public class MenuItemReview {
+  // Ids are handed out 50 at a time from MENUITEMREVIEWS_SEQ (rather than by
+  // the IDENTITY column) so that Hibernate can batch the INSERTs of /bulk
   @Id
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "menuitemreviews_seq")
+  @SequenceGenerator(name = "menuitemreviews_seq", sequenceName = "MENUITEMREVIEWS_SEQ", allocationSize = 50)
   private long id;
 
   private long itemId; // refers to the id in the UCSBDiningCommonsMenuItems table of a menu item
@@ -27,4 +32,7 @@ public class MenuItemReview {
   private int stars; // 0 to 5
   private LocalDateTime dateReviewed;
   private String comments;
-}
\ No newline at end of file
+
+  @Version
+  private long version;
+}
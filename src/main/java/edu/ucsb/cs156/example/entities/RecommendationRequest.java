@@ -25,4 +25,7 @@ public class RecommendationRequest {
   private LocalDateTime dateRequested;
   private LocalDateTime dateNeeded;
   private boolean done;
-}
\ No newline at end of file
+
+  @Version
+  private long version;
+}
@@ -4,6 +4,7 @@ import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Version;
 
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -24,4 +25,7 @@ public class UCSBDiningCommonsMenuItem {
   private String diningCommonsCode;
   private String name;
   private String station;
-}
\ No newline at end of file
+
+  @Version
+  private long version;
+}
@@ -2,7 +2,11 @@ package edu.ucsb.cs156.example.errors;
 
 public class EntityNotFoundException extends RuntimeException {
   public EntityNotFoundException(Class<?> entityType, Object id) {
-    super("%s with id %s not found"
-      .formatted(entityType.getSimpleName(), id.toString()));
+    super(message(entityType, id));
+  }
+
+  public static String message(Class<?> entityType, Object id) {
+    return "%s with id %s not found"
+      .formatted(entityType.getSimpleName(), id.toString());
   }
 }
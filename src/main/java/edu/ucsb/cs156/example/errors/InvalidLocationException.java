@@ -0,0 +1,8 @@
+package edu.ucsb.cs156.example.errors;
+
+public class InvalidLocationException extends RuntimeException {
+  public InvalidLocationException(double latitude, double longitude) {
+    super("(%s, %s) is not a location; latitude must be from -90 to 90 and longitude from -180 to 180"
+      .formatted(latitude, longitude));
+  }
+}
@@ -0,0 +1,8 @@
+package edu.ucsb.cs156.example.errors;
+
+public class PreconditionFailedException extends RuntimeException {
+  public PreconditionFailedException(Class<?> entityType, Object id, String ifMatch) {
+    super("%s with id %s is not at version %s; get it again and reapply the change"
+      .formatted(entityType.getSimpleName(), id.toString(), ifMatch));
+  }
+}
@@ -0,0 +1,8 @@
+package edu.ucsb.cs156.example.errors;
+
+public class PreconditionRequiredException extends RuntimeException {
+  public PreconditionRequiredException(Class<?> entityType) {
+    super("Updating a %s needs an If-Match header with the version it was based on, e.g. If-Match: \"3\""
+      .formatted(entityType.getSimpleName()));
+  }
+}
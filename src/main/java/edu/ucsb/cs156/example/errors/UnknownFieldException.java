@@ -0,0 +1,13 @@
+package edu.ucsb.cs156.example.errors;
+
+import java.util.Collection;
+import java.util.stream.Collectors;
+
+public class UnknownFieldException extends RuntimeException {
+  public UnknownFieldException(Class<?> entityType, Collection<String> unknown, Collection<String> known) {
+    super("%s has no field %s; choose from %s"
+      .formatted(entityType.getSimpleName(),
+        unknown.stream().map(field -> "\"" + field + "\"").collect(Collectors.joining(", ")),
+        String.join(", ", known)));
+  }
+}
@@ -0,0 +1,8 @@
+package edu.ucsb.cs156.example.errors;
+
+public class VersionConflictException extends RuntimeException {
+  public VersionConflictException(Class<?> entityType, Object id) {
+    super("%s with id %s was changed by someone else while this change was being made; get it again and reapply the change"
+      .formatted(entityType.getSimpleName(), id.toString()));
+  }
+}
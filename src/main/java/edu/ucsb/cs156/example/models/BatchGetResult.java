@@ -0,0 +1,33 @@
+package edu.ucsb.cs156.example.models;
+
+import lombok.Data;
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+import lombok.Builder;
+import lombok.AccessLevel;
+
+import java.util.List;
+
+/**
+ * Outcome of getting several rows by id at once: the rows that were found,
+ * in the order their ids were asked for, and a not-found message for each
+ * of the other ids.
+ */
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+public class BatchGetResult<T> {
+  private List<T> found;
+  private List<Missing> missing;
+
+  @Data
+  @AllArgsConstructor
+  @NoArgsConstructor(access = AccessLevel.PROTECTED)
+  @Builder
+  public static class Missing {
+    private Object id;
+    private String message;
+  }
+}
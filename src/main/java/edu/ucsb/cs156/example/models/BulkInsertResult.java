@@ -0,0 +1,33 @@
+package edu.ucsb.cs156.example.models;
+
+import lombok.Data;
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+import lombok.Builder;
+import lombok.AccessLevel;
+
+import java.util.List;
+
+/**
+ * Outcome of a bulk insert: how many rows were saved, and why each of the
+ * others was rejected.  Rows are numbered from 1, in the order they were
+ * sent (for newline-delimited JSON, this is the line number).
+ */
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+public class BulkInsertResult {
+  private int inserted;
+  private List<RowError> errors;
+
+  @Data
+  @AllArgsConstructor
+  @NoArgsConstructor(access = AccessLevel.PROTECTED)
+  @Builder
+  public static class RowError {
+    private int row;
+    private String message;
+  }
+}
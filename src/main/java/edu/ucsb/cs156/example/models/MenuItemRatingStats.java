@@ -0,0 +1,28 @@
+package edu.ucsb.cs156.example.models;
+
+import lombok.Data;
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+import lombok.Builder;
+import lombok.AccessLevel;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Summary of the reviews of one menu item.  histogram.get(n) is the number
+ * of reviews with n stars, for n = 0..5; count is their total and mean the
+ * average number of stars.
+ */
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+public class MenuItemRatingStats {
+  private long itemId;
+  private long count;
+  private double mean;
+  private List<Long> histogram;
+  private LocalDateTime lastReviewed;
+}
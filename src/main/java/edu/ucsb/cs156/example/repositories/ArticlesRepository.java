@@ -2,11 +2,56 @@ package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.Articles;
 
-import org.springframework.data.repository.CrudRepository;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.repository.PagingAndSortingRepository;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 
 @Repository
-public interface ArticlesRepository extends CrudRepository<Articles, Long> {
- 
+@Transactional(readOnly = true)
+public interface ArticlesRepository extends PagingAndSortingRepository<Articles, Long> {
+  List<Articles> findAllByIdGreaterThanOrderByIdAsc(long after, Pageable page);
+
+  @Query("SELECT a.id AS id, a.title AS title, a.url AS url, a.email AS email, a.dateAdded AS dateAdded"
+      + " FROM articles a ORDER BY a.id")
+  List<ArticleSummary> findAllSummaries();
+
+  /** One DELETE, with no SELECT first: the number of rows deleted, 0 if there is no such article. */
+  @Modifying
+  @Transactional
+  @Query("DELETE FROM articles a WHERE a.id = ?1")
+  int deleteRowById(long id);
+
+  /**
+   * One UPDATE of every field but the key from incoming, and of the version to the next one, if the row is still
+   * at the given version, with no SELECT first: the number of rows updated, 0 if there is no such row or it has
+   * another version.
+   */
+  @Transactional
+  default int updateRowById(long id, long version, Articles incoming) {
+    return updateRowById(id, version, incoming.getTitle(), incoming.getUrl(), incoming.getExplanation(),
+        incoming.getEmail(), incoming.getDateAdded());
+  }
+
+  @Modifying
+  @Transactional
+  @Query("UPDATE articles a SET a.title = ?3, a.url = ?4, a.explanation = ?5, a.email = ?6, "
+      + "a.dateAdded = ?7, a.version = a.version + 1 WHERE a.id = ?1 AND a.version = ?2")
+  int updateRowById(long id, long version, String title, String url, String explanation, String email,
+      LocalDateTime dateAdded);
+
+  /** An article without its explanation */
+  interface ArticleSummary {
+    long getId();
+    String getTitle();
+    String getUrl();
+    String getEmail();
+    LocalDateTime getDateAdded();
+  }
 }
\ No newline at end of file
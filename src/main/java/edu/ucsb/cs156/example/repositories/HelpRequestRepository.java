@@ -2,11 +2,108 @@ package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.HelpRequest;
 
-import org.springframework.data.repository.CrudRepository;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.repository.PagingAndSortingRepository;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 
 @Repository
-public interface HelpRequestRepository extends CrudRepository<HelpRequest, Long> {
- 
+@Transactional(readOnly = true)
+public interface HelpRequestRepository extends PagingAndSortingRepository<HelpRequest, Long>, JpaSpecificationExecutor<HelpRequest> {
+  List<HelpRequest> findAllByIdGreaterThanOrderByIdAsc(long after, Pageable page);
+
+  @Query("SELECT h.id AS id, h.requesterEmail AS requesterEmail, h.teamId AS teamId,"
+      + " h.tableOrBreakoutRoom AS tableOrBreakoutRoom, h.requestTime AS requestTime, h.solved AS solved"
+      + " FROM helprequest h ORDER BY h.id")
+  List<HelpRequestSummary> findAllSummaries();
+
+  /** One DELETE, with no SELECT first: the number of rows deleted, 0 if there is no such help request. */
+  @Modifying
+  @Transactional
+  @Query("DELETE FROM helprequest h WHERE h.id = ?1")
+  int deleteRowById(long id);
+
+  /**
+   * One UPDATE of every field but the key from incoming, and of the version to the next one, if the row is still
+   * at the given version, with no SELECT first: the number of rows updated, 0 if there is no such row or it has
+   * another version.
+   */
+  @Transactional
+  default int updateRowById(long id, long version, HelpRequest incoming) {
+    return updateRowById(id, version, incoming.getRequesterEmail(), incoming.getTeamId(),
+        incoming.getTableOrBreakoutRoom(), incoming.getExplanation(), incoming.getRequestTime(),
+        incoming.getSolved());
+  }
+
+  @Modifying
+  @Transactional
+  @Query("UPDATE helprequest h SET h.requesterEmail = ?3, h.teamId = ?4, h.tableOrBreakoutRoom = ?5, "
+      + "h.explanation = ?6, h.requestTime = ?7, h.solved = ?8, "
+      + "h.version = h.version + 1 WHERE h.id = ?1 AND h.version = ?2")
+  int updateRowById(long id, long version, String requesterEmail, String teamId, String tableOrBreakoutRoom,
+      String explanation, LocalDateTime requestTime, Boolean solved);
+
+  /**
+   * updateRowById, after updateToSolvedById when incoming is solved, in one transaction, so that no other update
+   * comes between the two and a failed update doesn't leave the row solved at its old version: the number of rows
+   * updated, and whether this is the update that solved the help request.
+   */
+  @Transactional
+  default RowUpdate updateRowAndSolveById(long id, long version, HelpRequest incoming) {
+    boolean nowSolved = Boolean.TRUE.equals(incoming.getSolved()) && updateToSolvedById(id, version) == 1;
+    return new RowUpdate(updateRowById(id, version, incoming), nowSolved);
+  }
+
+  /**
+   * Marks a help request at the given version solved if it is not already, leaving the version to the
+   * updateRowById that follows; 1 if it was unsolved, 0 if it was solved, is at another version or is not there.
+   */
+  @Modifying
+  @Transactional
+  @Query("UPDATE helprequest h SET h.solved = true WHERE h.id = ?1 AND h.version = ?2 AND h.solved = false")
+  int updateToSolvedById(long id, long version);
+
+  /**
+   * One DELETE of every help request with one of the ids: the number of rows deleted.  For more ids than the
+   * database takes in one IN list, call it through BatchGetService.updateAllById.
+   */
+  @Modifying
+  @Transactional
+  @Query("DELETE FROM helprequest h WHERE h.id IN ?1")
+  int deleteRowsByIdIn(Collection<Long> ids);
+
+  /** One DELETE of every help request made at or after from and before to: the number of rows deleted. */
+  @Modifying
+  @Transactional
+  @Query("DELETE FROM helprequest h WHERE h.requestTime >= ?1 AND h.requestTime < ?2")
+  int deleteRowsByRequestTimeInRange(LocalDateTime from, LocalDateTime to);
+
+  /** Marks every unsolved help request made before the given time solved, in one UPDATE: the number marked. */
+  @Modifying
+  @Transactional
+  @Query("UPDATE helprequest h SET h.solved = true, h.version = h.version + 1"
+      + " WHERE h.solved = false AND h.requestTime < ?1")
+  int updateToSolvedByRequestTimeBefore(LocalDateTime before);
+
+  /** What updateRowAndSolveById did */
+  record RowUpdate(int updated, boolean nowSolved) {
+  }
+
+  /** A help request without its explanation */
+  interface HelpRequestSummary {
+    long getId();
+    String getRequesterEmail();
+    String getTeamId();
+    String getTableOrBreakoutRoom();
+    LocalDateTime getRequestTime();
+    Boolean getSolved();
+  }
 }
\ No newline at end of file
@@ -0,0 +1,61 @@
+package edu.ucsb.cs156.example.repositories;
+
+import edu.ucsb.cs156.example.entities.HelpRequest;
+
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDateTime;
+
+/**
+ * Filters for HelpRequestRepository.findAll(Specification, ...).
+ *
+ * Only the conditions that are asked for end up in the WHERE clause, so the
+ * database can use HELPREQUEST_SOLVED_REQUEST_TIME_IDX for the unsolved queue
+ * and HELPREQUEST_TEAM_ID_IDX for one team.
+ */
+public final class HelpRequestSpecifications {
+
+  private HelpRequestSpecifications() {
+  }
+
+  public static Specification<HelpRequest> solvedIs(boolean solved) {
+    return (root, query, cb) -> cb.equal(root.get("solved"), solved);
+  }
+
+  public static Specification<HelpRequest> teamIdIs(String teamId) {
+    return (root, query, cb) -> cb.equal(root.get("teamId"), teamId);
+  }
+
+  public static Specification<HelpRequest> requestedAtOrAfter(LocalDateTime from) {
+    return (root, query, cb) -> cb.greaterThanOrEqualTo(root.get("requestTime"), from);
+  }
+
+  public static Specification<HelpRequest> requestedBefore(LocalDateTime to) {
+    return (root, query, cb) -> cb.lessThan(root.get("requestTime"), to);
+  }
+
+  /**
+   * All of the given conditions; null arguments are left out.  Returns null
+   * when every argument is null, i.e. there is nothing to filter on.
+   */
+  public static Specification<HelpRequest> matching(Boolean solved, String teamId, LocalDateTime from, LocalDateTime to) {
+    Specification<HelpRequest> filter = null;
+    if (solved != null) {
+      filter = and(filter, solvedIs(solved));
+    }
+    if (teamId != null) {
+      filter = and(filter, teamIdIs(teamId));
+    }
+    if (from != null) {
+      filter = and(filter, requestedAtOrAfter(from));
+    }
+    if (to != null) {
+      filter = and(filter, requestedBefore(to));
+    }
+    return filter;
+  }
+
+  private static Specification<HelpRequest> and(Specification<HelpRequest> filter, Specification<HelpRequest> condition) {
+    return filter == null ? condition : filter.and(condition);
+  }
+}
@@ -2,10 +2,63 @@ package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.MenuItemReview;
 
-import org.springframework.data.repository.CrudRepository;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.repository.PagingAndSortingRepository;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 
 @Repository
-public interface MenuItemReviewRepository extends CrudRepository<MenuItemReview, Long> {
+@Transactional(readOnly = true)
+public interface MenuItemReviewRepository extends PagingAndSortingRepository<MenuItemReview, Long> {
+  List<MenuItemReview> findAllByIdGreaterThanOrderByIdAsc(long after, Pageable page);
+
+  @Query("SELECT r.itemId AS itemId, r.stars AS stars, COUNT(r) AS count, MAX(r.dateReviewed) AS lastReviewed"
+      + " FROM menuitemreviews r WHERE r.stars BETWEEN 0 AND 5 GROUP BY r.itemId, r.stars")
+  List<StarsCount> countByItemIdAndStars();
+
+  /** As countByItemIdAndStars, for just the given menu items. */
+  @Query("SELECT r.itemId AS itemId, r.stars AS stars, COUNT(r) AS count, MAX(r.dateReviewed) AS lastReviewed"
+      + " FROM menuitemreviews r WHERE r.itemId IN ?1 AND r.stars BETWEEN 0 AND 5 GROUP BY r.itemId, r.stars")
+  List<StarsCount> countByItemIdInAndStars(Collection<Long> itemIds);
+
+  /**
+   * One DELETE, if the review is still at the given version: the number of rows deleted, 0 if there is no such
+   * review or it has another version.
+   */
+  @Modifying
+  @Transactional
+  @Query("DELETE FROM menuitemreviews r WHERE r.id = ?1 AND r.version = ?2")
+  int deleteRowById(long id, long version);
+
+  /**
+   * One UPDATE of every field but the key from incoming, and of the version to the next one, if the row is still
+   * at the given version, with no SELECT first: the number of rows updated, 0 if there is no such row or it has
+   * another version.
+   */
+  @Transactional
+  default int updateRowById(long id, long version, MenuItemReview incoming) {
+    return updateRowById(id, version, incoming.getItemId(), incoming.getReviewerEmail(), incoming.getStars(),
+        incoming.getDateReviewed(), incoming.getComments());
+  }
+
+  @Modifying
+  @Transactional
+  @Query("UPDATE menuitemreviews r SET r.itemId = ?3, r.reviewerEmail = ?4, r.stars = ?5, "
+      + "r.dateReviewed = ?6, r.comments = ?7, r.version = r.version + 1 WHERE r.id = ?1 AND r.version = ?2")
+  int updateRowById(long id, long version, long itemId, String reviewerEmail, int stars,
+      LocalDateTime dateReviewed, String comments);
+
+  interface StarsCount {
+    long getItemId();
+    int getStars();
+    long getCount();
+    LocalDateTime getLastReviewed();
+  }
 }
@@ -1,11 +1,85 @@
 package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.RecommendationRequest;
-import org.springframework.data.repository.CrudRepository;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.repository.PagingAndSortingRepository;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 
 @Repository
-public interface RecommendationRequestRepository extends CrudRepository<RecommendationRequest, Long> {
+@Transactional(readOnly = true)
+public interface RecommendationRequestRepository extends PagingAndSortingRepository<RecommendationRequest, Long> {
+  List<RecommendationRequest> findAllByIdGreaterThanOrderByIdAsc(long after, Pageable page);
+
+  @Query("SELECT r.id AS id, r.requesterEmail AS requesterEmail, r.professorEmail AS professorEmail,"
+      + " r.dateRequested AS dateRequested, r.dateNeeded AS dateNeeded, r.done AS done"
+      + " FROM recommendationrequest r ORDER BY r.id")
+  List<RecommendationRequestSummary> findAllSummaries();
+
+  /** One DELETE, with no SELECT first: the number of rows deleted, 0 if there is no such recommendation request. */
+  @Modifying
+  @Transactional
+  @Query("DELETE FROM recommendationrequest r WHERE r.id = ?1")
+  int deleteRowById(long id);
+
+  /**
+   * One UPDATE of every field but the key from incoming, and of the version to the next one, if the row is still
+   * at the given version, with no SELECT first: the number of rows updated, 0 if there is no such row or it has
+   * another version.
+   */
+  @Transactional
+  default int updateRowById(long id, long version, RecommendationRequest incoming) {
+    return updateRowById(id, version, incoming.getProfessorEmail(), incoming.getRequesterEmail(),
+        incoming.getExplanation(), incoming.getDateRequested(), incoming.getDateNeeded(), incoming.getDone());
+  }
+
+  @Modifying
+  @Transactional
+  @Query("UPDATE recommendationrequest r SET r.professorEmail = ?3, r.requesterEmail = ?4, "
+      + "r.explanation = ?5, r.dateRequested = ?6, r.dateNeeded = ?7, r.done = ?8, "
+      + "r.version = r.version + 1 WHERE r.id = ?1 AND r.version = ?2")
+  int updateRowById(long id, long version, String professorEmail, String requesterEmail, String explanation,
+      LocalDateTime dateRequested, LocalDateTime dateNeeded, boolean done);
+
+  /**
+   * One DELETE of every recommendation request with one of the ids: the number of rows deleted.  For more ids
+   * than the database takes in one IN list, call it through BatchGetService.updateAllById.
+   */
+  @Modifying
+  @Transactional
+  @Query("DELETE FROM recommendationrequest r WHERE r.id IN ?1")
+  int deleteRowsByIdIn(Collection<Long> ids);
+
+  /** One DELETE of every recommendation request made at or after from and before to: the number of rows deleted. */
+  @Modifying
+  @Transactional
+  @Query("DELETE FROM recommendationrequest r WHERE r.dateRequested >= ?1 AND r.dateRequested < ?2")
+  int deleteRowsByDateRequestedInRange(LocalDateTime from, LocalDateTime to);
+
+  /**
+   * Marks the recommendation requests with the given ids done, in one UPDATE: the number that were not done
+   * before.  For more ids than the database takes in one IN list, call it through BatchGetService.updateAllById.
+   */
+  @Modifying
+  @Transactional
+  @Query("UPDATE recommendationrequest r SET r.done = true, r.version = r.version + 1"
+      + " WHERE r.id IN ?1 AND r.done = false")
+  int updateToDoneByIdIn(Collection<Long> ids);
 
+  /** A recommendation request without its explanation */
+  interface RecommendationRequestSummary {
+    long getId();
+    String getRequesterEmail();
+    String getProfessorEmail();
+    LocalDateTime getDateRequested();
+    LocalDateTime getDateNeeded();
+    boolean isDone();
+  }
 }
\ No newline at end of file
@@ -2,11 +2,53 @@ package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.UCSBDate;
 
-import org.springframework.data.repository.CrudRepository;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import javax.persistence.QueryHint;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.PagingAndSortingRepository;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import static org.hibernate.jpa.QueryHints.HINT_CACHEABLE;
 
 
 @Repository
-public interface UCSBDateRepository extends CrudRepository<UCSBDate, Long> {
+@Transactional(readOnly = true)
+public interface UCSBDateRepository extends PagingAndSortingRepository<UCSBDate, Long> {
+  /** Served from the query cache (see config/ReferenceDataCacheConfig) until the table changes. */
+  @Override
+  @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
+  Iterable<UCSBDate> findAll();
+
+  List<UCSBDate> findAllByIdGreaterThanOrderByIdAsc(long after, Pageable page);
   Iterable<UCSBDate> findAllByQuarterYYYYQ(String quarterYYYYQ);
+
+  /** One DELETE, with no SELECT first: the number of rows deleted, 0 if there is no such date. */
+  @Modifying
+  @Transactional
+  @Query("DELETE FROM ucsbdates d WHERE d.id = ?1")
+  int deleteRowById(long id);
+
+  /**
+   * One UPDATE of every field but the key from incoming, and of the version to the next one, if the row is still
+   * at the given version, with no SELECT first: the number of rows updated, 0 if there is no such row or it has
+   * another version.
+   */
+  @Transactional
+  default int updateRowById(long id, long version, UCSBDate incoming) {
+    return updateRowById(id, version, incoming.getQuarterYYYYQ(), incoming.getName(),
+        incoming.getLocalDateTime());
+  }
+
+  @Modifying
+  @Transactional
+  @Query("UPDATE ucsbdates d SET d.quarterYYYYQ = ?3, d.name = ?4, d.localDateTime = ?5, "
+      + "d.version = d.version + 1 WHERE d.id = ?1 AND d.version = ?2")
+  int updateRowById(long id, long version, String quarterYYYYQ, String name, LocalDateTime localDateTime);
 }
\ No newline at end of file
@@ -2,12 +2,41 @@ package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.UCSBDiningCommonsMenuItem;
 
-import org.springframework.beans.propertyeditors.StringArrayPropertyEditor;
-import org.springframework.data.repository.CrudRepository;
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.PagingAndSortingRepository;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 
 @Repository
-public interface UCSBDiningCommonsMenuItemRepository extends CrudRepository<UCSBDiningCommonsMenuItem, Long> {
- 
+@Transactional(readOnly = true)
+public interface UCSBDiningCommonsMenuItemRepository extends PagingAndSortingRepository<UCSBDiningCommonsMenuItem, Long> {
+  List<UCSBDiningCommonsMenuItem> findAllByIdGreaterThanOrderByIdAsc(long after, Pageable page);
+
+  /** One DELETE, with no SELECT first: the number of rows deleted, 0 if there is no such menu item. */
+  @Modifying
+  @Transactional
+  @Query("DELETE FROM ucsbdiningcommonsmenuitem m WHERE m.id = ?1")
+  int deleteRowById(long id);
+
+  /**
+   * One UPDATE of every field but the key from incoming, and of the version to the next one, if the row is still
+   * at the given version, with no SELECT first: the number of rows updated, 0 if there is no such row or it has
+   * another version.
+   */
+  @Transactional
+  default int updateRowById(long id, long version, UCSBDiningCommonsMenuItem incoming) {
+    return updateRowById(id, version, incoming.getDiningCommonsCode(), incoming.getName(),
+        incoming.getStation());
+  }
+
+  @Modifying
+  @Transactional
+  @Query("UPDATE ucsbdiningcommonsmenuitem m SET m.diningCommonsCode = ?3, m.name = ?4, "
+      + "m.station = ?5, m.version = m.version + 1 WHERE m.id = ?1 AND m.version = ?2")
+  int updateRowById(long id, long version, String diningCommonsCode, String name, String station);
 }
\ No newline at end of file
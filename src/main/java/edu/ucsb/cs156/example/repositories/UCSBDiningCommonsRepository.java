@@ -2,12 +2,54 @@ package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
 
-import org.springframework.beans.propertyeditors.StringArrayPropertyEditor;
-import org.springframework.data.repository.CrudRepository;
+import java.util.List;
+
+import javax.persistence.QueryHint;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.PagingAndSortingRepository;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import static org.hibernate.jpa.QueryHints.HINT_CACHEABLE;
 
 
 @Repository
-public interface UCSBDiningCommonsRepository extends CrudRepository<UCSBDiningCommons, String> {
- 
+@Transactional(readOnly = true)
+public interface UCSBDiningCommonsRepository extends PagingAndSortingRepository<UCSBDiningCommons, String> {
+  /** Served from the query cache (see config/ReferenceDataCacheConfig) until the table changes. */
+  @Override
+  @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
+  Iterable<UCSBDiningCommons> findAll();
+
+  List<UCSBDiningCommons> findAllByCodeGreaterThanOrderByCodeAsc(String after, Pageable page);
+
+  /** One DELETE, with no SELECT first: the number of rows deleted, 0 if there is no such commons. */
+  @Modifying
+  @Transactional
+  @Query("DELETE FROM ucsbdiningcommons c WHERE c.code = ?1")
+  int deleteRowByCode(String code);
+
+  /**
+   * One UPDATE of every field but the key from incoming, and of the version to the next one, if the row is still
+   * at the given version, with no SELECT first: the number of rows updated, 0 if there is no such row or it has
+   * another version.
+   */
+  @Transactional
+  default int updateRowByCode(String code, long version, UCSBDiningCommons incoming) {
+    return updateRowByCode(code, version, incoming.getName(), incoming.getHasSackMeal(),
+        incoming.getHasTakeOutMeal(), incoming.getHasDiningCam(), incoming.getLatitude(),
+        incoming.getLongitude());
+  }
+
+  @Modifying
+  @Transactional
+  @Query("UPDATE ucsbdiningcommons c SET c.name = ?3, c.hasSackMeal = ?4, c.hasTakeOutMeal = ?5, "
+      + "c.hasDiningCam = ?6, c.latitude = ?7, c.longitude = ?8, "
+      + "c.version = c.version + 1 WHERE c.code = ?1 AND c.version = ?2")
+  int updateRowByCode(String code, long version, String name, boolean hasSackMeal, boolean hasTakeOutMeal,
+      boolean hasDiningCam, Double latitude, Double longitude);
 }
\ No newline at end of file
@@ -2,12 +2,52 @@ package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.UCSBOrganizations;
 
-import org.springframework.beans.propertyeditors.StringArrayPropertyEditor;
-import org.springframework.data.repository.CrudRepository;
+import java.util.List;
+
+import javax.persistence.QueryHint;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.PagingAndSortingRepository;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import static org.hibernate.jpa.QueryHints.HINT_CACHEABLE;
 
 
 @Repository
-public interface UCSBOrganizationsRepository extends CrudRepository<UCSBOrganizations, String> {
+@Transactional(readOnly = true)
+public interface UCSBOrganizationsRepository extends PagingAndSortingRepository<UCSBOrganizations, String> {
+  /** Served from the query cache (see config/ReferenceDataCacheConfig) until the table changes. */
+  @Override
+  @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
+  Iterable<UCSBOrganizations> findAll();
+
+  List<UCSBOrganizations> findAllByOrgCodeGreaterThanOrderByOrgCodeAsc(String after, Pageable page);
+
+  /** One DELETE, with no SELECT first: the number of rows deleted, 0 if there is no such organization. */
+  @Modifying
+  @Transactional
+  @Query("DELETE FROM ucsborganizations o WHERE o.orgCode = ?1")
+  int deleteRowByOrgCode(String orgCode);
+
+  /**
+   * One UPDATE of every field but the key from incoming, and of the version to the next one, if the row is still
+   * at the given version, with no SELECT first: the number of rows updated, 0 if there is no such row or it has
+   * another version.
+   */
+  @Transactional
+  default int updateRowByOrgCode(String orgCode, long version, UCSBOrganizations incoming) {
+    return updateRowByOrgCode(orgCode, version, incoming.getOrgTranslationShort(), incoming.getOrgTranslation(),
+        incoming.getInactive());
+  }
 
+  @Modifying
+  @Transactional
+  @Query("UPDATE ucsborganizations o SET o.orgTranslationShort = ?3, o.orgTranslation = ?4, o.inactive = ?5, "
+      + "o.version = o.version + 1 WHERE o.orgCode = ?1 AND o.version = ?2")
+  int updateRowByOrgCode(String orgCode, long version, String orgTranslationShort, String orgTranslation,
+      boolean inactive);
 }
\ No newline at end of file
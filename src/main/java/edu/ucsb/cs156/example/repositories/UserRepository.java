@@ -1,12 +1,70 @@
 package edu.ucsb.cs156.example.repositories;
 
+import edu.ucsb.cs156.example.config.CacheConfig;
 import edu.ucsb.cs156.example.entities.User;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Optional;
+import java.util.stream.Stream;
+
+// Every write through this repository evicts the cached copy of the user
+// and of their admin flag, so admin changes are visible on the user's next
+// request or login.  Being overridden here, the writes have to declare
+// their read-write transactions again; otherwise they would get the read-only
+// one declared here for queries.  A user without an email is never cached,
+// so there is nothing to evict for one.
 
 @Repository
+@Transactional(readOnly = true)
 public interface UserRepository extends CrudRepository<User, Long> {
   Optional<User> findByEmail(String email);
+
+  /**
+   * Users after the given id whose email contains the given text (all of
+   * them for ""), in id order.  The rows are fetched from the database in
+   * batches of hibernate.jdbc.fetch_size as the stream is consumed, which
+   * must be inside a transaction; close the stream when done.
+   */
+  Stream<User> streamByIdGreaterThanAndEmailContainingIgnoreCaseOrderByIdAsc(long after, String email, Pageable page);
+
+  @Override
+  @Transactional
+  @CacheEvict(cacheNames = { CacheConfig.USERS_CACHE, CacheConfig.ADMINS_CACHE }, key = "#p0.email",
+      condition = "#p0.email != null")
+  <S extends User> S save(S user);
+
+  @Override
+  @Transactional
+  @CacheEvict(cacheNames = { CacheConfig.USERS_CACHE, CacheConfig.ADMINS_CACHE }, allEntries = true)
+  <S extends User> Iterable<S> saveAll(Iterable<S> users);
+
+  @Override
+  @Transactional
+  @CacheEvict(cacheNames = { CacheConfig.USERS_CACHE, CacheConfig.ADMINS_CACHE }, key = "#p0.email",
+      condition = "#p0.email != null")
+  void delete(User user);
+
+  @Override
+  @Transactional
+  @CacheEvict(cacheNames = { CacheConfig.USERS_CACHE, CacheConfig.ADMINS_CACHE }, allEntries = true)
+  void deleteById(Long id);
+
+  @Override
+  @Transactional
+  @CacheEvict(cacheNames = { CacheConfig.USERS_CACHE, CacheConfig.ADMINS_CACHE }, allEntries = true)
+  void deleteAllById(Iterable<? extends Long> ids);
+
+  @Override
+  @Transactional
+  @CacheEvict(cacheNames = { CacheConfig.USERS_CACHE, CacheConfig.ADMINS_CACHE }, allEntries = true)
+  void deleteAll(Iterable<? extends User> users);
+
+  @Override
+  @Transactional
+  @CacheEvict(cacheNames = { CacheConfig.USERS_CACHE, CacheConfig.ADMINS_CACHE }, allEntries = true)
+  void deleteAll();
 }
@@ -0,0 +1,136 @@
+package edu.ucsb.cs156.example.services;
+
+import edu.ucsb.cs156.example.entities.Articles;
+import edu.ucsb.cs156.example.models.ArticleMatch;
+import edu.ucsb.cs156.example.repositories.ArticlesRepository;
+import edu.ucsb.cs156.example.services.InvertedIndex.Hit;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Searches the titles and explanations of the articles, using an in-memory
+ * InvertedIndex.
+ *
+ * The index is built from the table the first time it is searched, and
+ * after that the row of each article ArticlesController saves or deletes is
+ * read again and reindexed.  It holds only ids; the articles found are read by primary
+ * key, so a search never scans the table.
+ *
+ * Searches share a read lock and writes take the write lock.  The index
+ * belongs to this instance of the application, so it only sees changes made
+ * through it: run a single instance (see docs/dokku.md).
+ */
+@Slf4j
+@Service
+public class ArticleSearchService {
+
+  static final int LOAD_BATCH_SIZE = 1000;
+
+  @Autowired
+  ArticlesRepository articlesRepository;
+
+  private final InvertedIndex index = new InvertedIndex();
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+  private volatile boolean loaded = false;
+
+  /**
+   * Up to limit articles that contain every word of the query, in their
+   * title or explanation, best match first.  The last word also matches
+   * the words it is the start of.  Case and punctuation are ignored.
+   */
+  public List<ArticleMatch> search(String query, int limit) {
+    List<String> words = InvertedIndex.words(query);
+    if (words.isEmpty()) {
+      return List.of();
+    }
+    ensureLoaded();
+    List<Hit> hits;
+    lock.readLock().lock();
+    try {
+      hits = index.search(words, true, limit);
+    } finally {
+      lock.readLock().unlock();
+    }
+    if (hits.isEmpty()) {
+      return List.of();
+    }
+    Map<Long, Articles> found = new HashMap<>();
+    articlesRepository.findAllById(hits.stream().map(Hit::id).toList())
+        .forEach(article -> found.put(article.getId(), article));
+    // an article deleted since the search is left out
+    return hits.stream()
+        .filter(hit -> found.containsKey(hit.id()))
+        .map(hit -> new ArticleMatch(found.get(hit.id()), hit.score()))
+        .toList();
+  }
+
+  // Until the index is first loaded there is nothing to update: the load
+  // will read the articles from the database.  A change made while the
+  // index is loading waits for the write lock the load holds, and is then
+  // applied, since the load may already have read past it.
+  //
+  // Two controllers can call these in the other order than their writes
+  // committed in, so neither trusts the article it is given: each re-reads
+  // the row while holding the write lock, and indexes it as it is then, or
+  // drops it if it is gone.  The last re-read of an id comes after its last
+  // write, so the index ends up at the committed row whatever the order.
+
+  public void saved(Articles article) {
+    reindex(article.getId());
+  }
+
+  public void removed(long id) {
+    reindex(id);
+  }
+
+  private void reindex(long id) {
+    lock.writeLock().lock();
+    try {
+      if (loaded) {
+        articlesRepository.findById(id).ifPresentOrElse(
+            article -> index.put(id, article.getTitle(), article.getExplanation()),
+            () -> index.remove(id));
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  private void ensureLoaded() {
+    if (!loaded) {
+      lock.writeLock().lock();
+      try {
+        if (!loaded) {
+          load();
+          loaded = true;
+        }
+      } finally {
+        lock.writeLock().unlock();
+      }
+    }
+  }
+
+  // one page of articles at a time, so the whole table is never in memory
+  private void load() {
+    PageRequest page = PageRequest.of(0, LOAD_BATCH_SIZE);
+    long after = 0;
+    List<Articles> batch;
+    do {
+      batch = articlesRepository.findAllByIdGreaterThanOrderByIdAsc(after, page);
+      for (Articles article : batch) {
+        index.put(article.getId(), article.getTitle(), article.getExplanation());
+        after = article.getId();
+      }
+    } while (batch.size() == LOAD_BATCH_SIZE);
+    log.info("indexed the words of {} articles", index.size());
+  }
+}
@@ -0,0 +1,124 @@
+package edu.ucsb.cs156.example.services;
+
+import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.BatchGetResult;
+
+import org.hibernate.dialect.Dialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.ToIntFunction;
+
+/**
+ * Gets several rows by primary key with as few queries as possible: one
+ * findAllById (a SELECT ... WHERE id IN (...)) per chunk of ids, with the
+ * chunks no longer than the database's dialect allows in an IN list.  The
+ * bulk DELETE and UPDATE ... WHERE id IN statements are split the same way.
+ */
+@Service
+public class BatchGetService {
+
+  /** Chunk size for dialects without a limit of their own. */
+  static final int DEFAULT_CHUNK_SIZE = 1000;
+
+  @Autowired
+  EntityManagerFactory entityManagerFactory;
+
+  // 0 means the dialect's limit
+  @Value("${app.batch-get.chunk-size:0}")
+  int configuredChunkSize;
+
+  /**
+   * The rows of entityType with the given ids, in the order asked for and
+   * without repeats, and a not-found message for each id that has no row.
+   * Null ids are ignored.
+   */
+  @Transactional(readOnly = true)
+  public <T, ID> BatchGetResult<T> findAllById(CrudRepository<T, ID> repository, Class<T> entityType,
+      Collection<ID> ids) {
+    Set<ID> wanted = new LinkedHashSet<>();
+    ids.stream().filter(Objects::nonNull).forEach(wanted::add);
+
+    Map<Object, T> byId = new HashMap<>();
+    forEachChunk(wanted, chunk -> read(repository, chunk, byId));
+
+    List<T> found = new ArrayList<>(byId.size());
+    List<BatchGetResult.Missing> missing = new ArrayList<>();
+    for (ID id : wanted) {
+      T row = byId.get(id);
+      if (row != null) {
+        found.add(row);
+      } else {
+        missing.add(new BatchGetResult.Missing(id, EntityNotFoundException.message(entityType, id)));
+      }
+    }
+    return BatchGetResult.<T>builder()
+        .found(found)
+        .missing(missing)
+        .build();
+  }
+
+  /**
+   * Runs statement, a DELETE or UPDATE of the rows whose ids are in the list
+   * it is given, on each chunk of ids, all in one transaction: the total
+   * number of rows it changed.  Null and repeated ids are ignored, and no
+   * statement is run for no ids.
+   */
+  @Transactional
+  public <ID> int updateAllById(Collection<ID> ids, ToIntFunction<List<ID>> statement) {
+    Set<ID> wanted = new LinkedHashSet<>();
+    ids.stream().filter(Objects::nonNull).forEach(wanted::add);
+
+    int[] changed = { 0 };
+    forEachChunk(wanted, chunk -> changed[0] += statement.applyAsInt(chunk));
+    return changed[0];
+  }
+
+  private <ID> void forEachChunk(Set<ID> ids, Consumer<List<ID>> action) {
+    int chunkSize = chunkSize();
+    List<ID> chunk = new ArrayList<>(Math.min(chunkSize, ids.size()));
+    for (ID id : ids) {
+      chunk.add(id);
+      if (chunk.size() == chunkSize) {
+        action.accept(chunk);
+        chunk = new ArrayList<>(chunkSize);
+      }
+    }
+    if (!chunk.isEmpty()) {
+      action.accept(chunk);
+    }
+  }
+
+  private <T, ID> void read(CrudRepository<T, ID> repository, List<ID> chunk, Map<Object, T> byId) {
+    for (T row : repository.findAllById(chunk)) {
+      byId.put(entityManagerFactory.getPersistenceUnitUtil().getIdentifier(row), row);
+    }
+  }
+
+  int chunkSize() {
+    if (configuredChunkSize > 0) {
+      return configuredChunkSize;
+    }
+    Dialect dialect = entityManagerFactory.unwrap(SessionFactoryImplementor.class).getJdbcServices().getDialect();
+    return chunkSizeFor(dialect);
+  }
+
+  static int chunkSizeFor(Dialect dialect) {
+    int limit = dialect.getInExpressionCountLimit();
+    return limit > 0 ? limit : DEFAULT_CHUNK_SIZE;
+  }
+}
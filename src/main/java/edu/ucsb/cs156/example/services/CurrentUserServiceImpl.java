@@ -1,17 +1,21 @@
 package edu.ucsb.cs156.example.services;
 
+import edu.ucsb.cs156.example.config.CacheConfig;
 import edu.ucsb.cs156.example.entities.User;
 import edu.ucsb.cs156.example.models.CurrentUser;
 import edu.ucsb.cs156.example.repositories.UserRepository;
 import lombok.extern.slf4j.Slf4j;
 
-import java.util.ArrayList;
 import java.util.Collection;
-import java.util.List;
+import java.util.HashSet;
 import java.util.Optional;
+import java.util.Set;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.support.NoOpCache;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.context.SecurityContext;
@@ -30,8 +34,11 @@ public class CurrentUserServiceImpl extends CurrentUserService {
   @Autowired
   GrantedAuthoritiesService grantedAuthoritiesService;
 
+  @Autowired
+  CacheManager cacheManager;
+
   @Value("${app.admin.emails}")
-  final private List<String> adminEmails = new ArrayList<String>();
+  final private Set<String> adminEmails = new HashSet<String>();
 
   public CurrentUser getCurrentUser() {
     CurrentUser cu = CurrentUser.builder()
@@ -46,6 +53,18 @@ public class CurrentUserServiceImpl extends CurrentUserService {
   public User getOAuth2AuthenticatedUser(SecurityContext securityContext, Authentication authentication) {
     OAuth2User oAuthUser = ((OAuth2AuthenticationToken) authentication).getPrincipal();
     String email = oAuthUser.getAttribute("email");
+
+    // /api/currentUser is fetched on every page load, so the common case is
+    // served from the cache without touching the database.  Entries expire
+    // after a few minutes and are evicted whenever UserRepository saves or
+    // deletes the user.  Caffeine takes no null keys, so a user without an
+    // email isn't cached.
+    Cache users = email != null ? cacheManager.getCache(CacheConfig.USERS_CACHE) : new NoOpCache(CacheConfig.USERS_CACHE);
+    User cached = users.get(email, User.class);
+    if (cached != null) {
+      return cached;
+    }
+
     String googleSub = oAuthUser.getAttribute("sub");
     String pictureUrl = oAuthUser.getAttribute("picture");
     String fullName = oAuthUser.getAttribute("name");
@@ -55,8 +74,7 @@ public class CurrentUserServiceImpl extends CurrentUserService {
     String locale = oAuthUser.getAttribute("locale");
     String hostedDomain = oAuthUser.getAttribute("hd");
 
-    java.util.Map<java.lang.String,java.lang.Object> attrs = oAuthUser.getAttributes();
-    log.info("attrs={}",attrs);
+    log.debug("attrs={}", oAuthUser.getAttributes());
 
     Optional<User> ou = userRepository.findByEmail(email);
     if (ou.isPresent()) {
@@ -65,6 +83,7 @@ public class CurrentUserServiceImpl extends CurrentUserService {
         u.setAdmin(true);
         userRepository.save(u);
       }
+      users.put(email, u);
       return u;
     }
 
@@ -81,6 +100,7 @@ public class CurrentUserServiceImpl extends CurrentUserService {
         .admin(adminEmails.contains(email))
         .build();
     userRepository.save(u);
+    users.put(email, u);
     return u;
   }
 
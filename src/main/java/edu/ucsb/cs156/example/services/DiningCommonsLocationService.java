@@ -0,0 +1,135 @@
+package edu.ucsb.cs156.example.services;
+
+import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+import edu.ucsb.cs156.example.errors.InvalidLocationException;
+import edu.ucsb.cs156.example.models.NearbyDiningCommons;
+import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsRepository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Finds the dining commons nearest to a location, using an in-memory
+ * spatial index (a SphericalKdTree) of the commons that have a latitude and
+ * longitude.
+ *
+ * The index is built from the table the first time it is read, and after
+ * that the row of each commons UCSBDiningCommonsController saves or deletes
+ * is read again and reindexed, so a query never scans the table.
+ *
+ * Readers use the current tree without locking; writers are serialized and
+ * replace it.  The index belongs to this instance of the application, so it
+ * only sees changes made through it: run a single instance (see
+ * docs/dokku.md).
+ */
+@Slf4j
+@Service
+public class DiningCommonsLocationService {
+
+  @Autowired
+  UCSBDiningCommonsRepository ucsbDiningCommonsRepository;
+
+  private volatile SphericalKdTree<UCSBDiningCommons> tree = SphericalKdTree.empty();
+  private final Map<String, UCSBDiningCommons> indexedByCode = new HashMap<>();
+  private volatile boolean loaded = false;
+
+  /** The k (at least 1) commons nearest to the given location, nearest first. */
+  public List<NearbyDiningCommons> nearest(double latitude, double longitude, int k) {
+    if (!(latitude >= -90 && latitude <= 90 && longitude >= -180 && longitude <= 180)) {
+      throw new InvalidLocationException(latitude, longitude);
+    }
+    ensureLoaded();
+    return tree.nearest(latitude, longitude, Math.max(1, k)).stream()
+        .map(neighbor -> new NearbyDiningCommons(neighbor.value(), neighbor.distanceMeters()))
+        .toList();
+  }
+
+  // Until the index is first loaded there is nothing to update:
+  // the load will read the commons from the database.
+  //
+  // Two controllers can call these in the other order than their writes
+  // committed in, so neither trusts the commons it is given: each re-reads
+  // the row, and indexes it as it is then, or drops it if it is gone.  Writers
+  // are serialized, so the last re-read of a code comes after its last write.
+
+  public void saved(UCSBDiningCommons commons) {
+    reindex(commons.getCode());
+  }
+
+  public void removed(String code) {
+    reindex(code);
+  }
+
+  private synchronized void reindex(String code) {
+    if (!loaded) {
+      return;
+    }
+    SphericalKdTree<UCSBDiningCommons> next = without(tree, indexedByCode.remove(code));
+    Optional<UCSBDiningCommons> row = ucsbDiningCommonsRepository.findById(code)
+        .filter(DiningCommonsLocationService::located);
+    if (row.isPresent()) {
+      UCSBDiningCommons copy = copyOf(row.get());
+      indexedByCode.put(code, copy);
+      next = next.with(copy.getLatitude(), copy.getLongitude(), copy);
+    }
+    tree = next;
+  }
+
+  private void ensureLoaded() {
+    if (!loaded) {
+      synchronized (this) {
+        if (!loaded) {
+          load();
+          loaded = true;
+        }
+      }
+    }
+  }
+
+  private void load() {
+    List<UCSBDiningCommons> located = new ArrayList<>();
+    for (UCSBDiningCommons commons : ucsbDiningCommonsRepository.findAll()) {
+      if (located(commons)) {
+        UCSBDiningCommons copy = copyOf(commons);
+        located.add(copy);
+        indexedByCode.put(copy.getCode(), copy);
+      }
+    }
+    tree = SphericalKdTree.of(located, UCSBDiningCommons::getLatitude, UCSBDiningCommons::getLongitude);
+    log.info("indexed the locations of {} dining commons", located.size());
+  }
+
+  private static SphericalKdTree<UCSBDiningCommons> without(SphericalKdTree<UCSBDiningCommons> tree,
+      UCSBDiningCommons indexed) {
+    if (indexed == null) {
+      return tree;
+    }
+    return tree.without(indexed.getLatitude(), indexed.getLongitude(), commons -> commons == indexed);
+  }
+
+  private static boolean located(UCSBDiningCommons commons) {
+    return commons.getLatitude() != null && commons.getLongitude() != null;
+  }
+
+  // The index keeps copies of its own, which nothing else holds on to and
+  // so nothing else can change.
+  private static UCSBDiningCommons copyOf(UCSBDiningCommons commons) {
+    return UCSBDiningCommons.builder()
+        .code(commons.getCode())
+        .name(commons.getName())
+        .hasSackMeal(commons.getHasSackMeal())
+        .hasTakeOutMeal(commons.getHasTakeOutMeal())
+        .hasDiningCam(commons.getHasDiningCam())
+        .latitude(commons.getLatitude())
+        .longitude(commons.getLongitude())
+        .version(commons.getVersion())
+        .build();
+  }
+}
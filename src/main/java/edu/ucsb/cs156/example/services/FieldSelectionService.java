@@ -0,0 +1,96 @@
+package edu.ucsb.cs156.example.services;
+
+import edu.ucsb.cs156.example.errors.UnknownFieldException;
+
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Tuple;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Selection;
+import javax.persistence.metamodel.Attribute;
+import javax.persistence.metamodel.EntityType;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Reads only some of the columns of a table, for the fields= parameter of
+ * the /all endpoints.  The SELECT lists just those columns and no entities
+ * are created, so neither the result set nor the persistence context holds
+ * the fields the client doesn't want (e.g. long explanations).
+ */
+@Service
+public class FieldSelectionService {
+
+  @PersistenceContext
+  EntityManager entityManager;
+
+  /**
+   * The given fields of every row, in id order.  Annotated as well as the
+   * overload it calls, since a call on this doesn't go through the proxy.
+   */
+  @Transactional(readOnly = true)
+  public <T> List<Map<String, Object>> findAll(Class<T> entityType, String fields) {
+    return findAll(entityType, fields, null, null);
+  }
+
+  /**
+   * The given fields (a comma separated list of entity property names) of
+   * the rows matching filter (all rows when null), sorted by sort (by id when
+   * null).  Each row is a map from field name to value, in the order asked for.
+   */
+  @Transactional(readOnly = true)
+  public <T> List<Map<String, Object>> findAll(Class<T> entityType, String fields, Specification<T> filter, Sort sort) {
+    EntityType<T> entity = entityManager.getMetamodel().entity(entityType);
+    List<String> selected = parse(entityType, entity, fields);
+
+    CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+    CriteriaQuery<Tuple> query = cb.createTupleQuery();
+    Root<T> root = query.from(entityType);
+    query.multiselect(selected.stream().<Selection<?>>map(field -> root.get(field).alias(field)).toList());
+    if (filter != null) {
+      query.where(filter.toPredicate(root, query, cb));
+    }
+    Sort order = sort != null ? sort : Sort.by(entity.getId(entity.getIdType().getJavaType()).getName());
+    query.orderBy(QueryUtils.toOrders(order, root, cb));
+
+    List<Map<String, Object>> rows = new ArrayList<>();
+    for (Tuple tuple : entityManager.createQuery(query).getResultList()) {
+      Map<String, Object> row = new LinkedHashMap<>();
+      for (String field : selected) {
+        row.put(field, tuple.get(field));
+      }
+      rows.add(row);
+    }
+    return rows;
+  }
+
+  private static <T> List<String> parse(Class<T> entityType, EntityType<T> entity, String fields) {
+    Set<String> known = new TreeSet<>();
+    for (Attribute<? super T, ?> attribute : entity.getSingularAttributes()) {
+      known.add(attribute.getName());
+    }
+    Set<String> selected = new LinkedHashSet<>();
+    for (String field : fields.split(",", -1)) {
+      selected.add(field.trim());
+    }
+    Set<String> unknown = new LinkedHashSet<>(selected);
+    unknown.removeAll(known);
+    if (!unknown.isEmpty()) {
+      throw new UnknownFieldException(entityType, unknown, known);
+    }
+    return new ArrayList<>(selected);
+  }
+}
@@ -0,0 +1,199 @@
+package edu.ucsb.cs156.example.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Pushes help request events to every client connected to
+ * GET /api/helprequests/stream, as server-sent events.
+ *
+ * publish() never blocks on a client: it serializes the event once and
+ * puts it in each client's queue of at most bufferSize events; the events
+ * are written to the client by a task on this broadcaster's own pool of
+ * sendThreads threads, so a slow client can hold up other clients' events
+ * but nothing else in the application.  A client is disconnected when its
+ * queue is full, or when one send to it has taken longer than sendTimeout;
+ * its EventSource will reconnect, and can reload with
+ * GET /api/helprequests/all.
+ *
+ * A send blocked on a client that stopped reading can't be interrupted: it
+ * ends when the connector's write timeout fails it, but by then the client
+ * gets no more events and its queue is freed.
+ */
+@Slf4j
+@Service
+public class HelpRequestEventBroadcaster {
+  public static final String CREATED = "created";
+  public static final String UPDATED = "updated";
+  public static final String SOLVED = "solved";
+  public static final String DELETED = "deleted";
+  public static final String CHANGED = "changed";
+
+  // clients waiting for a thread to send their events; one more is disconnected
+  public static final int MAX_WAITING_SUBSCRIBERS = 1024;
+
+  @Autowired
+  ObjectMapper mapper;
+
+  @Value("${app.helprequests.events.buffer-size:256}")
+  int bufferSize = 256;
+
+  @Value("${app.helprequests.events.timeout:30m}")
+  Duration timeout = Duration.ofMinutes(30);
+
+  @Value("${app.helprequests.events.send-threads:4}")
+  int sendThreads = 4;
+
+  @Value("${app.helprequests.events.send-timeout:10s}")
+  Duration sendTimeout = Duration.ofSeconds(10);
+
+  Executor sendExecutor;
+  LongSupplier nanoTime = System::nanoTime;
+
+  private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+  private final AtomicLong lastEventId = new AtomicLong();
+
+  private record Event(long id, String name, String data) {
+  }
+
+  @PostConstruct
+  void start() {
+    ThreadPoolExecutor pool = new ThreadPoolExecutor(sendThreads, sendThreads, 1, TimeUnit.MINUTES,
+        new ArrayBlockingQueue<>(MAX_WAITING_SUBSCRIBERS), new CustomizableThreadFactory("helprequest-events-"));
+    pool.allowCoreThreadTimeOut(true);
+    sendExecutor = pool;
+  }
+
+  @PreDestroy
+  void stop() {
+    ((ExecutorService) sendExecutor).shutdownNow();
+  }
+
+  public SseEmitter subscribe() {
+    SseEmitter emitter = new SseEmitter(timeout.toMillis());
+    Subscriber subscriber = new Subscriber(emitter);
+    emitter.onCompletion(() -> subscribers.remove(subscriber));
+    emitter.onTimeout(() -> subscribers.remove(subscriber));
+    emitter.onError(e -> subscribers.remove(subscriber));
+    subscribers.add(subscriber);
+    return emitter;
+  }
+
+  public int subscriberCount() {
+    return subscribers.size();
+  }
+
+  public void publish(String name, Object payload) throws JsonProcessingException {
+    if (subscribers.isEmpty()) {
+      return;
+    }
+    Event event = new Event(lastEventId.incrementAndGet(), name, mapper.writeValueAsString(payload));
+    for (Subscriber subscriber : subscribers) {
+      subscriber.offer(event);
+    }
+  }
+
+  private class Subscriber {
+    private final SseEmitter emitter;
+    private final BlockingQueue<Event> queue = new ArrayBlockingQueue<>(bufferSize);
+    // events queued but not yet sent, plus one once the subscriber is dropped;
+    // a drain task is running or scheduled whenever this is > 0
+    private final AtomicInteger pending = new AtomicInteger();
+    private volatile boolean dropped = false;
+    private volatile boolean sending = false;
+    private volatile long sendStarted;
+
+    Subscriber(SseEmitter emitter) {
+      this.emitter = emitter;
+    }
+
+    void offer(Event event) {
+      if (sending && nanoTime.getAsLong() - sendStarted > sendTimeout.toNanos()) {
+        log.info("disconnecting a help request event subscriber that has not read an event for over {}", sendTimeout);
+        drop();
+        return;
+      }
+      if (!queue.offer(event)) {
+        log.info("disconnecting a help request event subscriber that is {} events behind", queue.size());
+        drop();
+        return;
+      }
+      schedule();
+    }
+
+    // The emitter is completed by the drain task, after any send in progress,
+    // since a send holds the emitter's lock for as long as it blocks.
+    private void drop() {
+      subscribers.remove(this);
+      dropped = true;
+      schedule();
+    }
+
+    private void schedule() {
+      if (pending.getAndIncrement() == 0) {
+        try {
+          sendExecutor.execute(this::drain);
+        } catch (RejectedExecutionException e) {
+          log.info("disconnecting a help request event subscriber: {} others are already waiting to be sent events",
+              MAX_WAITING_SUBSCRIBERS);
+          subscribers.remove(this);
+          emitter.complete();
+        }
+      }
+    }
+
+    // Only one drain() per subscriber runs at a time, so events are sent in order
+    private void drain() {
+      try {
+        do {
+          if (dropped) {
+            emitter.complete();
+            return;
+          }
+          Event event = queue.poll();
+          sendStarted = nanoTime.getAsLong();
+          sending = true;
+          emitter.send(SseEmitter.event()
+              .id(Long.toString(event.id()))
+              .name(event.name())
+              .data(event.data()));
+          long took = nanoTime.getAsLong() - sendStarted;
+          sending = false;
+          if (took > sendTimeout.toNanos()) {
+            log.info("disconnecting a help request event subscriber that took over {} to read an event", sendTimeout);
+            subscribers.remove(this);
+            dropped = true;
+          }
+        } while (pending.decrementAndGet() > 0 || dropped);
+      } catch (IOException | IllegalStateException e) {
+        // the client has gone away, or the emitter has already completed
+        subscribers.remove(this);
+      }
+    }
+  }
+}
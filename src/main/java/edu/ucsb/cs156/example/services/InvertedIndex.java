@@ -0,0 +1,328 @@
+package edu.ucsb.cs156.example.services;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+/**
+ * Inverted index of documents that have a title and a body, for ranked
+ * word searches.
+ *
+ * Each document gets a dense internal number in the order it was added, so
+ * every word's postings (the documents it appears in, with how often) stay
+ * sorted by just appending.  Replacing or removing a document only marks
+ * its old number as removed; the postings are compacted once half of the
+ * numbers are removed ones.  Until then removed documents still count
+ * towards how common a word is, which moves scores a little but never
+ * changes what matches.
+ *
+ * Results are ranked by BM25, with a word in the title counting
+ * TITLE_WEIGHT times.  Not thread-safe: the caller serializes writers
+ * against readers.
+ */
+final class InvertedIndex {
+  static final int TITLE_WEIGHT = 3;
+
+  /** Shorter prefixes would match too many words to be worth it. */
+  static final int MIN_PREFIX_LENGTH = 3;
+
+  /** Most words a prefix expands to; the most common ones are kept. */
+  static final int MAX_PREFIX_WORDS = 64;
+
+  // the usual BM25 parameters
+  private static final double K1 = 1.2;
+  private static final double B = 0.75;
+
+  private static final Pattern NOT_A_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+  record Hit(long id, double score) {
+  }
+
+  // lower scores first, then, for equal scores, higher ids
+  private static final Comparator<Hit> WORST_FIRST = Comparator.comparingDouble(Hit::score)
+      .thenComparing(Comparator.comparingLong(Hit::id).reversed());
+
+  private static final class Postings {
+    int[] documents = new int[2];
+    int[] frequencies = new int[2];
+    int size;
+
+    void add(int document, int frequency) {
+      if (size == documents.length) {
+        documents = Arrays.copyOf(documents, size * 2);
+        frequencies = Arrays.copyOf(frequencies, size * 2);
+      }
+      documents[size] = document;
+      frequencies[size] = frequency;
+      size++;
+    }
+
+    // the first position at or after from whose document is not before the
+    // given one, galloping ahead then searching back
+    int seek(int from, int document) {
+      int low = from;
+      int high = from;
+      int step = 1;
+      while (high < size && documents[high] < document) {
+        low = high + 1;
+        high += step;
+        step *= 2;
+      }
+      int at = Arrays.binarySearch(documents, low, Math.min(high + 1, size), document);
+      return at < 0 ? -at - 1 : at;
+    }
+  }
+
+  private final NavigableMap<String, Postings> words = new TreeMap<>();
+  private final Map<Long, Integer> documentById = new HashMap<>();
+  private long[] ids = new long[16];
+  private int[] lengths = new int[16];
+  private final BitSet removed = new BitSet();
+  private int documents;
+  private int removedDocuments;
+  private long liveLength;
+
+  /** The lower-cased words of some text, in order. */
+  static List<String> words(String text) {
+    List<String> words = new ArrayList<>();
+    if (text != null) {
+      for (String word : NOT_A_WORD.split(text.toLowerCase(Locale.ROOT))) {
+        if (!word.isEmpty()) {
+          words.add(word);
+        }
+      }
+    }
+    return words;
+  }
+
+  int size() {
+    return documents - removedDocuments;
+  }
+
+  /** Adds a document, replacing any earlier one with the same id. */
+  void put(long id, String title, String body) {
+    remove(id);
+    Map<String, Integer> frequencies = new LinkedHashMap<>();
+    int length = 0;
+    for (String word : words(title)) {
+      frequencies.merge(word, TITLE_WEIGHT, Integer::sum);
+      length += TITLE_WEIGHT;
+    }
+    for (String word : words(body)) {
+      frequencies.merge(word, 1, Integer::sum);
+      length++;
+    }
+    if (documents == ids.length) {
+      ids = Arrays.copyOf(ids, documents * 2);
+      lengths = Arrays.copyOf(lengths, documents * 2);
+    }
+    int document = documents++;
+    ids[document] = id;
+    lengths[document] = length;
+    liveLength += length;
+    documentById.put(id, document);
+    frequencies.forEach((word, frequency) -> words.computeIfAbsent(word, w -> new Postings()).add(document, frequency));
+  }
+
+  void remove(long id) {
+    Integer document = documentById.remove(id);
+    if (document == null) {
+      return;
+    }
+    removed.set(document);
+    removedDocuments++;
+    liveLength -= lengths[document];
+    if (removedDocuments * 2 > documents) {
+      compact();
+    }
+  }
+
+  /**
+   * The best-scoring documents that contain every one of the words, best
+   * first.  If lastIsPrefix, the last word also matches the words it is the
+   * start of, as long as it is at least MIN_PREFIX_LENGTH characters.
+   */
+  List<Hit> search(List<String> query, boolean lastIsPrefix, int limit) {
+    if (query.isEmpty() || size() == 0) {
+      return List.of();
+    }
+    List<Clause> clauses = new ArrayList<>();
+    for (int i = 0; i < query.size(); i++) {
+      String word = query.get(i);
+      boolean prefix = lastIsPrefix && i == query.size() - 1 && word.length() >= MIN_PREFIX_LENGTH;
+      Clause clause = clause(prefix ? startingWith(word) : exactly(word));
+      if (clause.postings.length == 0) {
+        return List.of();
+      }
+      clauses.add(clause);
+    }
+    // the clause with the fewest postings picks the candidates, and the
+    // others only have to be looked up for those
+    clauses.sort(Comparator.comparingLong((Clause clause) -> clause.size));
+    Clause driver = clauses.get(0);
+    Clause[] others = clauses.subList(1, clauses.size()).toArray(Clause[]::new);
+    double averageLength = Math.max(1.0, (double) liveLength / size());
+    PriorityQueue<Hit> best = new PriorityQueue<>(WORST_FIRST);
+
+    if (driver.postings.length == 1) {
+      Postings postings = driver.postings[0];
+      for (int i = 0; i < postings.size; i++) {
+        int document = postings.documents[i];
+        if (!removed.get(document)) {
+          double score = bm25(driver.idfs[0], postings.frequencies[i], lengths[document], averageLength);
+          offer(best, limit, document, score(others, document, score, averageLength));
+        }
+      }
+    } else {
+      // a document can be in the postings of several of the words a prefix
+      // matches, so their scores are added up before going on
+      double[] scores = new double[documents];
+      for (int p = 0; p < driver.postings.length; p++) {
+        Postings postings = driver.postings[p];
+        for (int i = 0; i < postings.size; i++) {
+          int document = postings.documents[i];
+          if (!removed.get(document)) {
+            scores[document] += bm25(driver.idfs[p], postings.frequencies[i], lengths[document], averageLength);
+          }
+        }
+      }
+      for (int document = 0; document < documents; document++) {
+        if (scores[document] > 0) {
+          offer(best, limit, document, score(others, document, scores[document], averageLength));
+        }
+      }
+    }
+    List<Hit> hits = new ArrayList<>(best);
+    hits.sort(WORST_FIRST.reversed());
+    return hits;
+  }
+
+  // the document's score with every other clause added, or 0 if one of them
+  // does not match it
+  private double score(Clause[] others, int document, double score, double averageLength) {
+    for (Clause clause : others) {
+      double clauseScore = clause.score(document, lengths[document], averageLength);
+      if (clauseScore == 0) {
+        return 0;
+      }
+      score += clauseScore;
+    }
+    return score;
+  }
+
+  private void offer(PriorityQueue<Hit> best, int limit, int document, double score) {
+    if (score == 0 || (best.size() == limit && score < best.peek().score())) {
+      return;
+    }
+    best.add(new Hit(ids[document], score));
+    if (best.size() > limit) {
+      best.poll();
+    }
+  }
+
+  /**
+   * One word of a query: the postings of every word it matches.  Documents
+   * are scored in increasing order, so each postings list is only read
+   * forwards.
+   */
+  private static final class Clause {
+    final Postings[] postings;
+    final double[] idfs;
+    final int[] positions;
+    final long size;
+
+    Clause(Postings[] postings, double[] idfs, long size) {
+      this.postings = postings;
+      this.idfs = idfs;
+      this.positions = new int[postings.length];
+      this.size = size;
+    }
+
+    double score(int document, int length, double averageLength) {
+      double score = 0;
+      for (int p = 0; p < postings.length; p++) {
+        int at = postings[p].seek(positions[p], document);
+        positions[p] = at;
+        if (at < postings[p].size && postings[p].documents[at] == document) {
+          score += bm25(idfs[p], postings[p].frequencies[at], length, averageLength);
+        }
+      }
+      return score;
+    }
+  }
+
+  private Clause clause(Postings[] postings) {
+    double[] idfs = new double[postings.length];
+    long size = 0;
+    for (int p = 0; p < postings.length; p++) {
+      idfs[p] = idf(postings[p]);
+      size += postings[p].size;
+    }
+    return new Clause(postings, idfs, size);
+  }
+
+  private Postings[] exactly(String word) {
+    Postings postings = words.get(word);
+    return postings == null ? new Postings[0] : new Postings[] { postings };
+  }
+
+  private Postings[] startingWith(String prefix) {
+    return words.subMap(prefix, true, prefix + Character.MAX_VALUE, false).values().stream()
+        .sorted(Comparator.comparingInt((Postings postings) -> postings.size).reversed())
+        .limit(MAX_PREFIX_WORDS)
+        .toArray(Postings[]::new);
+  }
+
+  // BM25's idf, which is always above 0
+  private double idf(Postings postings) {
+    int n = size();
+    int df = Math.min(postings.size, n);
+    return Math.log(1 + (n - df + 0.5) / (df + 0.5));
+  }
+
+  private static double bm25(double idf, int frequency, int length, double averageLength) {
+    return idf * frequency * (K1 + 1) / (frequency + K1 * (1 - B + B * length / averageLength));
+  }
+
+  // Renumbers the live documents from 0, in the same order, and drops the
+  // removed ones from every postings list.
+  private void compact() {
+    int[] renumbered = new int[documents];
+    int live = 0;
+    for (int document = 0; document < documents; document++) {
+      if (!removed.get(document)) {
+        renumbered[document] = live;
+        ids[live] = ids[document];
+        lengths[live] = lengths[document];
+        documentById.put(ids[live], live);
+        live++;
+      }
+    }
+    words.values().removeIf(postings -> {
+      int kept = 0;
+      for (int i = 0; i < postings.size; i++) {
+        int document = postings.documents[i];
+        if (!removed.get(document)) {
+          postings.documents[kept] = renumbered[document];
+          postings.frequencies[kept] = postings.frequencies[i];
+          kept++;
+        }
+      }
+      postings.size = kept;
+      return kept == 0;
+    });
+    documents = live;
+    removedDocuments = 0;
+    removed.clear();
+  }
+}
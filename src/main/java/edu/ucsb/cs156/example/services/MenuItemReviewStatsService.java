@@ -0,0 +1,147 @@
+package edu.ucsb.cs156.example.services;
+
+import edu.ucsb.cs156.example.entities.MenuItemReview;
+import edu.ucsb.cs156.example.models.MenuItemRatingStats;
+import edu.ucsb.cs156.example.repositories.MenuItemReviewRepository;
+import edu.ucsb.cs156.example.repositories.MenuItemReviewRepository.StarsCount;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+/**
+ * Rating statistics per menu item, kept in memory.
+ *
+ * They are built by a single GROUP BY query the first time they are read.
+ * After that, each time MenuItemReviewsController saves or deletes reviews,
+ * the statistics of just the menu items those reviews belong to are grouped
+ * again from the table (through its index on item id), so reading them never
+ * scans the reviews table.  Regrouping rather than adding or subtracting the
+ * review means a change that committed before the first load, but is
+ * reported after it, is not counted twice.
+ * Reviews with stars outside 0..5 are not counted.
+ *
+ * Readers get immutable snapshots without locking; writers are serialized.
+ * The statistics belong to this instance of the application, so they only
+ * see changes made through it: run a single instance (see docs/dokku.md).
+ */
+@Slf4j
+@Service
+public class MenuItemReviewStatsService {
+  public static final int MAX_STARS = 5;
+
+  @Autowired
+  MenuItemReviewRepository menuItemReviewRepository;
+
+  private final Map<Long, MenuItemRatingStats> statsByItemId = new ConcurrentHashMap<>();
+  private volatile boolean loaded = false;
+
+  public List<MenuItemRatingStats> getAll() {
+    ensureLoaded();
+    List<MenuItemRatingStats> all = new ArrayList<>(statsByItemId.values());
+    all.sort(Comparator.comparingLong(MenuItemRatingStats::getItemId));
+    return all;
+  }
+
+  public Optional<MenuItemRatingStats> get(long itemId) {
+    ensureLoaded();
+    return Optional.ofNullable(statsByItemId.get(itemId));
+  }
+
+  // Until the statistics are first loaded there is nothing to update:
+  // the load will read the reviews from the database.
+
+  public void added(MenuItemReview review) {
+    regroup(Set.of(review.getItemId()));
+  }
+
+  public void addedAll(Collection<MenuItemReview> reviews) {
+    regroup(reviews.stream().map(MenuItemReview::getItemId).collect(Collectors.toSet()));
+  }
+
+  public void removed(MenuItemReview review) {
+    regroup(Set.of(review.getItemId()));
+  }
+
+  public void updated(MenuItemReview before, MenuItemReview after) {
+    regroup(Set.of(before.getItemId(), after.getItemId()));
+  }
+
+  private synchronized void regroup(Set<Long> itemIds) {
+    if (!loaded) {
+      return;
+    }
+    Map<Long, long[]> histograms = new HashMap<>();
+    Map<Long, LocalDateTime> lastReviewed = new HashMap<>();
+    group(menuItemReviewRepository.countByItemIdInAndStars(itemIds), histograms, lastReviewed);
+    // an item missing from the result has no reviews left
+    itemIds.forEach(itemId -> publish(itemId, histograms.getOrDefault(itemId, new long[MAX_STARS + 1]),
+        lastReviewed.get(itemId)));
+  }
+
+  private void ensureLoaded() {
+    if (!loaded) {
+      synchronized (this) {
+        if (!loaded) {
+          load();
+          loaded = true;
+        }
+      }
+    }
+  }
+
+  private void load() {
+    Map<Long, long[]> histograms = new HashMap<>();
+    Map<Long, LocalDateTime> lastReviewed = new HashMap<>();
+    group(menuItemReviewRepository.countByItemIdAndStars(), histograms, lastReviewed);
+    histograms.forEach((itemId, histogram) -> publish(itemId, histogram, lastReviewed.get(itemId)));
+    log.info("loaded rating statistics for {} menu items", histograms.size());
+  }
+
+  private static void group(List<StarsCount> rows, Map<Long, long[]> histograms,
+      Map<Long, LocalDateTime> lastReviewed) {
+    for (StarsCount row : rows) {
+      histograms.computeIfAbsent(row.getItemId(), itemId -> new long[MAX_STARS + 1])[row.getStars()] = row.getCount();
+      lastReviewed.put(row.getItemId(), latest(lastReviewed.get(row.getItemId()), row.getLastReviewed()));
+    }
+  }
+
+  private void publish(long itemId, long[] histogram, LocalDateTime lastReviewed) {
+    long count = LongStream.of(histogram).sum();
+    if (count == 0) {
+      statsByItemId.remove(itemId);
+      return;
+    }
+    long totalStars = 0;
+    for (int stars = 0; stars <= MAX_STARS; stars++) {
+      totalStars += stars * histogram[stars];
+    }
+    statsByItemId.put(itemId, MenuItemRatingStats.builder()
+        .itemId(itemId)
+        .count(count)
+        .mean((double) totalStars / count)
+        .histogram(LongStream.of(histogram).boxed().toList())
+        .lastReviewed(lastReviewed)
+        .build());
+  }
+
+  private static LocalDateTime latest(LocalDateTime a, LocalDateTime b) {
+    if (a == null || (b != null && b.isAfter(a))) {
+      return b;
+    }
+    return a;
+  }
+}
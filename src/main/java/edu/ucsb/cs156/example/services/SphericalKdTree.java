@@ -0,0 +1,219 @@
+package edu.ucsb.cs156.example.services;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.Predicate;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Immutable k-d tree of values at points on the earth, for nearest-k queries.
+ *
+ * Each point is stored as the unit vector from the earth's centre, so the
+ * straight-line (chord) distance between two of them orders them exactly as
+ * the great-circle distance does, with no special cases at the poles or the
+ * antimeridian.  A query visits O(log n) nodes for a balanced tree.
+ *
+ * with() and without() return a new tree that shares all but the path to the
+ * changed node with this one, so readers can keep using the old tree while a
+ * writer makes the next.  Removed nodes are only marked; the tree is rebuilt
+ * balanced from its live values once half its nodes are removed ones or it
+ * grows too deep from insertions.
+ */
+final class SphericalKdTree<T> {
+  static final double EARTH_RADIUS_METERS = 6_371_008.8;
+
+  private static final int DIMENSIONS = 3;
+
+  record Neighbor<T>(T value, double distanceMeters) {
+  }
+
+  private record Node<T>(T value, double[] point, Node<T> left, Node<T> right, boolean removed) {
+  }
+
+  private record Entry<T>(T value, double[] point) {
+  }
+
+  private final Node<T> root;
+  private final int nodes;
+  private final int removed;
+  private final int height;
+
+  private SphericalKdTree(Node<T> root, int nodes, int removed, int height) {
+    this.root = root;
+    this.nodes = nodes;
+    this.removed = removed;
+    this.height = height;
+  }
+
+  static <T> SphericalKdTree<T> empty() {
+    return new SphericalKdTree<>(null, 0, 0, 0);
+  }
+
+  static <T> SphericalKdTree<T> of(List<T> values, ToDoubleFunction<T> latitude, ToDoubleFunction<T> longitude) {
+    List<Entry<T>> entries = new ArrayList<>(values.size());
+    for (T value : values) {
+      entries.add(new Entry<>(value, toPoint(latitude.applyAsDouble(value), longitude.applyAsDouble(value))));
+    }
+    return build(entries);
+  }
+
+  int size() {
+    return nodes - removed;
+  }
+
+  SphericalKdTree<T> with(double latitude, double longitude, T value) {
+    double[] point = toPoint(latitude, longitude);
+    int[] depth = { 0 };
+    Node<T> newRoot = insert(root, new Entry<>(value, point), 0, depth);
+    SphericalKdTree<T> tree = new SphericalKdTree<>(newRoot, nodes + 1, removed, Math.max(height, depth[0] + 1));
+    return tree.height > 2 * log2(tree.size()) + 4 ? tree.rebuilt() : tree;
+  }
+
+  /** Removes one value at the given location that matches, if there is one. */
+  SphericalKdTree<T> without(double latitude, double longitude, Predicate<T> matches) {
+    Node<T> newRoot = remove(root, toPoint(latitude, longitude), matches, 0);
+    if (newRoot == root) {
+      return this;
+    }
+    SphericalKdTree<T> tree = new SphericalKdTree<>(newRoot, nodes, removed + 1, height);
+    return tree.removed * 2 > tree.nodes ? tree.rebuilt() : tree;
+  }
+
+  /** The k (at least 1) values nearest to the given location, nearest first. */
+  List<Neighbor<T>> nearest(double latitude, double longitude, int k) {
+    double[] target = toPoint(latitude, longitude);
+    // the farthest of the best k found so far is at the head
+    PriorityQueue<Neighbor<T>> best = new PriorityQueue<>(
+        Comparator.comparingDouble((Neighbor<T> neighbor) -> neighbor.distanceMeters()).reversed());
+    search(root, target, k, 0, best);
+    List<Neighbor<T>> nearest = new ArrayList<>(best);
+    nearest.sort(Comparator.comparingDouble(Neighbor::distanceMeters));
+    return nearest.stream()
+        .map(neighbor -> new Neighbor<>(neighbor.value(), metersFromChordSquared(neighbor.distanceMeters())))
+        .toList();
+  }
+
+  private SphericalKdTree<T> rebuilt() {
+    List<Entry<T>> live = new ArrayList<>(size());
+    collect(root, live);
+    return build(live);
+  }
+
+  private static <T> SphericalKdTree<T> build(List<Entry<T>> entries) {
+    int[] height = { 0 };
+    Node<T> root = build(entries, 0, 1, height);
+    return new SphericalKdTree<>(root, entries.size(), 0, height[0]);
+  }
+
+  private static <T> Node<T> build(List<Entry<T>> entries, int axis, int depth, int[] height) {
+    if (entries.isEmpty()) {
+      return null;
+    }
+    height[0] = Math.max(height[0], depth);
+    List<Entry<T>> sorted = new ArrayList<>(entries);
+    sorted.sort(Comparator.comparingDouble(entry -> entry.point()[axis]));
+    int median = sorted.size() / 2;
+    // equal coordinates go right, as insert() sends them
+    while (median > 0 && sorted.get(median - 1).point()[axis] == sorted.get(median).point()[axis]) {
+      median--;
+    }
+    Entry<T> entry = sorted.get(median);
+    int next = (axis + 1) % DIMENSIONS;
+    return new Node<>(entry.value(), entry.point(),
+        build(sorted.subList(0, median), next, depth + 1, height),
+        build(sorted.subList(median + 1, sorted.size()), next, depth + 1, height),
+        false);
+  }
+
+  private static <T> Node<T> insert(Node<T> node, Entry<T> entry, int axis, int[] depth) {
+    if (node == null) {
+      return new Node<>(entry.value(), entry.point(), null, null, false);
+    }
+    depth[0]++;
+    int next = (axis + 1) % DIMENSIONS;
+    if (entry.point()[axis] < node.point()[axis]) {
+      return new Node<>(node.value(), node.point(), insert(node.left(), entry, next, depth), node.right(), node.removed());
+    }
+    return new Node<>(node.value(), node.point(), node.left(), insert(node.right(), entry, next, depth), node.removed());
+  }
+
+  private static <T> Node<T> remove(Node<T> node, double[] point, Predicate<T> matches, int axis) {
+    if (node == null) {
+      return null;
+    }
+    if (!node.removed() && samePoint(node.point(), point) && matches.test(node.value())) {
+      return new Node<>(node.value(), node.point(), node.left(), node.right(), true);
+    }
+    int next = (axis + 1) % DIMENSIONS;
+    if (point[axis] < node.point()[axis]) {
+      Node<T> left = remove(node.left(), point, matches, next);
+      return left == node.left() ? node : new Node<>(node.value(), node.point(), left, node.right(), node.removed());
+    }
+    Node<T> right = remove(node.right(), point, matches, next);
+    return right == node.right() ? node : new Node<>(node.value(), node.point(), node.left(), right, node.removed());
+  }
+
+  // While searching, Neighbor.distanceMeters holds the squared chord
+  // distance; nearest() converts it once the k nearest are known.
+  private static <T> void search(Node<T> node, double[] target, int k, int axis, PriorityQueue<Neighbor<T>> best) {
+    if (node == null) {
+      return;
+    }
+    if (!node.removed()) {
+      double distance = chordSquared(node.point(), target);
+      if (best.size() < k) {
+        best.add(new Neighbor<>(node.value(), distance));
+      } else if (distance < best.peek().distanceMeters()) {
+        best.poll();
+        best.add(new Neighbor<>(node.value(), distance));
+      }
+    }
+    double offset = target[axis] - node.point()[axis];
+    Node<T> near = offset < 0 ? node.left() : node.right();
+    Node<T> far = offset < 0 ? node.right() : node.left();
+    int next = (axis + 1) % DIMENSIONS;
+    search(near, target, k, next, best);
+    if (best.size() < k || offset * offset < best.peek().distanceMeters()) {
+      search(far, target, k, next, best);
+    }
+  }
+
+  private static <T> void collect(Node<T> node, List<Entry<T>> live) {
+    if (node == null) {
+      return;
+    }
+    if (!node.removed()) {
+      live.add(new Entry<>(node.value(), node.point()));
+    }
+    collect(node.left(), live);
+    collect(node.right(), live);
+  }
+
+  static double[] toPoint(double latitude, double longitude) {
+    double phi = Math.toRadians(latitude);
+    double lambda = Math.toRadians(longitude);
+    return new double[] { Math.cos(phi) * Math.cos(lambda), Math.cos(phi) * Math.sin(lambda), Math.sin(phi) };
+  }
+
+  private static boolean samePoint(double[] a, double[] b) {
+    return Arrays.equals(a, b);
+  }
+
+  private static double chordSquared(double[] a, double[] b) {
+    double dx = a[0] - b[0];
+    double dy = a[1] - b[1];
+    double dz = a[2] - b[2];
+    return dx * dx + dy * dy + dz * dz;
+  }
+
+  private static double metersFromChordSquared(double chordSquared) {
+    return 2 * EARTH_RADIUS_METERS * Math.asin(Math.min(1, Math.sqrt(chordSquared) / 2));
+  }
+
+  private static int log2(int n) {
+    return 31 - Integer.numberOfLeadingZeros(Math.max(1, n));
+  }
+}
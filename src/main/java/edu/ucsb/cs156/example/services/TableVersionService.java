@@ -0,0 +1,46 @@
+package edu.ucsb.cs156.example.services;
+
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A version number for each table, incremented by the controllers every time
+ * they save or delete a row, from which the read endpoints build their ETags.
+ *
+ * The ETag also carries the time this instance started, so that versions
+ * handed out before a restart (when all counters go back to 0) never match.
+ * It is a weak tag: it names a version of the table's contents, not the
+ * exact bytes sent, which differ e.g. when Tomcat gzips the response (and
+ * Tomcat won't compress a response that has a strong tag).
+ *
+ * The counters belong to this instance of the application, so they only
+ * count changes made through it.  With more than one instance behind a load
+ * balancer a client could revalidate against an instance that never saw the
+ * change and get a 304 for a stale copy, so run a single instance (see
+ * docs/dokku.md).
+ */
+@Service
+public class TableVersionService {
+
+  private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+  private final Map<Class<?>, AtomicLong> versions = new ConcurrentHashMap<>();
+
+  private AtomicLong versionOf(Class<?> table) {
+    return versions.computeIfAbsent(table, t -> new AtomicLong());
+  }
+
+  public long getVersion(Class<?> table) {
+    return versionOf(table).get();
+  }
+
+  public void changed(Class<?> table) {
+    versionOf(table).incrementAndGet();
+  }
+
+  public String etag(Class<?> table) {
+    return "W/\"%s-%s-%d\"".formatted(table.getSimpleName(), epoch, getVersion(table));
+  }
+}
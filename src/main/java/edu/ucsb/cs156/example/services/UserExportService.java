@@ -0,0 +1,57 @@
+package edu.ucsb.cs156.example.services;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.StreamUtils;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Writes users to an output stream as a JSON array, one at a time as they
+ * come from the database, so that the whole table is never in memory at
+ * once: neither as entities (each is detached once written) nor as JSON.
+ */
+@Service
+public class UserExportService {
+
+  @Autowired
+  UserRepository userRepository;
+
+  @Autowired
+  ObjectMapper mapper;
+
+  @PersistenceContext
+  EntityManager entityManager;
+
+  /**
+   * Writes the users after the given id whose email contains the given text
+   * ("" for all of them), in id order, at most page.getPageSize() of them
+   * unless page is unpaged.  Leaves out open.
+   */
+  @Transactional(readOnly = true)
+  public void writeUsers(OutputStream out, String email, long after, Pageable page) throws IOException {
+    try (Stream<User> users = userRepository.streamByIdGreaterThanAndEmailContainingIgnoreCaseOrderByIdAsc(after, email, page);
+        JsonGenerator json = mapper.createGenerator(StreamUtils.nonClosing(out))) {
+      json.writeStartArray();
+      for (Iterator<User> it = users.iterator(); it.hasNext();) {
+        User user = it.next();
+        json.writeObject(user);
+        entityManager.detach(user);
+      }
+      json.writeEndArray();
+    }
+  }
+}
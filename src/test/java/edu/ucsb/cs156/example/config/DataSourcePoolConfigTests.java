@@ -0,0 +1,41 @@
+package edu.ucsb.cs156.example.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.mock.env.MockEnvironment;
+
+public class DataSourcePoolConfigTests {
+
+  @Test
+  public void pool_is_sized_by_cpu_count_by_default() throws Exception {
+    try (HikariDataSource dataSource = new HikariDataSource()) {
+      new DataSourcePoolConfig.HikariPoolSizer(0, 4).postProcessBeforeInitialization(dataSource, "dataSource");
+
+      assertEquals(9, dataSource.getMaximumPoolSize());
+    }
+  }
+
+  @Test
+  public void configured_pool_size_wins() throws Exception {
+    BeanPostProcessor sizer = DataSourcePoolConfig.hikariPoolSizer(
+        new MockEnvironment().withProperty("app.datasource.pool-size", "7"));
+
+    try (HikariDataSource dataSource = new HikariDataSource()) {
+      sizer.postProcessBeforeInitialization(dataSource, "dataSource");
+
+      assertEquals(7, dataSource.getMaximumPoolSize());
+    }
+  }
+
+  @Test
+  public void other_beans_are_left_alone() throws Exception {
+    Object bean = new Object();
+
+    assertSame(bean, new DataSourcePoolConfig.HikariPoolSizer(7, 4).postProcessBeforeInitialization(bean, "bean"));
+  }
+}
@@ -0,0 +1,136 @@
+package edu.ucsb.cs156.example.config;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.util.StreamUtils;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.servlet.resource.HttpResource;
+import org.springframework.web.servlet.resource.ResourceResolverChain;
+
+public class InMemoryResourceResolverTests {
+
+  @TempDir
+  Path dir;
+
+  private final MockHttpServletRequest request = new MockHttpServletRequest();
+  private final ResourceResolverChain chain = mock(ResourceResolverChain.class);
+  private InMemoryResourceResolver resolver;
+  private List<Resource> locations;
+
+  @BeforeEach
+  public void setup() {
+    HttpHeaders headers = new HttpHeaders();
+    headers.setCacheControl("max-age=31536000, public, immutable");
+    resolver = new InMemoryResourceResolver(DataSize.ofBytes(10), headers);
+    locations = List.of(new FileSystemResource(dir));
+  }
+
+  private Resource file(String name, String contents) throws IOException {
+    return new FileSystemResource(Files.writeString(dir.resolve(name), contents));
+  }
+
+  @Test
+  public void resolved_file_is_read_into_memory_once() throws Exception {
+    Resource file = file("main.js", "let x=1;");
+    long lastModified = file.lastModified();
+    when(chain.resolveResource(request, "main.js", locations)).thenReturn(file);
+
+    Resource resolved = resolver.resolveResource(request, "main.js", locations, chain);
+    Files.writeString(dir.resolve("main.js"), "changed!");
+
+    assertTrue(resolved.exists());
+    assertEquals("main.js", resolved.getFilename());
+    assertEquals(8, resolved.contentLength());
+    assertEquals(lastModified, resolved.lastModified());
+    assertEquals("in-memory copy of " + file.getDescription(), resolved.getDescription());
+    assertEquals("let x=1;", StreamUtils.copyToString(resolved.getInputStream(), StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void resolved_file_carries_a_fresh_copy_of_the_headers() throws Exception {
+    when(chain.resolveResource(request, "main.js", locations)).thenReturn(file("main.js", "let x=1;"));
+
+    HttpResource resolved = (HttpResource) resolver.resolveResource(request, "main.js", locations, chain);
+    resolved.getResponseHeaders().add(HttpHeaders.CONTENT_ENCODING, "br");
+
+    assertEquals("max-age=31536000, public, immutable", resolved.getResponseHeaders().getCacheControl());
+    assertFalse(resolved.getResponseHeaders().containsKey(HttpHeaders.CONTENT_ENCODING));
+  }
+
+  @Test
+  public void missing_and_large_files_are_passed_through() throws Exception {
+    Resource large = file("large.js", "let x=12345;");
+    Resource missing = new FileSystemResource(dir.resolve("missing.js"));
+    when(chain.resolveResource(request, "large.js", locations)).thenReturn(large);
+    when(chain.resolveResource(request, "missing.js", locations)).thenReturn(missing);
+
+    assertNull(resolver.resolveResource(request, "nothing.js", locations, chain));
+    assertSame(large, resolver.resolveResource(request, "large.js", locations, chain));
+    assertSame(missing, resolver.resolveResource(request, "missing.js", locations, chain));
+  }
+
+  @Test
+  public void unreadable_file_is_passed_through() throws Exception {
+    Resource broken = mock(Resource.class);
+    when(broken.exists()).thenReturn(true);
+    when(broken.contentLength()).thenReturn(1L);
+    when(broken.getInputStream()).thenThrow(new IOException("gone"));
+
+    assertSame(broken, resolver.inMemory(broken));
+  }
+
+  @Test
+  public void relative_files_are_read_into_memory_too() throws Exception {
+    when(chain.resolveResource(request, "main.js", locations)).thenReturn(file("main.js", "let x=1;"));
+    file("main.js.br", "br!");
+
+    Resource resolved = resolver.resolveResource(request, "main.js", locations, chain);
+    Resource compressed = resolved.createRelative("main.js.br");
+    Resource missing = resolved.createRelative("main.js.gz");
+
+    assertTrue(compressed instanceof HttpResource);
+    assertArrayEquals("br!".getBytes(), StreamUtils.copyToByteArray(compressed.getInputStream()));
+    assertFalse(missing.exists());
+  }
+
+  @Test
+  public void copies_of_the_same_file_are_equal() throws Exception {
+    Resource file = file("main.js", "let x=1;");
+    Resource other = file("other.js", "let y=1;");
+
+    Resource copy = resolver.inMemory(file);
+
+    assertEquals(copy, resolver.inMemory(file));
+    assertEquals(copy.hashCode(), resolver.inMemory(file).hashCode());
+    assertNotEquals(copy, resolver.inMemory(other));
+    assertNotEquals(copy, file);
+  }
+
+  @Test
+  public void url_paths_are_resolved_by_the_rest_of_the_chain() {
+    when(chain.resolveUrlPath("main.js", locations)).thenReturn("main.js");
+
+    assertEquals("main.js", resolver.resolveUrlPath("main.js", locations, chain));
+  }
+}
@@ -3,16 +3,28 @@ package edu.ucsb.cs156.example.controllers;
 import edu.ucsb.cs156.example.repositories.UserRepository;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 import edu.ucsb.cs156.example.ControllerTestCase;
+import edu.ucsb.cs156.example.models.CursorPage;
 import edu.ucsb.cs156.example.entities.Articles;
+import edu.ucsb.cs156.example.errors.UnknownFieldException;
 import edu.ucsb.cs156.example.repositories.ArticlesRepository;
+import edu.ucsb.cs156.example.repositories.ArticlesRepository.ArticleSummary;
+import edu.ucsb.cs156.example.models.ArticleMatch;
+import edu.ucsb.cs156.example.services.ArticleSearchService;
+import edu.ucsb.cs156.example.services.FieldSelectionService;
+import edu.ucsb.cs156.example.services.BatchGetService;
+import edu.ucsb.cs156.example.models.BatchGetResult;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MvcResult;
@@ -26,8 +38,11 @@ import java.time.LocalDateTime;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -39,6 +54,15 @@ public class ArticlesControllerTests extends ControllerTestCase {
         @MockBean
         ArticlesRepository articlesRepository;
 
+        @MockBean
+        FieldSelectionService fieldSelectionService;
+
+        @MockBean
+        BatchGetService batchGetService;
+
+        @MockBean
+        ArticleSearchService articleSearchService;
+
         @MockBean
         UserRepository userRepository;
 
@@ -99,6 +123,232 @@ public class ArticlesControllerTests extends ControllerTestCase {
                 assertEquals(expectedJson, responseString);
         }
 
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void get_all_is_not_modified_when_if_none_match_has_the_current_etag() throws Exception {
+
+                // arrange
+                MvcResult first = mockMvc.perform(get("/api/articles/all"))
+                                .andExpect(status().isOk())
+                                .andExpect(header().string("Cache-Control", "no-cache, private"))
+                                .andReturn();
+                String etag = first.getResponse().getHeader("ETag");
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/articles/all").header("If-None-Match", etag))
+                                .andExpect(status().isNotModified())
+                                .andExpect(header().string("ETag", etag))
+                                .andReturn();
+
+                // assert
+                verify(articlesRepository, times(1)).findAll();
+                assertEquals("", response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_only_some_fields_of_all() throws Exception {
+
+                // arrange
+                List<Map<String, Object>> rows = List.of(Map.of("id", 1), Map.of("id", 2));
+                when(fieldSelectionService.findAll(Articles.class, "id")).thenReturn(rows);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/articles/all?fields=id"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(fieldSelectionService, times(1)).findAll(Articles.class, "id");
+                verify(articlesRepository, never()).findAll();
+                assertEquals(mapper.writeValueAsString(rows), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void get_all_with_an_unknown_field_is_a_bad_request() throws Exception {
+
+                // arrange
+                when(fieldSelectionService.findAll(Articles.class, "id,name"))
+                                .thenThrow(new UnknownFieldException(Articles.class, List.of("name"), List.of("id", "title")));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/articles/all?fields=id,name"))
+                                .andExpect(status().isBadRequest()).andReturn();
+
+                // assert
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("UnknownFieldException", json.get("type"));
+                assertEquals("Articles has no field \"name\"; choose from id, title", json.get("message"));
+        }
+
+        // Tests for GET /api/articles/summaries
+
+        @Test
+        public void logged_out_users_cannot_get_summaries() throws Exception {
+                mockMvc.perform(get("/api/articles/summaries"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_summaries_without_explanations() throws Exception {
+
+                // arrange
+                Articles entity = Articles.builder()
+                                .title("TestArticle1")
+                                .url("TestArticle1.com")
+                                .explanation("The first test article")
+                                .email("TestArticle1@gmail.com")
+                                .dateAdded(LocalDateTime.parse("2022-01-03T00:00:00"))
+                                .build();
+                List<ArticleSummary> summaries = List.of(new SpelAwareProxyProjectionFactory().createProjection(ArticleSummary.class, entity));
+                when(articlesRepository.findAllSummaries()).thenReturn(summaries);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/articles/summaries"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(articlesRepository, times(1)).findAllSummaries();
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(mapper.writeValueAsString(summaries), responseString);
+                assertFalse(responseString.contains("explanation"));
+        }
+
+        // Tests for GET /api/articles/page
+
+        @Test
+        public void logged_out_users_cannot_get_page() throws Exception {
+                mockMvc.perform(get("/api/articles/page"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_a_full_page_with_a_next_cursor() throws Exception {
+
+                // arrange
+                Articles first = Articles.builder()
+                                .id(3L)
+                                .title("TestArticle1")
+                                .url("TestArticle1.com")
+                                .explanation("The first test article")
+                                .email("TestArticle1@gmail.com")
+                                .dateAdded(LocalDateTime.parse("2022-01-03T00:00:00"))
+                                .build();
+
+                Articles second = Articles.builder()
+                                .id(5L)
+                                .title("TestArticle2")
+                                .url("TestArticle2.com")
+                                .explanation("The second test article")
+                                .email("TestArticle2@gmail.com")
+                                .dateAdded(LocalDateTime.parse("2022-03-11T00:00:00"))
+                                .build();
+
+                ArrayList<Articles> expectedRows = new ArrayList<>();
+                expectedRows.addAll(Arrays.asList(first, second));
+
+                when(articlesRepository.findAllByIdGreaterThanOrderByIdAsc(eq(0L), eq(PageRequest.of(0, 2)))).thenReturn(expectedRows);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/articles/page?limit=2"))
+                                .andExpect(status().isOk())
+                                .andExpect(header().string("Link", "<http://localhost/api/articles/page?limit=2&after=5>; rel=\"next\""))
+                                .andReturn();
+
+                // assert
+                verify(articlesRepository, times(1)).findAllByIdGreaterThanOrderByIdAsc(eq(0L), eq(PageRequest.of(0, 2)));
+                String expectedJson = mapper.writeValueAsString(CursorPage.<Articles>builder().content(expectedRows).nextCursor(5L).build());
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_a_short_last_page_without_a_next_cursor() throws Exception {
+
+                // arrange
+                Articles second = Articles.builder()
+                                .id(5L)
+                                .title("TestArticle2")
+                                .url("TestArticle2.com")
+                                .explanation("The second test article")
+                                .email("TestArticle2@gmail.com")
+                                .dateAdded(LocalDateTime.parse("2022-03-11T00:00:00"))
+                                .build();
+
+                ArrayList<Articles> expectedRows = new ArrayList<>();
+                expectedRows.add(second);
+
+                when(articlesRepository.findAllByIdGreaterThanOrderByIdAsc(eq(3L), eq(PageRequest.of(0, 2)))).thenReturn(expectedRows);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/articles/page?limit=2&after=3"))
+                                .andExpect(status().isOk())
+                                .andExpect(header().doesNotExist("Link"))
+                                .andReturn();
+
+                // assert
+                verify(articlesRepository, times(1)).findAllByIdGreaterThanOrderByIdAsc(eq(3L), eq(PageRequest.of(0, 2)));
+                String expectedJson = mapper.writeValueAsString(CursorPage.<Articles>builder().content(expectedRows).build());
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        // Tests for GET /api/articles/search
+
+        @Test
+        public void logged_out_users_cannot_search() throws Exception {
+                mockMvc.perform(get("/api/articles/search?q=gaucho"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_search() throws Exception {
+
+                // arrange
+                Articles article = Articles.builder()
+                                .id(7L)
+                                .title("Gauchos win again")
+                                .url("https://dailynexus.com/gauchos")
+                                .explanation("The men's soccer team")
+                                .email("TestArticle1@gmail.com")
+                                .dateAdded(LocalDateTime.parse("2022-01-03T00:00:00"))
+                                .build();
+                List<ArticleMatch> matches = List.of(new ArticleMatch(article, 2.5));
+                when(articleSearchService.search("gaucho soc", 10)).thenReturn(matches);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/articles/search?q=gaucho soc&limit=10"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(articleSearchService, times(1)).search("gaucho soc", 10);
+                verify(articlesRepository, never()).findAll();
+                assertEquals(mapper.writeValueAsString(matches), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void search_limit_defaults_and_is_clamped_to_the_page_limit() throws Exception {
+
+                // act
+                mockMvc.perform(get("/api/articles/search?q=gaucho"))
+                                .andExpect(status().isOk());
+                mockMvc.perform(get("/api/articles/search?q=gaucho&limit=0"))
+                                .andExpect(status().isOk());
+                mockMvc.perform(get("/api/articles/search?q=gaucho&limit=5000"))
+                                .andExpect(status().isOk());
+
+                // assert
+                verify(articleSearchService, times(1)).search("gaucho", Integer.parseInt(ApiController.DEFAULT_PAGE_LIMIT));
+                verify(articleSearchService, times(1)).search("gaucho", 1);
+                verify(articleSearchService, times(1)).search("gaucho", ApiController.MAX_PAGE_LIMIT);
+        }
+
         // Tests for POST /api/articles/post...
 
         @Test
@@ -139,6 +389,7 @@ public class ArticlesControllerTests extends ControllerTestCase {
 
                 // assert
                 verify(articlesRepository, times(1)).save(articles1);
+                verify(articleSearchService, times(1)).saved(articles1);
                 String expectedJson = mapper.writeValueAsString(articles1);
                 String responseString = response.getResponse().getContentAsString();
                 assertEquals(expectedJson, responseString);
@@ -171,7 +422,8 @@ public class ArticlesControllerTests extends ControllerTestCase {
 
                 // act
                 MvcResult response = mockMvc.perform(get("/api/articles?id=7"))
-                                .andExpect(status().isOk()).andReturn();
+                                .andExpect(status().isOk())
+                                .andExpect(header().string("ETag", "\"0\"")).andReturn();
 
                 // assert
 
@@ -201,24 +453,123 @@ public class ArticlesControllerTests extends ControllerTestCase {
                 assertEquals("Articles with id 7 not found", json.get("message"));
         }
 
-        // Tests for DELETE /api/articles?id=... 
-
-        @WithMockUser(roles = { "ADMIN", "USER" })
+        @WithMockUser(roles = { "USER" })
         @Test
-        public void admin_can_delete_an_article() throws Exception {
+        public void get_by_id_is_not_modified_when_if_none_match_has_the_current_etag() throws Exception {
+
                 // arrange
+                Articles article = Articles.builder()
+                                .title("TestArticle1")
+                                .url("TestArticle1.com")
+                                .explanation("Test1")
+                                .email("TestArticle1@gmail.com")
+                                .dateAdded(LocalDateTime.parse("2022-01-03T00:00:00"))
+                                .build();
 
-                LocalDateTime ldt1 = LocalDateTime.parse("2022-01-03T00:00:00");
+                when(articlesRepository.findById(eq(7L))).thenReturn(Optional.of(article));
+                String etag = mockMvc.perform(get("/api/articles?id=7"))
+                                .andExpect(status().isOk())
+                                .andReturn().getResponse().getHeader("ETag");
+
+                // act
+                mockMvc.perform(get("/api/articles?id=7").header("If-None-Match", etag))
+                                .andExpect(status().isNotModified())
+                                .andExpect(header().string("ETag", "\"0\""));
+
+                // assert
+                verify(articlesRepository, times(2)).findById(eq(7L));
+        }
 
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void etag_changes_after_an_article_is_saved() throws Exception {
+
+                // arrange
                 Articles article = Articles.builder()
                                 .title("TestArticle1")
                                 .url("TestArticle1.com")
                                 .explanation("Test1")
                                 .email("TestArticle1@gmail.com")
-                                .dateAdded(ldt1)
+                                .dateAdded(LocalDateTime.parse("2022-01-03T00:00:00"))
                                 .build();
 
-                when(articlesRepository.findById(eq(15L))).thenReturn(Optional.of(article));
+                when(articlesRepository.save(eq(article))).thenReturn(article);
+                String before = mockMvc.perform(get("/api/articles/all"))
+                                .andExpect(status().isOk())
+                                .andReturn().getResponse().getHeader("ETag");
+
+                // act
+                mockMvc.perform(
+                                post("/api/articles/post?title=TestArticle1&url=TestArticle1.com&explanation=Test1&email=TestArticle1@gmail.com&dateAdded=2022-01-03T00:00:00")
+                                                .with(csrf()))
+                                .andExpect(status().isOk());
+                MvcResult response = mockMvc.perform(get("/api/articles/all").header("If-None-Match", before))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(articlesRepository, times(2)).findAll();
+                assertNotEquals(before, response.getResponse().getHeader("ETag"));
+        }
+
+        // Tests for GET /api/articles?ids=... and POST /api/articles/batch
+
+        @Test
+        public void logged_out_users_cannot_get_by_ids() throws Exception {
+                mockMvc.perform(get("/api/articles?ids=1,2"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_several_by_ids_and_learn_which_are_missing() throws Exception {
+
+                // arrange
+                BatchGetResult<Articles> result = BatchGetResult.<Articles>builder()
+                                .found(List.of(Articles.builder().id(1L).title("TestArticle1").build()))
+                                .missing(List.of(new BatchGetResult.Missing(2L, "Articles with id 2 not found")))
+                                .build();
+                when(batchGetService.findAllById(articlesRepository, Articles.class, List.of(1L, 2L))).thenReturn(result);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/articles?ids=1,2"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(batchGetService, times(1)).findAllById(articlesRepository, Articles.class, List.of(1L, 2L));
+                assertEquals(mapper.writeValueAsString(result), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_post_a_long_list_of_ids() throws Exception {
+
+                // arrange
+                BatchGetResult<Articles> result = BatchGetResult.<Articles>builder()
+                                .found(List.of(Articles.builder().id(1L).title("TestArticle1").build()))
+                                .missing(List.of())
+                                .build();
+                when(batchGetService.findAllById(articlesRepository, Articles.class, List.of(1L, 2L))).thenReturn(result);
+
+                // act
+                MvcResult response = mockMvc.perform(post("/api/articles/batch")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("[1,2]")
+                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(batchGetService, times(1)).findAllById(articlesRepository, Articles.class, List.of(1L, 2L));
+                assertEquals(mapper.writeValueAsString(result), response.getResponse().getContentAsString());
+        }
+
+        // Tests for DELETE /api/articles?id=... 
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_delete_an_article() throws Exception {
+                // arrange
+
+                when(articlesRepository.deleteRowById(15L)).thenReturn(1);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -227,8 +578,8 @@ public class ArticlesControllerTests extends ControllerTestCase {
                                 .andExpect(status().isOk()).andReturn();
 
                 // assert
-                verify(articlesRepository, times(1)).findById(15L);
-                verify(articlesRepository, times(1)).delete(any());
+                verify(articlesRepository, times(1)).deleteRowById(15L);
+                verify(articleSearchService, times(1)).removed(15L);
 
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("Article with id 15 deleted", json.get("message"));
@@ -240,7 +591,7 @@ public class ArticlesControllerTests extends ControllerTestCase {
                         throws Exception {
                 // arrange
 
-                when(articlesRepository.findById(eq(15L))).thenReturn(Optional.empty());
+                when(articlesRepository.deleteRowById(15L)).thenReturn(0);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -249,7 +600,7 @@ public class ArticlesControllerTests extends ControllerTestCase {
                                 .andExpect(status().isNotFound()).andReturn();
 
                 // assert
-                verify(articlesRepository, times(1)).findById(15L);
+                verify(articlesRepository, times(1)).deleteRowById(15L);
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("Articles with id 15 not found", json.get("message"));
         }
@@ -261,17 +612,8 @@ public class ArticlesControllerTests extends ControllerTestCase {
         public void admin_can_edit_an_existing_article() throws Exception {
                 // arrange
 
-                LocalDateTime ldt1 = LocalDateTime.parse("2022-01-03T00:00:00");
                 LocalDateTime ldt2 = LocalDateTime.parse("2023-01-03T00:00:00");
 
-                Articles articleOrig = Articles.builder()
-                                .title("TestArticle1")
-                                .url("TestArticle1.com")
-                                .explanation("Test1")
-                                .email("TestArticle1@gmail.com")
-                                .dateAdded(ldt1)
-                                .build();
-
                 Articles articleEdited = Articles.builder()
                                 .title("TestArticle2")
                                 .url("TestArticle2.com")
@@ -282,11 +624,12 @@ public class ArticlesControllerTests extends ControllerTestCase {
 
                 String requestBody = mapper.writeValueAsString(articleEdited);
 
-                when(articlesRepository.findById(eq(67L))).thenReturn(Optional.of(articleOrig));
+                when(articlesRepository.updateRowById(eq(67L), eq(3L), any())).thenReturn(1);
 
                 // act
                 MvcResult response = mockMvc.perform(
                                 put("/api/articles?id=67")
+                                                .header("If-Match", "\"3\"")
                                                 .contentType(MediaType.APPLICATION_JSON)
                                                 .characterEncoding("utf-8")
                                                 .content(requestBody)
@@ -294,10 +637,20 @@ public class ArticlesControllerTests extends ControllerTestCase {
                                 .andExpect(status().isOk()).andReturn();
 
                 // assert
-                verify(articlesRepository, times(1)).findById(67L);
-                verify(articlesRepository, times(1)).save(articleEdited); // should be saved with correct user
+                articleEdited.setId(67L);
+                articleEdited.setVersion(4L);
+                // what the update was given, not the entity the controller goes on to change
+                ArgumentCaptor<Articles> sent = ArgumentCaptor.forClass(Articles.class);
+                verify(articlesRepository, times(1)).updateRowById(eq(67L), eq(3L), sent.capture());
+                assertEquals("TestArticle2", sent.getValue().getTitle());
+                assertEquals("TestArticle2.com", sent.getValue().getUrl());
+                assertEquals("Test2", sent.getValue().getExplanation());
+                assertEquals("TestArticle2@gmail.com", sent.getValue().getEmail());
+                assertEquals(ldt2, sent.getValue().getDateAdded());
+                verify(articlesRepository, never()).findById(any());
+                verify(articleSearchService, times(1)).saved(articleEdited);
                 String responseString = response.getResponse().getContentAsString();
-                assertEquals(requestBody, responseString);
+                assertEquals(mapper.writeValueAsString(articleEdited), responseString);
         }
 
         
@@ -318,11 +671,12 @@ public class ArticlesControllerTests extends ControllerTestCase {
 
                 String requestBody = mapper.writeValueAsString(article);
 
-                when(articlesRepository.findById(eq(67L))).thenReturn(Optional.empty());
+                when(articlesRepository.updateRowById(eq(67L), eq(3L), any())).thenReturn(0);
 
                 // act
                 MvcResult response = mockMvc.perform(
                                 put("/api/articles?id=67")
+                                                .header("If-Match", "\"3\"")
                                                 .contentType(MediaType.APPLICATION_JSON)
                                                 .characterEncoding("utf-8")
                                                 .content(requestBody)
@@ -330,10 +684,47 @@ public class ArticlesControllerTests extends ControllerTestCase {
                                 .andExpect(status().isNotFound()).andReturn();
 
                 // assert
-                verify(articlesRepository, times(1)).findById(67L);
+                verify(articlesRepository, times(1)).updateRowById(eq(67L), eq(3L), any());
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("Articles with id 67 not found", json.get("message"));
 
         }
 
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_cannot_edit_article_that_was_changed_since_it_was_read() throws Exception {
+                // arrange
+
+                LocalDateTime ldt1 = LocalDateTime.parse("2022-01-03T00:00:00");
+
+                Articles article = Articles.builder()
+                                .title("TestArticle1")
+                                .url("TestArticle1.com")
+                                .explanation("Test1")
+                                .email("TestArticle1@gmail.com")
+                                .dateAdded(ldt1)
+                                .build();
+
+                String requestBody = mapper.writeValueAsString(article);
+
+                when(articlesRepository.updateRowById(eq(67L), eq(3L), any())).thenReturn(0);
+                when(articlesRepository.existsById(67L)).thenReturn(true);
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                put("/api/articles?id=67")
+                                                .header("If-Match", "\"3\"")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content(requestBody)
+                                                .with(csrf()))
+                                .andExpect(status().isPreconditionFailed()).andReturn();
+
+                // assert
+                verify(articlesRepository, times(1)).updateRowById(eq(67L), eq(3L), any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("Articles with id 67 is not at version \"3\"; get it again and reapply the change", json.get("message"));
+
+        }
+
 }
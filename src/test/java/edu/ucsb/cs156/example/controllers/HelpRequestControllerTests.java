@@ -3,20 +3,37 @@ package edu.ucsb.cs156.example.controllers;
 import edu.ucsb.cs156.example.repositories.UserRepository;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 import edu.ucsb.cs156.example.ControllerTestCase;
+import edu.ucsb.cs156.example.models.CursorPage;
 import edu.ucsb.cs156.example.entities.HelpRequest;
 import edu.ucsb.cs156.example.entities.UCSBDate;
 import edu.ucsb.cs156.example.repositories.HelpRequestRepository;
+import edu.ucsb.cs156.example.repositories.HelpRequestRepository.RowUpdate;
+import edu.ucsb.cs156.example.repositories.HelpRequestRepository.HelpRequestSummary;
+import edu.ucsb.cs156.example.services.FieldSelectionService;
+import edu.ucsb.cs156.example.services.BatchGetService;
+import edu.ucsb.cs156.example.models.BatchGetResult;
+import edu.ucsb.cs156.example.models.BulkChangeResult;
+import edu.ucsb.cs156.example.services.HelpRequestEventBroadcaster;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
+import java.util.function.ToIntFunction;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -27,8 +44,11 @@ import java.time.LocalDateTime;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -40,6 +60,25 @@ public class HelpRequestControllerTests extends ControllerTestCase {
         @MockBean
         HelpRequestRepository helpRequestRepository;
 
+        @MockBean
+        FieldSelectionService fieldSelectionService;
+
+        @MockBean
+        BatchGetService batchGetService;
+
+        // The ids of these tests fit in one chunk, so BatchGetService runs the statement once
+        @BeforeEach
+        @SuppressWarnings("unchecked")
+        public void updateAllByIdRunsTheStatementOnce() {
+                when(batchGetService.updateAllById(any(), any())).thenAnswer(invocation -> {
+                        List<Long> ids = List.copyOf((Collection<Long>) invocation.getArgument(0));
+                        return ids.isEmpty() ? 0 : ((ToIntFunction<List<Long>>) invocation.getArgument(1)).applyAsInt(ids);
+                });
+        }
+
+        @MockBean
+        HelpRequestEventBroadcaster helpRequestEventBroadcaster;
+
         @MockBean
         UserRepository userRepository;
 
@@ -102,6 +141,265 @@ public class HelpRequestControllerTests extends ControllerTestCase {
                 assertEquals(expectedJson, responseString);
         }
 
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_only_the_unsolved_queue() throws Exception {
+
+                // arrange
+                HelpRequest helpRequest1 = HelpRequest.builder()
+                                .requesterEmail("bendover@ucsb.edu")
+                                .teamId("s22-5pm-3")
+                                .tableOrBreakoutRoom("7")
+                                .explanation("Need help with Swagger-ui")
+                                .requestTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+                                .solved(false)
+                                .build();
+
+                List<HelpRequest> expectedRequests = List.of(helpRequest1);
+
+                when(helpRequestRepository.findAll(any(Specification.class), eq(HelpRequestController.QUEUE_ORDER))).thenReturn(expectedRequests);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/helprequests/all?solved=false"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(helpRequestRepository, times(1)).findAll(any(Specification.class), eq(HelpRequestController.QUEUE_ORDER));
+                verify(helpRequestRepository, never()).findAll();
+                String expectedJson = mapper.writeValueAsString(expectedRequests);
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_filter_by_team_and_request_time() throws Exception {
+
+                // arrange
+                when(helpRequestRepository.findAll(any(Specification.class), eq(HelpRequestController.QUEUE_ORDER))).thenReturn(List.of());
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/helprequests/all?teamId=s22-5pm-3&from=2022-01-01T00:00:00&to=2022-02-01T00:00:00"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(helpRequestRepository, times(1)).findAll(any(Specification.class), eq(HelpRequestController.QUEUE_ORDER));
+                verify(helpRequestRepository, never()).findAll();
+                assertEquals("[]", response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void get_all_is_not_modified_when_if_none_match_has_the_current_etag() throws Exception {
+
+                // arrange
+                MvcResult first = mockMvc.perform(get("/api/helprequests/all"))
+                                .andExpect(status().isOk())
+                                .andExpect(header().string("Cache-Control", "no-cache, private"))
+                                .andReturn();
+                String etag = first.getResponse().getHeader("ETag");
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/helprequests/all").header("If-None-Match", etag))
+                                .andExpect(status().isNotModified())
+                                .andExpect(header().string("ETag", etag))
+                                .andReturn();
+
+                // assert
+                verify(helpRequestRepository, times(1)).findAll();
+                assertEquals("", response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_only_some_fields_of_all_helprequests() throws Exception {
+
+                // arrange
+                List<Map<String, Object>> rows = List.of(Map.of("id", 1), Map.of("id", 2));
+                when(fieldSelectionService.findAll(HelpRequest.class, "id", null, null)).thenReturn(rows);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/helprequests/all?fields=id"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(fieldSelectionService, times(1)).findAll(HelpRequest.class, "id", null, null);
+                verify(helpRequestRepository, never()).findAll();
+                assertEquals(mapper.writeValueAsString(rows), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_only_some_fields_of_filtered_helprequests() throws Exception {
+
+                // arrange
+                List<Map<String, Object>> rows = List.of(Map.of("teamId", "s22-5pm-3"));
+                when(fieldSelectionService.findAll(eq(HelpRequest.class), eq("teamId"), any(), eq(HelpRequestController.QUEUE_ORDER))).thenReturn(rows);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/helprequests/all?solved=false&fields=teamId"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(fieldSelectionService, times(1)).findAll(eq(HelpRequest.class), eq("teamId"), any(), eq(HelpRequestController.QUEUE_ORDER));
+                assertEquals(mapper.writeValueAsString(rows), response.getResponse().getContentAsString());
+        }
+
+        // Tests for GET /api/helprequests/summaries
+
+        @Test
+        public void logged_out_users_cannot_get_summaries() throws Exception {
+                mockMvc.perform(get("/api/helprequests/summaries"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_summaries_without_explanations() throws Exception {
+
+                // arrange
+                HelpRequest entity = HelpRequest.builder()
+                                .requesterEmail("bendover@ucsb.edu")
+                                .teamId("s22-5pm-3")
+                                .tableOrBreakoutRoom("7")
+                                .explanation("Need help with Swagger-ui")
+                                .requestTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+                                .solved(false)
+                                .build();
+                List<HelpRequestSummary> summaries = List.of(new SpelAwareProxyProjectionFactory().createProjection(HelpRequestSummary.class, entity));
+                when(helpRequestRepository.findAllSummaries()).thenReturn(summaries);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/helprequests/summaries"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(helpRequestRepository, times(1)).findAllSummaries();
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(mapper.writeValueAsString(summaries), responseString);
+                assertFalse(responseString.contains("explanation"));
+        }
+
+        // Tests for GET /api/helprequests/page
+
+        @Test
+        public void logged_out_users_cannot_get_page() throws Exception {
+                mockMvc.perform(get("/api/helprequests/page"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_a_full_page_with_a_next_cursor() throws Exception {
+
+                // arrange
+                HelpRequest first = HelpRequest.builder()
+                                .id(3L)
+                                .requesterEmail("bendover@ucsb.edu")
+                                .teamId("s22-5pm-3")
+                                .tableOrBreakoutRoom("7")
+                                .explanation("Need help with Swagger-ui")
+                                .requestTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+                                .solved(false)
+                                .build();
+
+                HelpRequest second = HelpRequest.builder()
+                                .id(5L)
+                                .requesterEmail("hughjanus@ucsb.edu")
+                                .teamId("s22-6pm-3")
+                                .tableOrBreakoutRoom("11")
+                                .explanation("Dokku problems")
+                                .requestTime(LocalDateTime.parse("2022-03-11T00:00:00"))
+                                .solved(false)
+                                .build();
+
+                ArrayList<HelpRequest> expectedRows = new ArrayList<>();
+                expectedRows.addAll(Arrays.asList(first, second));
+
+                when(helpRequestRepository.findAllByIdGreaterThanOrderByIdAsc(eq(0L), eq(PageRequest.of(0, 2)))).thenReturn(expectedRows);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/helprequests/page?limit=2"))
+                                .andExpect(status().isOk())
+                                .andExpect(header().string("Link", "<http://localhost/api/helprequests/page?limit=2&after=5>; rel=\"next\""))
+                                .andReturn();
+
+                // assert
+                verify(helpRequestRepository, times(1)).findAllByIdGreaterThanOrderByIdAsc(eq(0L), eq(PageRequest.of(0, 2)));
+                String expectedJson = mapper.writeValueAsString(CursorPage.<HelpRequest>builder().content(expectedRows).nextCursor(5L).build());
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_a_short_last_page_without_a_next_cursor() throws Exception {
+
+                // arrange
+                HelpRequest second = HelpRequest.builder()
+                                .id(5L)
+                                .requesterEmail("hughjanus@ucsb.edu")
+                                .teamId("s22-6pm-3")
+                                .tableOrBreakoutRoom("11")
+                                .explanation("Dokku problems")
+                                .requestTime(LocalDateTime.parse("2022-03-11T00:00:00"))
+                                .solved(false)
+                                .build();
+
+                ArrayList<HelpRequest> expectedRows = new ArrayList<>();
+                expectedRows.add(second);
+
+                when(helpRequestRepository.findAllByIdGreaterThanOrderByIdAsc(eq(3L), eq(PageRequest.of(0, 2)))).thenReturn(expectedRows);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/helprequests/page?limit=2&after=3"))
+                                .andExpect(status().isOk())
+                                .andExpect(header().doesNotExist("Link"))
+                                .andReturn();
+
+                // assert
+                verify(helpRequestRepository, times(1)).findAllByIdGreaterThanOrderByIdAsc(eq(3L), eq(PageRequest.of(0, 2)));
+                String expectedJson = mapper.writeValueAsString(CursorPage.<HelpRequest>builder().content(expectedRows).build());
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void page_limit_is_clamped_to_the_maximum() throws Exception {
+                when(helpRequestRepository.findAllByIdGreaterThanOrderByIdAsc(eq(0L), eq(PageRequest.of(0, ApiController.MAX_PAGE_LIMIT)))).thenReturn(new ArrayList<>());
+
+                mockMvc.perform(get("/api/helprequests/page?limit=1000000"))
+                                .andExpect(status().isOk());
+
+                verify(helpRequestRepository, times(1)).findAllByIdGreaterThanOrderByIdAsc(eq(0L), eq(PageRequest.of(0, ApiController.MAX_PAGE_LIMIT)));
+        }
+
+        // Tests for GET /api/helprequests/stream
+
+        @Test
+        public void logged_out_users_cannot_stream() throws Exception {
+                mockMvc.perform(get("/api/helprequests/stream"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_subscribe_to_the_stream() throws Exception {
+                // arrange
+                when(helpRequestEventBroadcaster.subscribe()).thenReturn(new SseEmitter());
+
+                // act
+                mockMvc.perform(get("/api/helprequests/stream"))
+                                .andExpect(request().asyncStarted());
+
+                // assert
+                verify(helpRequestEventBroadcaster, times(1)).subscribe();
+        }
+
         // Tests for POST /api/helprequests/post...
 
         @Test
@@ -143,6 +441,7 @@ public class HelpRequestControllerTests extends ControllerTestCase {
 
                 // assert
                 verify(helpRequestRepository, times(1)).save(helpRequest1);
+                verify(helpRequestEventBroadcaster, times(1)).publish(HelpRequestEventBroadcaster.CREATED, helpRequest1);
                 String expectedJson = mapper.writeValueAsString(helpRequest1);
                 String responseString = response.getResponse().getContentAsString();
                 assertEquals(expectedJson, responseString);
@@ -176,7 +475,8 @@ public class HelpRequestControllerTests extends ControllerTestCase {
 
                 // act
                 MvcResult response = mockMvc.perform(get("/api/helprequests?id=7"))
-                                .andExpect(status().isOk()).andReturn();
+                                .andExpect(status().isOk())
+                                .andExpect(header().string("ETag", "\"0\"")).andReturn();
 
                 // assert
 
@@ -206,25 +506,65 @@ public class HelpRequestControllerTests extends ControllerTestCase {
                 assertEquals("HelpRequest with id 7 not found", json.get("message"));
         }
 
-        // Tests for DELETE /api/helprequests?id=... 
+        // Tests for GET /api/helprequests?ids=... and POST /api/helprequests/batch
 
-        @WithMockUser(roles = { "ADMIN", "USER" })
         @Test
-        public void admin_can_delete_a_request() throws Exception {
+        public void logged_out_users_cannot_get_by_ids() throws Exception {
+                mockMvc.perform(get("/api/helprequests?ids=1,2"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_several_by_ids_and_learn_which_are_missing() throws Exception {
+
                 // arrange
+                BatchGetResult<HelpRequest> result = BatchGetResult.<HelpRequest>builder()
+                                .found(List.of(HelpRequest.builder().id(1L).teamId("s22-5pm-3").build()))
+                                .missing(List.of(new BatchGetResult.Missing(2L, "HelpRequest with id 2 not found")))
+                                .build();
+                when(batchGetService.findAllById(helpRequestRepository, HelpRequest.class, List.of(1L, 2L))).thenReturn(result);
 
-                LocalDateTime ldt1 = LocalDateTime.parse("2022-01-03T00:00:00");
+                // act
+                MvcResult response = mockMvc.perform(get("/api/helprequests?ids=1,2"))
+                                .andExpect(status().isOk()).andReturn();
 
-                HelpRequest helpRequest1 = HelpRequest.builder()
-                                .requesterEmail("bendover@ucsb.edu")
-                                .teamId("s22-5pm-3")
-                                .tableOrBreakoutRoom("7")
-                                .explanation("Need help with Swagger-ui")
-                                .requestTime(ldt1)
-                                .solved(false)
+                // assert
+                verify(batchGetService, times(1)).findAllById(helpRequestRepository, HelpRequest.class, List.of(1L, 2L));
+                assertEquals(mapper.writeValueAsString(result), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_post_a_long_list_of_ids() throws Exception {
+
+                // arrange
+                BatchGetResult<HelpRequest> result = BatchGetResult.<HelpRequest>builder()
+                                .found(List.of(HelpRequest.builder().id(1L).teamId("s22-5pm-3").build()))
+                                .missing(List.of())
                                 .build();
+                when(batchGetService.findAllById(helpRequestRepository, HelpRequest.class, List.of(1L, 2L))).thenReturn(result);
 
-                when(helpRequestRepository.findById(eq(15L))).thenReturn(Optional.of(helpRequest1));
+                // act
+                MvcResult response = mockMvc.perform(post("/api/helprequests/batch")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("[1,2]")
+                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(batchGetService, times(1)).findAllById(helpRequestRepository, HelpRequest.class, List.of(1L, 2L));
+                assertEquals(mapper.writeValueAsString(result), response.getResponse().getContentAsString());
+        }
+
+        // Tests for DELETE /api/helprequests?id=... 
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_delete_a_request() throws Exception {
+                // arrange
+
+                when(helpRequestRepository.deleteRowById(15L)).thenReturn(1);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -233,8 +573,9 @@ public class HelpRequestControllerTests extends ControllerTestCase {
                                 .andExpect(status().isOk()).andReturn();
 
                 // assert
-                verify(helpRequestRepository, times(1)).findById(15L);
-                verify(helpRequestRepository, times(1)).delete(any());
+                verify(helpRequestRepository, times(1)).deleteRowById(15L);
+                verify(helpRequestRepository, never()).findById(any());
+                verify(helpRequestEventBroadcaster, times(1)).publish(HelpRequestEventBroadcaster.DELETED, Map.of("id", 15L));
 
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("HelpRequest with id 15 deleted", json.get("message"));
@@ -246,7 +587,7 @@ public class HelpRequestControllerTests extends ControllerTestCase {
                         throws Exception {
                 // arrange
 
-                when(helpRequestRepository.findById(eq(15L))).thenReturn(Optional.empty());
+                when(helpRequestRepository.deleteRowById(15L)).thenReturn(0);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -255,7 +596,8 @@ public class HelpRequestControllerTests extends ControllerTestCase {
                                 .andExpect(status().isNotFound()).andReturn();
 
                 // assert
-                verify(helpRequestRepository, times(1)).findById(15L);
+                verify(helpRequestRepository, times(1)).deleteRowById(15L);
+                verify(helpRequestEventBroadcaster, never()).publish(any(), any());
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("HelpRequest with id 15 not found", json.get("message"));
         }
@@ -267,18 +609,8 @@ public class HelpRequestControllerTests extends ControllerTestCase {
         public void admin_can_edit_an_existing_helprequest() throws Exception {
                 // arrange
 
-                LocalDateTime ldt1 = LocalDateTime.parse("2022-01-03T00:00:00");
                 LocalDateTime ldt2 = LocalDateTime.parse("2023-01-03T00:00:00");
 
-                HelpRequest helpRequestOrig = HelpRequest.builder()
-                                .requesterEmail("bendover@ucsb.edu")
-                                .teamId("s22-5pm-3")
-                                .tableOrBreakoutRoom("7")
-                                .explanation("Need help with Swagger-ui")
-                                .requestTime(ldt1)
-                                .solved(false)
-                                .build();
-
                 HelpRequest helpRequestEdited = HelpRequest.builder()
                                 .requesterEmail("bendovernow@ucsb.edu")
                                 .teamId("s22-6pm-3")
@@ -290,11 +622,13 @@ public class HelpRequestControllerTests extends ControllerTestCase {
 
                 String requestBody = mapper.writeValueAsString(helpRequestEdited);
 
-                when(helpRequestRepository.findById(eq(67L))).thenReturn(Optional.of(helpRequestOrig));
+                // it was unsolved until now
+                when(helpRequestRepository.updateRowAndSolveById(eq(67L), eq(3L), any())).thenReturn(new RowUpdate(1, true));
 
                 // act
                 MvcResult response = mockMvc.perform(
                                 put("/api/helprequests?id=67")
+                                                .header("If-Match", "\"3\"")
                                                 .contentType(MediaType.APPLICATION_JSON)
                                                 .characterEncoding("utf-8")
                                                 .content(requestBody)
@@ -302,10 +636,77 @@ public class HelpRequestControllerTests extends ControllerTestCase {
                                 .andExpect(status().isOk()).andReturn();
 
                 // assert
-                verify(helpRequestRepository, times(1)).findById(67L);
-                verify(helpRequestRepository, times(1)).save(helpRequestEdited); // saved with correct user
+                helpRequestEdited.setId(67L);
+                helpRequestEdited.setVersion(4L);
+                // what the update was given, not the entity the controller goes on to change
+                ArgumentCaptor<HelpRequest> sent = ArgumentCaptor.forClass(HelpRequest.class);
+                verify(helpRequestRepository, times(1)).updateRowAndSolveById(eq(67L), eq(3L), sent.capture());
+                assertEquals("bendovernow@ucsb.edu", sent.getValue().getRequesterEmail());
+                assertEquals("s22-6pm-3", sent.getValue().getTeamId());
+                assertEquals("8", sent.getValue().getTableOrBreakoutRoom());
+                assertEquals("Need more help with Swagger-ui", sent.getValue().getExplanation());
+                assertEquals(ldt2, sent.getValue().getRequestTime());
+                assertEquals(true, sent.getValue().getSolved());
+                verify(helpRequestRepository, never()).findById(any());
+                verify(helpRequestEventBroadcaster, times(1)).publish(HelpRequestEventBroadcaster.SOLVED, helpRequestEdited);
                 String responseString = response.getResponse().getContentAsString();
-                assertEquals(requestBody, responseString);
+                assertEquals(mapper.writeValueAsString(helpRequestEdited), responseString);
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void editing_a_helprequest_without_solving_it_publishes_updated() throws Exception {
+                // arrange
+
+                LocalDateTime ldt1 = LocalDateTime.parse("2022-01-03T00:00:00");
+
+                HelpRequest stillUnsolved = HelpRequest.builder()
+                                .requesterEmail("bendover@ucsb.edu")
+                                .teamId("s22-5pm-3")
+                                .tableOrBreakoutRoom("9")
+                                .explanation("Need help with Swagger-ui")
+                                .requestTime(ldt1)
+                                .solved(false)
+                                .build();
+
+                HelpRequest solved = HelpRequest.builder()
+                                .requesterEmail("hughjanus@ucsb.edu")
+                                .teamId("s22-6pm-3")
+                                .tableOrBreakoutRoom("11")
+                                .explanation("Dokku problems")
+                                .requestTime(ldt1)
+                                .solved(true)
+                                .build();
+
+                // 68 was already solved
+                when(helpRequestRepository.updateRowAndSolveById(anyLong(), anyLong(), any())).thenReturn(new RowUpdate(1, false));
+
+                // act
+                mockMvc.perform(
+                                put("/api/helprequests?id=67")
+                                                .header("If-Match", "\"3\"")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content(mapper.writeValueAsString(stillUnsolved))
+                                                .with(csrf()))
+                                .andExpect(status().isOk());
+                mockMvc.perform(
+                                put("/api/helprequests?id=68")
+                                                .header("If-Match", "\"3\"")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content(mapper.writeValueAsString(solved))
+                                                .with(csrf()))
+                                .andExpect(status().isOk());
+
+                // assert
+                stillUnsolved.setId(67L);
+                stillUnsolved.setVersion(4L);
+                solved.setId(68L);
+                solved.setVersion(4L);
+                verify(helpRequestEventBroadcaster, times(1)).publish(HelpRequestEventBroadcaster.UPDATED, stillUnsolved);
+                verify(helpRequestEventBroadcaster, times(1)).publish(HelpRequestEventBroadcaster.UPDATED, solved);
+                verify(helpRequestEventBroadcaster, never()).publish(eq(HelpRequestEventBroadcaster.SOLVED), any());
         }
 
         
@@ -327,11 +728,12 @@ public class HelpRequestControllerTests extends ControllerTestCase {
 
                 String requestBody = mapper.writeValueAsString(helpEditedRequest);
 
-                when(helpRequestRepository.findById(eq(67L))).thenReturn(Optional.empty());
+                when(helpRequestRepository.updateRowAndSolveById(eq(67L), eq(3L), any())).thenReturn(new RowUpdate(0, false));
 
                 // act
                 MvcResult response = mockMvc.perform(
                                 put("/api/helprequests?id=67")
+                                                .header("If-Match", "\"3\"")
                                                 .contentType(MediaType.APPLICATION_JSON)
                                                 .characterEncoding("utf-8")
                                                 .content(requestBody)
@@ -339,9 +741,159 @@ public class HelpRequestControllerTests extends ControllerTestCase {
                                 .andExpect(status().isNotFound()).andReturn();
 
                 // assert
-                verify(helpRequestRepository, times(1)).findById(67L);
+                verify(helpRequestRepository, times(1)).updateRowAndSolveById(eq(67L), eq(3L), any());
+                verify(helpRequestEventBroadcaster, never()).publish(any(), any());
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("HelpRequest with id 67 not found", json.get("message"));
 
         }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_cannot_edit_helprequest_that_was_changed_since_it_was_read() throws Exception {
+                // arrange
+
+                LocalDateTime ldt1 = LocalDateTime.parse("2022-01-03T00:00:00");
+
+                HelpRequest helpEditedRequest = HelpRequest.builder()
+                                .requesterEmail("bendover@ucsb.edu")
+                                .teamId("s22-5pm-3")
+                                .tableOrBreakoutRoom("7")
+                                .explanation("Need help with Swagger-ui")
+                                .requestTime(ldt1)
+                                .solved(false)
+                                .build();
+
+                String requestBody = mapper.writeValueAsString(helpEditedRequest);
+
+                when(helpRequestRepository.updateRowAndSolveById(eq(67L), eq(3L), any())).thenReturn(new RowUpdate(0, false));
+                when(helpRequestRepository.existsById(67L)).thenReturn(true);
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                put("/api/helprequests?id=67")
+                                                .header("If-Match", "\"3\"")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content(requestBody)
+                                                .with(csrf()))
+                                .andExpect(status().isPreconditionFailed()).andReturn();
+
+                // assert
+                verify(helpRequestRepository, times(1)).updateRowAndSolveById(eq(67L), eq(3L), any());
+                verify(helpRequestEventBroadcaster, never()).publish(any(), any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("HelpRequest with id 67 is not at version \"3\"; get it again and reapply the change", json.get("message"));
+
+        }
+
+        // Tests for DELETE /api/helprequests?ids=..., DELETE /api/helprequests?from=...&to=... and PUT /api/helprequests/solve
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_regular_users_cannot_change_many_at_once() throws Exception {
+                mockMvc.perform(delete("/api/helprequests?ids=1,2").with(csrf()))
+                                .andExpect(status().is(403));
+                mockMvc.perform(delete("/api/helprequests?from=2022-01-03T00:00:00&to=2022-01-04T00:00:00").with(csrf()))
+                                .andExpect(status().is(403));
+                mockMvc.perform(put("/api/helprequests/solve?before=2022-01-03T00:00:00").with(csrf()))
+                                .andExpect(status().is(403));
+                verify(helpRequestRepository, never()).deleteRowsByIdIn(any());
+                verify(helpRequestRepository, never()).deleteRowsByRequestTimeInRange(any(), any());
+                verify(helpRequestRepository, never()).updateToSolvedByRequestTimeBefore(any());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_delete_several_by_ids_and_learn_how_many_were_deleted() throws Exception {
+                // arrange
+
+                when(helpRequestRepository.deleteRowsByIdIn(List.of(15L, 16L, 99L))).thenReturn(2);
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                delete("/api/helprequests?ids=15,16,99")
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(helpRequestRepository, times(1)).deleteRowsByIdIn(List.of(15L, 16L, 99L));
+                verify(helpRequestRepository, never()).deleteRowById(anyLong());
+                verify(helpRequestEventBroadcaster, times(1)).publish(HelpRequestEventBroadcaster.CHANGED, new BulkChangeResult(2));
+                assertEquals("{\"affected\":2}", response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void deleting_an_empty_list_of_ids_runs_no_statement() throws Exception {
+                // act
+                MvcResult response = mockMvc.perform(
+                                delete("/api/helprequests?ids=")
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(helpRequestRepository, never()).deleteRowsByIdIn(any());
+                verify(helpRequestEventBroadcaster, never()).publish(any(), any());
+                assertEquals("{\"affected\":0}", response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_delete_a_lab_sessions_worth_of_requests() throws Exception {
+                // arrange
+
+                LocalDateTime from = LocalDateTime.parse("2022-01-03T17:00:00");
+                LocalDateTime to = LocalDateTime.parse("2022-01-03T19:00:00");
+                when(helpRequestRepository.deleteRowsByRequestTimeInRange(from, to)).thenReturn(12);
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                delete("/api/helprequests?from=2022-01-03T17:00:00&to=2022-01-03T19:00:00")
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(helpRequestRepository, times(1)).deleteRowsByRequestTimeInRange(from, to);
+                verify(helpRequestEventBroadcaster, times(1)).publish(HelpRequestEventBroadcaster.CHANGED, new BulkChangeResult(12));
+                assertEquals("{\"affected\":12}", response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_mark_everything_unsolved_before_a_time_solved() throws Exception {
+                // arrange
+
+                LocalDateTime before = LocalDateTime.parse("2022-01-03T19:00:00");
+                when(helpRequestRepository.updateToSolvedByRequestTimeBefore(before)).thenReturn(5);
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                put("/api/helprequests/solve?before=2022-01-03T19:00:00")
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(helpRequestRepository, times(1)).updateToSolvedByRequestTimeBefore(before);
+                verify(helpRequestEventBroadcaster, times(1)).publish(HelpRequestEventBroadcaster.CHANGED, new BulkChangeResult(5));
+                assertEquals("{\"affected\":5}", response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void a_bulk_change_that_changes_nothing_publishes_nothing() throws Exception {
+                // arrange
+
+                when(helpRequestRepository.updateToSolvedByRequestTimeBefore(any())).thenReturn(0);
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                put("/api/helprequests/solve?before=2022-01-03T19:00:00")
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(helpRequestEventBroadcaster, never()).publish(any(), any());
+                assertEquals("{\"affected\":0}", response.getResponse().getContentAsString());
+        }
 }
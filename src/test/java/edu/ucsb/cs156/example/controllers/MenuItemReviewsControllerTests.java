@@ -3,16 +3,26 @@ package edu.ucsb.cs156.example.controllers;
 import edu.ucsb.cs156.example.repositories.UserRepository;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 import edu.ucsb.cs156.example.ControllerTestCase;
+import edu.ucsb.cs156.example.models.BulkInsertResult;
+import edu.ucsb.cs156.example.models.CursorPage;
 import edu.ucsb.cs156.example.entities.MenuItemReview;
 import edu.ucsb.cs156.example.repositories.MenuItemReviewRepository;
+import edu.ucsb.cs156.example.services.FieldSelectionService;
+import edu.ucsb.cs156.example.services.BatchGetService;
+import edu.ucsb.cs156.example.models.BatchGetResult;
+import edu.ucsb.cs156.example.models.MenuItemRatingStats;
+import edu.ucsb.cs156.example.services.MenuItemReviewStatsService;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MvcResult;
@@ -27,7 +37,9 @@ import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -39,6 +51,15 @@ public class MenuItemReviewsControllerTests extends ControllerTestCase {
         @MockBean
         MenuItemReviewRepository menuItemReviewRepository;
 
+        @MockBean
+        FieldSelectionService fieldSelectionService;
+
+        @MockBean
+        BatchGetService batchGetService;
+
+        @MockBean
+        MenuItemReviewStatsService menuItemReviewStatsService;
+
         @MockBean
         UserRepository userRepository;
 
@@ -98,6 +119,210 @@ public class MenuItemReviewsControllerTests extends ControllerTestCase {
             assertEquals(expectedJson, responseString);
         }
 
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void get_all_is_not_modified_when_if_none_match_has_the_current_etag() throws Exception {
+
+                // arrange
+                MvcResult first = mockMvc.perform(get("/api/menuitemreviews/all"))
+                                .andExpect(status().isOk())
+                                .andExpect(header().string("Cache-Control", "no-cache, private"))
+                                .andReturn();
+                String etag = first.getResponse().getHeader("ETag");
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/menuitemreviews/all").header("If-None-Match", etag))
+                                .andExpect(status().isNotModified())
+                                .andExpect(header().string("ETag", etag))
+                                .andReturn();
+
+                // assert
+                verify(menuItemReviewRepository, times(1)).findAll();
+                assertEquals("", response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_only_some_fields_of_all() throws Exception {
+
+                // arrange
+                List<Map<String, Object>> rows = List.of(Map.of("id", 1), Map.of("id", 2));
+                when(fieldSelectionService.findAll(MenuItemReview.class, "id")).thenReturn(rows);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/menuitemreviews/all?fields=id"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(fieldSelectionService, times(1)).findAll(MenuItemReview.class, "id");
+                verify(menuItemReviewRepository, never()).findAll();
+                assertEquals(mapper.writeValueAsString(rows), response.getResponse().getContentAsString());
+        }
+
+        // Tests for GET /api/menuitemreviews/page
+
+        @Test
+        public void logged_out_users_cannot_get_page() throws Exception {
+                mockMvc.perform(get("/api/menuitemreviews/page"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_a_full_page_with_a_next_cursor() throws Exception {
+
+                // arrange
+                MenuItemReview first = MenuItemReview.builder()
+                                .id(3L)
+                                .itemId(42)
+                                .reviewerEmail("sophiattran@ucsb.edu")
+                                .stars(2)
+                                .dateReviewed(LocalDateTime.parse("2022-01-03T00:00:00"))
+                                .comments("this sucked")
+                                .build();
+
+                MenuItemReview second = MenuItemReview.builder()
+                                .id(5L)
+                                .itemId(35)
+                                .reviewerEmail("test@ucsb.edu")
+                                .stars(5)
+                                .dateReviewed(LocalDateTime.parse("2022-03-11T00:00:00"))
+                                .comments("amazing")
+                                .build();
+
+                ArrayList<MenuItemReview> expectedRows = new ArrayList<>();
+                expectedRows.addAll(Arrays.asList(first, second));
+
+                when(menuItemReviewRepository.findAllByIdGreaterThanOrderByIdAsc(eq(0L), eq(PageRequest.of(0, 2)))).thenReturn(expectedRows);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/menuitemreviews/page?limit=2"))
+                                .andExpect(status().isOk())
+                                .andExpect(header().string("Link", "<http://localhost/api/menuitemreviews/page?limit=2&after=5>; rel=\"next\""))
+                                .andReturn();
+
+                // assert
+                verify(menuItemReviewRepository, times(1)).findAllByIdGreaterThanOrderByIdAsc(eq(0L), eq(PageRequest.of(0, 2)));
+                String expectedJson = mapper.writeValueAsString(CursorPage.<MenuItemReview>builder().content(expectedRows).nextCursor(5L).build());
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_a_short_last_page_without_a_next_cursor() throws Exception {
+
+                // arrange
+                MenuItemReview second = MenuItemReview.builder()
+                                .id(5L)
+                                .itemId(35)
+                                .reviewerEmail("test@ucsb.edu")
+                                .stars(5)
+                                .dateReviewed(LocalDateTime.parse("2022-03-11T00:00:00"))
+                                .comments("amazing")
+                                .build();
+
+                ArrayList<MenuItemReview> expectedRows = new ArrayList<>();
+                expectedRows.add(second);
+
+                when(menuItemReviewRepository.findAllByIdGreaterThanOrderByIdAsc(eq(3L), eq(PageRequest.of(0, 2)))).thenReturn(expectedRows);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/menuitemreviews/page?limit=2&after=3"))
+                                .andExpect(status().isOk())
+                                .andExpect(header().doesNotExist("Link"))
+                                .andReturn();
+
+                // assert
+                verify(menuItemReviewRepository, times(1)).findAllByIdGreaterThanOrderByIdAsc(eq(3L), eq(PageRequest.of(0, 2)));
+                String expectedJson = mapper.writeValueAsString(CursorPage.<MenuItemReview>builder().content(expectedRows).build());
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        // Tests for GET /api/menuitemreviews/stats
+
+        @Test
+        public void logged_out_users_cannot_get_stats() throws Exception {
+                mockMvc.perform(get("/api/menuitemreviews/stats"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_stats_for_all_items() throws Exception {
+
+                // arrange
+                MenuItemRatingStats stats42 = MenuItemRatingStats.builder()
+                                .itemId(42)
+                                .count(3)
+                                .mean(3.0)
+                                .histogram(List.of(0L, 0L, 1L, 1L, 1L, 0L))
+                                .lastReviewed(LocalDateTime.parse("2022-03-11T00:00:00"))
+                                .build();
+                MenuItemRatingStats stats43 = MenuItemRatingStats.builder()
+                                .itemId(43)
+                                .count(1)
+                                .mean(5.0)
+                                .histogram(List.of(0L, 0L, 0L, 0L, 0L, 1L))
+                                .lastReviewed(LocalDateTime.parse("2022-01-03T00:00:00"))
+                                .build();
+                when(menuItemReviewStatsService.getAll()).thenReturn(List.of(stats42, stats43));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/menuitemreviews/stats"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(menuItemReviewStatsService, times(1)).getAll();
+                verify(menuItemReviewRepository, never()).findAll();
+                String expectedJson = mapper.writeValueAsString(List.of(stats42, stats43));
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_stats_for_one_item() throws Exception {
+
+                // arrange
+                MenuItemRatingStats stats42 = MenuItemRatingStats.builder()
+                                .itemId(42)
+                                .count(1)
+                                .mean(2.0)
+                                .histogram(List.of(0L, 0L, 1L, 0L, 0L, 0L))
+                                .lastReviewed(LocalDateTime.parse("2022-03-11T00:00:00"))
+                                .build();
+                when(menuItemReviewStatsService.get(eq(42L))).thenReturn(Optional.of(stats42));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/menuitemreviews/stats?itemId=42"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(menuItemReviewStatsService, times(1)).get(42L);
+                String expectedJson = mapper.writeValueAsString(List.of(stats42));
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void stats_for_an_item_with_no_reviews_are_empty() throws Exception {
+
+                // arrange
+                when(menuItemReviewStatsService.get(eq(7L))).thenReturn(Optional.empty());
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/menuitemreviews/stats?itemId=7"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(menuItemReviewStatsService, times(1)).get(7L);
+                assertEquals("[]", response.getResponse().getContentAsString());
+        }
+
         // Tests for POST /api/menuitemreviews/post...
 
         @Test
@@ -138,11 +363,254 @@ public class MenuItemReviewsControllerTests extends ControllerTestCase {
 
                 // assert
                 verify(menuItemReviewRepository, times(1)).save(menuItemReview1);
+                verify(menuItemReviewStatsService, times(1)).added(menuItemReview1);
                 String expectedJson = mapper.writeValueAsString(menuItemReview1);
                 String responseString = response.getResponse().getContentAsString();
                 assertEquals(expectedJson, responseString);
         }
         
+        // Tests for POST /api/menuitemreviews/bulk
+
+        @Test
+        public void logged_out_users_cannot_bulk_post() throws Exception {
+                mockMvc.perform(post("/api/menuitemreviews/bulk")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("[]"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_regular_users_cannot_bulk_post() throws Exception {
+                mockMvc.perform(post("/api/menuitemreviews/bulk")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("[]")
+                                .with(csrf()))
+                                .andExpect(status().is(403)); // only admins can post
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void an_admin_user_can_bulk_post_a_json_array_and_invalid_rows_are_reported() throws Exception {
+                // arrange
+
+                MenuItemReview menuItemReview1 = MenuItemReview.builder()
+                                .itemId(11)
+                                .reviewerEmail("sophiattran@ucsb.edu")
+                                .stars(3)
+                                .dateReviewed(LocalDateTime.parse("2022-01-03T00:00:00"))
+                                .comments("mid")
+                                .build();
+
+                MenuItemReview menuItemReview3 = MenuItemReview.builder()
+                                .itemId(12)
+                                .reviewerEmail("test@ucsb.edu")
+                                .stars(5)
+                                .dateReviewed(LocalDateTime.parse("2022-03-11T00:00:00"))
+                                .comments("great")
+                                .build();
+
+                String body = "["
+                                + "{\"id\":99,\"version\":12345,\"itemId\":11,\"reviewerEmail\":\"sophiattran@ucsb.edu\",\"stars\":3,\"dateReviewed\":\"2022-01-03T00:00:00\",\"comments\":\"mid\"},"
+                                + "{\"itemId\":0,\"reviewerEmail\":\" \",\"stars\":-1},"
+                                + mapper.writeValueAsString(menuItemReview3) + ","
+                                + "{\"itemId\":13,\"stars\":6,\"dateReviewed\":\"2022-03-11T00:00:00\"},"
+                                + "42"
+                                + "]";
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                post("/api/menuitemreviews/bulk")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .content(body)
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(menuItemReviewRepository, times(1)).saveAll(List.of(menuItemReview1, menuItemReview3));
+                verify(menuItemReviewStatsService, times(1)).addedAll(List.of(menuItemReview1, menuItemReview3));
+
+                BulkInsertResult expected = BulkInsertResult.builder()
+                                .inserted(2)
+                                .errors(List.of(
+                                                BulkInsertResult.RowError.builder().row(2)
+                                                                .message("itemId must be a positive id; reviewerEmail is required; stars must be between 0 and 5; dateReviewed is required")
+                                                                .build(),
+                                                BulkInsertResult.RowError.builder().row(4)
+                                                                .message("reviewerEmail is required; stars must be between 0 and 5")
+                                                                .build(),
+                                                BulkInsertResult.RowError.builder().row(5)
+                                                                .message("expected a JSON object")
+                                                                .build()))
+                                .build();
+                String expectedJson = mapper.writeValueAsString(expected);
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void an_admin_user_can_bulk_post_newline_delimited_json() throws Exception {
+                // arrange
+
+                MenuItemReview menuItemReview1 = MenuItemReview.builder()
+                                .itemId(11)
+                                .reviewerEmail("sophiattran@ucsb.edu")
+                                .stars(3)
+                                .dateReviewed(LocalDateTime.parse("2022-01-03T00:00:00"))
+                                .comments("mid")
+                                .build();
+
+                MenuItemReview menuItemReview2 = MenuItemReview.builder()
+                                .itemId(12)
+                                .reviewerEmail("test@ucsb.edu")
+                                .stars(0)
+                                .dateReviewed(LocalDateTime.parse("2022-03-11T00:00:00"))
+                                .comments("bad")
+                                .build();
+
+                String body = mapper.writeValueAsString(menuItemReview1) + "\n"
+                                + "\n"
+                                + "{\"itemId\": 12,\n"
+                                + "{\"itemId\":\"twelve\"}\n"
+                                + mapper.writeValueAsString(menuItemReview2) + "\n";
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                post("/api/menuitemreviews/bulk")
+                                                .contentType(MediaType.APPLICATION_NDJSON)
+                                                .content(body)
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(menuItemReviewRepository, times(1)).saveAll(List.of(menuItemReview1, menuItemReview2));
+
+                Map<String, Object> json = responseToJson(response);
+                assertEquals(2, json.get("inserted"));
+                List<Map<String, Object>> errors = (List<Map<String, Object>>) json.get("errors");
+                assertEquals(2, errors.size());
+                assertEquals(3, errors.get(0).get("row"));
+                assertEquals(true, ((String) errors.get(0).get("message")).startsWith("malformed JSON: "));
+                assertEquals(4, errors.get(1).get("row"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void bulk_post_stops_reading_at_malformed_json_but_keeps_earlier_rows() throws Exception {
+                // arrange
+
+                MenuItemReview menuItemReview1 = MenuItemReview.builder()
+                                .itemId(11)
+                                .reviewerEmail("sophiattran@ucsb.edu")
+                                .stars(3)
+                                .dateReviewed(LocalDateTime.parse("2022-01-03T00:00:00"))
+                                .comments("mid")
+                                .build();
+
+                String body = "[" + mapper.writeValueAsString(menuItemReview1) + ", {\"itemId\": ]";
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                post("/api/menuitemreviews/bulk")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .content(body)
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(menuItemReviewRepository, times(1)).saveAll(List.of(menuItemReview1));
+
+                Map<String, Object> json = responseToJson(response);
+                assertEquals(1, json.get("inserted"));
+                List<Map<String, Object>> errors = (List<Map<String, Object>>) json.get("errors");
+                assertEquals(1, errors.size());
+                assertEquals(2, errors.get(0).get("row"));
+                assertEquals(true, ((String) errors.get(0).get("message")).startsWith("malformed JSON, nothing after this row was read: "));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void bulk_post_accepts_a_single_object_and_an_empty_body() throws Exception {
+                // arrange
+
+                MenuItemReview menuItemReview1 = MenuItemReview.builder()
+                                .itemId(11)
+                                .reviewerEmail("sophiattran@ucsb.edu")
+                                .stars(3)
+                                .dateReviewed(LocalDateTime.parse("2022-01-03T00:00:00"))
+                                .comments("mid")
+                                .build();
+
+                // act
+                MvcResult single = mockMvc.perform(
+                                post("/api/menuitemreviews/bulk")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .content(mapper.writeValueAsString(menuItemReview1))
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+                MvcResult empty = mockMvc.perform(
+                                post("/api/menuitemreviews/bulk")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .content("")
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(menuItemReviewRepository, times(1)).saveAll(List.of(menuItemReview1));
+                assertEquals(1, responseToJson(single).get("inserted"));
+                assertEquals(0, responseToJson(empty).get("inserted"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void bulk_post_saves_in_chunks() throws Exception {
+                // arrange
+
+                List<MenuItemReview> reviews = new ArrayList<>();
+                for (int i = 1; i <= MenuItemReviewsController.BULK_CHUNK_SIZE + 1; i++) {
+                        reviews.add(MenuItemReview.builder()
+                                        .itemId(i)
+                                        .reviewerEmail("sophiattran@ucsb.edu")
+                                        .stars(i % 6)
+                                        .dateReviewed(LocalDateTime.parse("2022-01-03T00:00:00"))
+                                        .comments("review " + i)
+                                        .build());
+                }
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                post("/api/menuitemreviews/bulk")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .content(mapper.writeValueAsString(reviews))
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(menuItemReviewRepository, times(1)).saveAll(reviews.subList(0, MenuItemReviewsController.BULK_CHUNK_SIZE));
+                verify(menuItemReviewRepository, times(1)).saveAll(reviews.subList(MenuItemReviewsController.BULK_CHUNK_SIZE, reviews.size()));
+                assertEquals(MenuItemReviewsController.BULK_CHUNK_SIZE + 1, responseToJson(response).get("inserted"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void bulk_post_with_no_valid_rows_saves_nothing() throws Exception {
+                // act
+                MvcResult response = mockMvc.perform(
+                                post("/api/menuitemreviews/bulk")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .content("[null]")
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(menuItemReviewRepository, never()).saveAll(any());
+                verify(menuItemReviewStatsService, never()).addedAll(any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals(0, json.get("inserted"));
+                assertEquals(List.of(Map.of("row", 1, "message", "expected a JSON object")), json.get("errors"));
+        }
+
         // Tests for GET /api/menuitemreviews?id=...
 
         @Test
@@ -170,7 +638,8 @@ public class MenuItemReviewsControllerTests extends ControllerTestCase {
 
             // act
             MvcResult response = mockMvc.perform(get("/api/menuitemreviews?id=7"))
-            .andExpect(status().isOk()).andReturn();
+            .andExpect(status().isOk())
+            .andExpect(header().string("ETag", "\"0\"")).andReturn();
 
             // assert
 
@@ -200,6 +669,57 @@ public class MenuItemReviewsControllerTests extends ControllerTestCase {
                 assertEquals("MenuItemReview with id 7 not found", json.get("message"));
         }
         
+        // Tests for GET /api/menuitemreviews?ids=... and POST /api/menuitemreviews/batch
+
+        @Test
+        public void logged_out_users_cannot_get_by_ids() throws Exception {
+                mockMvc.perform(get("/api/menuitemreviews?ids=1,2"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_several_by_ids_and_learn_which_are_missing() throws Exception {
+
+                // arrange
+                BatchGetResult<MenuItemReview> result = BatchGetResult.<MenuItemReview>builder()
+                                .found(List.of(MenuItemReview.builder().id(1L).reviewerEmail("cgaucho@ucsb.edu").build()))
+                                .missing(List.of(new BatchGetResult.Missing(2L, "MenuItemReview with id 2 not found")))
+                                .build();
+                when(batchGetService.findAllById(menuItemReviewRepository, MenuItemReview.class, List.of(1L, 2L))).thenReturn(result);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/menuitemreviews?ids=1,2"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(batchGetService, times(1)).findAllById(menuItemReviewRepository, MenuItemReview.class, List.of(1L, 2L));
+                assertEquals(mapper.writeValueAsString(result), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_post_a_long_list_of_ids() throws Exception {
+
+                // arrange
+                BatchGetResult<MenuItemReview> result = BatchGetResult.<MenuItemReview>builder()
+                                .found(List.of(MenuItemReview.builder().id(1L).reviewerEmail("cgaucho@ucsb.edu").build()))
+                                .missing(List.of())
+                                .build();
+                when(batchGetService.findAllById(menuItemReviewRepository, MenuItemReview.class, List.of(1L, 2L))).thenReturn(result);
+
+                // act
+                MvcResult response = mockMvc.perform(post("/api/menuitemreviews/batch")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("[1,2]")
+                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(batchGetService, times(1)).findAllById(menuItemReviewRepository, MenuItemReview.class, List.of(1L, 2L));
+                assertEquals(mapper.writeValueAsString(result), response.getResponse().getContentAsString());
+        }
+
         // Tests for DELETE /api/menuitemreviews?id=... 
 
         @WithMockUser(roles = { "ADMIN", "USER" })
@@ -216,7 +736,9 @@ public class MenuItemReviewsControllerTests extends ControllerTestCase {
                             .comments("this sucked")
                             .build();
 
+                menuItemReview1.setVersion(2L);
                 when(menuItemReviewRepository.findById(eq(15L))).thenReturn(Optional.of(menuItemReview1));
+                when(menuItemReviewRepository.deleteRowById(15L, 2L)).thenReturn(1);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -226,7 +748,8 @@ public class MenuItemReviewsControllerTests extends ControllerTestCase {
 
                 // assert
                 verify(menuItemReviewRepository, times(1)).findById(15L);
-                verify(menuItemReviewRepository, times(1)).delete(any());
+                verify(menuItemReviewRepository, times(1)).deleteRowById(15L, 2L);
+                verify(menuItemReviewStatsService, times(1)).removed(menuItemReview1);
 
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("MenuItemReview with id 15 deleted", json.get("message"));
@@ -252,6 +775,91 @@ public class MenuItemReviewsControllerTests extends ControllerTestCase {
                 assertEquals("MenuItemReview with id 15 not found", json.get("message"));
         }
 
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void a_review_deleted_by_someone_else_after_it_was_read_is_not_found() throws Exception {
+                // arrange
+                MenuItemReview menuItemReview1 = MenuItemReview.builder()
+                            .itemId(42)
+                            .reviewerEmail("sophiattran@ucsb.edu")
+                            .stars(2)
+                            .dateReviewed(LocalDateTime.parse("2022-01-03T00:00:00"))
+                            .comments("this sucked")
+                            .build();
+
+                when(menuItemReviewRepository.findById(eq(15L))).thenReturn(Optional.of(menuItemReview1), Optional.empty());
+                when(menuItemReviewRepository.deleteRowById(15L, 0L)).thenReturn(0);
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                delete("/api/menuitemreviews?id=15")
+                                                .with(csrf()))
+                                .andExpect(status().isNotFound()).andReturn();
+
+                // assert
+                verify(menuItemReviewRepository, times(2)).findById(15L);
+                verify(menuItemReviewStatsService, never()).removed(any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("MenuItemReview with id 15 not found", json.get("message"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void a_review_edited_after_it_was_read_is_read_again_and_deleted() throws Exception {
+                // arrange
+                MenuItemReview asRead = MenuItemReview.builder()
+                            .itemId(42)
+                            .reviewerEmail("sophiattran@ucsb.edu")
+                            .stars(2)
+                            .dateReviewed(LocalDateTime.parse("2022-01-03T00:00:00"))
+                            .comments("this sucked")
+                            .build();
+                MenuItemReview edited = asRead.toBuilder().stars(4).version(1L).build();
+
+                when(menuItemReviewRepository.findById(eq(15L))).thenReturn(Optional.of(asRead), Optional.of(edited));
+                when(menuItemReviewRepository.deleteRowById(15L, 0L)).thenReturn(0);
+                when(menuItemReviewRepository.deleteRowById(15L, 1L)).thenReturn(1);
+
+                // act
+                mockMvc.perform(
+                                delete("/api/menuitemreviews?id=15")
+                                                .with(csrf()))
+                                .andExpect(status().isOk());
+
+                // assert
+                verify(menuItemReviewStatsService, times(1)).removed(edited);
+                verify(menuItemReviewStatsService, never()).removed(asRead);
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void a_review_that_keeps_being_edited_is_not_deleted() throws Exception {
+                // arrange
+                MenuItemReview menuItemReview1 = MenuItemReview.builder()
+                            .itemId(42)
+                            .reviewerEmail("sophiattran@ucsb.edu")
+                            .stars(2)
+                            .dateReviewed(LocalDateTime.parse("2022-01-03T00:00:00"))
+                            .comments("this sucked")
+                            .build();
+
+                when(menuItemReviewRepository.findById(eq(15L))).thenReturn(Optional.of(menuItemReview1));
+                when(menuItemReviewRepository.deleteRowById(15L, 0L)).thenReturn(0);
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                delete("/api/menuitemreviews?id=15")
+                                                .with(csrf()))
+                                .andExpect(status().isConflict()).andReturn();
+
+                // assert
+                verify(menuItemReviewRepository, times(MenuItemReviewsController.DELETE_TRIES)).deleteRowById(15L, 0L);
+                verify(menuItemReviewStatsService, never()).removed(any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("VersionConflictException", json.get("type"));
+        }
+
+
         // Tests for PUT /api/menuitemreviews?id=... 
 
         @WithMockUser(roles = { "ADMIN", "USER" })
@@ -268,6 +876,7 @@ public class MenuItemReviewsControllerTests extends ControllerTestCase {
                             .stars(2)
                             .dateReviewed(date1)
                             .comments("this sucked")
+                            .version(3)
                             .build();
 
                 MenuItemReview menuItemReviewEdited = MenuItemReview.builder()
@@ -281,10 +890,12 @@ public class MenuItemReviewsControllerTests extends ControllerTestCase {
                 String requestBody = mapper.writeValueAsString(menuItemReviewEdited);
 
                 when(menuItemReviewRepository.findById(eq(67L))).thenReturn(Optional.of(menuItemReviewOrig));
+                when(menuItemReviewRepository.updateRowById(eq(67L), eq(3L), any())).thenReturn(1);
 
                 // act
                 MvcResult response = mockMvc.perform(
                                 put("/api/menuitemreviews?id=67")
+                                                .header("If-Match", "\"3\"")
                                                 .contentType(MediaType.APPLICATION_JSON)
                                                 .characterEncoding("utf-8")
                                                 .content(requestBody)
@@ -292,10 +903,125 @@ public class MenuItemReviewsControllerTests extends ControllerTestCase {
                                 .andExpect(status().isOk()).andReturn();
 
                 // assert
+                menuItemReviewEdited.setId(67L);
                 verify(menuItemReviewRepository, times(1)).findById(67L);
-                verify(menuItemReviewRepository, times(1)).save(menuItemReviewEdited); // should be saved with correct user
+                menuItemReviewEdited.setVersion(4L);
+                // what the update was given, not the entity the controller goes on to change
+                ArgumentCaptor<MenuItemReview> sent = ArgumentCaptor.forClass(MenuItemReview.class);
+                verify(menuItemReviewRepository, times(1)).updateRowById(eq(67L), eq(3L), sent.capture());
+                assertEquals(11L, sent.getValue().getItemId());
+                assertEquals("sophia@ucsb.edu", sent.getValue().getReviewerEmail());
+                assertEquals(3, sent.getValue().getStars());
+                assertEquals(date2, sent.getValue().getDateReviewed());
+                assertEquals("mid", sent.getValue().getComments());
+                verify(menuItemReviewStatsService, times(1)).updated(menuItemReviewOrig, menuItemReviewEdited);
                 String responseString = response.getResponse().getContentAsString();
-                assertEquals(requestBody, responseString);
+                assertEquals(mapper.writeValueAsString(menuItemReviewEdited), responseString);
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void a_review_deleted_by_someone_else_after_it_was_read_cannot_be_edited() throws Exception {
+                // arrange
+                MenuItemReview menuItemReviewOrig = MenuItemReview.builder()
+                            .itemId(42)
+                            .reviewerEmail("sophiattran@ucsb.edu")
+                            .stars(2)
+                            .dateReviewed(LocalDateTime.parse("2022-01-03T00:00:00"))
+                            .comments("this sucked")
+                            .version(3)
+                            .build();
+
+                String requestBody = mapper.writeValueAsString(menuItemReviewOrig);
+
+                when(menuItemReviewRepository.findById(eq(67L))).thenReturn(Optional.of(menuItemReviewOrig));
+                when(menuItemReviewRepository.updateRowById(eq(67L), eq(3L), any())).thenReturn(0);
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                put("/api/menuitemreviews?id=67")
+                                                .header("If-Match", "\"3\"")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content(requestBody)
+                                                .with(csrf()))
+                                .andExpect(status().isNotFound()).andReturn();
+
+                // assert
+                verify(menuItemReviewStatsService, never()).updated(any(), any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("MenuItemReview with id 67 not found", json.get("message"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void a_review_changed_by_someone_else_after_it_was_read_cannot_be_edited() throws Exception {
+                // arrange
+                MenuItemReview menuItemReviewOrig = MenuItemReview.builder()
+                            .itemId(42)
+                            .reviewerEmail("sophiattran@ucsb.edu")
+                            .stars(2)
+                            .dateReviewed(LocalDateTime.parse("2022-01-03T00:00:00"))
+                            .comments("this sucked")
+                            .version(3)
+                            .build();
+
+                String requestBody = mapper.writeValueAsString(menuItemReviewOrig);
+
+                when(menuItemReviewRepository.findById(eq(67L))).thenReturn(Optional.of(menuItemReviewOrig));
+                when(menuItemReviewRepository.updateRowById(eq(67L), eq(3L), any())).thenReturn(0);
+                when(menuItemReviewRepository.existsById(67L)).thenReturn(true);
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                put("/api/menuitemreviews?id=67")
+                                                .header("If-Match", "\"3\"")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content(requestBody)
+                                                .with(csrf()))
+                                .andExpect(status().isConflict()).andReturn();
+
+                // assert
+                verify(menuItemReviewStatsService, never()).updated(any(), any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("MenuItemReview with id 67 was changed by someone else while this change was being made;"
+                                + " get it again and reapply the change", json.get("message"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_cannot_edit_review_that_is_at_another_version() throws Exception {
+                // arrange
+                MenuItemReview menuItemReviewOrig = MenuItemReview.builder()
+                            .itemId(42)
+                            .reviewerEmail("sophiattran@ucsb.edu")
+                            .stars(2)
+                            .dateReviewed(LocalDateTime.parse("2022-01-03T00:00:00"))
+                            .comments("this sucked")
+                            .version(4)
+                            .build();
+
+                String requestBody = mapper.writeValueAsString(menuItemReviewOrig);
+
+                when(menuItemReviewRepository.findById(eq(67L))).thenReturn(Optional.of(menuItemReviewOrig));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                put("/api/menuitemreviews?id=67")
+                                                .header("If-Match", "\"3\"")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content(requestBody)
+                                                .with(csrf()))
+                                .andExpect(status().isPreconditionFailed()).andReturn();
+
+                // assert
+                verify(menuItemReviewRepository, never()).updateRowById(anyLong(), anyLong(), any());
+                verify(menuItemReviewStatsService, never()).updated(any(), any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("MenuItemReview with id 67 is not at version \"3\"; get it again and reapply the change",
+                                json.get("message"));
         }
 
         
@@ -321,6 +1047,7 @@ public class MenuItemReviewsControllerTests extends ControllerTestCase {
                 // act
                 MvcResult response = mockMvc.perform(
                                 put("/api/menuitemreviews?id=67")
+                                                .header("If-Match", "\"3\"")
                                                 .contentType(MediaType.APPLICATION_JSON)
                                                 .characterEncoding("utf-8")
                                                 .content(requestBody)
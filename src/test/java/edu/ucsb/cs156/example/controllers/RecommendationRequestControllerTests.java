@@ -1,15 +1,24 @@
 package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.ControllerTestCase;
+import edu.ucsb.cs156.example.models.CursorPage;
 import edu.ucsb.cs156.example.repositories.RecommendationRequestRepository;
+import edu.ucsb.cs156.example.repositories.RecommendationRequestRepository.RecommendationRequestSummary;
+import edu.ucsb.cs156.example.services.FieldSelectionService;
+import edu.ucsb.cs156.example.services.BatchGetService;
+import edu.ucsb.cs156.example.models.BatchGetResult;
 import edu.ucsb.cs156.example.repositories.UserRepository;
 import edu.ucsb.cs156.example.entities.RecommendationRequest;
 import edu.ucsb.cs156.example.controllers.RecommendationRequestController;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MvcResult;
 
@@ -18,15 +27,21 @@ import org.springframework.http.MediaType;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
+import java.util.function.ToIntFunction;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(controllers = RecommendationRequestController.class)
@@ -36,6 +51,22 @@ public class RecommendationRequestControllerTests extends ControllerTestCase {
         @MockBean
         RecommendationRequestRepository recommendationRequestRepository;
 
+        @MockBean
+        FieldSelectionService fieldSelectionService;
+
+        @MockBean
+        BatchGetService batchGetService;
+
+        // The ids of these tests fit in one chunk, so BatchGetService runs the statement once
+        @BeforeEach
+        @SuppressWarnings("unchecked")
+        public void updateAllByIdRunsTheStatementOnce() {
+                when(batchGetService.updateAllById(any(), any())).thenAnswer(invocation -> {
+                        List<Long> ids = List.copyOf((Collection<Long>) invocation.getArgument(0));
+                        return ids.isEmpty() ? 0 : ((ToIntFunction<List<Long>>) invocation.getArgument(1)).applyAsInt(ids);
+                });
+        }
+
         @MockBean
         UserRepository userRepository;
 
@@ -98,6 +129,166 @@ public class RecommendationRequestControllerTests extends ControllerTestCase {
                 assertEquals(expectedJson, responseString);
         }
 
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void get_all_is_not_modified_when_if_none_match_has_the_current_etag() throws Exception {
+
+                // arrange
+                MvcResult first = mockMvc.perform(get("/api/recommendationrequest/all"))
+                                .andExpect(status().isOk())
+                                .andExpect(header().string("Cache-Control", "no-cache, private"))
+                                .andReturn();
+                String etag = first.getResponse().getHeader("ETag");
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/recommendationrequest/all").header("If-None-Match", etag))
+                                .andExpect(status().isNotModified())
+                                .andExpect(header().string("ETag", etag))
+                                .andReturn();
+
+                // assert
+                verify(recommendationRequestRepository, times(1)).findAll();
+                assertEquals("", response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_only_some_fields_of_all() throws Exception {
+
+                // arrange
+                List<Map<String, Object>> rows = List.of(Map.of("id", 1), Map.of("id", 2));
+                when(fieldSelectionService.findAll(RecommendationRequest.class, "id")).thenReturn(rows);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/recommendationrequest/all?fields=id"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(fieldSelectionService, times(1)).findAll(RecommendationRequest.class, "id");
+                verify(recommendationRequestRepository, never()).findAll();
+                assertEquals(mapper.writeValueAsString(rows), response.getResponse().getContentAsString());
+        }
+
+        // Tests for GET /api/recommendationrequest/summaries
+
+        @Test
+        public void logged_out_users_cannot_get_summaries() throws Exception {
+                mockMvc.perform(get("/api/recommendationrequest/summaries"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_summaries_without_explanations() throws Exception {
+
+                // arrange
+                RecommendationRequest entity = RecommendationRequest.builder()
+                                .professorEmail("profemail")
+                                .requesterEmail("stuemail")
+                                .explanation("string")
+                                .dateRequested(LocalDateTime.parse("2022-01-03T00:00:00"))
+                                .dateNeeded(LocalDateTime.parse("2022-01-03T00:00:00"))
+                                .done(false)
+                                .build();
+                List<RecommendationRequestSummary> summaries = List.of(new SpelAwareProxyProjectionFactory().createProjection(RecommendationRequestSummary.class, entity));
+                when(recommendationRequestRepository.findAllSummaries()).thenReturn(summaries);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/recommendationrequest/summaries"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(recommendationRequestRepository, times(1)).findAllSummaries();
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(mapper.writeValueAsString(summaries), responseString);
+                assertFalse(responseString.contains("explanation"));
+        }
+
+        // Tests for GET /api/recommendationrequest/page
+
+        @Test
+        public void logged_out_users_cannot_get_page() throws Exception {
+                mockMvc.perform(get("/api/recommendationrequest/page"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_a_full_page_with_a_next_cursor() throws Exception {
+
+                // arrange
+                RecommendationRequest first = RecommendationRequest.builder()
+                                .id(3L)
+                                .professorEmail("profemail")
+                                .requesterEmail("stuemail")
+                                .explanation("string")
+                                .dateRequested(LocalDateTime.parse("2022-01-03T00:00:00"))
+                                .dateNeeded(LocalDateTime.parse("2022-01-03T00:00:00"))
+                                .done(false)
+                                .build();
+
+                RecommendationRequest second = RecommendationRequest.builder()
+                                .id(5L)
+                                .professorEmail("profemail")
+                                .requesterEmail("stuemail")
+                                .explanation("string")
+                                .dateRequested(LocalDateTime.parse("2022-03-11T00:00:00"))
+                                .dateNeeded(LocalDateTime.parse("2022-03-11T00:00:00"))
+                                .done(false)
+                                .build();
+
+                ArrayList<RecommendationRequest> expectedRows = new ArrayList<>();
+                expectedRows.addAll(Arrays.asList(first, second));
+
+                when(recommendationRequestRepository.findAllByIdGreaterThanOrderByIdAsc(eq(0L), eq(PageRequest.of(0, 2)))).thenReturn(expectedRows);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/recommendationrequest/page?limit=2"))
+                                .andExpect(status().isOk())
+                                .andExpect(header().string("Link", "<http://localhost/api/recommendationrequest/page?limit=2&after=5>; rel=\"next\""))
+                                .andReturn();
+
+                // assert
+                verify(recommendationRequestRepository, times(1)).findAllByIdGreaterThanOrderByIdAsc(eq(0L), eq(PageRequest.of(0, 2)));
+                String expectedJson = mapper.writeValueAsString(CursorPage.<RecommendationRequest>builder().content(expectedRows).nextCursor(5L).build());
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_a_short_last_page_without_a_next_cursor() throws Exception {
+
+                // arrange
+                RecommendationRequest second = RecommendationRequest.builder()
+                                .id(5L)
+                                .professorEmail("profemail")
+                                .requesterEmail("stuemail")
+                                .explanation("string")
+                                .dateRequested(LocalDateTime.parse("2022-03-11T00:00:00"))
+                                .dateNeeded(LocalDateTime.parse("2022-03-11T00:00:00"))
+                                .done(false)
+                                .build();
+
+                ArrayList<RecommendationRequest> expectedRows = new ArrayList<>();
+                expectedRows.add(second);
+
+                when(recommendationRequestRepository.findAllByIdGreaterThanOrderByIdAsc(eq(3L), eq(PageRequest.of(0, 2)))).thenReturn(expectedRows);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/recommendationrequest/page?limit=2&after=3"))
+                                .andExpect(status().isOk())
+                                .andExpect(header().doesNotExist("Link"))
+                                .andReturn();
+
+                // assert
+                verify(recommendationRequestRepository, times(1)).findAllByIdGreaterThanOrderByIdAsc(eq(3L), eq(PageRequest.of(0, 2)));
+                String expectedJson = mapper.writeValueAsString(CursorPage.<RecommendationRequest>builder().content(expectedRows).build());
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
         // Tests for POST /api/recommendationrequest/post...
 
         @Test
@@ -173,7 +364,8 @@ public class RecommendationRequestControllerTests extends ControllerTestCase {
 
                 // act
                 MvcResult response = mockMvc.perform(get("/api/recommendationrequest?id=7"))
-                        .andExpect(status().isOk()).andReturn();
+                        .andExpect(status().isOk())
+                        .andExpect(header().string("ETag", "\"0\"")).andReturn();
 
                 // assert
 
@@ -204,6 +396,57 @@ public class RecommendationRequestControllerTests extends ControllerTestCase {
         }
 
 
+        // Tests for GET /api/recommendationrequest?ids=... and POST /api/recommendationrequest/batch
+
+        @Test
+        public void logged_out_users_cannot_get_by_ids() throws Exception {
+                mockMvc.perform(get("/api/recommendationrequest?ids=1,2"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_several_by_ids_and_learn_which_are_missing() throws Exception {
+
+                // arrange
+                BatchGetResult<RecommendationRequest> result = BatchGetResult.<RecommendationRequest>builder()
+                                .found(List.of(RecommendationRequest.builder().id(1L).requesterEmail("cgaucho@ucsb.edu").build()))
+                                .missing(List.of(new BatchGetResult.Missing(2L, "RecommendationRequest with id 2 not found")))
+                                .build();
+                when(batchGetService.findAllById(recommendationRequestRepository, RecommendationRequest.class, List.of(1L, 2L))).thenReturn(result);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/recommendationrequest?ids=1,2"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(batchGetService, times(1)).findAllById(recommendationRequestRepository, RecommendationRequest.class, List.of(1L, 2L));
+                assertEquals(mapper.writeValueAsString(result), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_post_a_long_list_of_ids() throws Exception {
+
+                // arrange
+                BatchGetResult<RecommendationRequest> result = BatchGetResult.<RecommendationRequest>builder()
+                                .found(List.of(RecommendationRequest.builder().id(1L).requesterEmail("cgaucho@ucsb.edu").build()))
+                                .missing(List.of())
+                                .build();
+                when(batchGetService.findAllById(recommendationRequestRepository, RecommendationRequest.class, List.of(1L, 2L))).thenReturn(result);
+
+                // act
+                MvcResult response = mockMvc.perform(post("/api/recommendationrequest/batch")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("[1,2]")
+                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(batchGetService, times(1)).findAllById(recommendationRequestRepository, RecommendationRequest.class, List.of(1L, 2L));
+                assertEquals(mapper.writeValueAsString(result), response.getResponse().getContentAsString());
+        }
+
         // Tests for DELETE /api/recommendationrequest?id=...
 
         @WithMockUser(roles = { "ADMIN", "USER" })
@@ -211,18 +454,7 @@ public class RecommendationRequestControllerTests extends ControllerTestCase {
         public void admin_can_delete_a_date() throws Exception {
                 // arrange
 
-                LocalDateTime ldt1 = LocalDateTime.parse("2022-01-03T00:00:00");
-
-                RecommendationRequest recommendationRequest = RecommendationRequest.builder()
-                        .professorEmail("email")
-                        .requesterEmail("email")
-                        .explanation("string")
-                        .dateRequested(ldt1)
-                        .dateNeeded(ldt1)
-                        .done(true)
-                        .build();
-
-                when(recommendationRequestRepository.findById(eq(15L))).thenReturn(Optional.of(recommendationRequest));
+                when(recommendationRequestRepository.deleteRowById(15L)).thenReturn(1);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -231,8 +463,7 @@ public class RecommendationRequestControllerTests extends ControllerTestCase {
                                 .andExpect(status().isOk()).andReturn();
 
                 // assert
-                verify(recommendationRequestRepository, times(1)).findById(15L);
-                verify(recommendationRequestRepository, times(1)).delete(any());
+                verify(recommendationRequestRepository, times(1)).deleteRowById(15L);
 
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("Recommendation request with id 15 deleted", json.get("message"));
@@ -244,7 +475,7 @@ public class RecommendationRequestControllerTests extends ControllerTestCase {
                         throws Exception {
                 // arrange
 
-                when(recommendationRequestRepository.findById(eq(15L))).thenReturn(Optional.empty());
+                when(recommendationRequestRepository.deleteRowById(15L)).thenReturn(0);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -253,7 +484,7 @@ public class RecommendationRequestControllerTests extends ControllerTestCase {
                                 .andExpect(status().isNotFound()).andReturn();
 
                 // assert
-                verify(recommendationRequestRepository, times(1)).findById(15L);
+                verify(recommendationRequestRepository, times(1)).deleteRowById(15L);
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("RecommendationRequest with id 15 not found", json.get("message"));
         }
@@ -265,18 +496,8 @@ public class RecommendationRequestControllerTests extends ControllerTestCase {
         public void admin_can_edit_an_existing_recommendationrequest() throws Exception {
                 // arrange
 
-                LocalDateTime ldt1 = LocalDateTime.parse("2022-01-03T00:00:00");
                 LocalDateTime ldt2 = LocalDateTime.parse("2023-01-03T00:00:00");
 
-                RecommendationRequest ucsbDateOrig = RecommendationRequest.builder()
-                                .professorEmail("email")
-                                .requesterEmail("email")
-                                .explanation("string")
-                                .dateRequested(ldt1)
-                                .dateNeeded(ldt1)
-                                .done(false)
-                                .build();
-
                 RecommendationRequest ucsbDateEdited = RecommendationRequest.builder()
                         .professorEmail("profemail")
                         .requesterEmail("stuemail")
@@ -288,11 +509,12 @@ public class RecommendationRequestControllerTests extends ControllerTestCase {
 
                 String requestBody = mapper.writeValueAsString(ucsbDateEdited);
 
-                when(recommendationRequestRepository.findById(eq(67L))).thenReturn(Optional.of(ucsbDateOrig));
+                when(recommendationRequestRepository.updateRowById(eq(67L), eq(3L), any())).thenReturn(1);
 
                 // act
                 MvcResult response = mockMvc.perform(
                                 put("/api/recommendationrequest?id=67")
+                                                .header("If-Match", "\"3\"")
                                                 .contentType(MediaType.APPLICATION_JSON)
                                                 .characterEncoding("utf-8")
                                                 .content(requestBody)
@@ -300,10 +522,20 @@ public class RecommendationRequestControllerTests extends ControllerTestCase {
                                 .andExpect(status().isOk()).andReturn();
 
                 // assert
-                verify(recommendationRequestRepository, times(1)).findById(67L);
-                verify(recommendationRequestRepository, times(1)).save(ucsbDateEdited); // should be saved with correct user
+                ucsbDateEdited.setId(67L);
+                ucsbDateEdited.setVersion(4L);
+                // what the update was given, not the entity the controller goes on to change
+                ArgumentCaptor<RecommendationRequest> sent = ArgumentCaptor.forClass(RecommendationRequest.class);
+                verify(recommendationRequestRepository, times(1)).updateRowById(eq(67L), eq(3L), sent.capture());
+                assertEquals("profemail", sent.getValue().getProfessorEmail());
+                assertEquals("stuemail", sent.getValue().getRequesterEmail());
+                assertEquals("grad", sent.getValue().getExplanation());
+                assertEquals(ldt2, sent.getValue().getDateRequested());
+                assertEquals(ldt2, sent.getValue().getDateNeeded());
+                assertEquals(true, sent.getValue().getDone());
+                verify(recommendationRequestRepository, never()).findById(any());
                 String responseString = response.getResponse().getContentAsString();
-                assertEquals(requestBody, responseString);
+                assertEquals(mapper.writeValueAsString(ucsbDateEdited), responseString);
         }
 
 
@@ -325,11 +557,12 @@ public class RecommendationRequestControllerTests extends ControllerTestCase {
 
                 String requestBody = mapper.writeValueAsString(editedRecommendationRequest);
 
-                when(recommendationRequestRepository.findById(eq(67L))).thenReturn(Optional.empty());
+                when(recommendationRequestRepository.updateRowById(eq(67L), eq(3L), any())).thenReturn(0);
 
                 // act
                 MvcResult response = mockMvc.perform(
                                 put("/api/recommendationrequest?id=67")
+                                                .header("If-Match", "\"3\"")
                                                 .contentType(MediaType.APPLICATION_JSON)
                                                 .characterEncoding("utf-8")
                                                 .content(requestBody)
@@ -337,9 +570,140 @@ public class RecommendationRequestControllerTests extends ControllerTestCase {
                                 .andExpect(status().isNotFound()).andReturn();
 
                 // assert
-                verify(recommendationRequestRepository, times(1)).findById(67L);
+                verify(recommendationRequestRepository, times(1)).updateRowById(eq(67L), eq(3L), any());
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("RecommendationRequest with id 67 not found", json.get("message"));
 
         }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_cannot_edit_recommendationrequest_that_was_changed_since_it_was_read() throws Exception {
+                // arrange
+
+                LocalDateTime ldt1 = LocalDateTime.parse("2022-01-03T00:00:00");
+
+                RecommendationRequest editedRecommendationRequest = RecommendationRequest.builder()
+                        .professorEmail("email")
+                        .requesterEmail("email")
+                        .explanation("string")
+                        .dateRequested(ldt1)
+                        .dateNeeded(ldt1)
+                        .done(false)
+                        .build();
+
+                String requestBody = mapper.writeValueAsString(editedRecommendationRequest);
+
+                when(recommendationRequestRepository.updateRowById(eq(67L), eq(3L), any())).thenReturn(0);
+                when(recommendationRequestRepository.existsById(67L)).thenReturn(true);
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                put("/api/recommendationrequest?id=67")
+                                                .header("If-Match", "\"3\"")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content(requestBody)
+                                                .with(csrf()))
+                                .andExpect(status().isPreconditionFailed()).andReturn();
+
+                // assert
+                verify(recommendationRequestRepository, times(1)).updateRowById(eq(67L), eq(3L), any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("RecommendationRequest with id 67 is not at version \"3\"; get it again and reapply the change", json.get("message"));
+
+        }
+
+        // Tests for DELETE /api/recommendationrequest?ids=..., DELETE /api/recommendationrequest?from=...&to=... and PUT /api/recommendationrequest/done
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_regular_users_cannot_change_many_at_once() throws Exception {
+                mockMvc.perform(delete("/api/recommendationrequest?ids=1,2").with(csrf()))
+                                .andExpect(status().is(403));
+                mockMvc.perform(delete("/api/recommendationrequest?from=2022-01-03T00:00:00&to=2022-01-04T00:00:00").with(csrf()))
+                                .andExpect(status().is(403));
+                mockMvc.perform(put("/api/recommendationrequest/done?ids=1,2").with(csrf()))
+                                .andExpect(status().is(403));
+                verify(recommendationRequestRepository, never()).deleteRowsByIdIn(any());
+                verify(recommendationRequestRepository, never()).deleteRowsByDateRequestedInRange(any(), any());
+                verify(recommendationRequestRepository, never()).updateToDoneByIdIn(any());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_delete_several_by_ids_and_learn_how_many_were_deleted() throws Exception {
+                // arrange
+
+                when(recommendationRequestRepository.deleteRowsByIdIn(List.of(15L, 16L, 99L))).thenReturn(2);
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                delete("/api/recommendationrequest?ids=15,16,99")
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(recommendationRequestRepository, times(1)).deleteRowsByIdIn(List.of(15L, 16L, 99L));
+                assertEquals("{\"affected\":2}", response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_delete_everything_requested_in_a_range_of_time() throws Exception {
+                // arrange
+
+                LocalDateTime from = LocalDateTime.parse("2021-09-01T00:00:00");
+                LocalDateTime to = LocalDateTime.parse("2022-09-01T00:00:00");
+                when(recommendationRequestRepository.deleteRowsByDateRequestedInRange(from, to)).thenReturn(40);
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                delete("/api/recommendationrequest?from=2021-09-01T00:00:00&to=2022-09-01T00:00:00")
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(recommendationRequestRepository, times(1)).deleteRowsByDateRequestedInRange(from, to);
+                assertEquals("{\"affected\":40}", response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_mark_several_done_and_learn_how_many_were_not_done_before() throws Exception {
+                // arrange
+
+                when(recommendationRequestRepository.updateToDoneByIdIn(List.of(7L, 8L, 9L))).thenReturn(2);
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                put("/api/recommendationrequest/done?ids=7,8,9")
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(recommendationRequestRepository, times(1)).updateToDoneByIdIn(List.of(7L, 8L, 9L));
+                verify(recommendationRequestRepository, never()).updateRowById(anyLong(), anyLong(), any());
+                assertEquals("{\"affected\":2}", response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void an_empty_list_of_ids_runs_no_statement() throws Exception {
+                // act
+                MvcResult deleted = mockMvc.perform(
+                                delete("/api/recommendationrequest?ids=")
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+                MvcResult marked = mockMvc.perform(
+                                put("/api/recommendationrequest/done?ids=")
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(recommendationRequestRepository, never()).deleteRowsByIdIn(any());
+                verify(recommendationRequestRepository, never()).updateToDoneByIdIn(any());
+                assertEquals("{\"affected\":0}", deleted.getResponse().getContentAsString());
+                assertEquals("{\"affected\":0}", marked.getResponse().getContentAsString());
+        }
 }
@@ -1,18 +1,25 @@
 package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.FieldSelectionService;
+import edu.ucsb.cs156.example.services.BatchGetService;
+import edu.ucsb.cs156.example.models.BatchGetResult;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 import edu.ucsb.cs156.example.ControllerTestCase;
+import edu.ucsb.cs156.example.models.CursorPage;
 import edu.ucsb.cs156.example.entities.UCSBDate;
 import edu.ucsb.cs156.example.repositories.UCSBDateRepository;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MvcResult;
@@ -27,7 +34,9 @@ import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -39,6 +48,12 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
         @MockBean
         UCSBDateRepository ucsbDateRepository;
 
+        @MockBean
+        FieldSelectionService fieldSelectionService;
+
+        @MockBean
+        BatchGetService batchGetService;
+
         @MockBean
         UserRepository userRepository;
 
@@ -95,6 +110,122 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
                 assertEquals(expectedJson, responseString);
         }
 
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void get_all_is_not_modified_when_if_none_match_has_the_current_etag() throws Exception {
+
+                // arrange
+                MvcResult first = mockMvc.perform(get("/api/ucsbdates/all"))
+                                .andExpect(status().isOk())
+                                .andExpect(header().string("Cache-Control", "no-cache, private"))
+                                .andReturn();
+                String etag = first.getResponse().getHeader("ETag");
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdates/all").header("If-None-Match", etag))
+                                .andExpect(status().isNotModified())
+                                .andExpect(header().string("ETag", etag))
+                                .andReturn();
+
+                // assert
+                verify(ucsbDateRepository, times(1)).findAll();
+                assertEquals("", response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_only_some_fields_of_all() throws Exception {
+
+                // arrange
+                List<Map<String, Object>> rows = List.of(Map.of("id", 1), Map.of("id", 2));
+                when(fieldSelectionService.findAll(UCSBDate.class, "id")).thenReturn(rows);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdates/all?fields=id"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(fieldSelectionService, times(1)).findAll(UCSBDate.class, "id");
+                verify(ucsbDateRepository, never()).findAll();
+                assertEquals(mapper.writeValueAsString(rows), response.getResponse().getContentAsString());
+        }
+
+        // Tests for GET /api/ucsbdates/page
+
+        @Test
+        public void logged_out_users_cannot_get_page() throws Exception {
+                mockMvc.perform(get("/api/ucsbdates/page"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_a_full_page_with_a_next_cursor() throws Exception {
+
+                // arrange
+                UCSBDate first = UCSBDate.builder()
+                                .id(3L)
+                                .name("firstDayOfClasses")
+                                .quarterYYYYQ("20222")
+                                .localDateTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+                                .build();
+
+                UCSBDate second = UCSBDate.builder()
+                                .id(5L)
+                                .name("lastDayOfClasses")
+                                .quarterYYYYQ("20222")
+                                .localDateTime(LocalDateTime.parse("2022-03-11T00:00:00"))
+                                .build();
+
+                ArrayList<UCSBDate> expectedRows = new ArrayList<>();
+                expectedRows.addAll(Arrays.asList(first, second));
+
+                when(ucsbDateRepository.findAllByIdGreaterThanOrderByIdAsc(eq(0L), eq(PageRequest.of(0, 2)))).thenReturn(expectedRows);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdates/page?limit=2"))
+                                .andExpect(status().isOk())
+                                .andExpect(header().string("Link", "<http://localhost/api/ucsbdates/page?limit=2&after=5>; rel=\"next\""))
+                                .andReturn();
+
+                // assert
+                verify(ucsbDateRepository, times(1)).findAllByIdGreaterThanOrderByIdAsc(eq(0L), eq(PageRequest.of(0, 2)));
+                String expectedJson = mapper.writeValueAsString(CursorPage.<UCSBDate>builder().content(expectedRows).nextCursor(5L).build());
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_a_short_last_page_without_a_next_cursor() throws Exception {
+
+                // arrange
+                UCSBDate second = UCSBDate.builder()
+                                .id(5L)
+                                .name("lastDayOfClasses")
+                                .quarterYYYYQ("20222")
+                                .localDateTime(LocalDateTime.parse("2022-03-11T00:00:00"))
+                                .build();
+
+                ArrayList<UCSBDate> expectedRows = new ArrayList<>();
+                expectedRows.add(second);
+
+                when(ucsbDateRepository.findAllByIdGreaterThanOrderByIdAsc(eq(3L), eq(PageRequest.of(0, 2)))).thenReturn(expectedRows);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdates/page?limit=2&after=3"))
+                                .andExpect(status().isOk())
+                                .andExpect(header().doesNotExist("Link"))
+                                .andReturn();
+
+                // assert
+                verify(ucsbDateRepository, times(1)).findAllByIdGreaterThanOrderByIdAsc(eq(3L), eq(PageRequest.of(0, 2)));
+                String expectedJson = mapper.writeValueAsString(CursorPage.<UCSBDate>builder().content(expectedRows).build());
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
         // Tests for POST /api/ucsbdates/post...
 
         @Test
@@ -163,7 +294,8 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
 
                 // act
                 MvcResult response = mockMvc.perform(get("/api/ucsbdates?id=7"))
-                                .andExpect(status().isOk()).andReturn();
+                                .andExpect(status().isOk())
+                                .andExpect(header().string("ETag", "\"0\"")).andReturn();
 
                 // assert
 
@@ -194,22 +326,65 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
         }
 
 
-        // Tests for DELETE /api/ucsbdates?id=... 
+        // Tests for GET /api/ucsbdates?ids=... and POST /api/ucsbdates/batch
 
-        @WithMockUser(roles = { "ADMIN", "USER" })
         @Test
-        public void admin_can_delete_a_date() throws Exception {
+        public void logged_out_users_cannot_get_by_ids() throws Exception {
+                mockMvc.perform(get("/api/ucsbdates?ids=1,2"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_several_by_ids_and_learn_which_are_missing() throws Exception {
+
                 // arrange
+                BatchGetResult<UCSBDate> result = BatchGetResult.<UCSBDate>builder()
+                                .found(List.of(UCSBDate.builder().id(1L).name("firstDayOfClasses").build()))
+                                .missing(List.of(new BatchGetResult.Missing(2L, "UCSBDate with id 2 not found")))
+                                .build();
+                when(batchGetService.findAllById(ucsbDateRepository, UCSBDate.class, List.of(1L, 2L))).thenReturn(result);
 
-                LocalDateTime ldt1 = LocalDateTime.parse("2022-01-03T00:00:00");
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdates?ids=1,2"))
+                                .andExpect(status().isOk()).andReturn();
 
-                UCSBDate ucsbDate1 = UCSBDate.builder()
-                                .name("firstDayOfClasses")
-                                .quarterYYYYQ("20222")
-                                .localDateTime(ldt1)
+                // assert
+                verify(batchGetService, times(1)).findAllById(ucsbDateRepository, UCSBDate.class, List.of(1L, 2L));
+                assertEquals(mapper.writeValueAsString(result), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_post_a_long_list_of_ids() throws Exception {
+
+                // arrange
+                BatchGetResult<UCSBDate> result = BatchGetResult.<UCSBDate>builder()
+                                .found(List.of(UCSBDate.builder().id(1L).name("firstDayOfClasses").build()))
+                                .missing(List.of())
                                 .build();
+                when(batchGetService.findAllById(ucsbDateRepository, UCSBDate.class, List.of(1L, 2L))).thenReturn(result);
+
+                // act
+                MvcResult response = mockMvc.perform(post("/api/ucsbdates/batch")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("[1,2]")
+                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
 
-                when(ucsbDateRepository.findById(eq(15L))).thenReturn(Optional.of(ucsbDate1));
+                // assert
+                verify(batchGetService, times(1)).findAllById(ucsbDateRepository, UCSBDate.class, List.of(1L, 2L));
+                assertEquals(mapper.writeValueAsString(result), response.getResponse().getContentAsString());
+        }
+
+        // Tests for DELETE /api/ucsbdates?id=... 
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_delete_a_date() throws Exception {
+                // arrange
+
+                when(ucsbDateRepository.deleteRowById(15L)).thenReturn(1);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -218,8 +393,7 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
                                 .andExpect(status().isOk()).andReturn();
 
                 // assert
-                verify(ucsbDateRepository, times(1)).findById(15L);
-                verify(ucsbDateRepository, times(1)).delete(any());
+                verify(ucsbDateRepository, times(1)).deleteRowById(15L);
 
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("UCSBDate with id 15 deleted", json.get("message"));
@@ -231,7 +405,7 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
                         throws Exception {
                 // arrange
 
-                when(ucsbDateRepository.findById(eq(15L))).thenReturn(Optional.empty());
+                when(ucsbDateRepository.deleteRowById(15L)).thenReturn(0);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -240,7 +414,7 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
                                 .andExpect(status().isNotFound()).andReturn();
 
                 // assert
-                verify(ucsbDateRepository, times(1)).findById(15L);
+                verify(ucsbDateRepository, times(1)).deleteRowById(15L);
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("UCSBDate with id 15 not found", json.get("message"));
         }
@@ -252,15 +426,8 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
         public void admin_can_edit_an_existing_ucsbdate() throws Exception {
                 // arrange
 
-                LocalDateTime ldt1 = LocalDateTime.parse("2022-01-03T00:00:00");
                 LocalDateTime ldt2 = LocalDateTime.parse("2023-01-03T00:00:00");
 
-                UCSBDate ucsbDateOrig = UCSBDate.builder()
-                                .name("firstDayOfClasses")
-                                .quarterYYYYQ("20222")
-                                .localDateTime(ldt1)
-                                .build();
-
                 UCSBDate ucsbDateEdited = UCSBDate.builder()
                                 .name("firstDayOfFestivus")
                                 .quarterYYYYQ("20232")
@@ -269,11 +436,12 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
 
                 String requestBody = mapper.writeValueAsString(ucsbDateEdited);
 
-                when(ucsbDateRepository.findById(eq(67L))).thenReturn(Optional.of(ucsbDateOrig));
+                when(ucsbDateRepository.updateRowById(eq(67L), eq(3L), any())).thenReturn(1);
 
                 // act
                 MvcResult response = mockMvc.perform(
                                 put("/api/ucsbdates?id=67")
+                                                .header("If-Match", "\"3\"")
                                                 .contentType(MediaType.APPLICATION_JSON)
                                                 .characterEncoding("utf-8")
                                                 .content(requestBody)
@@ -281,10 +449,17 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
                                 .andExpect(status().isOk()).andReturn();
 
                 // assert
-                verify(ucsbDateRepository, times(1)).findById(67L);
-                verify(ucsbDateRepository, times(1)).save(ucsbDateEdited); // should be saved with correct user
+                ucsbDateEdited.setId(67L);
+                ucsbDateEdited.setVersion(4L);
+                // what the update was given, not the entity the controller goes on to change
+                ArgumentCaptor<UCSBDate> sent = ArgumentCaptor.forClass(UCSBDate.class);
+                verify(ucsbDateRepository, times(1)).updateRowById(eq(67L), eq(3L), sent.capture());
+                assertEquals("20232", sent.getValue().getQuarterYYYYQ());
+                assertEquals("firstDayOfFestivus", sent.getValue().getName());
+                assertEquals(ldt2, sent.getValue().getLocalDateTime());
+                verify(ucsbDateRepository, never()).findById(any());
                 String responseString = response.getResponse().getContentAsString();
-                assertEquals(requestBody, responseString);
+                assertEquals(mapper.writeValueAsString(ucsbDateEdited), responseString);
         }
 
         
@@ -303,11 +478,12 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
 
                 String requestBody = mapper.writeValueAsString(ucsbEditedDate);
 
-                when(ucsbDateRepository.findById(eq(67L))).thenReturn(Optional.empty());
+                when(ucsbDateRepository.updateRowById(eq(67L), eq(3L), any())).thenReturn(0);
 
                 // act
                 MvcResult response = mockMvc.perform(
                                 put("/api/ucsbdates?id=67")
+                                                .header("If-Match", "\"3\"")
                                                 .contentType(MediaType.APPLICATION_JSON)
                                                 .characterEncoding("utf-8")
                                                 .content(requestBody)
@@ -315,9 +491,130 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
                                 .andExpect(status().isNotFound()).andReturn();
 
                 // assert
-                verify(ucsbDateRepository, times(1)).findById(67L);
+                verify(ucsbDateRepository, times(1)).updateRowById(eq(67L), eq(3L), any());
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("UCSBDate with id 67 not found", json.get("message"));
 
         }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_cannot_edit_ucsbdate_that_was_changed_since_it_was_read() throws Exception {
+                // arrange
+
+                LocalDateTime ldt1 = LocalDateTime.parse("2022-01-03T00:00:00");
+
+                UCSBDate ucsbEditedDate = UCSBDate.builder()
+                                .name("firstDayOfClasses")
+                                .quarterYYYYQ("20222")
+                                .localDateTime(ldt1)
+                                .build();
+
+                String requestBody = mapper.writeValueAsString(ucsbEditedDate);
+
+                when(ucsbDateRepository.updateRowById(eq(67L), eq(3L), any())).thenReturn(0);
+                when(ucsbDateRepository.existsById(67L)).thenReturn(true);
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                put("/api/ucsbdates?id=67")
+                                                .header("If-Match", "\"3\"")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content(requestBody)
+                                                .with(csrf()))
+                                .andExpect(status().isPreconditionFailed()).andReturn();
+
+                // assert
+                verify(ucsbDateRepository, times(1)).updateRowById(eq(67L), eq(3L), any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("UCSBDate with id 67 is not at version \"3\"; get it again and reapply the change", json.get("message"));
+
+        }
+
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_cannot_edit_ucsbdate_without_if_match() throws Exception {
+                // arrange
+                UCSBDate ucsbEditedDate = UCSBDate.builder()
+                                .name("firstDayOfClasses")
+                                .quarterYYYYQ("20222")
+                                .localDateTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+                                .build();
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                put("/api/ucsbdates?id=67")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content(mapper.writeValueAsString(ucsbEditedDate))
+                                                .with(csrf()))
+                                .andExpect(status().isPreconditionRequired()).andReturn();
+
+                // assert
+                verify(ucsbDateRepository, never()).updateRowById(anyLong(), anyLong(), any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("Updating a UCSBDate needs an If-Match header with the version it was based on, e.g. If-Match: \"3\"",
+                                json.get("message"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_cannot_edit_ucsbdate_with_an_if_match_that_is_not_a_version() throws Exception {
+                // arrange
+                UCSBDate ucsbEditedDate = UCSBDate.builder()
+                                .name("firstDayOfClasses")
+                                .quarterYYYYQ("20222")
+                                .localDateTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+                                .build();
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                put("/api/ucsbdates?id=67")
+                                                .header("If-Match", "W/\"ucsbdates-12\"")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content(mapper.writeValueAsString(ucsbEditedDate))
+                                                .with(csrf()))
+                                .andExpect(status().isPreconditionFailed()).andReturn();
+
+                // assert
+                verify(ucsbDateRepository, never()).updateRowById(anyLong(), anyLong(), any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("UCSBDate with id 67 is not at version W/\"ucsbdates-12\"; get it again and reapply the change",
+                                json.get("message"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void the_etag_of_a_get_by_id_is_accepted_as_if_match_by_put() throws Exception {
+                // arrange
+
+                UCSBDate ucsbDate = UCSBDate.builder()
+                                .name("firstDayOfClasses")
+                                .quarterYYYYQ("20222")
+                                .localDateTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+                                .build();
+                ucsbDate.setVersion(3L);
+                when(ucsbDateRepository.findById(eq(67L))).thenReturn(Optional.of(ucsbDate));
+                when(ucsbDateRepository.updateRowById(eq(67L), eq(3L), any())).thenReturn(1);
+                String etag = mockMvc.perform(get("/api/ucsbdates?id=67"))
+                                .andExpect(status().isOk())
+                                .andReturn().getResponse().getHeader("ETag");
+
+                // act
+                mockMvc.perform(
+                                put("/api/ucsbdates?id=67")
+                                                .header("If-Match", etag)
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content(mapper.writeValueAsString(ucsbDate))
+                                                .with(csrf()))
+                                .andExpect(status().isOk());
+
+                // assert
+                assertEquals("\"3\"", etag);
+                verify(ucsbDateRepository, times(1)).updateRowById(eq(67L), eq(3L), any());
+        }
 }
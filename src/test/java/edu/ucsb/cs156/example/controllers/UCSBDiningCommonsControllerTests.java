@@ -1,19 +1,30 @@
 package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.errors.InvalidLocationException;
+import edu.ucsb.cs156.example.services.DiningCommonsLocationService;
+import edu.ucsb.cs156.example.services.FieldSelectionService;
+import edu.ucsb.cs156.example.services.BatchGetService;
+import edu.ucsb.cs156.example.models.BatchGetResult;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 import edu.ucsb.cs156.example.ControllerTestCase;
+import edu.ucsb.cs156.example.models.CursorPage;
+import edu.ucsb.cs156.example.models.NearbyDiningCommons;
 import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
 import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsRepository;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.MediaType;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MvcResult;
 
@@ -21,11 +32,14 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
 
+import java.time.LocalDateTime;
+
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -37,6 +51,15 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
         @MockBean
         UCSBDiningCommonsRepository ucsbDiningCommonsRepository;
 
+        @MockBean
+        FieldSelectionService fieldSelectionService;
+
+        @MockBean
+        BatchGetService batchGetService;
+
+        @MockBean
+        DiningCommonsLocationService diningCommonsLocationService;
+
         @MockBean
         UserRepository userRepository;
 
@@ -118,6 +141,199 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
                 assertEquals(expectedJson, responseString);
         }
 
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void get_all_is_not_modified_when_if_none_match_has_the_current_etag() throws Exception {
+
+                // arrange
+                MvcResult first = mockMvc.perform(get("/api/ucsbdiningcommons/all"))
+                                .andExpect(status().isOk())
+                                .andExpect(header().string("Cache-Control", "no-cache, private"))
+                                .andReturn();
+                String etag = first.getResponse().getHeader("ETag");
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommons/all").header("If-None-Match", etag))
+                                .andExpect(status().isNotModified())
+                                .andExpect(header().string("ETag", etag))
+                                .andReturn();
+
+                // assert
+                verify(ucsbDiningCommonsRepository, times(1)).findAll();
+                assertEquals("", response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_only_some_fields_of_all() throws Exception {
+
+                // arrange
+                List<Map<String, Object>> rows = List.of(Map.of("id", 1), Map.of("id", 2));
+                when(fieldSelectionService.findAll(UCSBDiningCommons.class, "id")).thenReturn(rows);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommons/all?fields=id"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(fieldSelectionService, times(1)).findAll(UCSBDiningCommons.class, "id");
+                verify(ucsbDiningCommonsRepository, never()).findAll();
+                assertEquals(mapper.writeValueAsString(rows), response.getResponse().getContentAsString());
+        }
+
+        // Tests for GET /api/ucsbdiningcommons/page
+
+        @Test
+        public void logged_out_users_cannot_get_page() throws Exception {
+                mockMvc.perform(get("/api/ucsbdiningcommons/page"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_a_full_page_with_a_next_cursor() throws Exception {
+
+                // arrange
+                UCSBDiningCommons first = UCSBDiningCommons.builder()
+                                .name("Carrillo")
+                                .code("carrillo")
+                                .hasSackMeal(false)
+                                .hasTakeOutMeal(false)
+                                .hasDiningCam(true)
+                                .latitude(34.409953)
+                                .longitude(-119.85277)
+                                .build();
+
+                UCSBDiningCommons second = UCSBDiningCommons.builder()
+                                .name("De La Guerra")
+                                .code("de-la-guerra")
+                                .hasSackMeal(false)
+                                .hasTakeOutMeal(false)
+                                .hasDiningCam(true)
+                                .latitude(34.409811)
+                                .longitude(-119.845026)
+                                .build();
+
+                ArrayList<UCSBDiningCommons> expectedRows = new ArrayList<>();
+                expectedRows.addAll(Arrays.asList(first, second));
+
+                when(ucsbDiningCommonsRepository.findAllByCodeGreaterThanOrderByCodeAsc(eq(""), eq(PageRequest.of(0, 2)))).thenReturn(expectedRows);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommons/page?limit=2"))
+                                .andExpect(status().isOk())
+                                .andExpect(header().string("Link", "<http://localhost/api/ucsbdiningcommons/page?limit=2&after=de-la-guerra>; rel=\"next\""))
+                                .andReturn();
+
+                // assert
+                verify(ucsbDiningCommonsRepository, times(1)).findAllByCodeGreaterThanOrderByCodeAsc(eq(""), eq(PageRequest.of(0, 2)));
+                String expectedJson = mapper.writeValueAsString(CursorPage.<UCSBDiningCommons>builder().content(expectedRows).nextCursor("de-la-guerra").build());
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_a_short_last_page_without_a_next_cursor() throws Exception {
+
+                // arrange
+                UCSBDiningCommons second = UCSBDiningCommons.builder()
+                                .name("De La Guerra")
+                                .code("de-la-guerra")
+                                .hasSackMeal(false)
+                                .hasTakeOutMeal(false)
+                                .hasDiningCam(true)
+                                .latitude(34.409811)
+                                .longitude(-119.845026)
+                                .build();
+
+                ArrayList<UCSBDiningCommons> expectedRows = new ArrayList<>();
+                expectedRows.add(second);
+
+                when(ucsbDiningCommonsRepository.findAllByCodeGreaterThanOrderByCodeAsc(eq("carrillo"), eq(PageRequest.of(0, 2)))).thenReturn(expectedRows);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommons/page?limit=2&after=carrillo"))
+                                .andExpect(status().isOk())
+                                .andExpect(header().doesNotExist("Link"))
+                                .andReturn();
+
+                // assert
+                verify(ucsbDiningCommonsRepository, times(1)).findAllByCodeGreaterThanOrderByCodeAsc(eq("carrillo"), eq(PageRequest.of(0, 2)));
+                String expectedJson = mapper.writeValueAsString(CursorPage.<UCSBDiningCommons>builder().content(expectedRows).build());
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        // Tests for GET /api/ucsbdiningcommons/nearest
+
+        @Test
+        public void logged_out_users_cannot_get_nearest() throws Exception {
+                mockMvc.perform(get("/api/ucsbdiningcommons/nearest?lat=34.4125&lon=-119.8487"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_the_nearest_commons() throws Exception {
+
+                // arrange
+                UCSBDiningCommons ortega = UCSBDiningCommons.builder()
+                                .name("Ortega")
+                                .code("ortega")
+                                .hasSackMeal(true)
+                                .hasTakeOutMeal(true)
+                                .hasDiningCam(true)
+                                .latitude(34.410987)
+                                .longitude(-119.84709)
+                                .build();
+                List<NearbyDiningCommons> nearest = List.of(new NearbyDiningCommons(ortega, 223.87));
+                when(diningCommonsLocationService.nearest(34.4125, -119.8487, 2)).thenReturn(nearest);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommons/nearest?lat=34.4125&lon=-119.8487&k=2"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(diningCommonsLocationService, times(1)).nearest(34.4125, -119.8487, 2);
+                verify(ucsbDiningCommonsRepository, never()).findAll();
+                assertEquals(mapper.writeValueAsString(nearest), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void nearest_defaults_to_one_and_is_capped_at_the_page_limit() throws Exception {
+
+                // act
+                mockMvc.perform(get("/api/ucsbdiningcommons/nearest?lat=34.4125&lon=-119.8487"))
+                                .andExpect(status().isOk());
+                mockMvc.perform(get("/api/ucsbdiningcommons/nearest?lat=34.4125&lon=-119.8487&k=5000"))
+                                .andExpect(status().isOk());
+
+                // assert
+                verify(diningCommonsLocationService, times(1)).nearest(34.4125, -119.8487, 1);
+                verify(diningCommonsLocationService, times(1)).nearest(34.4125, -119.8487, ApiController.MAX_PAGE_LIMIT);
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void nearest_to_an_invalid_location_is_a_bad_request() throws Exception {
+
+                // arrange
+                when(diningCommonsLocationService.nearest(95, 0, 1)).thenThrow(new InvalidLocationException(95, 0));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommons/nearest?lat=95&lon=0"))
+                                .andExpect(status().isBadRequest()).andReturn();
+
+                // assert
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("InvalidLocationException", json.get("type"));
+                assertEquals("(95.0, 0.0) is not a location; latitude must be from -90 to 90 and longitude from -180 to 180",
+                                json.get("message"));
+        }
+
         // Tests for POST /api/ucsbdiningcommons...
 
         @Test
@@ -158,11 +374,31 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
 
                 // assert
                 verify(ucsbDiningCommonsRepository, times(1)).save(ortega);
+                verify(diningCommonsLocationService, times(1)).saved(ortega);
                 String expectedJson = mapper.writeValueAsString(ortega);
                 String responseString = response.getResponse().getContentAsString();
                 assertEquals(expectedJson, responseString);
         }
 
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void posting_a_commons_that_was_changed_since_it_was_read_is_a_conflict() throws Exception {
+                // arrange
+                when(ucsbDiningCommonsRepository.save(any()))
+                                .thenThrow(new ObjectOptimisticLockingFailureException(UCSBDiningCommons.class, "ortega"));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                post("/api/ucsbdiningcommons/post?name=Ortega&code=ortega&hasSackMeal=true&hasTakeOutMeal=true&hasDiningCam=true&latitude=34.410987&longitude=-119.84709")
+                                                .with(csrf()))
+                                .andExpect(status().isConflict()).andReturn();
+
+                // assert
+                verify(diningCommonsLocationService, never()).saved(any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("ObjectOptimisticLockingFailureException", json.get("type"));
+        }
+
 
         // Tests for GET /api/ucsbdiningcommons?...
 
@@ -192,7 +428,8 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
 
                 // act
                 MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommons?code=carrillo"))
-                                .andExpect(status().isOk()).andReturn();
+                                .andExpect(status().isOk())
+                                .andExpect(header().string("ETag", "\"0\"")).andReturn();
 
                 // assert
 
@@ -202,6 +439,57 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
                 assertEquals(expectedJson, responseString);
         }
 
+        // Tests for GET /api/ucsbdiningcommons?codes=... and POST /api/ucsbdiningcommons/batch
+
+        @Test
+        public void logged_out_users_cannot_get_by_ids() throws Exception {
+                mockMvc.perform(get("/api/ucsbdiningcommons?codes=ortega,portola"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_several_by_ids_and_learn_which_are_missing() throws Exception {
+
+                // arrange
+                BatchGetResult<UCSBDiningCommons> result = BatchGetResult.<UCSBDiningCommons>builder()
+                                .found(List.of(UCSBDiningCommons.builder().code("ortega").name("Ortega").build()))
+                                .missing(List.of(new BatchGetResult.Missing("portola", "UCSBDiningCommons with id portola not found")))
+                                .build();
+                when(batchGetService.findAllById(ucsbDiningCommonsRepository, UCSBDiningCommons.class, List.of("ortega", "portola"))).thenReturn(result);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommons?codes=ortega,portola"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(batchGetService, times(1)).findAllById(ucsbDiningCommonsRepository, UCSBDiningCommons.class, List.of("ortega", "portola"));
+                assertEquals(mapper.writeValueAsString(result), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_post_a_long_list_of_ids() throws Exception {
+
+                // arrange
+                BatchGetResult<UCSBDiningCommons> result = BatchGetResult.<UCSBDiningCommons>builder()
+                                .found(List.of(UCSBDiningCommons.builder().code("ortega").name("Ortega").build()))
+                                .missing(List.of())
+                                .build();
+                when(batchGetService.findAllById(ucsbDiningCommonsRepository, UCSBDiningCommons.class, List.of("ortega", "portola"))).thenReturn(result);
+
+                // act
+                MvcResult response = mockMvc.perform(post("/api/ucsbdiningcommons/batch")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("[\"ortega\",\"portola\"]")
+                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(batchGetService, times(1)).findAllById(ucsbDiningCommonsRepository, UCSBDiningCommons.class, List.of("ortega", "portola"));
+                assertEquals(mapper.writeValueAsString(result), response.getResponse().getContentAsString());
+        }
+
         // Tests for DELETE /api/ucsbdiningcommons?...
 
         @WithMockUser(roles = { "ADMIN", "USER" })
@@ -209,17 +497,7 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
         public void admin_can_delete_a_date() throws Exception {
                 // arrange
 
-                UCSBDiningCommons portola = UCSBDiningCommons.builder()
-                                .name("Portola")
-                                .code("portola")
-                                .hasSackMeal(true)
-                                .hasTakeOutMeal(true)
-                                .hasDiningCam(true)
-                                .latitude(34.417723)
-                                .longitude(-119.867427)
-                                .build();
-
-                when(ucsbDiningCommonsRepository.findById(eq("portola"))).thenReturn(Optional.of(portola));
+                when(ucsbDiningCommonsRepository.deleteRowByCode("portola")).thenReturn(1);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -228,8 +506,8 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
                                 .andExpect(status().isOk()).andReturn();
 
                 // assert
-                verify(ucsbDiningCommonsRepository, times(1)).findById("portola");
-                verify(ucsbDiningCommonsRepository, times(1)).delete(any());
+                verify(ucsbDiningCommonsRepository, times(1)).deleteRowByCode("portola");
+                verify(diningCommonsLocationService, times(1)).removed("portola");
 
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("UCSBDiningCommons with id portola deleted", json.get("message"));
@@ -241,7 +519,7 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
                         throws Exception {
                 // arrange
 
-                when(ucsbDiningCommonsRepository.findById(eq("munger-hall"))).thenReturn(Optional.empty());
+                when(ucsbDiningCommonsRepository.deleteRowByCode("munger-hall")).thenReturn(0);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -250,7 +528,7 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
                                 .andExpect(status().isNotFound()).andReturn();
 
                 // assert
-                verify(ucsbDiningCommonsRepository, times(1)).findById("munger-hall");
+                verify(ucsbDiningCommonsRepository, times(1)).deleteRowByCode("munger-hall");
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("UCSBDiningCommons with id munger-hall not found", json.get("message"));
         }
@@ -262,16 +540,6 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
         public void admin_can_edit_an_existing_commons() throws Exception {
                 // arrange
 
-                UCSBDiningCommons carrilloOrig = UCSBDiningCommons.builder()
-                                .name("Carrillo")
-                                .code("carrillo")
-                                .hasSackMeal(false)
-                                .hasTakeOutMeal(false)
-                                .hasDiningCam(true)
-                                .latitude(34.409953)
-                                .longitude(-119.85277)
-                                .build();
-
                 UCSBDiningCommons carrilloEdited = UCSBDiningCommons.builder()
                                 .name("Carrillo Dining Hall")
                                 .code("carrillo")
@@ -284,11 +552,12 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
 
                 String requestBody = mapper.writeValueAsString(carrilloEdited);
 
-                when(ucsbDiningCommonsRepository.findById(eq("carrillo"))).thenReturn(Optional.of(carrilloOrig));
+                when(ucsbDiningCommonsRepository.updateRowByCode(eq("carrillo"), eq(3L), any())).thenReturn(1);
 
                 // act
                 MvcResult response = mockMvc.perform(
                                 put("/api/ucsbdiningcommons?code=carrillo")
+                                                .header("If-Match", "\"3\"")
                                                 .contentType(MediaType.APPLICATION_JSON)
                                                 .characterEncoding("utf-8")
                                                 .content(requestBody)
@@ -296,10 +565,20 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
                                 .andExpect(status().isOk()).andReturn();
 
                 // assert
-                verify(ucsbDiningCommonsRepository, times(1)).findById("carrillo");
-                verify(ucsbDiningCommonsRepository, times(1)).save(carrilloEdited); // should be saved with updated info
+                carrilloEdited.setVersion(4L);
+                // what the update was given, not the entity the controller goes on to change
+                ArgumentCaptor<UCSBDiningCommons> sent = ArgumentCaptor.forClass(UCSBDiningCommons.class);
+                verify(ucsbDiningCommonsRepository, times(1)).updateRowByCode(eq("carrillo"), eq(3L), sent.capture());
+                assertEquals("Carrillo Dining Hall", sent.getValue().getName());
+                assertEquals(true, sent.getValue().getHasSackMeal());
+                assertEquals(true, sent.getValue().getHasTakeOutMeal());
+                assertEquals(false, sent.getValue().getHasDiningCam());
+                assertEquals(34.409954, sent.getValue().getLatitude());
+                assertEquals(-119.85278, sent.getValue().getLongitude());
+                verify(ucsbDiningCommonsRepository, never()).findById(any());
+                verify(diningCommonsLocationService, times(1)).saved(carrilloEdited);
                 String responseString = response.getResponse().getContentAsString();
-                assertEquals(requestBody, responseString);
+                assertEquals(mapper.writeValueAsString(carrilloEdited), responseString);
         }
 
 
@@ -320,11 +599,12 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
 
                 String requestBody = mapper.writeValueAsString(editedCommons);
 
-                when(ucsbDiningCommonsRepository.findById(eq("munger-hall"))).thenReturn(Optional.empty());
+                when(ucsbDiningCommonsRepository.updateRowByCode(eq("munger-hall"), eq(3L), any())).thenReturn(0);
 
                 // act
                 MvcResult response = mockMvc.perform(
                                 put("/api/ucsbdiningcommons?code=munger-hall")
+                                                .header("If-Match", "\"3\"")
                                                 .contentType(MediaType.APPLICATION_JSON)
                                                 .characterEncoding("utf-8")
                                                 .content(requestBody)
@@ -332,9 +612,46 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
                                 .andExpect(status().isNotFound()).andReturn();
 
                 // assert
-                verify(ucsbDiningCommonsRepository, times(1)).findById("munger-hall");
+                verify(ucsbDiningCommonsRepository, times(1)).updateRowByCode(eq("munger-hall"), eq(3L), any());
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("UCSBDiningCommons with id munger-hall not found", json.get("message"));
 
         }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_cannot_edit_commons_that_was_changed_since_it_was_read() throws Exception {
+                // arrange
+
+                UCSBDiningCommons editedCommons = UCSBDiningCommons.builder()
+                                .name("Munger Hall")
+                                .code("munger-hall")
+                                .hasSackMeal(false)
+                                .hasTakeOutMeal(false)
+                                .hasDiningCam(true)
+                                .latitude(34.420799)
+                                .longitude(-119.852617)
+                                .build();
+
+                String requestBody = mapper.writeValueAsString(editedCommons);
+
+                when(ucsbDiningCommonsRepository.updateRowByCode(eq("munger-hall"), eq(3L), any())).thenReturn(0);
+                when(ucsbDiningCommonsRepository.existsById("munger-hall")).thenReturn(true);
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                put("/api/ucsbdiningcommons?code=munger-hall")
+                                                .header("If-Match", "\"3\"")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content(requestBody)
+                                                .with(csrf()))
+                                .andExpect(status().isPreconditionFailed()).andReturn();
+
+                // assert
+                verify(ucsbDiningCommonsRepository, times(1)).updateRowByCode(eq("munger-hall"), eq(3L), any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("UCSBDiningCommons with id munger-hall is not at version \"3\"; get it again and reapply the change", json.get("message"));
+
+        }
 }
@@ -1,18 +1,25 @@
 package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.FieldSelectionService;
+import edu.ucsb.cs156.example.services.BatchGetService;
+import edu.ucsb.cs156.example.models.BatchGetResult;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 import edu.ucsb.cs156.example.ControllerTestCase;
+import edu.ucsb.cs156.example.models.CursorPage;
 import edu.ucsb.cs156.example.entities.UCSBDiningCommonsMenuItem;
 import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsMenuItemRepository;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MvcResult;
@@ -28,6 +35,7 @@ import java.util.Optional;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -39,6 +47,12 @@ public class UCSBDiningCommonsMenuItemControllerTests extends ControllerTestCase
         @MockBean
         UCSBDiningCommonsMenuItemRepository ucsbDiningCommonsMenuItemRepository;
 
+        @MockBean
+        FieldSelectionService fieldSelectionService;
+
+        @MockBean
+        BatchGetService batchGetService;
+
         @MockBean
         UserRepository userRepository;
 
@@ -95,6 +109,122 @@ public class UCSBDiningCommonsMenuItemControllerTests extends ControllerTestCase
                 assertEquals(expectedJson, responseString);
         }
 
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void get_all_is_not_modified_when_if_none_match_has_the_current_etag() throws Exception {
+
+                // arrange
+                MvcResult first = mockMvc.perform(get("/api/ucsbdiningcommonsmenuitem/all"))
+                                .andExpect(status().isOk())
+                                .andExpect(header().string("Cache-Control", "no-cache, private"))
+                                .andReturn();
+                String etag = first.getResponse().getHeader("ETag");
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommonsmenuitem/all").header("If-None-Match", etag))
+                                .andExpect(status().isNotModified())
+                                .andExpect(header().string("ETag", etag))
+                                .andReturn();
+
+                // assert
+                verify(ucsbDiningCommonsMenuItemRepository, times(1)).findAll();
+                assertEquals("", response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_only_some_fields_of_all() throws Exception {
+
+                // arrange
+                List<Map<String, Object>> rows = List.of(Map.of("id", 1), Map.of("id", 2));
+                when(fieldSelectionService.findAll(UCSBDiningCommonsMenuItem.class, "id")).thenReturn(rows);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommonsmenuitem/all?fields=id"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(fieldSelectionService, times(1)).findAll(UCSBDiningCommonsMenuItem.class, "id");
+                verify(ucsbDiningCommonsMenuItemRepository, never()).findAll();
+                assertEquals(mapper.writeValueAsString(rows), response.getResponse().getContentAsString());
+        }
+
+        // Tests for GET /api/ucsbdiningcommonsmenuitem/page
+
+        @Test
+        public void logged_out_users_cannot_get_page() throws Exception {
+                mockMvc.perform(get("/api/ucsbdiningcommonsmenuitem/page"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_a_full_page_with_a_next_cursor() throws Exception {
+
+                // arrange
+                UCSBDiningCommonsMenuItem first = UCSBDiningCommonsMenuItem.builder()
+                                .id(3L)
+                                .diningCommonsCode("ortega")
+                                .name("Baked Pesto Pasta with Chicken")
+                                .station("Entree Specials")
+                                .build();
+
+                UCSBDiningCommonsMenuItem second = UCSBDiningCommonsMenuItem.builder()
+                                .id(5L)
+                                .diningCommonsCode("portola")
+                                .name("Cream of Broccoli Soup (v)")
+                                .station("Greens & Grains")
+                                .build();
+
+                ArrayList<UCSBDiningCommonsMenuItem> expectedRows = new ArrayList<>();
+                expectedRows.addAll(Arrays.asList(first, second));
+
+                when(ucsbDiningCommonsMenuItemRepository.findAllByIdGreaterThanOrderByIdAsc(eq(0L), eq(PageRequest.of(0, 2)))).thenReturn(expectedRows);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommonsmenuitem/page?limit=2"))
+                                .andExpect(status().isOk())
+                                .andExpect(header().string("Link", "<http://localhost/api/ucsbdiningcommonsmenuitem/page?limit=2&after=5>; rel=\"next\""))
+                                .andReturn();
+
+                // assert
+                verify(ucsbDiningCommonsMenuItemRepository, times(1)).findAllByIdGreaterThanOrderByIdAsc(eq(0L), eq(PageRequest.of(0, 2)));
+                String expectedJson = mapper.writeValueAsString(CursorPage.<UCSBDiningCommonsMenuItem>builder().content(expectedRows).nextCursor(5L).build());
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_a_short_last_page_without_a_next_cursor() throws Exception {
+
+                // arrange
+                UCSBDiningCommonsMenuItem second = UCSBDiningCommonsMenuItem.builder()
+                                .id(5L)
+                                .diningCommonsCode("portola")
+                                .name("Cream of Broccoli Soup (v)")
+                                .station("Greens & Grains")
+                                .build();
+
+                ArrayList<UCSBDiningCommonsMenuItem> expectedRows = new ArrayList<>();
+                expectedRows.add(second);
+
+                when(ucsbDiningCommonsMenuItemRepository.findAllByIdGreaterThanOrderByIdAsc(eq(3L), eq(PageRequest.of(0, 2)))).thenReturn(expectedRows);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommonsmenuitem/page?limit=2&after=3"))
+                                .andExpect(status().isOk())
+                                .andExpect(header().doesNotExist("Link"))
+                                .andReturn();
+
+                // assert
+                verify(ucsbDiningCommonsMenuItemRepository, times(1)).findAllByIdGreaterThanOrderByIdAsc(eq(3L), eq(PageRequest.of(0, 2)));
+                String expectedJson = mapper.writeValueAsString(CursorPage.<UCSBDiningCommonsMenuItem>builder().content(expectedRows).build());
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
         // Tests for POST /api/ucsbdiningcommonsmenuitem/post...
 
         @Test
@@ -161,7 +291,8 @@ public class UCSBDiningCommonsMenuItemControllerTests extends ControllerTestCase
 
                 // act
                 MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommonsmenuitem?id=7"))
-                                .andExpect(status().isOk()).andReturn();
+                                .andExpect(status().isOk())
+                                .andExpect(header().string("ETag", "\"0\"")).andReturn();
 
                 // assert
 
@@ -191,22 +322,65 @@ public class UCSBDiningCommonsMenuItemControllerTests extends ControllerTestCase
                 assertEquals("UCSBDiningCommonsMenuItem with id 7 not found", json.get("message"));
         }
 
-        // Tests for DELETE /api/ucsbdates?id=... 
+        // Tests for GET /api/ucsbdiningcommonsmenuitem?ids=... and POST /api/ucsbdiningcommonsmenuitem/batch
 
-        @WithMockUser(roles = { "ADMIN", "USER" })
         @Test
-        public void admin_can_delete_a_date() throws Exception {
+        public void logged_out_users_cannot_get_by_ids() throws Exception {
+                mockMvc.perform(get("/api/ucsbdiningcommonsmenuitem?ids=1,2"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_several_by_ids_and_learn_which_are_missing() throws Exception {
+
                 // arrange
+                BatchGetResult<UCSBDiningCommonsMenuItem> result = BatchGetResult.<UCSBDiningCommonsMenuItem>builder()
+                                .found(List.of(UCSBDiningCommonsMenuItem.builder().id(1L).name("Pizza").build()))
+                                .missing(List.of(new BatchGetResult.Missing(2L, "UCSBDiningCommonsMenuItem with id 2 not found")))
+                                .build();
+                when(batchGetService.findAllById(ucsbDiningCommonsMenuItemRepository, UCSBDiningCommonsMenuItem.class, List.of(1L, 2L))).thenReturn(result);
 
-                //LocalDateTime ldt1 = LocalDateTime.parse("2022-01-03T00:00:00");
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommonsmenuitem?ids=1,2"))
+                                .andExpect(status().isOk()).andReturn();
 
-                UCSBDiningCommonsMenuItem menuitem1 = UCSBDiningCommonsMenuItem.builder()
-                                .diningCommonsCode("ortega")
-                                .name("beef")
-                                .station("rand")
+                // assert
+                verify(batchGetService, times(1)).findAllById(ucsbDiningCommonsMenuItemRepository, UCSBDiningCommonsMenuItem.class, List.of(1L, 2L));
+                assertEquals(mapper.writeValueAsString(result), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_post_a_long_list_of_ids() throws Exception {
+
+                // arrange
+                BatchGetResult<UCSBDiningCommonsMenuItem> result = BatchGetResult.<UCSBDiningCommonsMenuItem>builder()
+                                .found(List.of(UCSBDiningCommonsMenuItem.builder().id(1L).name("Pizza").build()))
+                                .missing(List.of())
                                 .build();
+                when(batchGetService.findAllById(ucsbDiningCommonsMenuItemRepository, UCSBDiningCommonsMenuItem.class, List.of(1L, 2L))).thenReturn(result);
+
+                // act
+                MvcResult response = mockMvc.perform(post("/api/ucsbdiningcommonsmenuitem/batch")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("[1,2]")
+                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(batchGetService, times(1)).findAllById(ucsbDiningCommonsMenuItemRepository, UCSBDiningCommonsMenuItem.class, List.of(1L, 2L));
+                assertEquals(mapper.writeValueAsString(result), response.getResponse().getContentAsString());
+        }
+
+        // Tests for DELETE /api/ucsbdates?id=... 
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_delete_a_date() throws Exception {
+                // arrange
 
-                when(ucsbDiningCommonsMenuItemRepository.findById(eq(15L))).thenReturn(Optional.of(menuitem1));
+                when(ucsbDiningCommonsMenuItemRepository.deleteRowById(15L)).thenReturn(1);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -215,8 +389,7 @@ public class UCSBDiningCommonsMenuItemControllerTests extends ControllerTestCase
                                 .andExpect(status().isOk()).andReturn();
 
                 // assert
-                verify(ucsbDiningCommonsMenuItemRepository, times(1)).findById(15L);
-                verify(ucsbDiningCommonsMenuItemRepository, times(1)).delete(any());
+                verify(ucsbDiningCommonsMenuItemRepository, times(1)).deleteRowById(15L);
 
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("UCSBDiningCommonsMenuItem with id 15 deleted", json.get("message"));
@@ -228,7 +401,7 @@ public class UCSBDiningCommonsMenuItemControllerTests extends ControllerTestCase
                         throws Exception {
                 // arrange
 
-                when(ucsbDiningCommonsMenuItemRepository.findById(eq(15L))).thenReturn(Optional.empty());
+                when(ucsbDiningCommonsMenuItemRepository.deleteRowById(15L)).thenReturn(0);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -237,7 +410,7 @@ public class UCSBDiningCommonsMenuItemControllerTests extends ControllerTestCase
                                 .andExpect(status().isNotFound()).andReturn();
 
                 // assert
-                verify(ucsbDiningCommonsMenuItemRepository, times(1)).findById(15L);
+                verify(ucsbDiningCommonsMenuItemRepository, times(1)).deleteRowById(15L);
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("UCSBDiningCommonsMenuItem with id 15 not found", json.get("message"));
         }
@@ -249,15 +422,6 @@ public class UCSBDiningCommonsMenuItemControllerTests extends ControllerTestCase
         public void admin_can_edit_an_existing_ucsbdate() throws Exception {
                 // arrange
 
-                //LocalDateTime ldt1 = LocalDateTime.parse("2022-01-03T00:00:00");
-                //LocalDateTime ldt2 = LocalDateTime.parse("2023-01-03T00:00:00");
-
-                UCSBDiningCommonsMenuItem menuitemOrig = UCSBDiningCommonsMenuItem.builder()
-                                .diningCommonsCode("DLG")
-                                .name("chicken")
-                                .station("main")
-                                .build();
-
                 UCSBDiningCommonsMenuItem menuitemEdited = UCSBDiningCommonsMenuItem.builder()
                                 .diningCommonsCode("Portola")
                                 .name("ice cream")
@@ -266,11 +430,12 @@ public class UCSBDiningCommonsMenuItemControllerTests extends ControllerTestCase
 
                 String requestBody = mapper.writeValueAsString(menuitemEdited);
 
-                when(ucsbDiningCommonsMenuItemRepository.findById(eq(67L))).thenReturn(Optional.of(menuitemOrig));
+                when(ucsbDiningCommonsMenuItemRepository.updateRowById(eq(67L), eq(3L), any())).thenReturn(1);
 
                 // act
                 MvcResult response = mockMvc.perform(
                                 put("/api/ucsbdiningcommonsmenuitem?id=67")
+                                                .header("If-Match", "\"3\"")
                                                 .contentType(MediaType.APPLICATION_JSON)
                                                 .characterEncoding("utf-8")
                                                 .content(requestBody)
@@ -278,10 +443,17 @@ public class UCSBDiningCommonsMenuItemControllerTests extends ControllerTestCase
                                 .andExpect(status().isOk()).andReturn();
 
                 // assert
-                verify(ucsbDiningCommonsMenuItemRepository, times(1)).findById(67L);
-                verify(ucsbDiningCommonsMenuItemRepository, times(1)).save(menuitemEdited); // should be saved with correct user
+                menuitemEdited.setId(67L);
+                menuitemEdited.setVersion(4L);
+                // what the update was given, not the entity the controller goes on to change
+                ArgumentCaptor<UCSBDiningCommonsMenuItem> sent = ArgumentCaptor.forClass(UCSBDiningCommonsMenuItem.class);
+                verify(ucsbDiningCommonsMenuItemRepository, times(1)).updateRowById(eq(67L), eq(3L), sent.capture());
+                assertEquals("Portola", sent.getValue().getDiningCommonsCode());
+                assertEquals("ice cream", sent.getValue().getName());
+                assertEquals("Dessert", sent.getValue().getStation());
+                verify(ucsbDiningCommonsMenuItemRepository, never()).findById(any());
                 String responseString = response.getResponse().getContentAsString();
-                assertEquals(requestBody, responseString);
+                assertEquals(mapper.writeValueAsString(menuitemEdited), responseString);
         }
 
         
@@ -290,8 +462,6 @@ public class UCSBDiningCommonsMenuItemControllerTests extends ControllerTestCase
         public void admin_cannot_edit_ucsbdate_that_does_not_exist() throws Exception {
                 // arrange
 
-                //LocalDateTime ldt1 = LocalDateTime.parse("2022-01-03T00:00:00");
-
                 UCSBDiningCommonsMenuItem menuitemEdited = UCSBDiningCommonsMenuItem.builder()
                                 .diningCommonsCode("DLG")
                                 .name("chicken")
@@ -300,11 +470,12 @@ public class UCSBDiningCommonsMenuItemControllerTests extends ControllerTestCase
 
                 String requestBody = mapper.writeValueAsString(menuitemEdited);
 
-                when(ucsbDiningCommonsMenuItemRepository.findById(eq(67L))).thenReturn(Optional.empty());
+                when(ucsbDiningCommonsMenuItemRepository.updateRowById(eq(67L), eq(3L), any())).thenReturn(0);
 
                 // act
                 MvcResult response = mockMvc.perform(
                                 put("/api/ucsbdiningcommonsmenuitem?id=67")
+                                                .header("If-Match", "\"3\"")
                                                 .contentType(MediaType.APPLICATION_JSON)
                                                 .characterEncoding("utf-8")
                                                 .content(requestBody)
@@ -312,10 +483,43 @@ public class UCSBDiningCommonsMenuItemControllerTests extends ControllerTestCase
                                 .andExpect(status().isNotFound()).andReturn();
 
                 // assert
-                verify(ucsbDiningCommonsMenuItemRepository, times(1)).findById(67L);
+                verify(ucsbDiningCommonsMenuItemRepository, times(1)).updateRowById(eq(67L), eq(3L), any());
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("UCSBDiningCommonsMenuItem with id 67 not found", json.get("message"));
 
         }
 
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_cannot_edit_menuitem_that_was_changed_since_it_was_read() throws Exception {
+                // arrange
+
+                UCSBDiningCommonsMenuItem menuitemEdited = UCSBDiningCommonsMenuItem.builder()
+                                .diningCommonsCode("DLG")
+                                .name("chicken")
+                                .station("main")
+                                .build();
+
+                String requestBody = mapper.writeValueAsString(menuitemEdited);
+
+                when(ucsbDiningCommonsMenuItemRepository.updateRowById(eq(67L), eq(3L), any())).thenReturn(0);
+                when(ucsbDiningCommonsMenuItemRepository.existsById(67L)).thenReturn(true);
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                put("/api/ucsbdiningcommonsmenuitem?id=67")
+                                                .header("If-Match", "\"3\"")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content(requestBody)
+                                                .with(csrf()))
+                                .andExpect(status().isPreconditionFailed()).andReturn();
+
+                // assert
+                verify(ucsbDiningCommonsMenuItemRepository, times(1)).updateRowById(eq(67L), eq(3L), any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("UCSBDiningCommonsMenuItem with id 67 is not at version \"3\"; get it again and reapply the change", json.get("message"));
+
+        }
+
 }
@@ -1,16 +1,23 @@
 package edu.ucsb.cs156.example.controllers;
 import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.FieldSelectionService;
+import edu.ucsb.cs156.example.services.BatchGetService;
+import edu.ucsb.cs156.example.models.BatchGetResult;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 import edu.ucsb.cs156.example.ControllerTestCase;
+import edu.ucsb.cs156.example.models.CursorPage;
 import edu.ucsb.cs156.example.entities.UCSBOrganizations;
 import edu.ucsb.cs156.example.repositories.UCSBOrganizationsRepository;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MvcResult;
@@ -19,11 +26,14 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
 
+import java.time.LocalDateTime;
+
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -35,6 +45,12 @@ public class UCSBOrganizationsControllerTests extends ControllerTestCase {
         @MockBean
         UCSBOrganizationsRepository ucsbOrganizationsRepository;
 
+        @MockBean
+        FieldSelectionService fieldSelectionService;
+
+        @MockBean
+        BatchGetService batchGetService;
+
         @MockBean
         UserRepository userRepository;
 
@@ -161,7 +177,8 @@ public class UCSBOrganizationsControllerTests extends ControllerTestCase {
                         when(ucsbOrganizationsRepository.findById(eq("LC"))).thenReturn(Optional.of(lacrosse));
 
                         MvcResult response = mockMvc.perform(get("/api/ucsborganizations?orgCode=LC"))
-                                        .andExpect(status().isOk()).andReturn();
+                                        .andExpect(status().isOk())
+                                        .andExpect(header().string("ETag", "\"0\"")).andReturn();
 
                         verify(ucsbOrganizationsRepository, times(1)).findById(eq("LC"));
                         String expectedJson = mapper.writeValueAsString(lacrosse);
@@ -173,22 +190,14 @@ public class UCSBOrganizationsControllerTests extends ControllerTestCase {
                 @Test
                 public void admin_can_delete_a_date() throws Exception {
 
-                        UCSBOrganizations volleyball = UCSBOrganizations.builder()
-                                .orgCode("VC")
-                                .orgTranslationShort("VOLLEYBALL")
-                                .orgTranslation("VOLLEYBALL CLUB AT UCSB")
-                                .inactive(true)
-                                .build();
-
-                        when(ucsbOrganizationsRepository.findById(eq("VC"))).thenReturn(Optional.of(volleyball));
+                        when(ucsbOrganizationsRepository.deleteRowByOrgCode("VC")).thenReturn(1);
 
                         MvcResult response = mockMvc.perform(
                                         delete("/api/ucsborganizations?orgCode=VC")
                                                         .with(csrf()))
                                         .andExpect(status().isOk()).andReturn();
 
-                        verify(ucsbOrganizationsRepository, times(1)).findById("VC");
-                        verify(ucsbOrganizationsRepository, times(1)).delete(any());
+                        verify(ucsbOrganizationsRepository, times(1)).deleteRowByOrgCode("VC");
 
                         Map<String, Object> json = responseToJson(response);
                         assertEquals("UCSBOrganizations with id VC deleted", json.get("message"));
@@ -199,14 +208,14 @@ public class UCSBOrganizationsControllerTests extends ControllerTestCase {
                 public void admin_tries_to_delete_non_existant_commons_and_gets_right_error_message()
                                 throws Exception {
 
-                        when(ucsbOrganizationsRepository.findById(eq("CSA"))).thenReturn(Optional.empty());
+                        when(ucsbOrganizationsRepository.deleteRowByOrgCode("CSA")).thenReturn(0);
 
                         MvcResult response = mockMvc.perform(
                                         delete("/api/ucsborganizations?orgCode=CSA")
                                                         .with(csrf()))
                                         .andExpect(status().isNotFound()).andReturn();
 
-                        verify(ucsbOrganizationsRepository, times(1)).findById("CSA");
+                        verify(ucsbOrganizationsRepository, times(1)).deleteRowByOrgCode("CSA");
                         Map<String, Object> json = responseToJson(response);
                         assertEquals("UCSBOrganizations with id CSA not found", json.get("message"));
                 }
@@ -215,13 +224,6 @@ public class UCSBOrganizationsControllerTests extends ControllerTestCase {
                @Test
                public void admin_can_edit_an_existing_organizations() throws Exception {
 
-                       UCSBOrganizations volleyballOrig = UCSBOrganizations.builder()
-                                .orgCode("VC")
-                                .orgTranslationShort("VOLLEYBALL")
-                                .orgTranslation("VOLLEYBALL CLUB AT UCSB")
-                                .inactive(true)
-                                .build();
-
                        UCSBOrganizations volleyballEdited = UCSBOrganizations.builder()
                                 .orgCode("VCB")
                                 .orgTranslationShort("VOLLEY")
@@ -231,20 +233,30 @@ public class UCSBOrganizationsControllerTests extends ControllerTestCase {
 
                       String requestBody = mapper.writeValueAsString(volleyballEdited);
 
-                      when(ucsbOrganizationsRepository.findById(eq("VC"))).thenReturn(Optional.of(volleyballOrig));
+                      when(ucsbOrganizationsRepository.updateRowByOrgCode(eq("VC"), eq(3L), any())).thenReturn(1);
 
                       MvcResult response = mockMvc.perform(
                                 put("/api/ucsborganizations?code=VC")
+                                                .header("If-Match", "\"3\"")
                                                 .contentType(MediaType.APPLICATION_JSON)
                                                 .characterEncoding("utf-8")
                                                 .content(requestBody)
                                                 .with(csrf()))
                                 .andExpect(status().isOk()).andReturn();
 
-                     verify(ucsbOrganizationsRepository, times(1)).findById("VC");
-                     verify(ucsbOrganizationsRepository, times(1)).save(volleyballEdited); // should be saved with updated info
+                     // the code is the key, so the one in the body is ignored
+                     volleyballEdited.setOrgCode("VC");
+                     volleyballEdited.setVersion(4L);
+                     // what the update was given, not the entity the controller goes on to change
+                     ArgumentCaptor<UCSBOrganizations> sent = ArgumentCaptor.forClass(UCSBOrganizations.class);
+                     verify(ucsbOrganizationsRepository, times(1)).updateRowByOrgCode(eq("VC"), eq(3L), sent.capture());
+                     assertEquals("VC", sent.getValue().getOrgCode());
+                     assertEquals("VOLLEY", sent.getValue().getOrgTranslationShort());
+                     assertEquals("UCSB VOLLEYBALL CLUB", sent.getValue().getOrgTranslation());
+                     assertEquals(false, sent.getValue().getInactive());
+                     verify(ucsbOrganizationsRepository, never()).findById(any());
                      String responseString = response.getResponse().getContentAsString();
-                     assertEquals(requestBody, responseString);
+                     assertEquals(mapper.writeValueAsString(volleyballEdited), responseString);
               }
 
 
@@ -261,20 +273,218 @@ public class UCSBOrganizationsControllerTests extends ControllerTestCase {
 
                      String requestBody = mapper.writeValueAsString(editedPickleball);
 
-                     when(ucsbOrganizationsRepository.findById(eq("PC"))).thenReturn(Optional.empty());
+                     when(ucsbOrganizationsRepository.updateRowByOrgCode(eq("PC"), eq(3L), any())).thenReturn(0);
 
                      MvcResult response = mockMvc.perform(
                                 put("/api/ucsborganizations?code=PC")
+                                                .header("If-Match", "\"3\"")
                                                 .contentType(MediaType.APPLICATION_JSON)
                                                 .characterEncoding("utf-8")
                                                 .content(requestBody)
                                                 .with(csrf()))
                                 .andExpect(status().isNotFound()).andReturn();
 
-                    verify(ucsbOrganizationsRepository, times(1)).findById("PC");
+                    verify(ucsbOrganizationsRepository, times(1)).updateRowByOrgCode(eq("PC"), eq(3L), any());
                     Map<String, Object> json = responseToJson(response);
                     assertEquals("UCSBOrganizations with id PC not found", json.get("message"));
 
             }
 
-}
\ No newline at end of file
+             @WithMockUser(roles = { "ADMIN", "USER" })
+             @Test
+             public void admin_cannot_edit_organizations_that_was_changed_since_it_was_read() throws Exception {
+
+                     UCSBOrganizations editedPickleball = UCSBOrganizations.builder()
+                                .orgCode("PC")
+                                .orgTranslationShort("PICKLEBALL")
+                                .orgTranslation("UCSB PICKLEBALL CLUB")
+                                .inactive(false)
+                                .build();
+
+                     String requestBody = mapper.writeValueAsString(editedPickleball);
+
+                     when(ucsbOrganizationsRepository.updateRowByOrgCode(eq("PC"), eq(3L), any())).thenReturn(0);
+                     when(ucsbOrganizationsRepository.existsById("PC")).thenReturn(true);
+
+                     MvcResult response = mockMvc.perform(
+                                put("/api/ucsborganizations?code=PC")
+                                                .header("If-Match", "\"3\"")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content(requestBody)
+                                                .with(csrf()))
+                                .andExpect(status().isPreconditionFailed()).andReturn();
+
+                    verify(ucsbOrganizationsRepository, times(1)).updateRowByOrgCode(eq("PC"), eq(3L), any());
+                    Map<String, Object> json = responseToJson(response);
+                    assertEquals("UCSBOrganizations with id PC is not at version \"3\"; get it again and reapply the change", json.get("message"));
+
+            }
+
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void get_all_is_not_modified_when_if_none_match_has_the_current_etag() throws Exception {
+
+                // arrange
+                MvcResult first = mockMvc.perform(get("/api/ucsborganizations/all"))
+                                .andExpect(status().isOk())
+                                .andExpect(header().string("Cache-Control", "no-cache, private"))
+                                .andReturn();
+                String etag = first.getResponse().getHeader("ETag");
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsborganizations/all").header("If-None-Match", etag))
+                                .andExpect(status().isNotModified())
+                                .andExpect(header().string("ETag", etag))
+                                .andReturn();
+
+                // assert
+                verify(ucsbOrganizationsRepository, times(1)).findAll();
+                assertEquals("", response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_only_some_fields_of_all() throws Exception {
+
+                // arrange
+                List<Map<String, Object>> rows = List.of(Map.of("id", 1), Map.of("id", 2));
+                when(fieldSelectionService.findAll(UCSBOrganizations.class, "id")).thenReturn(rows);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsborganizations/all?fields=id"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(fieldSelectionService, times(1)).findAll(UCSBOrganizations.class, "id");
+                verify(ucsbOrganizationsRepository, never()).findAll();
+                assertEquals(mapper.writeValueAsString(rows), response.getResponse().getContentAsString());
+        }
+
+        // Tests for GET /api/ucsborganizations/page
+
+        @Test
+        public void logged_out_users_cannot_get_page() throws Exception {
+                mockMvc.perform(get("/api/ucsborganizations/page"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_a_full_page_with_a_next_cursor() throws Exception {
+
+                // arrange
+                UCSBOrganizations first = UCSBOrganizations.builder()
+                                .orgCode("CC")
+                                .orgTranslationShort("CHESS CLUB")
+                                .orgTranslation("CHESS CLUB AT UCSB")
+                                .inactive(false)
+                                .build();
+
+                UCSBOrganizations second = UCSBOrganizations.builder()
+                                .orgCode("RC")
+                                .orgTranslationShort("ROWING CLUB")
+                                .orgTranslation("ROWING CLUB AT UCSB")
+                                .inactive(false)
+                                .build();
+
+                ArrayList<UCSBOrganizations> expectedRows = new ArrayList<>();
+                expectedRows.addAll(Arrays.asList(first, second));
+
+                when(ucsbOrganizationsRepository.findAllByOrgCodeGreaterThanOrderByOrgCodeAsc(eq(""), eq(PageRequest.of(0, 2)))).thenReturn(expectedRows);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsborganizations/page?limit=2"))
+                                .andExpect(status().isOk())
+                                .andExpect(header().string("Link", "<http://localhost/api/ucsborganizations/page?limit=2&after=RC>; rel=\"next\""))
+                                .andReturn();
+
+                // assert
+                verify(ucsbOrganizationsRepository, times(1)).findAllByOrgCodeGreaterThanOrderByOrgCodeAsc(eq(""), eq(PageRequest.of(0, 2)));
+                String expectedJson = mapper.writeValueAsString(CursorPage.<UCSBOrganizations>builder().content(expectedRows).nextCursor("RC").build());
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_a_short_last_page_without_a_next_cursor() throws Exception {
+
+                // arrange
+                UCSBOrganizations second = UCSBOrganizations.builder()
+                                .orgCode("RC")
+                                .orgTranslationShort("ROWING CLUB")
+                                .orgTranslation("ROWING CLUB AT UCSB")
+                                .inactive(false)
+                                .build();
+
+                ArrayList<UCSBOrganizations> expectedRows = new ArrayList<>();
+                expectedRows.add(second);
+
+                when(ucsbOrganizationsRepository.findAllByOrgCodeGreaterThanOrderByOrgCodeAsc(eq("CC"), eq(PageRequest.of(0, 2)))).thenReturn(expectedRows);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsborganizations/page?limit=2&after=CC"))
+                                .andExpect(status().isOk())
+                                .andExpect(header().doesNotExist("Link"))
+                                .andReturn();
+
+                // assert
+                verify(ucsbOrganizationsRepository, times(1)).findAllByOrgCodeGreaterThanOrderByOrgCodeAsc(eq("CC"), eq(PageRequest.of(0, 2)));
+                String expectedJson = mapper.writeValueAsString(CursorPage.<UCSBOrganizations>builder().content(expectedRows).build());
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        // Tests for GET /api/ucsborganizations?orgCodes=... and POST /api/ucsborganizations/batch
+
+        @Test
+        public void logged_out_users_cannot_get_by_ids() throws Exception {
+                mockMvc.perform(get("/api/ucsborganizations?orgCodes=ZPR,SKY"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_several_by_ids_and_learn_which_are_missing() throws Exception {
+
+                // arrange
+                BatchGetResult<UCSBOrganizations> result = BatchGetResult.<UCSBOrganizations>builder()
+                                .found(List.of(UCSBOrganizations.builder().orgCode("ZPR").orgTranslation("ZETA PHI RHO").build()))
+                                .missing(List.of(new BatchGetResult.Missing("SKY", "UCSBOrganizations with id SKY not found")))
+                                .build();
+                when(batchGetService.findAllById(ucsbOrganizationsRepository, UCSBOrganizations.class, List.of("ZPR", "SKY"))).thenReturn(result);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsborganizations?orgCodes=ZPR,SKY"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(batchGetService, times(1)).findAllById(ucsbOrganizationsRepository, UCSBOrganizations.class, List.of("ZPR", "SKY"));
+                assertEquals(mapper.writeValueAsString(result), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_post_a_long_list_of_ids() throws Exception {
+
+                // arrange
+                BatchGetResult<UCSBOrganizations> result = BatchGetResult.<UCSBOrganizations>builder()
+                                .found(List.of(UCSBOrganizations.builder().orgCode("ZPR").orgTranslation("ZETA PHI RHO").build()))
+                                .missing(List.of())
+                                .build();
+                when(batchGetService.findAllById(ucsbOrganizationsRepository, UCSBOrganizations.class, List.of("ZPR", "SKY"))).thenReturn(result);
+
+                // act
+                MvcResult response = mockMvc.perform(post("/api/ucsborganizations/batch")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("[\"ZPR\",\"SKY\"]")
+                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(batchGetService, times(1)).findAllById(ucsbOrganizationsRepository, UCSBOrganizations.class, List.of("ZPR", "SKY"));
+                assertEquals(mapper.writeValueAsString(result), response.getResponse().getContentAsString());
+        }
+}
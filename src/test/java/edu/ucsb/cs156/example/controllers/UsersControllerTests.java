@@ -3,22 +3,29 @@ package edu.ucsb.cs156.example.controllers;
 import edu.ucsb.cs156.example.ControllerTestCase;
 import edu.ucsb.cs156.example.entities.User;
 import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.UserExportService;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MvcResult;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
-import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
 
@@ -29,6 +36,9 @@ public class UsersControllerTests extends ControllerTestCase {
   @MockBean
   UserRepository userRepository;
 
+  @MockBean
+  UserExportService userExportService;
+
   @Test
   public void users__logged_out() throws Exception {
     mockMvc.perform(get("/api/admin/users"))
@@ -54,20 +64,58 @@ public class UsersControllerTests extends ControllerTestCase {
 
     ArrayList<User> expectedUsers = new ArrayList<>();
     expectedUsers.addAll(Arrays.asList(u1, u2, u));
-
-    when(userRepository.findAll()).thenReturn(expectedUsers);
     String expectedJson = mapper.writeValueAsString(expectedUsers);
-    
+
+    doAnswer(invocation -> {
+      invocation.getArgument(0, OutputStream.class).write(expectedJson.getBytes());
+      return null;
+    }).when(userExportService).writeUsers(any(), eq(""), eq(0L), eq(Pageable.unpaged()));
+
     // act
 
-    MvcResult response = mockMvc.perform(get("/api/admin/users"))
-        .andExpect(status().isOk()).andReturn();
+    MvcResult started = mockMvc.perform(get("/api/admin/users"))
+        .andExpect(request().asyncStarted()).andReturn();
+    MvcResult response = mockMvc.perform(asyncDispatch(started))
+        .andExpect(status().isOk())
+        .andExpect(content().contentType(MediaType.APPLICATION_JSON)).andReturn();
 
     // assert
 
-    verify(userRepository, times(1)).findAll();
+    verify(userExportService, times(1)).writeUsers(any(), eq(""), eq(0L), eq(Pageable.unpaged()));
     String responseString = response.getResponse().getContentAsString();
     assertEquals(expectedJson, responseString);
 
   }
+
+  @WithMockUser(roles = { "ADMIN", "USER" })
+  @Test
+  public void users__admin_logged_in__search_and_page() throws Exception {
+
+    // act
+
+    MvcResult started = mockMvc.perform(get("/api/admin/users?email=Gaucho&after=42&limit=20"))
+        .andExpect(request().asyncStarted()).andReturn();
+    mockMvc.perform(asyncDispatch(started))
+        .andExpect(status().isOk());
+
+    // assert
+
+    verify(userExportService, times(1)).writeUsers(any(), eq("Gaucho"), eq(42L), eq(PageRequest.of(0, 20)));
+  }
+
+  @WithMockUser(roles = { "ADMIN", "USER" })
+  @Test
+  public void users__admin_logged_in__limit_is_clamped() throws Exception {
+
+    // act
+
+    MvcResult started = mockMvc.perform(get("/api/admin/users?limit=1000000"))
+        .andExpect(request().asyncStarted()).andReturn();
+    mockMvc.perform(asyncDispatch(started))
+        .andExpect(status().isOk());
+
+    // assert
+
+    verify(userExportService, times(1)).writeUsers(any(), eq(""), eq(0L), eq(PageRequest.of(0, ApiController.MAX_PAGE_LIMIT)));
+  }
 }
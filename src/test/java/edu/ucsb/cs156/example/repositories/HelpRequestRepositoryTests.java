@@ -0,0 +1,87 @@
+package edu.ucsb.cs156.example.repositories;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.ActiveProfiles;
+
+import edu.ucsb.cs156.example.entities.HelpRequest;
+
+// Runs the filters in HelpRequestSpecifications against an in-memory
+// database whose schema comes from the Liquibase changelog.
+
+@DataJpaTest
+@ActiveProfiles("test")
+class HelpRequestRepositoryTests {
+
+  @Autowired
+  HelpRequestRepository helpRequestRepository;
+
+  Sort byTime = Sort.by("requestTime", "id");
+
+  HelpRequest team3Unsolved;
+  HelpRequest team3Solved;
+  HelpRequest team6Unsolved;
+
+  private static HelpRequest helpRequest(String teamId, String requestTime, boolean solved) {
+    return HelpRequest.builder()
+        .requesterEmail("cgaucho@ucsb.edu")
+        .teamId(teamId)
+        .tableOrBreakoutRoom("7")
+        .explanation("Need help with Swagger-ui")
+        .requestTime(LocalDateTime.parse(requestTime))
+        .solved(solved)
+        .build();
+  }
+
+  @BeforeEach
+  void saveHelpRequests() {
+    team6Unsolved = helpRequestRepository.save(helpRequest("s22-6pm-3", "2022-03-11T00:00:00", false));
+    team3Solved = helpRequestRepository.save(helpRequest("s22-5pm-3", "2022-02-01T00:00:00", true));
+    team3Unsolved = helpRequestRepository.save(helpRequest("s22-5pm-3", "2022-01-03T00:00:00", false));
+  }
+
+  private List<HelpRequest> matching(Boolean solved, String teamId, String from, String to) {
+    return helpRequestRepository.findAll(HelpRequestSpecifications.matching(
+        solved,
+        teamId,
+        from == null ? null : LocalDateTime.parse(from),
+        to == null ? null : LocalDateTime.parse(to)), byTime);
+  }
+
+  @Test
+  void test_no_filters_means_no_specification() {
+    assertNull(HelpRequestSpecifications.matching(null, null, null, null));
+  }
+
+  @Test
+  void test_unsolved_queue_oldest_first() {
+    assertEquals(List.of(team3Unsolved, team6Unsolved), matching(false, null, null, null));
+    assertEquals(List.of(team3Solved), matching(true, null, null, null));
+  }
+
+  @Test
+  void test_by_team() {
+    assertEquals(List.of(team3Unsolved, team3Solved), matching(null, "s22-5pm-3", null, null));
+  }
+
+  @Test
+  void test_request_time_range_includes_from_and_excludes_to() {
+    assertEquals(List.of(team3Solved, team6Unsolved), matching(null, null, "2022-02-01T00:00:00", null));
+    assertEquals(List.of(team3Unsolved, team3Solved), matching(null, null, null, "2022-03-11T00:00:00"));
+  }
+
+  @Test
+  void test_all_filters_together() {
+    assertEquals(List.of(team3Unsolved), matching(false, "s22-5pm-3", "2022-01-01T00:00:00", "2022-02-01T00:00:00"));
+    assertEquals(List.of(), matching(true, "s22-6pm-3", "2022-01-01T00:00:00", "2022-04-01T00:00:00"));
+  }
+}
@@ -0,0 +1,107 @@
+package edu.ucsb.cs156.example.repositories;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import edu.ucsb.cs156.example.entities.MenuItemReview;
+
+// Several threads edit the same row at once the way PUT does: read it, then
+// update it only if it is still at the version read, and on 0 rows updated
+// read it again and retry.  No edit may be lost, and none may be counted twice.
+
+@DataJpaTest
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class OptimisticLockingStressTests {
+
+  private static final int THREADS = 8;
+  private static final int EDITS_PER_THREAD = 25;
+
+  @Autowired
+  MenuItemReviewRepository menuItemReviewRepository;
+
+  @AfterEach
+  void deleteEverything() {
+    menuItemReviewRepository.deleteAll();
+  }
+
+  private MenuItemReview review() {
+    return MenuItemReview.builder().itemId(7).reviewerEmail("cgaucho@ucsb.edu").stars(0)
+        .dateReviewed(LocalDateTime.parse("2022-01-03T00:00:00")).comments("meh").build();
+  }
+
+  // adds one to the stars of the review, as one client would; the number of tries it took
+  private int addAStar(long id) {
+    for (int tries = 1;; tries++) {
+      MenuItemReview read = menuItemReviewRepository.findById(id).orElseThrow();
+      MenuItemReview edited = read.toBuilder().stars(read.getStars() + 1).build();
+      if (menuItemReviewRepository.updateRowById(id, read.getVersion(), edited) == 1) {
+        return tries;
+      }
+    }
+  }
+
+  @Test
+  void concurrent_edits_of_one_row_are_neither_lost_nor_repeated() throws Exception {
+    long id = menuItemReviewRepository.save(review()).getId();
+
+    ExecutorService threads = Executors.newFixedThreadPool(THREADS);
+    CountDownLatch start = new CountDownLatch(1);
+    List<Future<Integer>> tries = new ArrayList<>();
+    for (int t = 0; t < THREADS; t++) {
+      Callable<Integer> edits = () -> {
+        start.await();
+        int total = 0;
+        for (int i = 0; i < EDITS_PER_THREAD; i++) {
+          total += addAStar(id);
+        }
+        return total;
+      };
+      tries.add(threads.submit(edits));
+    }
+    start.countDown();
+    int totalTries = 0;
+    for (Future<Integer> thread : tries) {
+      totalTries += thread.get(1, TimeUnit.MINUTES);
+    }
+    threads.shutdown();
+
+    MenuItemReview after = menuItemReviewRepository.findById(id).orElseThrow();
+    assertEquals(THREADS * EDITS_PER_THREAD, after.getStars());
+    assertEquals(THREADS * EDITS_PER_THREAD, after.getVersion());
+    // a try that updated nothing lost to one that did, and was made again
+    assertTrue(totalTries >= THREADS * EDITS_PER_THREAD);
+  }
+
+  @Test
+  void saving_an_entity_read_at_an_old_version_fails() {
+    MenuItemReview saved = menuItemReviewRepository.save(review());
+    MenuItemReview stale = menuItemReviewRepository.findById(saved.getId()).orElseThrow();
+    assertEquals(1, menuItemReviewRepository.updateRowById(saved.getId(), 0L, review().toBuilder().stars(5).build()));
+
+    stale.setComments("bland");
+
+    assertThrows(ObjectOptimisticLockingFailureException.class, () -> menuItemReviewRepository.save(stale));
+    assertEquals(5, menuItemReviewRepository.findById(saved.getId()).orElseThrow().getStars());
+  }
+}
@@ -0,0 +1,153 @@
+package edu.ucsb.cs156.example.repositories;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import edu.ucsb.cs156.example.config.ReferenceDataCacheConfig;
+import edu.ucsb.cs156.example.entities.UCSBDate;
+import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+import edu.ucsb.cs156.example.entities.UCSBOrganizations;
+
+// Reads of the reference tables, once cached, run no SQL at all, and writes
+// through the repositories are seen by the next read.  Each repository call
+// runs in a transaction of its own (none around the test), as it does when
+// called from a controller.
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@ActiveProfiles("test")
+@Import(ReferenceDataCacheConfig.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ReferenceDataCacheTests {
+
+  @Autowired
+  UCSBDiningCommonsRepository diningCommonsRepository;
+
+  @Autowired
+  UCSBOrganizationsRepository organizationsRepository;
+
+  @Autowired
+  UCSBDateRepository dateRepository;
+
+  @Autowired
+  EntityManagerFactory entityManagerFactory;
+
+  Statistics statistics;
+
+  private static UCSBDiningCommons diningCommons(String code, String name) {
+    return UCSBDiningCommons.builder()
+        .code(code)
+        .name(name)
+        .latitude(34.4)
+        .longitude(-119.8)
+        .build();
+  }
+
+  @BeforeEach
+  void saveReferenceData() {
+    statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    diningCommonsRepository.save(diningCommons("carrillo", "Carrillo"));
+    diningCommonsRepository.save(diningCommons("ortega", "Ortega"));
+    organizationsRepository.save(UCSBOrganizations.builder()
+        .orgCode("ZPR").orgTranslationShort("ZETA PHI RHO").orgTranslation("ZETA PHI RHO").build());
+    dateRepository.save(UCSBDate.builder()
+        .quarterYYYYQ("20221").name("noon on January 2nd").localDateTime(LocalDateTime.parse("2022-01-02T12:00:00"))
+        .build());
+  }
+
+  @AfterEach
+  void deleteReferenceData() {
+    diningCommonsRepository.deleteAll();
+    organizationsRepository.deleteAll();
+    dateRepository.deleteAll();
+    // a deleted row's cache entry stays locked at its last version for a while,
+    // and the next test inserts the same keys again at version 0
+    entityManagerFactory.getCache().evictAll();
+  }
+
+  private long statementsRunBy(Runnable reads) {
+    statistics.clear();
+    reads.run();
+    return statistics.getPrepareStatementCount();
+  }
+
+  @Test
+  void find_all_is_served_from_the_cache_after_the_first_call() {
+    statementsRunBy(() -> {
+      diningCommonsRepository.findAll();
+      organizationsRepository.findAll();
+      dateRepository.findAll();
+    });
+
+    assertEquals(0, statementsRunBy(() -> {
+      assertEquals(2, ((List<?>) diningCommonsRepository.findAll()).size());
+      assertEquals(1, ((List<?>) organizationsRepository.findAll()).size());
+      assertEquals(1, ((List<?>) dateRepository.findAll()).size());
+    }));
+    assertEquals(3, statistics.getQueryCacheHitCount());
+  }
+
+  @Test
+  void find_by_id_is_served_from_the_cache_after_the_first_call() {
+    statementsRunBy(() -> {
+      diningCommonsRepository.findById("carrillo");
+      organizationsRepository.findById("ZPR");
+    });
+
+    assertEquals(0, statementsRunBy(() -> {
+      assertEquals("Carrillo", diningCommonsRepository.findById("carrillo").get().getName());
+      assertTrue(organizationsRepository.findById("ZPR").isPresent());
+    }));
+    assertEquals(2, statistics.getSecondLevelCacheHitCount());
+  }
+
+  @Test
+  void writes_are_seen_by_the_next_read() {
+    diningCommonsRepository.findAll();
+
+    UCSBDiningCommons carrillo = diningCommonsRepository.findById("carrillo").get();
+    carrillo.setName("Carrillo Dining Commons");
+    diningCommonsRepository.save(carrillo);
+    diningCommonsRepository.deleteById("ortega");
+
+    List<?> all = (List<?>) diningCommonsRepository.findAll();
+    carrillo.setVersion(1);
+    assertEquals(List.of(carrillo), all);
+    assertEquals("Carrillo Dining Commons", diningCommonsRepository.findById("carrillo").get().getName());
+  }
+
+  @Test
+  void single_statement_writes_are_seen_by_the_next_read() {
+    diningCommonsRepository.findAll();
+    diningCommonsRepository.findById("carrillo");
+    organizationsRepository.findById("ZPR");
+
+    diningCommonsRepository.updateRowByCode("carrillo", 0L, diningCommons("ignored", "Carrillo Dining Commons"));
+    diningCommonsRepository.deleteRowByCode("ortega");
+    organizationsRepository.updateRowByOrgCode("ZPR", 0L, UCSBOrganizations.builder()
+        .orgCode("ZPR").orgTranslationShort("ZPR").orgTranslation("ZETA PHI RHO").build());
+
+    UCSBDiningCommons carrillo = diningCommons("carrillo", "Carrillo Dining Commons");
+    carrillo.setVersion(1);
+    List<?> all = (List<?>) diningCommonsRepository.findAll();
+    assertEquals(List.of(carrillo), all);
+    assertEquals("Carrillo Dining Commons", diningCommonsRepository.findById("carrillo").get().getName());
+    assertEquals("ZPR", organizationsRepository.findById("ZPR").get().getOrgTranslationShort());
+  }
+}
@@ -0,0 +1,68 @@
+package edu.ucsb.cs156.example.repositories;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.Optional;
+
+import org.aopalliance.aop.Advice;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.Advisor;
+import org.springframework.aop.framework.Advised;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.repository.Repository;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.interceptor.TransactionAttribute;
+import org.springframework.transaction.interceptor.TransactionInterceptor;
+
+// Checks the transactions the repositories' proxies start for each method:
+// read-only for every query, whether declared in our interfaces or inherited
+// from Spring Data, and read-write for saves, deletes and updates.
+
+@DataJpaTest
+@ActiveProfiles("test")
+class RepositoryTransactionTests {
+
+  @Autowired
+  List<Repository<?, ?>> repositories;
+
+  private static Optional<TransactionInterceptor> transactionInterceptor(Advised proxy) {
+    for (Advisor advisor : proxy.getAdvisors()) {
+      Advice advice = advisor.getAdvice();
+      if (advice instanceof TransactionInterceptor) {
+        return Optional.of((TransactionInterceptor) advice);
+      }
+    }
+    return Optional.empty();
+  }
+
+  private static boolean isWrite(Method method) {
+    return method.getName().startsWith("save") || method.getName().startsWith("delete")
+        || method.getName().startsWith("update");
+  }
+
+  @Test
+  void queries_are_read_only_and_writes_are_not() throws Exception {
+    assertEquals(9, repositories.size());
+
+    for (Repository<?, ?> repository : repositories) {
+      Advised proxy = (Advised) repository;
+      while (transactionInterceptor(proxy).isEmpty()) {
+        proxy = (Advised) proxy.getTargetSource().getTarget();
+      }
+      TransactionInterceptor interceptor = transactionInterceptor(proxy).get();
+      Class<?> repositoryInterface = proxy.getProxiedInterfaces()[0];
+
+      for (Method method : repositoryInterface.getMethods()) {
+        TransactionAttribute transaction = interceptor.getTransactionAttributeSource()
+            .getTransactionAttribute(method, proxy.getTargetClass());
+        String name = repositoryInterface.getSimpleName() + "." + method.getName();
+        assertNotNull(transaction, name);
+        assertEquals(!isWrite(method), transaction.isReadOnly(), name);
+      }
+    }
+  }
+}
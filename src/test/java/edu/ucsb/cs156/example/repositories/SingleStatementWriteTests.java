@@ -0,0 +1,326 @@
+package edu.ucsb.cs156.example.repositories;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import edu.ucsb.cs156.example.entities.Articles;
+import edu.ucsb.cs156.example.entities.HelpRequest;
+import edu.ucsb.cs156.example.entities.MenuItemReview;
+import edu.ucsb.cs156.example.entities.RecommendationRequest;
+import edu.ucsb.cs156.example.entities.UCSBDate;
+import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+import edu.ucsb.cs156.example.entities.UCSBDiningCommonsMenuItem;
+import edu.ucsb.cs156.example.entities.UCSBOrganizations;
+import edu.ucsb.cs156.example.repositories.HelpRequestRepository.RowUpdate;
+
+// Runs the deleteRow(s)By... and updateRowBy... statements the controllers
+// DELETE and PUT handlers use against an in-memory database.  Each
+// repository call runs in a transaction of its own (none around the test),
+// as it does when called from a controller, so every read goes to the
+// database rather than to the test's session.
+
+@DataJpaTest
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class SingleStatementWriteTests {
+
+  @Autowired
+  ArticlesRepository articlesRepository;
+
+  @Autowired
+  HelpRequestRepository helpRequestRepository;
+
+  @Autowired
+  MenuItemReviewRepository menuItemReviewRepository;
+
+  @Autowired
+  RecommendationRequestRepository recommendationRequestRepository;
+
+  @Autowired
+  UCSBDateRepository ucsbDateRepository;
+
+  @Autowired
+  UCSBDiningCommonsRepository ucsbDiningCommonsRepository;
+
+  @Autowired
+  UCSBDiningCommonsMenuItemRepository ucsbDiningCommonsMenuItemRepository;
+
+  @Autowired
+  UCSBOrganizationsRepository ucsbOrganizationsRepository;
+
+  LocalDateTime when = LocalDateTime.parse("2022-01-03T00:00:00");
+
+  @AfterEach
+  void deleteEverything() {
+    articlesRepository.deleteAll();
+    helpRequestRepository.deleteAll();
+    menuItemReviewRepository.deleteAll();
+    recommendationRequestRepository.deleteAll();
+    ucsbDateRepository.deleteAll();
+    ucsbDiningCommonsRepository.deleteAll();
+    ucsbDiningCommonsMenuItemRepository.deleteAll();
+    ucsbOrganizationsRepository.deleteAll();
+  }
+
+  private HelpRequest helpRequest(String teamId, boolean solved) {
+    return HelpRequest.builder().requesterEmail("cgaucho@ucsb.edu").teamId(teamId).tableOrBreakoutRoom("7")
+        .requestTime(when).explanation("Need help with Swagger-ui").solved(solved).build();
+  }
+
+  @Test
+  void help_requests_are_updated_and_deleted_by_id() {
+    HelpRequest kept = helpRequestRepository.save(helpRequest("s22-5pm-3", false));
+    HelpRequest changed = helpRequestRepository.save(helpRequest("s22-6pm-3", false));
+    HelpRequest edited = helpRequest("s22-6pm-4", true);
+    edited.setExplanation("Dokku problems");
+
+    assertEquals(1, helpRequestRepository.updateRowById(changed.getId(), 0L, edited));
+    assertEquals(0, helpRequestRepository.updateRowById(changed.getId(), 0L, edited));
+    assertEquals(0, helpRequestRepository.updateRowById(changed.getId() + 100, 1L, edited));
+
+    edited.setId(changed.getId());
+    edited.setVersion(1L);
+    assertEquals(edited, helpRequestRepository.findById(changed.getId()).get());
+    assertEquals(kept, helpRequestRepository.findById(kept.getId()).get());
+
+    assertEquals(1, helpRequestRepository.deleteRowById(changed.getId()));
+    assertEquals(0, helpRequestRepository.deleteRowById(changed.getId()));
+    assertFalse(helpRequestRepository.existsById(changed.getId()));
+    assertTrue(helpRequestRepository.existsById(kept.getId()));
+  }
+
+  @Test
+  void marking_a_help_request_solved_counts_only_if_it_was_not() {
+    HelpRequest unsolved = helpRequestRepository.save(helpRequest("s22-5pm-3", false));
+    HelpRequest solved = helpRequestRepository.save(helpRequest("s22-5pm-5", true));
+
+    assertEquals(0, helpRequestRepository.updateToSolvedById(unsolved.getId(), 1L));
+    assertEquals(1, helpRequestRepository.updateToSolvedById(unsolved.getId(), 0L));
+    assertEquals(0, helpRequestRepository.updateToSolvedById(solved.getId(), 0L));
+    assertEquals(0, helpRequestRepository.updateToSolvedById(unsolved.getId(), 0L));
+    assertEquals(0, helpRequestRepository.updateToSolvedById(solved.getId() + 100, 0L));
+
+    HelpRequest marked = helpRequestRepository.findById(unsolved.getId()).get();
+    assertTrue(marked.getSolved());
+    // the updateRowById that follows moves it to the next version
+    assertEquals(0L, marked.getVersion());
+  }
+
+  @Test
+  void an_update_that_solves_a_help_request_says_so() {
+    HelpRequest unsolved = helpRequestRepository.save(helpRequest("s22-5pm-3", false));
+
+    assertEquals(new RowUpdate(0, false),
+        helpRequestRepository.updateRowAndSolveById(unsolved.getId(), 1L, helpRequest("s22-5pm-3", true)));
+    assertEquals(new RowUpdate(1, true),
+        helpRequestRepository.updateRowAndSolveById(unsolved.getId(), 0L, helpRequest("s22-5pm-3", true)));
+    assertEquals(new RowUpdate(1, false),
+        helpRequestRepository.updateRowAndSolveById(unsolved.getId(), 1L, helpRequest("s22-5pm-4", true)));
+    assertEquals(new RowUpdate(1, false),
+        helpRequestRepository.updateRowAndSolveById(unsolved.getId(), 2L, helpRequest("s22-5pm-5", false)));
+
+    HelpRequest updated = helpRequestRepository.findById(unsolved.getId()).get();
+    assertEquals("s22-5pm-5", updated.getTeamId());
+    assertFalse(updated.getSolved());
+    assertEquals(3L, updated.getVersion());
+  }
+
+  @Test
+  void a_solving_update_that_fails_leaves_the_help_request_unsolved() {
+    HelpRequest unsolved = helpRequestRepository.save(helpRequest("s22-5pm-3", false));
+    HelpRequest tooLong = helpRequest("s22-5pm-3", true);
+    tooLong.setExplanation("x".repeat(256));
+
+    assertThrows(DataIntegrityViolationException.class,
+        () -> helpRequestRepository.updateRowAndSolveById(unsolved.getId(), 0L, tooLong));
+
+    assertEquals(unsolved, helpRequestRepository.findById(unsolved.getId()).get());
+  }
+
+  @Test
+  void help_requests_are_deleted_by_ids_and_by_time() {
+    HelpRequest first = helpRequestRepository.save(helpRequest("s22-5pm-1", false));
+    helpRequestRepository.save(helpRequest("s22-5pm-2", false));
+    HelpRequest third = helpRequestRepository.save(helpRequest("s22-5pm-3", false));
+    third.setRequestTime(when.plusHours(2));
+    third = helpRequestRepository.save(third);
+
+    assertEquals(1, helpRequestRepository.deleteRowsByIdIn(List.of(first.getId(), first.getId() + 100)));
+    assertEquals(1, helpRequestRepository.deleteRowsByRequestTimeInRange(when, when.plusHours(2)));
+
+    assertEquals(List.of(third), helpRequestRepository.findAll());
+  }
+
+  @Test
+  void unsolved_help_requests_before_a_time_are_solved_at_once() {
+    HelpRequest earlier = helpRequestRepository.save(helpRequest("s22-5pm-1", false));
+    helpRequestRepository.save(helpRequest("s22-5pm-2", true));
+    HelpRequest later = helpRequestRepository.save(helpRequest("s22-5pm-3", false));
+    later.setRequestTime(when.plusHours(2));
+    helpRequestRepository.save(later);
+
+    assertEquals(1, helpRequestRepository.updateToSolvedByRequestTimeBefore(when.plusHours(2)));
+
+    HelpRequest solved = helpRequestRepository.findById(earlier.getId()).get();
+    assertTrue(solved.getSolved());
+    assertEquals(1L, solved.getVersion());
+    assertFalse(helpRequestRepository.findById(later.getId()).get().getSolved());
+  }
+
+  @Test
+  void articles_are_updated_and_deleted_by_id() {
+    Articles saved = articlesRepository.save(Articles.builder().title("Spring").url("https://spring.io")
+        .explanation("long").email("cgaucho@ucsb.edu").dateAdded(when).build());
+    Articles edited = Articles.builder().title("React").url("https://react.dev")
+        .explanation("longer").email("ldelplaya@ucsb.edu").dateAdded(when.plusDays(1)).build();
+
+    assertEquals(1, articlesRepository.updateRowById(saved.getId(), 0L, edited));
+
+    edited.setId(saved.getId());
+    edited.setVersion(1L);
+    assertEquals(edited, articlesRepository.findById(saved.getId()).get());
+    assertEquals(1, articlesRepository.deleteRowById(saved.getId()));
+    assertEquals(0, articlesRepository.deleteRowById(saved.getId()));
+  }
+
+  @Test
+  void reviews_are_updated_and_deleted_by_id() {
+    MenuItemReview saved = menuItemReviewRepository.save(MenuItemReview.builder().itemId(42)
+        .reviewerEmail("cgaucho@ucsb.edu").stars(2).dateReviewed(when).comments("meh").build());
+    MenuItemReview edited = MenuItemReview.builder().itemId(7)
+        .reviewerEmail("ldelplaya@ucsb.edu").stars(5).dateReviewed(when.plusDays(1)).comments("great").build();
+
+    assertEquals(1, menuItemReviewRepository.updateRowById(saved.getId(), 0L, edited));
+
+    edited.setId(saved.getId());
+    edited.setVersion(1L);
+    assertEquals(edited, menuItemReviewRepository.findById(saved.getId()).get());
+    assertEquals(0, menuItemReviewRepository.deleteRowById(saved.getId(), 0L));
+    assertTrue(menuItemReviewRepository.existsById(saved.getId()));
+    assertEquals(1, menuItemReviewRepository.deleteRowById(saved.getId(), 1L));
+    assertEquals(0, menuItemReviewRepository.deleteRowById(saved.getId(), 1L));
+  }
+
+  @Test
+  void recommendation_requests_are_updated_and_deleted_by_id() {
+    RecommendationRequest saved = recommendationRequestRepository.save(RecommendationRequest.builder()
+        .requesterEmail("cgaucho@ucsb.edu").professorEmail("phtcon@ucsb.edu").explanation("long")
+        .dateRequested(when).dateNeeded(when.plusDays(30)).done(false).build());
+    RecommendationRequest edited = RecommendationRequest.builder()
+        .requesterEmail("ldelplaya@ucsb.edu").professorEmail("richert@ucsb.edu").explanation("grad school")
+        .dateRequested(when.plusDays(1)).dateNeeded(when.plusDays(10)).done(true).build();
+
+    assertEquals(1, recommendationRequestRepository.updateRowById(saved.getId(), 0L, edited));
+
+    edited.setId(saved.getId());
+    edited.setVersion(1L);
+    assertEquals(edited, recommendationRequestRepository.findById(saved.getId()).get());
+    assertEquals(1, recommendationRequestRepository.deleteRowById(saved.getId()));
+    assertEquals(0, recommendationRequestRepository.deleteRowById(saved.getId()));
+  }
+
+  private RecommendationRequest recommendationRequest(LocalDateTime dateRequested, boolean done) {
+    return RecommendationRequest.builder().requesterEmail("cgaucho@ucsb.edu").professorEmail("phtcon@ucsb.edu")
+        .explanation("long").dateRequested(dateRequested).dateNeeded(dateRequested.plusDays(30)).done(done).build();
+  }
+
+  @Test
+  void recommendation_requests_are_marked_done_and_deleted_several_at_a_time() {
+    RecommendationRequest first = recommendationRequestRepository.save(recommendationRequest(when, false));
+    RecommendationRequest second = recommendationRequestRepository.save(recommendationRequest(when.plusDays(1), true));
+    RecommendationRequest third = recommendationRequestRepository.save(recommendationRequest(when.plusDays(2), false));
+
+    assertEquals(1, recommendationRequestRepository.updateToDoneByIdIn(List.of(first.getId(), second.getId())));
+    assertTrue(recommendationRequestRepository.findById(first.getId()).get().getDone());
+    assertFalse(recommendationRequestRepository.findById(third.getId()).get().getDone());
+
+    assertEquals(1, recommendationRequestRepository.deleteRowsByIdIn(List.of(first.getId(), first.getId() + 100)));
+    assertEquals(1, recommendationRequestRepository.deleteRowsByDateRequestedInRange(when, when.plusDays(2)));
+    assertEquals(List.of(third), recommendationRequestRepository.findAll());
+  }
+
+  @Test
+  void dates_are_updated_and_deleted_by_id() {
+    UCSBDate saved = ucsbDateRepository.save(UCSBDate.builder()
+        .quarterYYYYQ("20221").name("noon on January 2nd").localDateTime(when).build());
+    UCSBDate edited = UCSBDate.builder()
+        .quarterYYYYQ("20222").name("first day of spring").localDateTime(when.plusMonths(3)).build();
+
+    assertEquals(1, ucsbDateRepository.updateRowById(saved.getId(), 0L, edited));
+
+    edited.setId(saved.getId());
+    edited.setVersion(1L);
+    assertEquals(edited, ucsbDateRepository.findById(saved.getId()).get());
+    assertEquals(1, ucsbDateRepository.deleteRowById(saved.getId()));
+    assertEquals(0, ucsbDateRepository.deleteRowById(saved.getId()));
+  }
+
+  @Test
+  void menu_items_are_updated_and_deleted_by_id() {
+    UCSBDiningCommonsMenuItem saved = ucsbDiningCommonsMenuItemRepository.save(UCSBDiningCommonsMenuItem.builder()
+        .diningCommonsCode("ortega").name("Baked Pesto Pasta").station("Entree Specials").build());
+    UCSBDiningCommonsMenuItem edited = UCSBDiningCommonsMenuItem.builder()
+        .diningCommonsCode("portola").name("Tofu Banh Mi").station("Entrees").build();
+
+    assertEquals(1, ucsbDiningCommonsMenuItemRepository.updateRowById(saved.getId(), 0L, edited));
+
+    edited.setId(saved.getId());
+    edited.setVersion(1L);
+    assertEquals(edited, ucsbDiningCommonsMenuItemRepository.findById(saved.getId()).get());
+    assertEquals(1, ucsbDiningCommonsMenuItemRepository.deleteRowById(saved.getId()));
+    assertEquals(0, ucsbDiningCommonsMenuItemRepository.deleteRowById(saved.getId()));
+  }
+
+  @Test
+  void commons_are_updated_and_deleted_by_code() {
+    ucsbDiningCommonsRepository.save(UCSBDiningCommons.builder().code("ortega").name("Ortega")
+        .latitude(34.410987).longitude(-119.84709).build());
+    UCSBDiningCommons edited = UCSBDiningCommons.builder().code("ignored").name("Ortega Dining Commons")
+        .hasSackMeal(true).hasTakeOutMeal(true).hasDiningCam(true).build();
+
+    assertEquals(1, ucsbDiningCommonsRepository.updateRowByCode("ortega", 0L, edited));
+    assertEquals(0, ucsbDiningCommonsRepository.updateRowByCode("munger-hall", 0L, edited));
+
+    edited.setCode("ortega");
+    edited.setVersion(1L);
+    assertEquals(edited, ucsbDiningCommonsRepository.findById("ortega").get());
+    assertFalse(ucsbDiningCommonsRepository.existsById("ignored"));
+    assertEquals(1, ucsbDiningCommonsRepository.deleteRowByCode("ortega"));
+    assertEquals(0, ucsbDiningCommonsRepository.deleteRowByCode("ortega"));
+  }
+
+  @Test
+  void organizations_are_updated_and_deleted_by_code() {
+    ucsbOrganizationsRepository.save(UCSBOrganizations.builder()
+        .orgCode("VC").orgTranslationShort("VOLLEYBALL").orgTranslation("VOLLEYBALL CLUB AT UCSB").inactive(true)
+        .build());
+    UCSBOrganizations edited = UCSBOrganizations.builder()
+        .orgCode("VCB").orgTranslationShort("VOLLEY").orgTranslation("UCSB VOLLEYBALL CLUB").inactive(false)
+        .build();
+
+    assertEquals(1, ucsbOrganizationsRepository.updateRowByOrgCode("VC", 0L, edited));
+    assertEquals(0, ucsbOrganizationsRepository.updateRowByOrgCode("VCB", 0L, edited));
+
+    // the key is not updated
+    assertFalse(ucsbOrganizationsRepository.existsById("VCB"));
+    edited.setOrgCode("VC");
+    edited.setVersion(1L);
+    assertEquals(edited, ucsbOrganizationsRepository.findById("VC").get());
+    assertEquals(1, ucsbOrganizationsRepository.deleteRowByOrgCode("VC"));
+    assertEquals(0, ucsbOrganizationsRepository.deleteRowByOrgCode("VC"));
+  }
+}
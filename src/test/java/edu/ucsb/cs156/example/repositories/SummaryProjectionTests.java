@@ -0,0 +1,90 @@
+package edu.ucsb.cs156.example.repositories;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import edu.ucsb.cs156.example.entities.Articles;
+import edu.ucsb.cs156.example.entities.HelpRequest;
+import edu.ucsb.cs156.example.entities.RecommendationRequest;
+import edu.ucsb.cs156.example.repositories.ArticlesRepository.ArticleSummary;
+import edu.ucsb.cs156.example.repositories.HelpRequestRepository.HelpRequestSummary;
+import edu.ucsb.cs156.example.repositories.RecommendationRequestRepository.RecommendationRequestSummary;
+
+// Runs the queries behind the /summaries endpoints against an in-memory
+// database whose schema comes from the Liquibase changelog.
+
+@DataJpaTest
+@ActiveProfiles("test")
+class SummaryProjectionTests {
+
+  @Autowired
+  ArticlesRepository articlesRepository;
+
+  @Autowired
+  HelpRequestRepository helpRequestRepository;
+
+  @Autowired
+  RecommendationRequestRepository recommendationRequestRepository;
+
+  LocalDateTime when = LocalDateTime.parse("2022-01-03T00:00:00");
+
+  @Test
+  void article_summaries_in_id_order() {
+    Articles first = articlesRepository.save(Articles.builder().title("Spring").url("https://spring.io")
+        .explanation("long").email("cgaucho@ucsb.edu").dateAdded(when).build());
+    Articles second = articlesRepository.save(Articles.builder().title("React").url("https://react.dev")
+        .explanation("long").email("ldelplaya@ucsb.edu").dateAdded(when.plusDays(1)).build());
+
+    List<ArticleSummary> summaries = articlesRepository.findAllSummaries();
+
+    assertEquals(2, summaries.size());
+    assertEquals(first.getId(), summaries.get(0).getId());
+    assertEquals("Spring", summaries.get(0).getTitle());
+    assertEquals("https://spring.io", summaries.get(0).getUrl());
+    assertEquals("cgaucho@ucsb.edu", summaries.get(0).getEmail());
+    assertEquals(when, summaries.get(0).getDateAdded());
+    assertEquals(second.getId(), summaries.get(1).getId());
+  }
+
+  @Test
+  void help_request_summaries_in_id_order() {
+    HelpRequest saved = helpRequestRepository.save(HelpRequest.builder().requesterEmail("cgaucho@ucsb.edu")
+        .teamId("s22-5pm-3").tableOrBreakoutRoom("7").requestTime(when).explanation("long").solved(true).build());
+
+    List<HelpRequestSummary> summaries = helpRequestRepository.findAllSummaries();
+
+    assertEquals(1, summaries.size());
+    assertEquals(saved.getId(), summaries.get(0).getId());
+    assertEquals("cgaucho@ucsb.edu", summaries.get(0).getRequesterEmail());
+    assertEquals("s22-5pm-3", summaries.get(0).getTeamId());
+    assertEquals("7", summaries.get(0).getTableOrBreakoutRoom());
+    assertEquals(when, summaries.get(0).getRequestTime());
+    assertTrue(summaries.get(0).getSolved());
+  }
+
+  @Test
+  void recommendation_request_summaries_in_id_order() {
+    RecommendationRequest saved = recommendationRequestRepository.save(RecommendationRequest.builder()
+        .requesterEmail("cgaucho@ucsb.edu").professorEmail("phtcon@ucsb.edu").explanation("long")
+        .dateRequested(when).dateNeeded(when.plusDays(30)).done(false).build());
+
+    List<RecommendationRequestSummary> summaries = recommendationRequestRepository.findAllSummaries();
+
+    assertEquals(1, summaries.size());
+    assertEquals(saved.getId(), summaries.get(0).getId());
+    assertEquals("cgaucho@ucsb.edu", summaries.get(0).getRequesterEmail());
+    assertEquals("phtcon@ucsb.edu", summaries.get(0).getProfessorEmail());
+    assertEquals(when, summaries.get(0).getDateRequested());
+    assertEquals(when.plusDays(30), summaries.get(0).getDateNeeded());
+    assertFalse(summaries.get(0).isDone());
+  }
+}
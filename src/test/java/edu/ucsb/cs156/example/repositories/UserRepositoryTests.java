@@ -0,0 +1,61 @@
+package edu.ucsb.cs156.example.repositories;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.context.ActiveProfiles;
+
+import edu.ucsb.cs156.example.entities.User;
+
+// Runs the query behind GET /api/admin/users against an in-memory database
+// whose schema comes from the Liquibase changelog.
+
+@DataJpaTest
+@ActiveProfiles("test")
+class UserRepositoryTests {
+
+  @Autowired
+  UserRepository userRepository;
+
+  User gaucho;
+  User delPlaya;
+  User other;
+
+  @BeforeEach
+  void saveUsers() {
+    gaucho = userRepository.save(User.builder().email("cgaucho@ucsb.edu").build());
+    delPlaya = userRepository.save(User.builder().email("ldelplaya@ucsb.edu").build());
+    other = userRepository.save(User.builder().email("someone@example.org").build());
+  }
+
+  private List<String> emails(long after, String email, Pageable page) {
+    try (Stream<User> users = userRepository.streamByIdGreaterThanAndEmailContainingIgnoreCaseOrderByIdAsc(after, email, page)) {
+      return users.map(User::getEmail).collect(Collectors.toList());
+    }
+  }
+
+  @Test
+  void empty_search_streams_every_user_in_id_order() {
+    assertEquals(List.of("cgaucho@ucsb.edu", "ldelplaya@ucsb.edu", "someone@example.org"), emails(0, "", Pageable.unpaged()));
+  }
+
+  @Test
+  void search_ignores_case() {
+    assertEquals(List.of("cgaucho@ucsb.edu", "ldelplaya@ucsb.edu"), emails(0, "UCSB", Pageable.unpaged()));
+  }
+
+  @Test
+  void pages_follow_the_id_cursor() {
+    assertEquals(List.of("cgaucho@ucsb.edu", "ldelplaya@ucsb.edu"), emails(0, "", PageRequest.of(0, 2)));
+    assertEquals(List.of("someone@example.org"), emails(delPlaya.getId(), "", PageRequest.of(0, 2)));
+  }
+}
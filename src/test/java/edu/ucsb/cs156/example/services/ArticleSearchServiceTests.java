@@ -0,0 +1,234 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import edu.ucsb.cs156.example.entities.Articles;
+import edu.ucsb.cs156.example.models.ArticleMatch;
+import edu.ucsb.cs156.example.repositories.ArticlesRepository;
+
+@ExtendWith(SpringExtension.class)
+@ContextConfiguration(classes = ArticleSearchService.class)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD) // the service keeps its index between calls
+class ArticleSearchServiceTests {
+
+  @MockBean
+  ArticlesRepository articlesRepository;
+
+  @Autowired
+  ArticleSearchService articleSearchService;
+
+  Articles soccer = article(1, "Gauchos win", "The men's soccer team beat Cal Poly");
+  Articles lagoon = article(2, "Lagoon cleanup", "Volunteers at Campus Point");
+  Articles tower = article(3, "Storke Tower", "The carillon plays at noon");
+
+  Map<Long, Articles> stored;
+
+  private static Articles article(long id, String title, String explanation) {
+    return Articles.builder()
+        .id(id)
+        .title(title)
+        .url("https://dailynexus.com/" + id)
+        .explanation(explanation)
+        .email("nexus@ucsb.edu")
+        .build();
+  }
+
+  private void givenArticles(Articles... articles) {
+    stored = List.of(articles).stream().collect(Collectors.toMap(Articles::getId, Function.identity()));
+    when(articlesRepository.findAllByIdGreaterThanOrderByIdAsc(eq(0L), any())).thenReturn(List.of(articles));
+  }
+
+  @BeforeEach
+  @SuppressWarnings("unchecked")
+  void findByIdReadsWhatIsStored() {
+    stored = Map.of();
+    when(articlesRepository.findById(anyLong()))
+        .thenAnswer(invocation -> Optional.ofNullable(stored.get(invocation.getArgument(0))));
+    when(articlesRepository.findAllById(anyIterable())).thenAnswer(invocation -> {
+      List<Articles> found = new ArrayList<>();
+      for (Long id : (Iterable<Long>) invocation.getArgument(0)) {
+        if (stored.containsKey(id)) {
+          found.add(stored.get(id));
+        }
+      }
+      return found;
+    });
+  }
+
+  private List<Long> searchIds(String query) {
+    return articleSearchService.search(query, 10).stream().map(match -> match.getArticle().getId()).toList();
+  }
+
+  @Test
+  void search_loads_the_articles_once() {
+    givenArticles(soccer, lagoon, tower);
+
+    List<ArticleMatch> matches = articleSearchService.search("SOCCER", 10);
+
+    assertEquals(1, matches.size());
+    assertEquals(soccer, matches.get(0).getArticle());
+    assertTrue(matches.get(0).getScore() > 0);
+    assertEquals(List.of(3L), searchIds("the carillon"));
+    assertEquals(List.of(2L), searchIds("campus poi"));
+    verify(articlesRepository, times(1)).findAllByIdGreaterThanOrderByIdAsc(anyLong(), any());
+  }
+
+  @Test
+  void the_articles_are_loaded_a_batch_at_a_time() {
+    List<Articles> firstBatch = new ArrayList<>();
+    for (long id = 1; id <= ArticleSearchService.LOAD_BATCH_SIZE; id++) {
+      firstBatch.add(article(id, "Article " + id, "filler"));
+    }
+    Articles last = article(ArticleSearchService.LOAD_BATCH_SIZE + 1, "Last one", "the end");
+    PageRequest page = PageRequest.of(0, ArticleSearchService.LOAD_BATCH_SIZE);
+    when(articlesRepository.findAllByIdGreaterThanOrderByIdAsc(0L, page)).thenReturn(firstBatch);
+    when(articlesRepository.findAllByIdGreaterThanOrderByIdAsc(ArticleSearchService.LOAD_BATCH_SIZE, page))
+        .thenReturn(List.of(last));
+    stored = Map.of(last.getId(), last, 7L, firstBatch.get(6));
+
+    assertEquals(List.of(last.getId()), searchIds("end"));
+    assertEquals(List.of(7L), searchIds("7 article"));
+  }
+
+  @Test
+  void queries_without_words_find_nothing_without_loading() {
+    assertEquals(List.of(), articleSearchService.search(" ?! ", 10));
+    verify(articlesRepository, never()).findAllByIdGreaterThanOrderByIdAsc(anyLong(), any());
+  }
+
+  @Test
+  void searches_that_match_nothing_read_nothing() {
+    givenArticles(soccer);
+
+    assertEquals(List.of(), articleSearchService.search("tennis", 10));
+    verify(articlesRepository, never()).findAllById(anyIterable());
+  }
+
+  @Test
+  void articles_deleted_since_the_search_are_left_out() {
+    givenArticles(soccer, lagoon);
+    stored = Map.of(1L, soccer);
+
+    assertEquals(List.of(1L), searchIds("gauchos"));
+    assertEquals(List.of(), searchIds("lagoon"));
+  }
+
+  @Test
+  void concurrent_first_searches_load_only_once() throws Exception {
+    Thread[] other = new Thread[1];
+    when(articlesRepository.findAllByIdGreaterThanOrderByIdAsc(eq(0L), any())).thenAnswer(invocation -> {
+      // while the first search is loading, a second one waits for it
+      other[0] = new Thread(() -> articleSearchService.search("gauchos", 10));
+      other[0].start();
+      while (other[0].getState() != Thread.State.WAITING) {
+        Thread.sleep(1);
+      }
+      return List.of(soccer);
+    });
+
+    articleSearchService.search("gauchos", 10);
+    other[0].join();
+
+    verify(articlesRepository, times(1)).findAllByIdGreaterThanOrderByIdAsc(anyLong(), any());
+  }
+
+  @Test
+  void writes_before_the_first_search_are_left_to_the_load() {
+    givenArticles(soccer);
+    stored = Map.of(1L, soccer, 2L, lagoon);
+
+    articleSearchService.saved(lagoon);
+    articleSearchService.removed(soccer.getId());
+
+    assertEquals(List.of(1L), searchIds("gauchos"));
+    assertEquals(List.of(), searchIds("lagoon"));
+  }
+
+  @Test
+  void writes_made_while_the_index_loads_are_applied_after_it() throws Exception {
+    stored = Map.of(1L, soccer, 2L, lagoon);
+    Thread[] writer = new Thread[1];
+    when(articlesRepository.findAllByIdGreaterThanOrderByIdAsc(eq(0L), any())).thenAnswer(invocation -> {
+      // the load has read the table; an article saved and one deleted now
+      // wait for it to finish
+      writer[0] = new Thread(() -> {
+        articleSearchService.saved(lagoon);
+        articleSearchService.removed(tower.getId());
+      });
+      writer[0].start();
+      while (writer[0].getState() != Thread.State.WAITING && writer[0].getState() != Thread.State.TERMINATED) {
+        Thread.sleep(1);
+      }
+      return List.of(soccer, tower);
+    });
+
+    assertEquals(List.of(1L), searchIds("gauchos"));
+    writer[0].join();
+
+    assertEquals(List.of(2L), searchIds("lagoon"));
+    assertEquals(List.of(), searchIds("storke"));
+  }
+
+  @Test
+  void saved_and_removed_articles_are_searched_from_then_on() {
+    givenArticles(soccer, tower);
+    assertEquals(List.of(1L), searchIds("gauchos"));
+
+    Articles edited = article(1, "Gauchos tie", "The men's soccer team drew with Cal Poly");
+    stored = Map.of(1L, edited, 2L, lagoon);
+    articleSearchService.saved(lagoon);
+    articleSearchService.saved(edited);
+    articleSearchService.removed(tower.getId());
+
+    assertEquals(List.of(), searchIds("win"));
+    assertEquals(List.of(1L), searchIds("tie"));
+    assertEquals(List.of(2L), searchIds("lagoon"));
+    assertEquals(List.of(), searchIds("storke"));
+  }
+
+  @Test
+  void late_calls_leave_the_index_at_the_committed_row() {
+    givenArticles(soccer, lagoon);
+    assertEquals(List.of(1L), searchIds("gauchos"));
+
+    // soccer was edited twice and lagoon deleted, but the calls for the
+    // first edit and for lagoon's last save come after the others
+    Articles firstEdit = article(1, "Gauchos tie", "The men's soccer team drew with Cal Poly");
+    Articles secondEdit = article(1, "Gauchos lose", "The men's soccer team lost to Cal Poly");
+    stored = Map.of(1L, secondEdit);
+    articleSearchService.saved(secondEdit);
+    articleSearchService.removed(lagoon.getId());
+    articleSearchService.saved(firstEdit);
+    articleSearchService.saved(lagoon);
+
+    assertEquals(List.of(), searchIds("tie"));
+    assertEquals(List.of(1L), searchIds("lose"));
+    assertEquals(List.of(), searchIds("lagoon"));
+  }
+}
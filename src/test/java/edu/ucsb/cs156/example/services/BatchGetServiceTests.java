@@ -0,0 +1,177 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.hibernate.dialect.Dialect;
+import org.hibernate.dialect.H2Dialect;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.AopTestUtils;
+
+import edu.ucsb.cs156.example.entities.HelpRequest;
+import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+import edu.ucsb.cs156.example.models.BatchGetResult;
+import edu.ucsb.cs156.example.repositories.HelpRequestRepository;
+import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsRepository;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@Import(BatchGetService.class)
+public class BatchGetServiceTests {
+
+  @Autowired
+  BatchGetService batchGetService;
+
+  @Autowired
+  HelpRequestRepository helpRequestRepository;
+
+  @Autowired
+  UCSBDiningCommonsRepository ucsbDiningCommonsRepository;
+
+  List<HelpRequest> saved;
+
+  private static HelpRequest helpRequest(String teamId) {
+    return HelpRequest.builder()
+        .requesterEmail("cgaucho@ucsb.edu")
+        .teamId(teamId)
+        .tableOrBreakoutRoom("7")
+        .explanation("Need help with Swagger-ui")
+        .requestTime(LocalDateTime.parse("2022-04-20T17:35"))
+        .solved(false)
+        .build();
+  }
+
+  // the service itself, not its transactional proxy
+  BatchGetService target;
+
+  @BeforeEach
+  void saveSomeHelpRequests() {
+    target = AopTestUtils.getTargetObject(batchGetService);
+    saved = List.of(helpRequest("s22-5pm-1"), helpRequest("s22-5pm-2"), helpRequest("s22-5pm-3"),
+        helpRequest("s22-5pm-4"), helpRequest("s22-5pm-5"));
+    helpRequestRepository.saveAll(saved);
+  }
+
+  @AfterEach
+  void useTheDialectsChunkSize() {
+    target.configuredChunkSize = 0;
+  }
+
+  private List<Long> ids(int... indexes) {
+    return Arrays.stream(indexes).mapToObj(i -> saved.get(i).getId()).toList();
+  }
+
+  private static List<Object> missingIds(BatchGetResult<?> result) {
+    return result.getMissing().stream().map(BatchGetResult.Missing::getId).toList();
+  }
+
+  @Test
+  void rows_come_back_in_the_order_asked_for_without_repeats() {
+    BatchGetResult<HelpRequest> result = batchGetService.findAllById(helpRequestRepository, HelpRequest.class,
+        ids(3, 0, 3, 1));
+
+    assertEquals(List.of(saved.get(3), saved.get(0), saved.get(1)), result.getFound());
+    assertEquals(List.of(), result.getMissing());
+  }
+
+  @Test
+  void each_missing_id_is_reported() {
+    long missing = saved.get(4).getId() + 100;
+
+    BatchGetResult<HelpRequest> result = batchGetService.findAllById(helpRequestRepository, HelpRequest.class,
+        Arrays.asList(saved.get(2).getId(), missing, null));
+
+    assertEquals(List.of(saved.get(2)), result.getFound());
+    assertEquals(List.of(new BatchGetResult.Missing(missing, "HelpRequest with id %d not found".formatted(missing))),
+        result.getMissing());
+  }
+
+  @Test
+  void no_ids_finds_nothing() {
+    BatchGetResult<HelpRequest> result = batchGetService.findAllById(helpRequestRepository, HelpRequest.class,
+        List.of());
+
+    assertEquals(List.of(), result.getFound());
+    assertEquals(List.of(), result.getMissing());
+  }
+
+  @Test
+  void ids_are_read_a_chunk_at_a_time() {
+    target.configuredChunkSize = 2;
+    long missing = saved.get(4).getId() + 100;
+    List<Long> wanted = new ArrayList<>(ids(4, 3, 2, 1, 0));
+    wanted.add(2, missing);
+
+    BatchGetResult<HelpRequest> result = batchGetService.findAllById(helpRequestRepository, HelpRequest.class, wanted);
+
+    assertEquals(List.of(saved.get(4), saved.get(3), saved.get(2), saved.get(1), saved.get(0)), result.getFound());
+    assertEquals(List.of(missing), missingIds(result));
+  }
+
+  @Test
+  void a_statement_on_ids_is_run_a_chunk_at_a_time_and_the_counts_added_up() {
+    target.configuredChunkSize = 2;
+    List<List<Long>> chunks = new ArrayList<>();
+    List<Long> wanted = new ArrayList<>(ids(0, 1, 2, 1, 3));
+    wanted.add(null);
+    wanted.add(saved.get(4).getId() + 100);
+
+    int deleted = batchGetService.updateAllById(wanted, chunk -> {
+      chunks.add(List.copyOf(chunk));
+      return helpRequestRepository.deleteRowsByIdIn(chunk);
+    });
+
+    assertEquals(4, deleted);
+    assertEquals(List.of(ids(0, 1), ids(2, 3), List.of(saved.get(4).getId() + 100)), chunks);
+    assertEquals(List.of(saved.get(4)), helpRequestRepository.findAll());
+  }
+
+  @Test
+  void no_ids_runs_no_statement() {
+    assertEquals(0, batchGetService.updateAllById(List.<Long>of(), chunk -> {
+      throw new AssertionError("no statement should run");
+    }));
+  }
+
+  @Test
+  void string_keys_work_too() {
+    UCSBDiningCommons ortega = ucsbDiningCommonsRepository.save(UCSBDiningCommons.builder()
+        .code("ortega")
+        .name("Ortega")
+        .hasSackMeal(true)
+        .hasTakeOutMeal(true)
+        .hasDiningCam(true)
+        .build());
+
+    BatchGetResult<UCSBDiningCommons> result = batchGetService.findAllById(ucsbDiningCommonsRepository,
+        UCSBDiningCommons.class, List.of("portola", "ortega"));
+
+    assertEquals(List.of(ortega), result.getFound());
+    assertEquals(List.of("portola"), missingIds(result));
+    assertEquals("UCSBDiningCommons with id portola not found", result.getMissing().get(0).getMessage());
+  }
+
+  @Test
+  void the_chunk_size_is_the_dialects_limit_or_the_default() {
+    Dialect limited = mock(Dialect.class);
+    when(limited.getInExpressionCountLimit()).thenReturn(500);
+    Dialect unlimited = mock(Dialect.class);
+    when(unlimited.getInExpressionCountLimit()).thenReturn(0);
+
+    assertEquals(500, BatchGetService.chunkSizeFor(limited));
+    assertEquals(BatchGetService.DEFAULT_CHUNK_SIZE, BatchGetService.chunkSizeFor(unlimited));
+    assertEquals(BatchGetService.chunkSizeFor(new H2Dialect()), target.chunkSize());
+  }
+}
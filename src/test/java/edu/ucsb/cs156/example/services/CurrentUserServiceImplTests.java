@@ -0,0 +1,164 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.cache.CacheType;
+import org.springframework.boot.test.autoconfigure.core.AutoConfigureCache;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.client.authentication.OAuth2AuthenticationToken;
+import org.springframework.security.oauth2.core.user.DefaultOAuth2User;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+import edu.ucsb.cs156.example.config.CacheConfig;
+import edu.ucsb.cs156.example.config.SecurityConfig;
+import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+
+// The users and admins caches as configured in application.properties
+// (Caffeine), in front of the users table of an in-memory database.
+
+@DataJpaTest(properties = "app.admin.emails=phtcon@ucsb.edu")
+@ActiveProfiles("test")
+@AutoConfigureCache(cacheProvider = CacheType.CAFFEINE)
+@Import({ CacheConfig.class, CurrentUserServiceImpl.class })
+class CurrentUserServiceImplTests {
+
+  @Autowired
+  CurrentUserServiceImpl currentUserService;
+
+  @Autowired
+  UserRepository userRepository;
+
+  @Autowired
+  CacheManager cacheManager;
+
+  @MockBean
+  GrantedAuthoritiesService grantedAuthoritiesService;
+
+  @BeforeEach
+  void emptyTheCaches() {
+    cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+  }
+
+  @AfterEach
+  void logOut() {
+    SecurityContextHolder.clearContext();
+  }
+
+  private static void logInAs(String email) {
+    Map<String, Object> attributes = new HashMap<>();
+    attributes.put("sub", "1234");
+    attributes.put("email", email);
+    attributes.put("email_verified", true);
+    DefaultOAuth2User user = new DefaultOAuth2User(List.of(new SimpleGrantedAuthority("ROLE_USER")), attributes,
+        "sub");
+    SecurityContextHolder.getContext().setAuthentication(
+        new OAuth2AuthenticationToken(user, user.getAuthorities(), "google"));
+  }
+
+  private CacheStats usersCacheStats() {
+    return ((Cache<?, ?>) cacheManager.getCache(CacheConfig.USERS_CACHE).getNativeCache()).stats();
+  }
+
+  @Test
+  void the_user_is_read_from_the_database_once_and_then_from_the_cache() {
+    logInAs("cgaucho@ucsb.edu");
+    CacheStats before = usersCacheStats();
+
+    User first = currentUserService.getUser();
+    User second = currentUserService.getUser();
+
+    CacheStats stats = usersCacheStats().minus(before);
+    assertEquals(1, stats.missCount());
+    assertEquals(1, stats.hitCount());
+    assertSame(first, second);
+    assertEquals(1, userRepository.count());
+  }
+
+  @Test
+  void a_user_already_in_the_table_is_cached_too() {
+    userRepository.save(User.builder().email("phtcon@ucsb.edu").admin(false).build());
+    logInAs("phtcon@ucsb.edu");
+
+    User user = currentUserService.getUser();
+
+    assertEquals(true, user.getAdmin());
+    assertSame(user, cacheManager.getCache(CacheConfig.USERS_CACHE).get("phtcon@ucsb.edu", User.class));
+  }
+
+  @Test
+  void a_user_without_an_email_is_not_cached() {
+    logInAs(null);
+    CacheStats before = usersCacheStats();
+
+    User user = currentUserService.getUser();
+
+    assertNull(user.getEmail());
+    assertEquals(0, usersCacheStats().minus(before).requestCount());
+  }
+
+  @Test
+  void saving_a_user_evicts_the_cached_copy() {
+    logInAs("cgaucho@ucsb.edu");
+    User user = currentUserService.getUser();
+
+    user.setAdmin(true);
+    userRepository.save(user);
+
+    assertNull(cacheManager.getCache(CacheConfig.USERS_CACHE).get("cgaucho@ucsb.edu"));
+    assertEquals(true, currentUserService.getUser().getAdmin());
+  }
+
+  @Test
+  void deleting_users_by_the_batch_evicts_the_cached_copies() {
+    logInAs("cgaucho@ucsb.edu");
+    User user = currentUserService.getUser();
+
+    userRepository.deleteAllById(List.of(user.getId()));
+    assertNull(cacheManager.getCache(CacheConfig.USERS_CACHE).get("cgaucho@ucsb.edu"));
+
+    user = currentUserService.getUser();
+    userRepository.deleteAll(List.of(user));
+    assertNull(cacheManager.getCache(CacheConfig.USERS_CACHE).get("cgaucho@ucsb.edu"));
+    assertEquals(0, userRepository.count());
+  }
+
+  @Test
+  void the_cached_admin_flag_is_evicted_when_the_user_is_saved() {
+    SecurityConfig securityConfig = new SecurityConfig();
+    ReflectionTestUtils.setField(securityConfig, "userRepository", userRepository);
+    ReflectionTestUtils.setField(securityConfig, "cacheManager", cacheManager);
+    User user = userRepository.save(User.builder().email("cgaucho@ucsb.edu").admin(false).build());
+
+    assertFalse(securityConfig.getAdmin("cgaucho@ucsb.edu"));
+    assertEquals(false, cacheManager.getCache(CacheConfig.ADMINS_CACHE).get("cgaucho@ucsb.edu").get());
+
+    user.setAdmin(true);
+    userRepository.save(user);
+
+    assertNull(cacheManager.getCache(CacheConfig.ADMINS_CACHE).get("cgaucho@ucsb.edu"));
+    assertTrue(securityConfig.getAdmin("cgaucho@ucsb.edu"));
+    assertFalse(securityConfig.getAdmin(null));
+  }
+}
@@ -0,0 +1,224 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+import edu.ucsb.cs156.example.errors.InvalidLocationException;
+import edu.ucsb.cs156.example.models.NearbyDiningCommons;
+import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsRepository;
+
+@ExtendWith(SpringExtension.class)
+@ContextConfiguration(classes = DiningCommonsLocationService.class)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD) // the service keeps its index between calls
+class DiningCommonsLocationServiceTests {
+
+  @MockBean
+  UCSBDiningCommonsRepository ucsbDiningCommonsRepository;
+
+  @Autowired
+  DiningCommonsLocationService diningCommonsLocationService;
+
+  // Storke Tower, next to none of them
+  static final double LAT = 34.4125;
+  static final double LON = -119.8487;
+
+  UCSBDiningCommons carrillo = commons("carrillo", 34.409953, -119.85277);
+  UCSBDiningCommons ortega = commons("ortega", 34.410987, -119.84709);
+  UCSBDiningCommons dlg = commons("de-la-guerra", 34.409811, -119.845026);
+
+  private static UCSBDiningCommons commons(String code, Double latitude, Double longitude) {
+    return UCSBDiningCommons.builder()
+        .code(code)
+        .name(code)
+        .hasSackMeal(true)
+        .hasTakeOutMeal(false)
+        .hasDiningCam(true)
+        .latitude(latitude)
+        .longitude(longitude)
+        .build();
+  }
+
+  Map<String, UCSBDiningCommons> stored = new HashMap<>();
+
+  @BeforeEach
+  void findByIdReadsWhatIsStored() {
+    when(ucsbDiningCommonsRepository.findById(anyString()))
+        .thenAnswer(invocation -> Optional.ofNullable(stored.get(invocation.getArgument(0))));
+  }
+
+  // a write the controller made, and its call to the service
+  private void save(UCSBDiningCommons commons) {
+    stored.put(commons.getCode(), commons);
+    diningCommonsLocationService.saved(commons);
+  }
+
+  private void delete(String code) {
+    stored.remove(code);
+    diningCommonsLocationService.removed(code);
+  }
+
+  private List<String> nearestCodes(int k) {
+    return diningCommonsLocationService.nearest(LAT, LON, k).stream()
+        .map(nearby -> nearby.getCommons().getCode())
+        .toList();
+  }
+
+  @Test
+  void nearest_loads_the_commons_once() {
+    when(ucsbDiningCommonsRepository.findAll())
+        .thenReturn(List.of(carrillo, ortega, dlg, commons("portola", 34.4, null)));
+
+    List<NearbyDiningCommons> nearest = diningCommonsLocationService.nearest(LAT, LON, 2);
+
+    assertEquals(List.of("ortega", "de-la-guerra"), nearest.stream().map(nearby -> nearby.getCommons().getCode()).toList());
+    assertEquals(ortega, nearest.get(0).getCommons());
+    assertEquals(224, nearest.get(0).getDistanceMeters(), 1);
+    assertEquals(451, nearest.get(1).getDistanceMeters(), 1);
+    assertEquals(List.of("ortega", "de-la-guerra", "carrillo"), nearestCodes(10));
+    verify(ucsbDiningCommonsRepository, times(1)).findAll();
+  }
+
+  @Test
+  void concurrent_first_queries_load_only_once() throws Exception {
+    Thread[] other = new Thread[1];
+    when(ucsbDiningCommonsRepository.findAll()).thenAnswer(invocation -> {
+      // while the first query is loading, a second one waits for it
+      other[0] = new Thread(() -> diningCommonsLocationService.nearest(LAT, LON, 1));
+      other[0].start();
+      while (other[0].getState() != Thread.State.BLOCKED) {
+        Thread.sleep(1);
+      }
+      return List.of(carrillo);
+    });
+
+    diningCommonsLocationService.nearest(LAT, LON, 1);
+    other[0].join();
+
+    verify(ucsbDiningCommonsRepository, times(1)).findAll();
+  }
+
+  @Test
+  void k_below_one_returns_the_nearest() {
+    when(ucsbDiningCommonsRepository.findAll()).thenReturn(List.of(carrillo, ortega));
+
+    assertEquals(List.of("ortega"), nearestCodes(0));
+  }
+
+  @Test
+  void locations_off_the_earth_are_rejected() {
+    for (double[] location : new double[][] { { -90.1, 0 }, { 90.1, 0 }, { 0, -180.1 }, { 0, 180.1 },
+        { Double.NaN, 0 } }) {
+      InvalidLocationException e = assertThrows(InvalidLocationException.class,
+          () -> diningCommonsLocationService.nearest(location[0], location[1], 1));
+      assertEquals("(%s, %s) is not a location; latitude must be from -90 to 90 and longitude from -180 to 180"
+          .formatted(location[0], location[1]), e.getMessage());
+    }
+    verify(ucsbDiningCommonsRepository, never()).findAll();
+  }
+
+  @Test
+  void writes_before_the_first_query_are_left_to_the_load() {
+    when(ucsbDiningCommonsRepository.findAll()).thenReturn(List.of(carrillo));
+
+    save(ortega);
+    delete(carrillo.getCode());
+
+    assertEquals(List.of("carrillo"), nearestCodes(10));
+  }
+
+  @Test
+  void saved_commons_are_added_moved_and_dropped() {
+    when(ucsbDiningCommonsRepository.findAll()).thenReturn(List.of(carrillo));
+    assertEquals(List.of("carrillo"), nearestCodes(10));
+
+    save(ortega);
+    assertEquals(List.of("ortega", "carrillo"), nearestCodes(10));
+
+    // the entity read goes on being changed; the index must not see that
+    ortega.setLatitude(0.0);
+    assertEquals(List.of("ortega", "carrillo"), nearestCodes(10));
+
+    save(commons("carrillo", 34.4125, -119.8487));
+    assertEquals(List.of("carrillo", "ortega"), nearestCodes(10));
+    assertEquals(0, diningCommonsLocationService.nearest(LAT, LON, 1).get(0).getDistanceMeters(), 1e-6);
+
+    save(commons("carrillo", null, -119.8487));
+    assertEquals(List.of("ortega"), nearestCodes(10));
+  }
+
+  @Test
+  void the_commons_found_are_at_the_version_indexed() {
+    carrillo.setVersion(2);
+    when(ucsbDiningCommonsRepository.findAll()).thenReturn(List.of(carrillo));
+    assertEquals(2, diningCommonsLocationService.nearest(LAT, LON, 1).get(0).getCommons().getVersion());
+
+    ortega.setVersion(5);
+    save(ortega);
+    assertEquals(5, diningCommonsLocationService.nearest(ortega.getLatitude(), ortega.getLongitude(), 1).get(0)
+        .getCommons().getVersion());
+  }
+
+  @Test
+  void removed_commons_are_no_longer_found() {
+    when(ucsbDiningCommonsRepository.findAll()).thenReturn(List.of(carrillo, ortega, dlg));
+    assertEquals(3, nearestCodes(10).size());
+
+    delete(ortega.getCode());
+    delete("portola");
+
+    assertEquals(List.of("de-la-guerra", "carrillo"), nearestCodes(10));
+  }
+
+  @Test
+  void removing_one_of_two_commons_at_the_same_place_keeps_the_other() {
+    UCSBDiningCommons twin = commons("ortega-annex", ortega.getLatitude(), ortega.getLongitude());
+    when(ucsbDiningCommonsRepository.findAll()).thenReturn(List.of(ortega, twin));
+    assertEquals(2, nearestCodes(10).size());
+
+    delete(twin.getCode());
+    delete(ortega.getCode());
+    save(twin);
+
+    assertEquals(List.of("ortega-annex"), nearestCodes(10));
+  }
+
+  @Test
+  void late_calls_leave_the_index_at_the_committed_row() {
+    when(ucsbDiningCommonsRepository.findAll()).thenReturn(List.of(carrillo, ortega));
+    assertEquals(List.of("ortega", "carrillo"), nearestCodes(10));
+
+    // carrillo was moved twice and ortega deleted, but the calls for the
+    // first move and for ortega's last save come after the others
+    UCSBDiningCommons firstMove = commons("carrillo", LAT, LON);
+    UCSBDiningCommons secondMove = commons("carrillo", 34.0, -119.0);
+    stored.put("carrillo", secondMove);
+    diningCommonsLocationService.saved(secondMove);
+    diningCommonsLocationService.removed(ortega.getCode());
+    diningCommonsLocationService.saved(firstMove);
+    diningCommonsLocationService.saved(ortega);
+
+    List<NearbyDiningCommons> nearest = diningCommonsLocationService.nearest(LAT, LON, 10);
+    assertEquals(1, nearest.size());
+    assertEquals(secondMove, nearest.get(0).getCommons());
+  }
+}
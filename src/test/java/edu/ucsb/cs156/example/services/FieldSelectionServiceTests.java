@@ -0,0 +1,104 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.ActiveProfiles;
+
+import edu.ucsb.cs156.example.entities.HelpRequest;
+import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+import edu.ucsb.cs156.example.errors.UnknownFieldException;
+import edu.ucsb.cs156.example.repositories.HelpRequestRepository;
+import edu.ucsb.cs156.example.repositories.HelpRequestSpecifications;
+import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsRepository;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@Import(FieldSelectionService.class)
+public class FieldSelectionServiceTests {
+
+  @Autowired
+  FieldSelectionService fieldSelectionService;
+
+  @Autowired
+  HelpRequestRepository helpRequestRepository;
+
+  @Autowired
+  UCSBDiningCommonsRepository ucsbDiningCommonsRepository;
+
+  HelpRequest later;
+  HelpRequest earlier;
+
+  private static HelpRequest helpRequest(String teamId, String requestTime, boolean solved) {
+    return HelpRequest.builder()
+        .requesterEmail("cgaucho@ucsb.edu")
+        .teamId(teamId)
+        .tableOrBreakoutRoom("7")
+        .explanation("Need help with Swagger-ui")
+        .requestTime(LocalDateTime.parse(requestTime))
+        .solved(solved)
+        .build();
+  }
+
+  private static Map<String, Object> row(Object... keysAndValues) {
+    Map<String, Object> row = new LinkedHashMap<>();
+    for (int i = 0; i < keysAndValues.length; i += 2) {
+      row.put((String) keysAndValues[i], keysAndValues[i + 1]);
+    }
+    return row;
+  }
+
+  @BeforeEach
+  public void saveHelpRequests() {
+    later = helpRequestRepository.save(helpRequest("s22-6pm-3", "2022-03-11T00:00:00", false));
+    earlier = helpRequestRepository.save(helpRequest("s22-5pm-3", "2022-01-03T00:00:00", false));
+  }
+
+  @Test
+  public void selects_the_given_fields_in_the_given_order_by_id() {
+    List<Map<String, Object>> rows = fieldSelectionService.findAll(HelpRequest.class, "teamId, id,teamId");
+
+    assertEquals(List.of(row("teamId", "s22-6pm-3", "id", later.getId()), row("teamId", "s22-5pm-3", "id", earlier.getId())), rows);
+    assertEquals(List.of("teamId", "id"), List.copyOf(rows.get(0).keySet()));
+  }
+
+  @Test
+  public void orders_by_the_id_of_entities_keyed_by_something_else() {
+    ucsbDiningCommonsRepository.save(UCSBDiningCommons.builder().code("ortega").name("Ortega").build());
+    ucsbDiningCommonsRepository.save(UCSBDiningCommons.builder().code("carrillo").name("Carrillo").build());
+
+    List<Map<String, Object>> rows = fieldSelectionService.findAll(UCSBDiningCommons.class, "name");
+
+    assertEquals(List.of(row("name", "Carrillo"), row("name", "Ortega")), rows);
+  }
+
+  @Test
+  public void applies_the_filter_and_sort() {
+    helpRequestRepository.save(helpRequest("s22-4pm-1", "2022-02-01T00:00:00", true));
+
+    List<Map<String, Object>> rows = fieldSelectionService.findAll(HelpRequest.class, "teamId",
+        HelpRequestSpecifications.solvedIs(false), Sort.by("requestTime"));
+
+    assertEquals(List.of(row("teamId", "s22-5pm-3"), row("teamId", "s22-6pm-3")), rows);
+  }
+
+  @Test
+  public void unknown_fields_are_rejected() {
+    UnknownFieldException e = assertThrows(UnknownFieldException.class,
+        () -> fieldSelectionService.findAll(HelpRequest.class, "id,name,"));
+
+    assertEquals("HelpRequest has no field \"name\", \"\"; choose from explanation, id, requestTime, requesterEmail,"
+        + " solved, tableOrBreakoutRoom, teamId, version", e.getMessage());
+  }
+}
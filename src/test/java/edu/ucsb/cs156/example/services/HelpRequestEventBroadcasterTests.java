@@ -0,0 +1,247 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+class HelpRequestEventBroadcasterTests {
+
+  // Runs tasks only when the test says so, to control when events are sent
+  static class ManualTaskExecutor implements TaskExecutor {
+    final List<Runnable> tasks = new ArrayList<>();
+
+    public void execute(Runnable task) {
+      tasks.add(task);
+    }
+
+    void runAll() {
+      while (!tasks.isEmpty()) {
+        tasks.remove(0).run();
+      }
+    }
+  }
+
+  @RestController
+  static class StreamController {
+    HelpRequestEventBroadcaster broadcaster;
+
+    @GetMapping("/stream")
+    public SseEmitter stream() {
+      return broadcaster.subscribe();
+    }
+  }
+
+  HelpRequestEventBroadcaster broadcaster;
+  ManualTaskExecutor taskExecutor;
+  MockMvc mockMvc;
+
+  @BeforeEach
+  void setup() {
+    taskExecutor = new ManualTaskExecutor();
+    broadcaster = new HelpRequestEventBroadcaster();
+    broadcaster.mapper = new ObjectMapper();
+    broadcaster.sendExecutor = taskExecutor;
+    broadcaster.bufferSize = 3;
+
+    StreamController controller = new StreamController();
+    controller.broadcaster = broadcaster;
+    mockMvc = MockMvcBuilders.standaloneSetup(controller).build();
+  }
+
+  private MvcResult connect() throws Exception {
+    return mockMvc.perform(get("/stream")).andExpect(request().asyncStarted()).andReturn();
+  }
+
+  private static void notifyListeners(MvcResult connection, String what) throws Exception {
+    MockAsyncContext asyncContext = (MockAsyncContext) connection.getRequest().getAsyncContext();
+    for (AsyncListener listener : asyncContext.getListeners()) {
+      AsyncEvent event = new AsyncEvent(asyncContext);
+      switch (what) {
+        case "timeout" -> listener.onTimeout(event);
+        case "error" -> listener.onError(event);
+        default -> listener.onComplete(event);
+      }
+    }
+  }
+
+  @Test
+  void test_publish_without_subscribers_does_nothing() throws Exception {
+    broadcaster.publish(HelpRequestEventBroadcaster.CREATED, Map.of("id", 1));
+
+    assertEquals(0, broadcaster.subscriberCount());
+    assertEquals(0, taskExecutor.tasks.size());
+  }
+
+  @Test
+  void test_events_are_sent_in_order_to_every_subscriber() throws Exception {
+    MvcResult first = connect();
+    MvcResult second = connect();
+    assertEquals(2, broadcaster.subscriberCount());
+
+    broadcaster.publish(HelpRequestEventBroadcaster.CREATED, Map.of("id", 1));
+    broadcaster.publish(HelpRequestEventBroadcaster.DELETED, Map.of("id", 1));
+    assertEquals(2, taskExecutor.tasks.size()); // one drain per subscriber, not per event
+    taskExecutor.runAll();
+
+    String expected = "id:1\nevent:created\ndata:{\"id\":1}\n\n"
+        + "id:2\nevent:deleted\ndata:{\"id\":1}\n\n";
+    assertEquals(expected, first.getResponse().getContentAsString());
+    assertEquals(expected, second.getResponse().getContentAsString());
+  }
+
+  @Test
+  void test_a_subscriber_whose_buffer_is_full_is_disconnected() throws Exception {
+    MvcResult slow = connect();
+
+    for (int id = 1; id <= 4; id++) {
+      broadcaster.publish(HelpRequestEventBroadcaster.UPDATED, Map.of("id", id));
+    }
+
+    assertEquals(0, broadcaster.subscriberCount());
+    // the queued events can no longer be sent to the completed emitter
+    taskExecutor.runAll();
+    assertEquals(0, broadcaster.subscriberCount());
+    assertEquals("", slow.getResponse().getContentAsString());
+  }
+
+  @Test
+  void test_subscribers_are_removed_when_the_connection_ends() throws Exception {
+    MvcResult timedOut = connect();
+    MvcResult failed = connect();
+    MvcResult completed = connect();
+    assertEquals(3, broadcaster.subscriberCount());
+
+    notifyListeners(timedOut, "timeout");
+    notifyListeners(failed, "error");
+    notifyListeners(completed, "complete");
+
+    assertEquals(0, broadcaster.subscriberCount());
+  }
+
+  @Test
+  void test_a_subscriber_that_takes_too_long_to_read_an_event_is_disconnected() throws Exception {
+    AtomicLong now = new AtomicLong();
+    broadcaster.nanoTime = () -> now.getAndAdd(Duration.ofSeconds(11).toNanos());
+    MvcResult slow = connect();
+
+    broadcaster.publish(HelpRequestEventBroadcaster.CREATED, Map.of("id", 1));
+    taskExecutor.runAll();
+    broadcaster.publish(HelpRequestEventBroadcaster.CREATED, Map.of("id", 2));
+    taskExecutor.runAll();
+
+    assertEquals(0, broadcaster.subscriberCount());
+    assertEquals("id:1\nevent:created\ndata:{\"id\":1}\n\n", slow.getResponse().getContentAsString());
+  }
+
+  @Test
+  void test_a_subscriber_whose_connection_has_gone_is_removed_on_the_next_send() throws Exception {
+    SseEmitter emitter = broadcaster.subscribe();
+    emitter.complete();
+
+    broadcaster.publish(HelpRequestEventBroadcaster.CREATED, Map.of("id", 1));
+    assertEquals(1, broadcaster.subscriberCount());
+    taskExecutor.runAll();
+
+    assertEquals(0, broadcaster.subscriberCount());
+  }
+
+  @Test
+  void test_a_subscriber_stuck_in_a_send_is_disconnected_by_the_next_event() throws Exception {
+    Thread publisher = Thread.currentThread();
+    AtomicLong publisherNow = new AtomicLong(Duration.ofSeconds(1).toNanos());
+    CountDownLatch inSend = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    AtomicInteger drainClockReads = new AtomicInteger();
+    broadcaster.nanoTime = () -> {
+      if (Thread.currentThread() == publisher) {
+        return publisherNow.get();
+      }
+      // the drain's second read of the clock is at the end of its first send
+      if (drainClockReads.incrementAndGet() == 2) {
+        inSend.countDown();
+        try {
+          release.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+      return 0;
+    };
+    List<Thread> drains = new ArrayList<>();
+    broadcaster.sendExecutor = task -> {
+      Thread drain = new Thread(task);
+      drains.add(drain);
+      drain.start();
+    };
+    MvcResult stuck = connect();
+
+    broadcaster.publish(HelpRequestEventBroadcaster.CREATED, Map.of("id", 1));
+    inSend.await(10, TimeUnit.SECONDS);
+    broadcaster.publish(HelpRequestEventBroadcaster.CREATED, Map.of("id", 2));
+    assertEquals(1, broadcaster.subscriberCount());
+    publisherNow.set(Duration.ofMinutes(1).toNanos());
+    broadcaster.publish(HelpRequestEventBroadcaster.CREATED, Map.of("id", 3));
+    assertEquals(0, broadcaster.subscriberCount());
+    release.countDown();
+    drains.get(0).join(10_000);
+
+    assertEquals(1, drains.size());
+    assertEquals("id:1\nevent:created\ndata:{\"id\":1}\n\n", stuck.getResponse().getContentAsString());
+  }
+
+  @Test
+  void test_a_subscriber_is_disconnected_when_no_thread_can_take_its_events() throws Exception {
+    broadcaster.sendExecutor = task -> {
+      throw new RejectedExecutionException();
+    };
+    MvcResult waiting = connect();
+
+    broadcaster.publish(HelpRequestEventBroadcaster.CREATED, Map.of("id", 1));
+
+    assertEquals(0, broadcaster.subscriberCount());
+    assertEquals("", waiting.getResponse().getContentAsString());
+  }
+
+  @Test
+  void test_events_are_sent_by_the_broadcasters_own_threads() throws Exception {
+    broadcaster.start();
+    MvcResult connection = connect();
+
+    broadcaster.publish(HelpRequestEventBroadcaster.CREATED, Map.of("id", 1));
+    for (int tries = 0; connection.getResponse().getContentAsString().isEmpty() && tries < 1000; tries++) {
+      Thread.sleep(10);
+    }
+    broadcaster.stop();
+
+    assertEquals("id:1\nevent:created\ndata:{\"id\":1}\n\n", connection.getResponse().getContentAsString());
+    assertTrue(((ExecutorService) broadcaster.sendExecutor).isShutdown());
+  }
+}
@@ -0,0 +1,198 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.jupiter.api.Test;
+
+import edu.ucsb.cs156.example.services.InvertedIndex.Hit;
+
+// Checks which documents the index finds against a full scan of their words,
+// and the order it ranks them in on small examples.
+
+class InvertedIndexTests {
+
+  private final InvertedIndex index = new InvertedIndex();
+
+  private List<Long> ids(String query, boolean lastIsPrefix, int limit) {
+    return index.search(InvertedIndex.words(query), lastIsPrefix, limit).stream().map(Hit::id).toList();
+  }
+
+  private List<Long> ids(String query) {
+    return ids(query, false, 100);
+  }
+
+  @Test
+  void words_are_lower_cased_without_punctuation() {
+    assertEquals(List.of("gauchos", "win", "the", "2022", "ncaa", "título"),
+        InvertedIndex.words("  Gauchos win: the 2022 NCAA... Título!"));
+    assertEquals(List.of(), InvertedIndex.words(null));
+    assertEquals(List.of(), InvertedIndex.words(" -- "));
+  }
+
+  @Test
+  void an_empty_index_or_query_finds_nothing() {
+    assertEquals(List.of(), ids("gaucho"));
+
+    index.put(1, "gaucho", null);
+
+    assertEquals(List.of(), ids(""));
+  }
+
+  @Test
+  void every_word_must_appear() {
+    index.put(1, "Gauchos win", "soccer at Harder Stadium");
+    index.put(2, "Gauchos lose", "basketball at the Thunderdome");
+    index.put(3, "Storke Tower", "soccer practice");
+
+    assertEquals(List.of(1L), ids("gauchos soccer"));
+    assertEquals(List.of(1L), ids("soccer win gauchos"));
+    assertEquals(List.of(), ids("gauchos tennis"));
+    assertEquals(List.of(), ids("gauchos storke soccer"));
+  }
+
+  @Test
+  void a_word_in_the_title_counts_for_more() {
+    index.put(1, "Campus news", "the library opens late");
+    index.put(2, "Library hours", "the campus library opens late");
+    index.put(3, "Dining", "more food");
+
+    assertEquals(List.of(2L, 1L), ids("library"));
+  }
+
+  @Test
+  void rarer_words_count_for_more() {
+    index.put(1, "", "common rare");
+    index.put(2, "", "common common");
+    index.put(3, "", "common");
+    index.put(4, "", "common rare rare");
+
+    List<Hit> hits = index.search(List.of("common"), false, 10);
+    assertEquals(4, hits.size());
+    double commonInTwo = hits.stream().filter(hit -> hit.id() == 2).findFirst().get().score();
+    double rareInFour = index.search(List.of("rare"), false, 10).get(0).score();
+    assertTrue(rareInFour > commonInTwo);
+  }
+
+  @Test
+  void only_the_last_word_can_be_a_prefix() {
+    index.put(1, "Gauchos win", "soccer");
+    index.put(2, "Gauchos", "socks");
+    index.put(3, "Gaucho", "the Gauchos play soccer in socks");
+
+    assertEquals(List.of(), ids("gau", false, 10));
+    assertEquals(List.of(1L, 2L, 3L), ids("gau", true, 10).stream().sorted().toList());
+    assertEquals(List.of(1L, 3L), ids("soccer gau", true, 10).stream().sorted().toList());
+    assertEquals(List.of(), ids("gau soccer", true, 10));
+  }
+
+  @Test
+  void a_prefix_expands_to_its_most_common_words() {
+    for (int i = 0; i < InvertedIndex.MAX_PREFIX_WORDS; i++) {
+      index.put(2 * i, "word" + i, null);
+      index.put(2 * i + 1, "word" + i, null);
+    }
+    index.put(1000, "wordrare", null);
+
+    assertEquals(2 * InvertedIndex.MAX_PREFIX_WORDS, ids("wor", true, 1000).size());
+    assertEquals(List.of(1000L), ids("wordr", true, 10));
+  }
+
+  @Test
+  void a_short_last_word_is_not_a_prefix() {
+    index.put(1, "UC system", null);
+    index.put(2, "UCSB", null);
+
+    assertEquals(List.of(1L), ids("uc", true, 10));
+    assertEquals(List.of(2L), ids("ucs", true, 10));
+  }
+
+  @Test
+  void equal_scores_are_in_id_order_and_the_limit_keeps_the_best() {
+    index.put(5, "", "gaucho");
+    index.put(3, "", "gaucho");
+    index.put(4, "", "gaucho gaucho");
+    index.put(9, "", "gaucho");
+    index.put(10, "", "gaucho in a longer explanation");
+
+    assertEquals(List.of(4L, 3L, 5L, 9L, 10L), ids("gaucho"));
+    assertEquals(List.of(4L, 3L), ids("gaucho", false, 2));
+  }
+
+  @Test
+  void put_replaces_and_remove_drops_a_document() {
+    index.put(1, "Gauchos win", null);
+    index.put(2, "Gauchos lose", null);
+    index.put(3, "Gaucho", null);
+
+    index.put(1, "Gauchos tie", null);
+    index.remove(2);
+    index.remove(42);
+
+    assertEquals(2, index.size());
+    assertEquals(List.of(1L, 3L), ids("gau", true, 10).stream().sorted().toList());
+    assertEquals(List.of(), ids("win"));
+    assertEquals(List.of(), ids("lose"));
+    assertEquals(List.of(1L), ids("gauchos"));
+    assertEquals(List.of(1L), ids("tie"));
+  }
+
+  @Test
+  void removing_everything_leaves_nothing_to_find() {
+    index.put(1, "Gauchos", null);
+    index.put(2, "Gauchos", null);
+
+    index.remove(1);
+    index.remove(2);
+
+    assertEquals(0, index.size());
+    assertEquals(List.of(), ids("gauchos"));
+  }
+
+  @Test
+  void puts_and_removes_match_a_full_scan() {
+    Random random = new Random(156);
+    String[] vocabulary = { "gaucho", "gauchos", "storke", "tower", "lagoon", "isla", "vista", "soccer", "surf",
+        "library", "dining", "commons", "ortega", "carrillo", "portola" };
+    Map<Long, List<String>> documents = new HashMap<>();
+    for (int step = 0; step < 3000; step++) {
+      long id = random.nextInt(300);
+      if (random.nextInt(4) == 0) {
+        documents.remove(id);
+        index.remove(id);
+      } else {
+        List<String> title = new ArrayList<>();
+        List<String> body = new ArrayList<>();
+        for (int i = random.nextInt(3); i > 0; i--) {
+          title.add(vocabulary[random.nextInt(vocabulary.length)]);
+        }
+        for (int i = random.nextInt(8); i > 0; i--) {
+          body.add(vocabulary[random.nextInt(vocabulary.length)]);
+        }
+        List<String> words = new ArrayList<>(title);
+        words.addAll(body);
+        documents.put(id, words);
+        index.put(id, String.join(" ", title), String.join(" ", body));
+      }
+      assertEquals(documents.size(), index.size());
+      if (step % 50 == 0) {
+        String first = vocabulary[random.nextInt(vocabulary.length)];
+        String prefix = vocabulary[random.nextInt(vocabulary.length)].substring(0, InvertedIndex.MIN_PREFIX_LENGTH);
+        TreeSet<Long> expected = new TreeSet<>();
+        documents.forEach((documentId, words) -> {
+          if (words.contains(first) && words.stream().anyMatch(word -> word.startsWith(prefix))) {
+            expected.add(documentId);
+          }
+        });
+        assertEquals(expected, new TreeSet<>(ids(first + " " + prefix, true, 1000)));
+      }
+    }
+  }
+}
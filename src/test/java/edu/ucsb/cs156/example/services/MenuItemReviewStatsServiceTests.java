@@ -0,0 +1,205 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import edu.ucsb.cs156.example.entities.MenuItemReview;
+import edu.ucsb.cs156.example.models.MenuItemRatingStats;
+import edu.ucsb.cs156.example.repositories.MenuItemReviewRepository;
+import edu.ucsb.cs156.example.repositories.MenuItemReviewRepository.StarsCount;
+
+@ExtendWith(SpringExtension.class)
+@ContextConfiguration(classes = MenuItemReviewStatsService.class)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD) // the service keeps its statistics between calls
+class MenuItemReviewStatsServiceTests {
+
+  @MockBean
+  MenuItemReviewRepository menuItemReviewRepository;
+
+  @Autowired
+  MenuItemReviewStatsService menuItemReviewStatsService;
+
+  LocalDateTime jan = LocalDateTime.parse("2022-01-03T00:00:00");
+  LocalDateTime mar = LocalDateTime.parse("2022-03-11T00:00:00");
+  LocalDateTime may = LocalDateTime.parse("2022-05-20T00:00:00");
+
+  private static StarsCount starsCount(long itemId, int stars, long count, LocalDateTime lastReviewed) {
+    return new StarsCount() {
+      public long getItemId() { return itemId; }
+      public int getStars() { return stars; }
+      public long getCount() { return count; }
+      public LocalDateTime getLastReviewed() { return lastReviewed; }
+    };
+  }
+
+  private static MenuItemReview review(long itemId, int stars, LocalDateTime dateReviewed) {
+    return MenuItemReview.builder()
+        .itemId(itemId)
+        .reviewerEmail("sophiattran@ucsb.edu")
+        .stars(stars)
+        .dateReviewed(dateReviewed)
+        .comments("ok")
+        .build();
+  }
+
+  private void givenReviews(StarsCount... rows) {
+    when(menuItemReviewRepository.countByItemIdAndStars()).thenReturn(List.of(rows));
+  }
+
+  @Test
+  void test_getAll_loads_once_from_grouped_counts() {
+    givenReviews(
+        starsCount(43, 5, 1, jan),
+        starsCount(42, 2, 1, null),
+        starsCount(42, 3, 2, mar),
+        starsCount(42, 4, 1, jan),
+        starsCount(42, 5, 1, null));
+
+    List<MenuItemRatingStats> all = menuItemReviewStatsService.getAll();
+    menuItemReviewStatsService.getAll();
+
+    MenuItemRatingStats expected42 = MenuItemRatingStats.builder()
+        .itemId(42).count(5).mean(17.0 / 5)
+        .histogram(List.of(0L, 0L, 1L, 2L, 1L, 1L))
+        .lastReviewed(mar)
+        .build();
+    MenuItemRatingStats expected43 = MenuItemRatingStats.builder()
+        .itemId(43).count(1).mean(5.0)
+        .histogram(List.of(0L, 0L, 0L, 0L, 0L, 1L))
+        .lastReviewed(jan)
+        .build();
+    assertEquals(List.of(expected42, expected43), all);
+    verify(menuItemReviewRepository, times(1)).countByItemIdAndStars();
+  }
+
+  @Test
+  void test_concurrent_first_reads_load_only_once() throws Exception {
+    Thread[] other = new Thread[1];
+    when(menuItemReviewRepository.countByItemIdAndStars()).thenAnswer(invocation -> {
+      // while the first read is loading, a second one waits for it
+      other[0] = new Thread(() -> menuItemReviewStatsService.getAll());
+      other[0].start();
+      while (other[0].getState() != Thread.State.BLOCKED) {
+        Thread.sleep(1);
+      }
+      return List.of(starsCount(42, 3, 1, jan));
+    });
+
+    menuItemReviewStatsService.getAll();
+    other[0].join();
+
+    verify(menuItemReviewRepository, times(1)).countByItemIdAndStars();
+  }
+
+  @Test
+  void test_get_returns_empty_for_item_without_reviews() {
+    givenReviews(starsCount(42, 3, 1, jan));
+
+    assertTrue(menuItemReviewStatsService.get(7L).isEmpty());
+    assertEquals(1, menuItemReviewStatsService.get(42L).get().getCount());
+  }
+
+  @Test
+  void test_changes_before_first_load_are_left_to_the_load() {
+    givenReviews(starsCount(42, 3, 1, jan));
+
+    menuItemReviewStatsService.added(review(42, 5, mar));
+    menuItemReviewStatsService.removed(review(42, 3, jan));
+
+    assertEquals(List.of(0L, 0L, 0L, 1L, 0L, 0L), menuItemReviewStatsService.get(42L).get().getHistogram());
+    verify(menuItemReviewRepository, never()).countByItemIdInAndStars(any());
+  }
+
+  @Test
+  void test_added_regroups_only_the_item_of_the_review() {
+    givenReviews(
+        starsCount(42, 3, 1, mar),
+        starsCount(43, 4, 1, may));
+    menuItemReviewStatsService.getAll();
+    when(menuItemReviewRepository.countByItemIdInAndStars(Set.of(42L))).thenReturn(List.of(
+        starsCount(42, 3, 1, mar),
+        starsCount(42, 5, 1, jan)));
+
+    menuItemReviewStatsService.added(review(42, 5, jan));
+
+    MenuItemRatingStats stats42 = menuItemReviewStatsService.get(42L).get();
+    assertEquals(2, stats42.getCount());
+    assertEquals(4.0, stats42.getMean());
+    assertEquals(List.of(0L, 0L, 0L, 1L, 0L, 1L), stats42.getHistogram());
+    assertEquals(mar, stats42.getLastReviewed());
+    assertEquals(1, menuItemReviewStatsService.get(43L).get().getCount());
+  }
+
+  @Test
+  void test_a_review_saved_before_the_load_but_reported_after_it_is_counted_once() {
+    // the load already read the new review from the table
+    givenReviews(starsCount(42, 3, 1, jan));
+    menuItemReviewStatsService.getAll();
+    when(menuItemReviewRepository.countByItemIdInAndStars(Set.of(42L))).thenReturn(List.of(starsCount(42, 3, 1, jan)));
+
+    menuItemReviewStatsService.added(review(42, 3, jan));
+
+    assertEquals(1, menuItemReviewStatsService.get(42L).get().getCount());
+  }
+
+  @Test
+  void test_removing_the_last_review_of_an_item_drops_its_stats() {
+    givenReviews(starsCount(42, 3, 1, jan));
+    menuItemReviewStatsService.getAll();
+    when(menuItemReviewRepository.countByItemIdInAndStars(Set.of(42L))).thenReturn(List.of());
+
+    menuItemReviewStatsService.removed(review(42, 3, jan));
+
+    assertTrue(menuItemReviewStatsService.get(42L).isEmpty());
+    assertEquals(List.of(), menuItemReviewStatsService.getAll());
+  }
+
+  @Test
+  void test_updated_regroups_both_items_when_a_review_moves() {
+    givenReviews(
+        starsCount(42, 3, 1, jan),
+        starsCount(42, 5, 1, mar));
+    menuItemReviewStatsService.getAll();
+    when(menuItemReviewRepository.countByItemIdInAndStars(Set.of(42L, 43L))).thenReturn(List.of(
+        starsCount(42, 5, 1, mar),
+        starsCount(43, 2, 1, may)));
+
+    menuItemReviewStatsService.updated(review(42, 3, jan), review(43, 2, may));
+
+    assertEquals(List.of(0L, 0L, 0L, 0L, 0L, 1L), menuItemReviewStatsService.get(42L).get().getHistogram());
+    assertEquals(List.of(0L, 0L, 1L, 0L, 0L, 0L), menuItemReviewStatsService.get(43L).get().getHistogram());
+  }
+
+  @Test
+  void test_addedAll_regroups_each_item_once() {
+    givenReviews();
+    menuItemReviewStatsService.getAll();
+    when(menuItemReviewRepository.countByItemIdInAndStars(Set.of(42L, 43L))).thenReturn(List.of(
+        starsCount(42, 1, 2, may),
+        starsCount(43, 4, 1, jan)));
+
+    menuItemReviewStatsService.addedAll(List.of(review(42, 1, mar), review(43, 4, jan), review(42, 1, may)));
+
+    assertEquals(2, menuItemReviewStatsService.get(42L).get().getCount());
+    assertEquals(may, menuItemReviewStatsService.get(42L).get().getLastReviewed());
+    assertEquals(1, menuItemReviewStatsService.get(43L).get().getCount());
+    verify(menuItemReviewRepository, times(1)).countByItemIdInAndStars(any());
+  }
+}
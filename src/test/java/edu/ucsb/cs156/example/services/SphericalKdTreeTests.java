@@ -0,0 +1,160 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import edu.ucsb.cs156.example.services.SphericalKdTree.Neighbor;
+
+// Checks the tree's answers against a brute-force scan of the same places.
+
+class SphericalKdTreeTests {
+
+  private record Place(String name, double latitude, double longitude) {
+  }
+
+  private final Random random = new Random(156);
+
+  private Place randomPlace(int i) {
+    return new Place("p" + i, Math.toDegrees(Math.asin(2 * random.nextDouble() - 1)), 360 * random.nextDouble() - 180);
+  }
+
+  private static double haversineMeters(double lat1, double lon1, double lat2, double lon2) {
+    double dLat = Math.toRadians(lat2 - lat1);
+    double dLon = Math.toRadians(lon2 - lon1);
+    double a = Math.pow(Math.sin(dLat / 2), 2)
+        + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * Math.pow(Math.sin(dLon / 2), 2);
+    return 2 * SphericalKdTree.EARTH_RADIUS_METERS * Math.asin(Math.sqrt(a));
+  }
+
+  private static List<String> bruteForce(List<Place> places, double latitude, double longitude, int k) {
+    return places.stream()
+        .sorted(Comparator.comparingDouble(p -> haversineMeters(latitude, longitude, p.latitude(), p.longitude())))
+        .limit(k)
+        .map(Place::name)
+        .toList();
+  }
+
+  private static List<String> names(List<Neighbor<Place>> neighbors) {
+    return neighbors.stream().map(neighbor -> neighbor.value().name()).toList();
+  }
+
+  private static SphericalKdTree<Place> treeOf(List<Place> places) {
+    return SphericalKdTree.of(places, Place::latitude, Place::longitude);
+  }
+
+  @Test
+  void empty_tree_has_no_neighbors() {
+    assertEquals(List.of(), SphericalKdTree.<Place>empty().nearest(34.41, -119.85, 3));
+  }
+
+  @Test
+  void distances_are_great_circle_meters() {
+    Place storke = new Place("storke", 34.4125, -119.8487);
+    SphericalKdTree<Place> tree = treeOf(List.of(storke));
+
+    List<Neighbor<Place>> nearest = tree.nearest(34.4140, -119.8489, 1);
+
+    assertEquals(haversineMeters(34.4140, -119.8489, storke.latitude(), storke.longitude()),
+        nearest.get(0).distanceMeters(), 1e-6);
+  }
+
+  @Test
+  void nearest_k_match_a_full_scan() {
+    List<Place> places = new ArrayList<>();
+    for (int i = 0; i < 2000; i++) {
+      places.add(randomPlace(i));
+    }
+    SphericalKdTree<Place> tree = treeOf(places);
+
+    for (int query = 0; query < 200; query++) {
+      Place target = randomPlace(-1);
+      int k = 1 + random.nextInt(10);
+      assertEquals(bruteForce(places, target.latitude(), target.longitude(), k),
+          names(tree.nearest(target.latitude(), target.longitude(), k)));
+    }
+  }
+
+  @Test
+  void k_larger_than_the_tree_returns_everything() {
+    List<Place> places = List.of(new Place("a", 0, 0), new Place("b", 0, 1), new Place("c", 0, 2));
+
+    assertEquals(List.of("a", "b", "c"), names(treeOf(places).nearest(0, -1, 10)));
+  }
+
+  @Test
+  void places_at_the_same_point_are_all_found() {
+    List<Place> places = List.of(new Place("a", 10, 10), new Place("b", 10, 10), new Place("c", 10, 10),
+        new Place("d", 10, 10), new Place("e", 20, 20));
+    SphericalKdTree<Place> tree = treeOf(places);
+
+    tree = tree.without(10, 10, place -> place.name().equals("c"));
+
+    assertEquals(List.of("a", "b", "d"), names(tree.nearest(10, 10, 3)).stream().sorted().toList());
+    assertEquals("e", names(tree.nearest(20, 20, 1)).get(0));
+  }
+
+  @Test
+  void insertions_and_removals_match_a_full_scan() {
+    List<Place> places = new ArrayList<>();
+    SphericalKdTree<Place> tree = SphericalKdTree.empty();
+    for (int step = 0; step < 3000; step++) {
+      if (!places.isEmpty() && random.nextInt(3) == 0) {
+        Place gone = places.remove(random.nextInt(places.size()));
+        tree = tree.without(gone.latitude(), gone.longitude(), place -> place == gone);
+      } else {
+        Place place = randomPlace(step);
+        places.add(place);
+        tree = tree.with(place.latitude(), place.longitude(), place);
+      }
+      assertEquals(places.size(), tree.size());
+      if (step % 50 == 0) {
+        Place target = randomPlace(-1);
+        assertEquals(bruteForce(places, target.latitude(), target.longitude(), 5),
+            names(tree.nearest(target.latitude(), target.longitude(), 5)));
+      }
+    }
+  }
+
+  @Test
+  void insertions_in_order_keep_the_tree_shallow() {
+    // sorted input is the worst case for an unbalanced tree
+    List<Place> places = new ArrayList<>();
+    SphericalKdTree<Place> tree = SphericalKdTree.empty();
+    for (int i = 0; i < 500; i++) {
+      Place place = new Place("p" + i, -60 + i * 0.2, -100 + i * 0.3);
+      places.add(place);
+      tree = tree.with(place.latitude(), place.longitude(), place);
+    }
+
+    assertEquals(bruteForce(places, 0, 0, 4), names(tree.nearest(0, 0, 4)));
+  }
+
+  @Test
+  void removing_what_is_not_there_returns_the_same_tree() {
+    SphericalKdTree<Place> tree = treeOf(List.of(new Place("a", 0, 0), new Place("b", -10, -10),
+        new Place("c", 10, 10)));
+
+    assertSame(tree, tree.without(5, 5, place -> true));
+    assertSame(tree, tree.without(-5, -5, place -> true));
+    assertSame(tree, tree.without(0, 0, place -> false));
+  }
+
+  @Test
+  void removing_everything_leaves_an_empty_tree() {
+    Place a = new Place("a", 0, 0);
+    Place b = new Place("b", 1, 1);
+    SphericalKdTree<Place> tree = treeOf(List.of(a, b));
+
+    tree = tree.without(0, 0, place -> true).without(1, 1, place -> true);
+
+    assertEquals(0, tree.size());
+    assertEquals(List.of(), tree.nearest(0, 0, 1));
+  }
+}
@@ -0,0 +1,39 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import edu.ucsb.cs156.example.entities.Articles;
+import edu.ucsb.cs156.example.entities.UCSBDate;
+
+public class TableVersionServiceTests {
+
+  @Test
+  public void versions_start_at_zero_and_count_changes_per_table() {
+    TableVersionService service = new TableVersionService();
+
+    service.changed(Articles.class);
+    service.changed(Articles.class);
+
+    assertEquals(2, service.getVersion(Articles.class));
+    assertEquals(0, service.getVersion(UCSBDate.class));
+  }
+
+  @Test
+  public void etag_is_a_weak_tag_that_changes_with_the_version() {
+    TableVersionService service = new TableVersionService();
+
+    String before = service.etag(Articles.class);
+    service.changed(Articles.class);
+    String after = service.etag(Articles.class);
+
+    assertTrue(before.startsWith("W/\"Articles-"));
+    assertTrue(before.endsWith("-0\""));
+    assertTrue(after.endsWith("-1\""));
+    assertNotEquals(before, after);
+    assertNotEquals(before, service.etag(UCSBDate.class));
+  }
+}
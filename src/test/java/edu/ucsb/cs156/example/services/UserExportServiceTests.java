@@ -0,0 +1,76 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import javax.persistence.EntityManager;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+
+public class UserExportServiceTests {
+
+  private final ObjectMapper mapper = new ObjectMapper();
+  private UserExportService service;
+
+  @BeforeEach
+  public void setup() {
+    service = new UserExportService();
+    service.userRepository = mock(UserRepository.class);
+    service.entityManager = mock(EntityManager.class);
+    service.mapper = mapper;
+  }
+
+  @Test
+  public void writes_users_as_a_json_array_and_detaches_each_one() throws Exception {
+    User u1 = User.builder().id(1L).email("cgaucho@ucsb.edu").build();
+    User u2 = User.builder().id(2L).email("ldelplaya@ucsb.edu").build();
+    AtomicBoolean closed = new AtomicBoolean(false);
+    Pageable page = PageRequest.of(0, 2);
+    when(service.userRepository.streamByIdGreaterThanAndEmailContainingIgnoreCaseOrderByIdAsc(0L, "ucsb", page))
+        .thenReturn(Stream.of(u1, u2).onClose(() -> closed.set(true)));
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    service.writeUsers(out, "ucsb", 0L, page);
+
+    assertEquals(mapper.writeValueAsString(List.of(u1, u2)), out.toString());
+    verify(service.entityManager, times(1)).detach(u1);
+    verify(service.entityManager, times(1)).detach(u2);
+    assertTrue(closed.get());
+  }
+
+  @Test
+  public void writes_an_empty_array_when_no_user_matches() throws Exception {
+    when(service.userRepository.streamByIdGreaterThanAndEmailContainingIgnoreCaseOrderByIdAsc(7L, "nobody", Pageable.unpaged()))
+        .thenReturn(Stream.empty());
+    AtomicBoolean outClosed = new AtomicBoolean(false);
+    ByteArrayOutputStream out = new ByteArrayOutputStream() {
+      @Override
+      public void close() {
+        outClosed.set(true);
+      }
+    };
+
+    service.writeUsers(out, "nobody", 7L, Pageable.unpaged());
+
+    assertEquals("[]", out.toString());
+    assertFalse(outClosed.get());
+  }
+}